@@ -0,0 +1,91 @@
+package com.ibm.aimonitoring.processor.benchmark;
+
+import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
+import com.ibm.aimonitoring.processor.service.LogFeatureExtractor;
+import com.ibm.aimonitoring.processor.service.LogFeatures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-log cost of keyword feature extraction: the previous approach, which lower-cased the message
+ * once for enrichment and again for the ML request and searched it for each keyword in turn,
+ * against a single {@link LogFeatureExtractor} scan.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.args="FeatureExtraction -prof gc"}
+ * to compare allocation per log as well.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeatureExtractionBenchmark {
+
+    private static final String[] MESSAGES = {
+            "Request served in 12ms for GET /api/v1/orders",
+            "Connection timeout calling payment gateway: java.net.SocketTimeoutException: Read timed out",
+            "Retrying connection to database (attempt 2)",
+            "Cache refreshed for tenant acme"
+    };
+
+    @Param({"64", "512", "10000"})
+    private int messageLength;
+
+    private LogFeatureExtractor extractor;
+    private LogEntryDTO[] logs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        extractor = LogFeatureExtractor.withDefaultKeywords();
+        logs = new LogEntryDTO[MESSAGES.length];
+        for (int i = 0; i < logs.length; i++) {
+            StringBuilder message = new StringBuilder(messageLength);
+            while (message.length() < messageLength) {
+                message.append(MESSAGES[i]).append(' ');
+            }
+            message.setLength(messageLength);
+            logs[i] = LogEntryDTO.builder().level("INFO").service("api-gateway").message(message.toString()).build();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public int toLowerCaseContains(Cursor cursor) {
+        String message = logs[cursor.next++ & (logs.length - 1)].getMessage();
+        // Enrichment
+        String lower = message.toLowerCase();
+        boolean hasException = lower.contains("exception") || lower.contains("error");
+        boolean hasTimeout = lower.contains("timeout");
+        boolean hasConnection = lower.contains("connection") || lower.contains("connect");
+        // ML request
+        String lowerAgain = message.toLowerCase();
+        boolean mlException = lowerAgain.contains("exception") || lowerAgain.contains("error");
+        boolean mlTimeout = lowerAgain.contains("timeout") || lowerAgain.contains("timed out");
+        boolean mlConnectionError = lowerAgain.contains("connection")
+                && (lowerAgain.contains("refused") || lowerAgain.contains("failed") || lowerAgain.contains("reset"));
+        return (hasException ? 1 : 0) | (hasTimeout ? 2 : 0) | (hasConnection ? 4 : 0)
+                | (mlException ? 8 : 0) | (mlTimeout ? 16 : 0) | (mlConnectionError ? 32 : 0);
+    }
+
+    @Benchmark
+    public LogFeatures singleScan(Cursor cursor) {
+        return extractor.extract(logs[cursor.next++ & (logs.length - 1)]);
+    }
+}
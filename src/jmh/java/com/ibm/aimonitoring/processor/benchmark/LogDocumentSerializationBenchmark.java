@@ -0,0 +1,99 @@
+package com.ibm.aimonitoring.processor.benchmark;
+
+import co.elastic.clients.json.JsonpMapper;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.util.BinaryData;
+import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
+import com.ibm.aimonitoring.processor.service.LogDocumentSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning a log into the source document of a bulk operation: the previous path, a
+ * {@code HashMap} copy of the log serialized by the client's {@link JacksonJsonpMapper}, against
+ * {@link LogDocumentSerializer}. Both produce the bytes that end up in the {@code _bulk} body.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.args="LogDocumentSerialization -prof gc"}; {@code gc.alloc.rate.norm} is the
+ * number of bytes allocated per document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogDocumentSerializationBenchmark {
+
+    private final JsonpMapper mapper = new JacksonJsonpMapper();
+    private LogEntryDTO[] logs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        logs = new LogEntryDTO[256];
+        for (int i = 0; i < logs.length; i++) {
+            // Enriched as by LogProcessorService
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put("processedAt", Instant.now().toString());
+            metadata.put("processor", "log-processor-service");
+            metadata.put("messageLength", 48 + i);
+            metadata.put("hasException", i % 4 == 0);
+            logs[i] = LogEntryDTO.builder()
+                    .timestamp(Instant.now().plusMillis(i))
+                    .level(i % 4 == 0 ? "ERROR" : "INFO")
+                    .message("Request " + i + " served in " + (i % 50) + "ms for tenant acme")
+                    .service("service-" + (i % 16))
+                    .host("host-" + (i % 4))
+                    .environment("prod")
+                    .traceId("trace-" + i)
+                    .spanId("span-" + i)
+                    .metadata(metadata)
+                    .build();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public BinaryData mapDocument(Cursor cursor) throws Exception {
+        LogEntryDTO log = logs[cursor.next++ & (logs.length - 1)];
+        Map<String, Object> document = new HashMap<>();
+        document.put("timestamp", log.getTimestamp() != null ? log.getTimestamp().toString() : null);
+        document.put("level", log.getLevel());
+        document.put("message", log.getMessage());
+        document.put("service", log.getService());
+        document.put("host", log.getHost());
+        document.put("environment", log.getEnvironment());
+        document.put("traceId", log.getTraceId());
+        document.put("spanId", log.getSpanId());
+        document.put("metadata", new HashMap<>(log.getMetadata()));
+        BinaryData serialized = BinaryData.of(document, mapper);
+        serialized.asByteBuffer();
+        return serialized;
+    }
+
+    @Benchmark
+    public BinaryData directSerializer(Cursor cursor) throws Exception {
+        LogEntryDTO log = logs[cursor.next++ & (logs.length - 1)];
+        BinaryData serialized = LogDocumentSerializer.toBinaryData(log);
+        serialized.asByteBuffer();
+        return serialized;
+    }
+}
@@ -0,0 +1,89 @@
+package com.ibm.aimonitoring.processor.benchmark;
+
+import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
+import com.ibm.aimonitoring.processor.dto.MLPredictionResponse;
+import com.ibm.aimonitoring.processor.service.LogFeatureExtractor;
+import com.ibm.aimonitoring.processor.service.LogFeatures;
+import com.ibm.aimonitoring.processor.service.StreamingAnomalyScorer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-log cost of {@link StreamingAnomalyScorer#score}, single-threaded and with four threads
+ * contending on the same services.
+ * <p>
+ * Run with {@code mvn -Pbenchmark test-compile exec:exec -Dbenchmark.args=StreamingAnomalyScorer}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StreamingAnomalyScorerBenchmark {
+
+    private static final String[] MESSAGES = {
+            "Request served in 12ms",
+            "User login succeeded",
+            "Cache refreshed for tenant acme",
+            "Connection timeout calling payment gateway: java.net.SocketTimeoutException: Read timed out",
+            "Order 4711 created",
+            "java.lang.NullPointerException: Cannot invoke \"String.length()\" because \"name\" is null",
+            "Health check OK",
+            "Retrying connection to database (attempt 2)"
+    };
+
+    private static final String LOG_ID = "log-1";
+
+    @Param({"16", "1000"})
+    private int services;
+
+    private StreamingAnomalyScorer scorer;
+    private LogFeatures[] logs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        scorer = new StreamingAnomalyScorer(services, 0.01, 0.1, 4.0, 50);
+        LogFeatureExtractor extractor = LogFeatureExtractor.withDefaultKeywords();
+        logs = new LogFeatures[1024];
+        for (int i = 0; i < logs.length; i++) {
+            logs[i] = extractor.extract(LogEntryDTO.builder()
+                    .service("service-" + (i % services))
+                    .level(i % 8 == 3 || i % 8 == 5 ? "ERROR" : "INFO")
+                    .message(MESSAGES[i % MESSAGES.length])
+                    .build());
+        }
+        for (int i = 0; i < logs.length; i++) {
+            scorer.score("log-" + i, logs[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public MLPredictionResponse score(Cursor cursor) {
+        return scorer.score(LOG_ID, logs[cursor.next++ & (logs.length - 1)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public MLPredictionResponse scoreContended(Cursor cursor) {
+        return scorer.score(LOG_ID, logs[cursor.next++ & (logs.length - 1)]);
+    }
+}
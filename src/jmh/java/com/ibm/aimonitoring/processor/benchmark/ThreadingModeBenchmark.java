@@ -0,0 +1,114 @@
+package com.ibm.aimonitoring.processor.benchmark;
+
+import com.ibm.aimonitoring.processor.config.VirtualThreadMode;
+import com.ibm.aimonitoring.processor.service.DownstreamLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Messages per second through a blocking downstream call of fixed latency: a platform thread pool
+ * of {@code concurrency} threads, as the listener containers and the anomaly executor size today,
+ * against one virtual thread per message with {@link DownstreamLimiter} allowing
+ * {@code concurrency} calls at once. The downstream latency is the same for both, so the
+ * difference is the cost of the threads themselves.
+ * <p>
+ * The {@code virtual} runs need Java 21: run with {@code mvn -Pbenchmark,java21 test-compile
+ * exec:exec -Dbenchmark.args="ThreadingMode -prof gc"} on a JDK 21.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ThreadingModeBenchmark {
+
+    private static final int MESSAGES = 2_000;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"10", "64", "256"})
+    private int concurrency;
+
+    @Param({"5"})
+    private long downstreamLatencyMs;
+
+    private ExecutorService platformPool;
+    private ThreadFactory virtualThreads;
+    private DownstreamLimiter limiter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("platform".equals(threads)) {
+            platformPool = Executors.newFixedThreadPool(concurrency);
+            return;
+        }
+        VirtualThreadMode mode = new VirtualThreadMode(true);
+        if (!mode.isActive()) {
+            throw new IllegalStateException("Virtual threads need Java 21, run with -Pbenchmark,java21");
+        }
+        virtualThreads = mode.threadFactory("benchmark-");
+        limiter = new DownstreamLimiter(mode, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(limiter, "elasticsearchPermits", concurrency);
+        ReflectionTestUtils.setField(limiter, "mlServicePermits", concurrency);
+        ReflectionTestUtils.setField(limiter, "databasePermits", concurrency);
+        limiter.init();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (platformPool != null) {
+            platformPool.shutdownNow();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void processMessages() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            if (platformPool != null) {
+                platformPool.execute(() -> {
+                    downstreamCall();
+                    done.countDown();
+                });
+            } else {
+                virtualThreads.newThread(() -> {
+                    limiter.call(DownstreamLimiter.Downstream.ML_SERVICE, this::downstreamCall);
+                    done.countDown();
+                }).start();
+            }
+        }
+        done.await();
+    }
+
+    private Void downstreamCall() {
+        try {
+            Thread.sleep(downstreamLatencyMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+}
@@ -1,18 +1,44 @@
 package com.ibm.aimonitoring.processor.config;
 
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 
 /**
- * RabbitMQ configuration for log processor
+ * RabbitMQ configuration for log processor.
+ * <p>
+ * Two listener container factories are exposed: the default single-message factory and a
+ * batch factory used when {@code rabbitmq.listener.batch.enabled=true}. Both share the same
+ * base settings; {@code LogConsumer} starts only the listener that matches the configured mode.
+ * <p>
+ * With platform threads each container scales between {@code rabbitmq.listener.concurrent-consumers}
+ * and {@code max-concurrent-consumers} threads. In the virtual-thread mode ({@link VirtualThreadMode})
+ * the containers run {@code rabbitmq.listener.virtual.consumers} consumers on virtual threads from
+ * the start, and {@code DownstreamLimiter} bounds the calls they block on.
  */
 @Configuration
 public class RabbitMQConfig {
 
+    public static final String BATCH_CONTAINER_FACTORY = "batchRabbitListenerContainerFactory";
+
+    @Value("${rabbitmq.listener.concurrent-consumers:3}")
+    private int concurrentConsumers;
+
+    @Value("${rabbitmq.listener.max-concurrent-consumers:10}")
+    private int maxConcurrentConsumers;
+
+    @Value("${rabbitmq.listener.virtual.consumers:32}")
+    private int virtualConsumers;
+
     /**
      * JSON message converter for RabbitMQ
      */
@@ -21,18 +47,70 @@ public class RabbitMQConfig {
         return new Jackson2JsonMessageConverter();
     }
 
+    /**
+     * Durable queue the anomaly executor spills to when its queue is full, declared only with
+     * {@code ml.executor.saturation-policy=spill}
+     */
+    @Bean
+    @ConditionalOnProperty(name = "ml.executor.saturation-policy", havingValue = "spill")
+    public Queue anomalySpillQueue(@Value("${rabbitmq.queue.anomaly-spill:logs.anomaly.spill}") String name) {
+        return QueueBuilder.durable(name).build();
+    }
+
     /**
      * Configure RabbitMQ listener container factory
      */
     @Bean
     public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
-            ConnectionFactory connectionFactory) {
+            ConnectionFactory connectionFactory,
+            VirtualThreadMode virtualThreadMode) {
+        SimpleRabbitListenerContainerFactory factory = baseContainerFactory(connectionFactory, virtualThreadMode);
+        factory.setPrefetchCount(10);
+        return factory;
+    }
+
+    /**
+     * Configure batch listener container factory: the consumer collects up to
+     * {@code rabbitmq.listener.batch.size} messages, waiting at most
+     * {@code rabbitmq.listener.batch.receive-timeout-ms} for a batch to fill, and hands
+     * them to the listener as one list.
+     */
+    @Bean(BATCH_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory batchRabbitListenerContainerFactory(
+            ConnectionFactory connectionFactory,
+            VirtualThreadMode virtualThreadMode,
+            @Value("${rabbitmq.listener.batch.size:100}") int batchSize,
+            @Value("${rabbitmq.listener.batch.receive-timeout-ms:200}") long batchReceiveTimeoutMs) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException(
+                    "rabbitmq.listener.batch.size must be at least 1, got: " + batchSize);
+        }
+        SimpleRabbitListenerContainerFactory factory = baseContainerFactory(connectionFactory, virtualThreadMode);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setBatchReceiveTimeout(batchReceiveTimeoutMs);
+        // Prefetch must cover a whole batch, otherwise the broker stops delivering before it fills
+        factory.setPrefetchCount(Math.max(10, batchSize));
+        return factory;
+    }
+
+    private SimpleRabbitListenerContainerFactory baseContainerFactory(
+            ConnectionFactory connectionFactory, VirtualThreadMode virtualThreadMode) {
         SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
         factory.setMessageConverter(jsonMessageConverter());
-        factory.setConcurrentConsumers(3);
-        factory.setMaxConcurrentConsumers(10);
-        factory.setPrefetchCount(10);
+        // LogConsumer acknowledges explicitly; the container must not ack on its own
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        if (virtualThreadMode.isActive()) {
+            // Idle consumers cost no platform thread, so there is nothing to scale down
+            factory.setTaskExecutor(new VirtualThreadTaskExecutor("rabbit-listener-"));
+            factory.setConcurrentConsumers(virtualConsumers);
+            factory.setMaxConcurrentConsumers(virtualConsumers);
+        } else {
+            factory.setConcurrentConsumers(concurrentConsumers);
+            factory.setMaxConcurrentConsumers(maxConcurrentConsumers);
+        }
         return factory;
     }
 }
@@ -0,0 +1,16 @@
+package com.ibm.aimonitoring.processor.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration for scheduled background work (periodic flushes)
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+    // Scheduler pool is configured in application.yml
+    // spring.task.scheduling properties
+}
+
+// Made with Bob
@@ -0,0 +1,52 @@
+package com.ibm.aimonitoring.processor.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual-thread execution mode, switched on by {@code spring.threads.virtual.enabled} on Java 21
+ * or later (build with {@code -Pjava21}).
+ * <p>
+ * Spring Boot then runs Tomcat request handling and {@code @Scheduled} work on virtual threads
+ * by itself. This bean covers what the service builds on its own: the RabbitMQ listener
+ * containers ({@link RabbitMQConfig}) and the anomaly executor. In this mode thread counts stop
+ * being the limit on blocking calls; {@code DownstreamLimiter} bounds them with semaphores
+ * instead. On older Java the property is ignored with a warning.
+ */
+@Slf4j
+@Component
+public class VirtualThreadMode {
+
+    private final boolean active;
+
+    public VirtualThreadMode(@Value("${spring.threads.virtual.enabled:false}") boolean enabled) {
+        this.active = enabled && JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE);
+        if (enabled && !active) {
+            log.warn("spring.threads.virtual.enabled is set but Java {} has no virtual threads, "
+                    + "using platform threads", JavaVersion.getJavaVersion());
+        } else if (active) {
+            log.info("Virtual-thread execution mode enabled");
+        }
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Thread factory for the given name prefix: virtual threads in this mode, platform threads
+     * otherwise
+     */
+    public ThreadFactory threadFactory(String prefix) {
+        return active ? new VirtualThreadTaskExecutor(prefix).getVirtualThreadFactory()
+                : new CustomizableThreadFactory(prefix);
+    }
+}
+
+// Made with Bob
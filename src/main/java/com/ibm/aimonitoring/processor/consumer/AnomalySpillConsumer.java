@@ -0,0 +1,58 @@
+package com.ibm.aimonitoring.processor.consumer;
+
+import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
+import com.ibm.aimonitoring.processor.service.LogProcessorService;
+import com.rabbitmq.client.Channel;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Brings logs spilled by the anomaly executor ({@code ml.executor.saturation-policy=spill}) back
+ * to anomaly detection. Each delivery waits for room in the executor's queue and is acknowledged
+ * once queued, so the spill queue drains at the pace of the ML service. Started only with the
+ * {@code spill} policy.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AnomalySpillConsumer {
+
+    public static final String LISTENER_ID = "anomalySpillConsumer";
+
+    private final LogProcessorService logProcessorService;
+
+    /**
+     * Queue anomaly detection of a spilled log
+     *
+     * @param logEntry the enriched log, with its document ID
+     * @param channel the RabbitMQ channel
+     * @param deliveryTag the message delivery tag
+     */
+    @RabbitListener(
+            id = LISTENER_ID,
+            queues = "${rabbitmq.queue.anomaly-spill:logs.anomaly.spill}",
+            autoStartup = "#{'${ml.executor.saturation-policy:block}'.trim().equalsIgnoreCase('spill')}")
+    public void consumeSpilled(
+            LogEntryDTO logEntry,
+            Channel channel,
+            @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        try {
+            if (logProcessorService.detectSpilledAnomalies(logEntry)) {
+                channel.basicAck(deliveryTag, false);
+            } else {
+                // Executor shutting down or still full: leave the log on the spill queue
+                channel.basicNack(deliveryTag, false, true);
+            }
+        } catch (IOException e) {
+            log.error("Failed to settle spilled log {}: {}", logEntry.getId(), e.getMessage(), e);
+        }
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,123 @@
+package com.ibm.aimonitoring.processor.consumer;
+
+import com.ibm.aimonitoring.processor.service.AnomalyExecutor;
+import com.ibm.aimonitoring.processor.service.BulkFlowController;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pauses the log listeners while downstream work falls behind.
+ * <p>
+ * Every {@code elasticsearch.bulk.adaptive.pause-check-interval-ms} the running listener
+ * containers of {@link LogConsumer} are stopped if {@link BulkFlowController#isSaturated()}
+ * reports that every bulk request slot is busy and a batch is waiting
+ * ({@code elasticsearch.bulk.adaptive.pause-listeners}), or if the {@link AnomalyExecutor} queue
+ * is above its watermark ({@code ml.executor.throttle-consumers}). They stop
+ * without blocking the scheduler: their consumers finish the messages they hold, and the broker
+ * keeps the rest queued instead of the service buffering them. The containers are started again
+ * once neither condition has held for {@code resume-delay-ms}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ConsumerFlowControl {
+
+    private static final List<String> LISTENER_IDS =
+            List.of(LogConsumer.SINGLE_LISTENER_ID, LogConsumer.BATCH_LISTENER_ID);
+
+    private final RabbitListenerEndpointRegistry listenerRegistry;
+    private final BulkFlowController flowController;
+    private final AnomalyExecutor anomalyExecutor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${elasticsearch.bulk.enabled:false}")
+    private boolean bulkEnabled;
+
+    @Value("${elasticsearch.bulk.adaptive.pause-listeners:true}")
+    private boolean pauseListeners;
+
+    @Value("${ml.executor.throttle-consumers:true}")
+    private boolean throttleOnAnomalyBacklog;
+
+    @Value("${ml.pipeline.mode:async}")
+    private String pipelineMode;
+
+    @Value("${elasticsearch.bulk.adaptive.resume-delay-ms:1000}")
+    private long resumeDelayMs;
+
+    private final List<MessageListenerContainer> paused = new ArrayList<>();
+    private long unsaturatedSince;
+
+    /**
+     * Register the pause gauge
+     */
+    @PostConstruct
+    public void init() {
+        Gauge.builder("rabbitmq.listener.paused", this, control -> control.isPaused() ? 1 : 0)
+                .register(meterRegistry);
+    }
+
+    public synchronized boolean isPaused() {
+        return !paused.isEmpty();
+    }
+
+    /**
+     * Pause or resume the listeners according to the bulk indexing budget and the anomaly backlog
+     */
+    @Scheduled(fixedDelayString = "${elasticsearch.bulk.adaptive.pause-check-interval-ms:250}")
+    public synchronized void check() {
+        boolean watchBulk = bulkEnabled && pauseListeners;
+        // The reactive pipeline has its own bounded queue and does not use the executor
+        boolean watchAnomalies = throttleOnAnomalyBacklog && !"reactive".equalsIgnoreCase(pipelineMode);
+        if (!watchBulk && !watchAnomalies) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if ((watchBulk && flowController.isSaturated()) || (watchAnomalies && anomalyExecutor.isBacklogged())) {
+            unsaturatedSince = 0;
+            if (paused.isEmpty()) {
+                pause();
+            }
+        } else if (!paused.isEmpty()) {
+            if (unsaturatedSince == 0) {
+                unsaturatedSince = now;
+            } else if (now - unsaturatedSince >= resumeDelayMs) {
+                resume();
+            }
+        }
+    }
+
+    private void pause() {
+        for (String id : LISTENER_IDS) {
+            MessageListenerContainer container = listenerRegistry.getListenerContainer(id);
+            if (container != null && container.isRunning()) {
+                container.stop(() -> log.debug("Listener {} stopped", id));
+                paused.add(container);
+            }
+        }
+        if (!paused.isEmpty()) {
+            log.warn("Downstream saturated ({} bulk requests in flight, {} anomaly detections queued), "
+                    + "pausing {} listener(s)", flowController.getInFlight(), anomalyExecutor.getQueued(), paused.size());
+        }
+    }
+
+    private void resume() {
+        paused.forEach(MessageListenerContainer::start);
+        log.info("Downstream caught up, resumed {} listener(s)", paused.size());
+        paused.clear();
+        unsaturatedSince = 0;
+    }
+}
+
+// Made with Bob
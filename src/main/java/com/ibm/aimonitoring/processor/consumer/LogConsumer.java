@@ -1,5 +1,6 @@
 package com.ibm.aimonitoring.processor.consumer;
 
+import com.ibm.aimonitoring.processor.config.RabbitMQConfig;
 import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
 import com.ibm.aimonitoring.processor.service.LogProcessorService;
 import com.rabbitmq.client.Channel;
@@ -12,15 +13,25 @@ import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 
 /**
- * RabbitMQ consumer for processing log entries
+ * RabbitMQ consumer for processing log entries.
+ * <p>
+ * Runs in one of two modes selected by {@code rabbitmq.listener.batch.enabled}: one message per
+ * invocation ({@link #consumeLog}) or batches of messages acknowledged with a single
+ * multiple-ack ({@link #consumeLogBatch}). Only the listener for the active mode is started.
  */
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class LogConsumer {
 
+    public static final String SINGLE_LISTENER_ID = "logConsumer";
+    public static final String BATCH_LISTENER_ID = "logBatchConsumer";
+
     private final LogProcessorService logProcessorService;
 
     /**
@@ -30,7 +41,10 @@ public class LogConsumer {
      * @param channel the RabbitMQ channel
      * @param deliveryTag the message delivery tag
      */
-    @RabbitListener(queues = "${rabbitmq.queue.name:logs.raw}")
+    @RabbitListener(
+            id = SINGLE_LISTENER_ID,
+            queues = "${rabbitmq.queue.name:logs.raw}",
+            autoStartup = "#{!${rabbitmq.listener.batch.enabled:false}}")
     public void consumeLog(
             LogEntryDTO logEntry,
             Channel channel,
@@ -40,6 +54,9 @@ public class LogConsumer {
         try {
             log.debug("Received log from queue: service={}, level={}", 
                     logEntry.getService(), logEntry.getLevel());
+            if (message != null && message.getMessageProperties() != null) {
+                logEntry.setMessageId(message.getMessageProperties().getMessageId());
+            }
 
             // Process the log entry
             logProcessorService.processLog(logEntry);
@@ -61,6 +78,85 @@ public class LogConsumer {
             }
         }
     }
+
+    /**
+     * Consume and process a batch of log entries from RabbitMQ.
+     * <p>
+     * Failed entries are rejected individually (to the DLQ); everything else is acknowledged
+     * with a single {@code basicAck(tag, true)} on the highest successful delivery tag once the
+     * whole batch has been handled.
+     *
+     * @param messages the batch of log messages, in delivery order
+     * @param channel the RabbitMQ channel
+     */
+    @RabbitListener(
+            id = BATCH_LISTENER_ID,
+            queues = "${rabbitmq.queue.name:logs.raw}",
+            containerFactory = RabbitMQConfig.BATCH_CONTAINER_FACTORY,
+            autoStartup = "${rabbitmq.listener.batch.enabled:false}")
+    public void consumeLogBatch(
+            List<org.springframework.messaging.Message<LogEntryDTO>> messages,
+            Channel channel) {
+
+        if (messages.isEmpty()) {
+            return;
+        }
+        log.debug("Received log batch from queue: size={}", messages.size());
+
+        List<LogEntryDTO> logEntries = new ArrayList<>(messages.size());
+        for (org.springframework.messaging.Message<LogEntryDTO> message : messages) {
+            LogEntryDTO logEntry = message.getPayload();
+            logEntry.setMessageId(message.getHeaders().get(AmqpHeaders.MESSAGE_ID, String.class));
+            logEntries.add(logEntry);
+        }
+
+        BitSet failures;
+        try {
+            failures = logProcessorService.processLogBatch(logEntries);
+        } catch (Exception e) {
+            log.error("Error processing log batch: {}", e.getMessage(), e);
+            failures = new BitSet(messages.size());
+            failures.set(0, messages.size());
+        }
+
+        long highestAckTag = -1;
+        for (int i = 0; i < messages.size(); i++) {
+            long deliveryTag = deliveryTag(messages.get(i));
+            if (failures.get(i)) {
+                nack(channel, deliveryTag);
+            } else {
+                highestAckTag = Math.max(highestAckTag, deliveryTag);
+            }
+        }
+
+        if (highestAckTag >= 0) {
+            try {
+                // Multiple-ack settles every outstanding delivery up to this tag on the channel;
+                // failed deliveries were already nacked above
+                channel.basicAck(highestAckTag, true);
+                log.debug("Log batch acknowledged up to {} ({} failed)", highestAckTag, failures.cardinality());
+            } catch (IOException e) {
+                log.error("Failed to acknowledge log batch: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private static long deliveryTag(org.springframework.messaging.Message<LogEntryDTO> message) {
+        Long deliveryTag = message.getHeaders().get(AmqpHeaders.DELIVERY_TAG, Long.class);
+        if (deliveryTag == null) {
+            throw new IllegalStateException("Batch message is missing the delivery tag header");
+        }
+        return deliveryTag;
+    }
+
+    private static void nack(Channel channel, long deliveryTag) {
+        try {
+            channel.basicNack(deliveryTag, false, false);
+            log.warn("Log message rejected and sent to DLQ: {}", deliveryTag);
+        } catch (IOException ioException) {
+            log.error("Failed to reject message: {}", ioException.getMessage(), ioException);
+        }
+    }
 }
 
 // Made with Bob
@@ -1,19 +1,26 @@
 package com.ibm.aimonitoring.processor.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ibm.aimonitoring.processor.dto.*;
-import com.ibm.aimonitoring.processor.model.AnomalyDetection;
-import com.ibm.aimonitoring.processor.repository.AnomalyDetectionRepository;
+import com.ibm.aimonitoring.processor.service.AnomalyQueryService;
+import com.ibm.aimonitoring.processor.service.DashboardCache;
 import com.ibm.aimonitoring.processor.service.ElasticsearchService;
+import com.ibm.aimonitoring.processor.service.SlidingWindowCounters;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
 
 /**
  * REST controller for dashboard metrics and analytics
@@ -24,8 +31,14 @@ import java.util.List;
 @RequiredArgsConstructor
 public class DashboardController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_ANOMALY_PAGE_SIZE = 5000;
+
     private final ElasticsearchService elasticsearchService;
-    private final AnomalyDetectionRepository anomalyDetectionRepository;
+    private final DashboardCache dashboardCache;
+    private final AnomalyQueryService anomalyQueryService;
+    private final SlidingWindowCounters slidingWindowCounters;
+    private final ObjectMapper objectMapper;
 
     /**
      * Get dashboard metrics summary
@@ -35,7 +48,7 @@ public class DashboardController {
         log.info("Fetching dashboard metrics");
         
         try {
-            DashboardMetricsDTO metrics = elasticsearchService.getDashboardMetrics();
+            DashboardMetricsDTO metrics = dashboardCache.getDashboardMetrics();
             return ResponseEntity.ok(metrics);
         } catch (Exception e) {
             log.error("Error fetching dashboard metrics", e);
@@ -53,6 +66,58 @@ public class DashboardController {
         }
     }
 
+    /**
+     * Get metrics, log volume of the last {@code hours}, level distribution and top services in
+     * one response, backed by a single Elasticsearch request
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<DashboardSummaryDTO> getSummary(
+            @RequestParam(defaultValue = "24") int hours,
+            @RequestParam(defaultValue = "10") int topServices) {
+        log.info("Fetching dashboard summary for last {} hours", hours);
+
+        try {
+            Instant endTime = Instant.now();
+            Instant startTime = endTime.minus(hours, ChronoUnit.HOURS);
+
+            return ResponseEntity.ok(elasticsearchService.getDashboardSummary(startTime, endTime, topServices));
+        } catch (Exception e) {
+            log.error("Error fetching dashboard summary", e);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    /**
+     * Get rates and counts of the last {@code minutes} from the in-memory counters of this
+     * instance, without querying Elasticsearch. The window is capped at the configured length.
+     */
+    @GetMapping("/metrics/live")
+    public ResponseEntity<LiveMetricsDTO> getLiveMetrics(
+            @RequestParam(defaultValue = "1") int minutes,
+            @RequestParam(defaultValue = "10") int topServices) {
+        SlidingWindowCounters.WindowCounts counts = slidingWindowCounters
+                .count((int) Math.min((long) minutes * 60, Integer.MAX_VALUE), topServices > 0);
+
+        long total = counts.total();
+        long errors = counts.count("ERROR") + counts.count("FATAL");
+        List<ServiceLogCountDTO> services = counts.services().entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(Math.max(topServices, 0))
+                .map(e -> ServiceLogCountDTO.builder().service(e.getKey()).count(e.getValue()).build())
+                .toList();
+
+        return ResponseEntity.ok(LiveMetricsDTO.builder()
+                .windowSeconds(counts.seconds())
+                .totalLogs(total)
+                .errorCount(errors)
+                .warningCount(counts.count("WARN"))
+                .logsPerMinute(total * 60.0 / counts.seconds())
+                .errorRate(total > 0 ? (errors * 100.0 / total) : 0.0)
+                .levelCounts(counts.levels())
+                .topServices(services)
+                .build());
+    }
+
     /**
      * Get log volume over time
      */
@@ -62,10 +127,7 @@ public class DashboardController {
         log.info("Fetching log volume for last {} hours", hours);
         
         try {
-            Instant endTime = Instant.now();
-            Instant startTime = endTime.minus(hours, ChronoUnit.HOURS);
-            
-            List<LogVolumeDTO> volume = elasticsearchService.getLogVolume(startTime, endTime);
+            List<LogVolumeDTO> volume = dashboardCache.getLogVolume(hours);
             return ResponseEntity.ok(volume);
         } catch (Exception e) {
             log.error("Error fetching log volume", e);
@@ -82,7 +144,7 @@ public class DashboardController {
         log.info("Fetching log level distribution");
         
         try {
-            List<LogLevelDistributionDTO> distribution = elasticsearchService.getLogLevelDistribution();
+            List<LogLevelDistributionDTO> distribution = dashboardCache.getLogLevelDistribution();
             return ResponseEntity.ok(distribution);
         } catch (Exception e) {
             log.error("Error fetching log level distribution", e);
@@ -100,7 +162,7 @@ public class DashboardController {
         log.info("Fetching top {} services", limit);
         
         try {
-            List<ServiceLogCountDTO> services = elasticsearchService.getTopServices(limit);
+            List<ServiceLogCountDTO> services = dashboardCache.getTopServices(limit);
             return ResponseEntity.ok(services);
         } catch (Exception e) {
             log.error("Error fetching top services", e);
@@ -110,18 +172,32 @@ public class DashboardController {
     }
 
     /**
-     * Get anomalies timeline
+     * Get anomalies timeline, newest first, one page at a time.
+     * When more anomalies exist, the {@value #NEXT_CURSOR_HEADER} response header carries the
+     * cursor for the next page. {@code features} is only returned with {@code includeFeatures=true}.
      */
     @GetMapping("/anomalies")
-    public ResponseEntity<List<AnomalyDetection>> getAnomalies(
-            @RequestParam(defaultValue = "24") int hours) {
+    public ResponseEntity<List<AnomalyDetectionDTO>> getAnomalies(
+            @RequestParam(defaultValue = "24") int hours,
+            @RequestParam(defaultValue = "500") int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeFeatures) {
         log.info("Fetching anomalies for last {} hours", hours);
         
         try {
-            Instant startTime = Instant.now().minus(hours, ChronoUnit.HOURS);
-            List<AnomalyDetection> anomalies = anomalyDetectionRepository
-                    .findByDetectedAtAfterOrderByDetectedAtDesc(startTime);
-            return ResponseEntity.ok(anomalies);
+            Instant endTime = Instant.now();
+            Instant startTime = endTime.minus(hours, ChronoUnit.HOURS);
+            int pageSize = Math.max(1, Math.min(limit, MAX_ANOMALY_PAGE_SIZE));
+            AnomalyQueryService.Page page = anomalyQueryService
+                    .findAnomalies(startTime, endTime, cursor, pageSize, includeFeatures);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.nextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+            }
+            return response.body(page.items());
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid anomalies request: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(List.of());
         } catch (Exception e) {
             log.error("Error fetching anomalies", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -129,6 +205,34 @@ public class DashboardController {
         }
     }
 
+    /**
+     * Stream all anomalies of the last {@code hours} as newline-delimited JSON, written while the
+     * database cursor is read, so memory use does not depend on the size of the range
+     */
+    @GetMapping(value = "/anomalies/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAnomalies(
+            @RequestParam(defaultValue = "24") int hours,
+            @RequestParam(defaultValue = "false") boolean includeFeatures) {
+        log.info("Streaming anomalies for last {} hours", hours);
+
+        Instant endTime = Instant.now();
+        Instant startTime = endTime.minus(hours, ChronoUnit.HOURS);
+        StreamingResponseBody body = out -> anomalyQueryService.streamAnomalies(startTime, endTime, includeFeatures,
+                anomaly -> {
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(anomaly));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        // Client went away; abort the query
+                        throw new UncheckedIOException(e);
+                    }
+                });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     /**
      * Get recent alerts (placeholder - would integrate with alert service)
      */
@@ -1,21 +1,37 @@
 package com.ibm.aimonitoring.processor.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
 import com.ibm.aimonitoring.processor.dto.LogSearchRequest;
 import com.ibm.aimonitoring.processor.dto.LogSearchResponse;
 import com.ibm.aimonitoring.processor.service.ElasticsearchService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * REST controller for log search, export, and filter helpers.
@@ -26,14 +42,23 @@ import java.util.List;
 @RequiredArgsConstructor
 public class LogSearchController {
 
-    private static final int EXPORT_MAX_ROWS = 10_000;
+    private static final int EXPORT_BUFFER_BYTES = 64 * 1024;
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+    private static final String CSV_HEADER = "timestamp,level,service,message,host,environment,traceId,spanId\n";
+    private static final String PAGINATION_CURSOR = "cursor";
 
     private final ElasticsearchService elasticsearchService;
     private final ObjectMapper objectMapper;
 
+    // Exports take as long as the download; 0 or less means no timeout
+    @Value("${elasticsearch.search.export-timeout-ms:0}")
+    private long exportTimeoutMs;
+
     /**
      * Search logs with filters and pagination.
      * Accepts both API-style params (query, startTime, endTime) and UI params (searchText, startDate, endDate).
+     * With {@code pagination=cursor} pages are read from a point in time instead of by offset: {@code page}
+     * is ignored and each response carries the {@code nextCursor} to pass as {@code cursor} for the next page.
      */
     @GetMapping("/search")
     public ResponseEntity<LogSearchResponse> searchLogs(
@@ -48,16 +73,59 @@ public class LogSearchController {
             @RequestParam(required = false) String startTime,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endTime,
-            @RequestParam(required = false) String endDate) {
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "offset") String pagination,
+            @RequestParam(required = false) String cursor) {
 
-        LogSearchRequest request = buildSearchRequest(
-                page, size, sortBy, sortDirection, level, service,
-                firstNonBlank(query, searchText),
-                firstNonBlank(startTime, startDate),
-                firstNonBlank(endTime, endDate));
+        LogSearchRequest request = buildPagedSearchRequest(page, size, sortBy, sortDirection, level, service,
+                firstNonBlank(query, searchText), firstNonBlank(startTime, startDate), firstNonBlank(endTime, endDate),
+                pagination, cursor);
 
-        LogSearchResponse response = elasticsearchService.searchLogs(request);
-        return ResponseEntity.ok(response);
+        try {
+            LogSearchResponse response = elasticsearchService.searchLogs(request);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid log search request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Search logs like {@link #searchLogs}, with {@code raw=true}: the same response JSON, but the logs are
+     * Elasticsearch's {@code _source} copied through as is, limited to the comma-separated {@code fields}
+     * (all log fields by default), and no log objects are built along the way.
+     */
+    @GetMapping(value = "/search", params = "raw=true", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> searchLogsRaw(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "timestamp") String sortBy,
+            @RequestParam(defaultValue = "desc") String sortDirection,
+            @RequestParam(required = false) String level,
+            @RequestParam(required = false) String service,
+            @RequestParam(required = false) String query,
+            @RequestParam(required = false) String searchText,
+            @RequestParam(required = false) String startTime,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endTime,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "offset") String pagination,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) List<String> fields) {
+
+        LogSearchRequest request = buildPagedSearchRequest(page, size, sortBy, sortDirection, level, service,
+                firstNonBlank(query, searchText), firstNonBlank(startTime, startDate), firstNonBlank(endTime, endDate),
+                pagination, cursor);
+
+        try {
+            ElasticsearchService.RawLogPage logs = elasticsearchService.searchLogsRaw(request, fields);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(logs::writeTo);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid log search request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     /**
@@ -74,12 +142,12 @@ public class LogSearchController {
     }
 
     /**
-     * Export matching logs as CSV (bounded by {@link #EXPORT_MAX_ROWS}).
+     * Export all matching logs as CSV, streamed while Elasticsearch is paged through.
      * Do not use {@code produces = "text/csv"}: browsers/Angular often send {@code Accept: application/json},
      * which triggers 406 Not Acceptable when the handler only declares {@code text/csv}.
      */
     @GetMapping("/export/csv")
-    public ResponseEntity<byte[]> exportCsv(
+    public ResponseEntity<StreamingResponseBody> exportCsv(
             @RequestParam(required = false) String level,
             @RequestParam(required = false) String service,
             @RequestParam(required = false) String query,
@@ -87,28 +155,32 @@ public class LogSearchController {
             @RequestParam(required = false) String startTime,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endTime,
-            @RequestParam(required = false) String endDate) {
-
-        LogSearchRequest request = buildSearchRequest(
-                0, EXPORT_MAX_ROWS, "timestamp", "desc", level, service,
-                firstNonBlank(query, searchText),
-                firstNonBlank(startTime, startDate),
-                firstNonBlank(endTime, endDate));
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "false") boolean gzip) {
 
-        LogSearchResponse response = elasticsearchService.searchLogs(request);
-        byte[] body = toCsv(response.getLogs());
+        LogSearchRequest request = buildExportRequest(level, service, firstNonBlank(query, searchText),
+                firstNonBlank(startTime, startDate), firstNonBlank(endTime, endDate));
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"logs.csv\"")
-                .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
-                .body(body);
+        return streamExport("logs.csv", new MediaType("text", "csv", StandardCharsets.UTF_8), gzip, out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            writer.write(CSV_HEADER);
+            elasticsearchService.streamLogs(request, entry -> {
+                try {
+                    writeCsvRow(writer, entry);
+                } catch (IOException e) {
+                    // Client went away; stop paging
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        });
     }
 
     /**
-     * Export matching logs as JSON array (bounded by {@link #EXPORT_MAX_ROWS}).
+     * Export all matching logs as a JSON array, streamed while Elasticsearch is paged through.
      */
     @GetMapping(value = "/export/json", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<byte[]> exportJson(
+    public ResponseEntity<StreamingResponseBody> exportJson(
             @RequestParam(required = false) String level,
             @RequestParam(required = false) String service,
             @RequestParam(required = false) String query,
@@ -116,21 +188,103 @@ public class LogSearchController {
             @RequestParam(required = false) String startTime,
             @RequestParam(required = false) String startDate,
             @RequestParam(required = false) String endTime,
-            @RequestParam(required = false) String endDate) throws Exception {
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "false") boolean gzip) {
 
-        LogSearchRequest request = buildSearchRequest(
-                0, EXPORT_MAX_ROWS, "timestamp", "desc", level, service,
-                firstNonBlank(query, searchText),
-                firstNonBlank(startTime, startDate),
-                firstNonBlank(endTime, endDate));
+        LogSearchRequest request = buildExportRequest(level, service, firstNonBlank(query, searchText),
+                firstNonBlank(startTime, startDate), firstNonBlank(endTime, endDate));
 
-        LogSearchResponse response = elasticsearchService.searchLogs(request);
-        byte[] body = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(response.getLogs());
+        return streamExport("logs.json", MediaType.APPLICATION_JSON, gzip, out -> {
+            ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+            generator.writeStartArray();
+            elasticsearchService.streamLogs(request, entry -> {
+                try {
+                    writer.writeValue(generator, entry);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+            generator.flush();
+        });
+    }
+
+    /**
+     * Export all matching logs as newline-delimited JSON, one log per line.
+     */
+    @GetMapping(value = "/export/ndjson", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportNdjson(
+            @RequestParam(required = false) String level,
+            @RequestParam(required = false) String service,
+            @RequestParam(required = false) String query,
+            @RequestParam(required = false) String searchText,
+            @RequestParam(required = false) String startTime,
+            @RequestParam(required = false) String startDate,
+            @RequestParam(required = false) String endTime,
+            @RequestParam(required = false) String endDate,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+
+        LogSearchRequest request = buildExportRequest(level, service, firstNonBlank(query, searchText),
+                firstNonBlank(startTime, startDate), firstNonBlank(endTime, endDate));
+
+        return streamExport("logs.ndjson", MediaType.APPLICATION_NDJSON, gzip, out ->
+                elasticsearchService.streamLogs(request, entry -> {
+                    try {
+                        out.write(objectMapper.writeValueAsBytes(entry));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+    }
+
+    /**
+     * Stream an export as an attachment, buffered and optionally gzip-compressed
+     * ({@code <filename>.gz}, {@code application/gzip}). The export gets its own async timeout,
+     * {@code elasticsearch.search.export-timeout-ms}, instead of {@code spring.mvc.async.request-timeout}.
+     */
+    private ResponseEntity<StreamingResponseBody> streamExport(
+            String filename, MediaType contentType, boolean gzip, StreamingResponseBody body) {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            AsyncWebRequest asyncRequest = WebAsyncUtils.getAsyncManager(attributes.getRequest()).getAsyncWebRequest();
+            if (asyncRequest != null) {
+                // Read by the streaming return value handler when it starts async processing
+                asyncRequest.setTimeout(exportTimeoutMs > 0 ? exportTimeoutMs : -1L);
+            }
+        }
+        StreamingResponseBody responseBody = out -> {
+            GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, EXPORT_BUFFER_BYTES) : null;
+            OutputStream buffered = new BufferedOutputStream(compressed != null ? compressed : out, EXPORT_BUFFER_BYTES);
+            body.writeTo(buffered);
+            buffered.flush();
+            if (compressed != null) {
+                compressed.finish();
+            }
+        };
 
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"logs.json\"")
-                .contentType(MediaType.APPLICATION_JSON)
-                .body(body);
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"" + filename + (gzip ? ".gz" : "") + "\"")
+                .contentType(gzip ? GZIP : contentType)
+                .body(responseBody);
+    }
+
+    private static LogSearchRequest buildPagedSearchRequest(
+            int page, int size, String sortBy, String sortDirection, String level, String service,
+            String textQuery, String startInstant, String endInstant, String pagination, String cursor) {
+        LogSearchRequest request = buildSearchRequest(
+                page, size, sortBy, sortDirection, level, service, textQuery, startInstant, endInstant);
+        if (PAGINATION_CURSOR.equalsIgnoreCase(pagination) || (cursor != null && !cursor.isBlank())) {
+            request.setCursorPagination(true);
+            request.setCursor(cursor);
+        }
+        return request;
+    }
+
+    private static LogSearchRequest buildExportRequest(
+            String level, String service, String textQuery, String startInstant, String endInstant) {
+        return buildSearchRequest(0, 0, "timestamp", "desc", level, service, textQuery, startInstant, endInstant);
     }
 
     private static LogSearchRequest buildSearchRequest(
@@ -185,28 +339,23 @@ public class LogSearchController {
         return Instant.parse(value);
     }
 
-    private static byte[] toCsv(List<LogEntryDTO> logs) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("timestamp,level,service,message,host,environment,traceId,spanId\n");
-        for (LogEntryDTO e : logs) {
-            sb.append(csvEscape(e.getTimestamp() != null ? e.getTimestamp().toString() : ""));
-            sb.append(',');
-            sb.append(csvEscape(e.getLevel()));
-            sb.append(',');
-            sb.append(csvEscape(e.getService()));
-            sb.append(',');
-            sb.append(csvEscape(e.getMessage()));
-            sb.append(',');
-            sb.append(csvEscape(e.getHost()));
-            sb.append(',');
-            sb.append(csvEscape(e.getEnvironment()));
-            sb.append(',');
-            sb.append(csvEscape(e.getTraceId()));
-            sb.append(',');
-            sb.append(csvEscape(e.getSpanId()));
-            sb.append('\n');
-        }
-        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    private static void writeCsvRow(Writer writer, LogEntryDTO e) throws IOException {
+        writer.write(csvEscape(e.getTimestamp() != null ? e.getTimestamp().toString() : ""));
+        writer.write(',');
+        writer.write(csvEscape(e.getLevel()));
+        writer.write(',');
+        writer.write(csvEscape(e.getService()));
+        writer.write(',');
+        writer.write(csvEscape(e.getMessage()));
+        writer.write(',');
+        writer.write(csvEscape(e.getHost()));
+        writer.write(',');
+        writer.write(csvEscape(e.getEnvironment()));
+        writer.write(',');
+        writer.write(csvEscape(e.getTraceId()));
+        writer.write(',');
+        writer.write(csvEscape(e.getSpanId()));
+        writer.write('\n');
     }
 
     private static String csvEscape(String s) {
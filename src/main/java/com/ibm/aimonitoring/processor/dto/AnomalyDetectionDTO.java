@@ -0,0 +1,43 @@
+package com.ibm.aimonitoring.processor.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * DTO for anomaly detection results returned by the dashboard API
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AnomalyDetectionDTO {
+
+    private Long id;
+
+    private Long modelId;
+
+    private String logId;
+
+    private Double anomalyScore;
+
+    private Boolean isAnomaly;
+
+    /**
+     * Features sent to the model (JSON), only present when requested
+     */
+    private String features;
+
+    private Instant detectedAt;
+
+    private String modelVersion;
+
+    private Double confidence;
+}
+
+// Made with Bob
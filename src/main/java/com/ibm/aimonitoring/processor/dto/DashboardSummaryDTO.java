@@ -0,0 +1,40 @@
+package com.ibm.aimonitoring.processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * DTO for everything the dashboard shows, fetched with one request
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DashboardSummaryDTO {
+
+    /**
+     * Dashboard metrics summary
+     */
+    private DashboardMetricsDTO metrics;
+
+    /**
+     * Log volume over time
+     */
+    private List<LogVolumeDTO> logVolume;
+
+    /**
+     * Log level distribution
+     */
+    private List<LogLevelDistributionDTO> levelDistribution;
+
+    /**
+     * Top services by log count
+     */
+    private List<ServiceLogCountDTO> topServices;
+}
+
+// Made with Bob
@@ -0,0 +1,61 @@
+package com.ibm.aimonitoring.processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO for metrics over a recent window, counted in memory by this instance
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveMetricsDTO {
+
+    /**
+     * Length of the window the counts cover, in seconds
+     */
+    private long windowSeconds;
+
+    /**
+     * Number of logs in the window
+     */
+    private long totalLogs;
+
+    /**
+     * Number of ERROR and FATAL logs in the window
+     */
+    private long errorCount;
+
+    /**
+     * Number of warning logs in the window
+     */
+    private long warningCount;
+
+    /**
+     * Logs per minute over the window
+     */
+    private double logsPerMinute;
+
+    /**
+     * Error rate percentage over the window
+     */
+    private double errorRate;
+
+    /**
+     * Number of logs by level
+     */
+    private Map<String, Long> levelCounts;
+
+    /**
+     * Services with the most logs in the window
+     */
+    private List<ServiceLogCountDTO> topServices;
+}
+
+// Made with Bob
@@ -1,6 +1,7 @@
 package com.ibm.aimonitoring.processor.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -18,6 +19,11 @@ import java.util.Map;
 @AllArgsConstructor
 public class LogEntryDTO {
 
+    /**
+     * Document ID; assigned by the processor during normalization unless the producer supplied one
+     */
+    private String id;
+
     @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", timezone = "UTC")
     private Instant timestamp;
 
@@ -36,6 +42,15 @@ public class LogEntryDTO {
     private String traceId;
 
     private String spanId;
+
+    /**
+     * AMQP message ID the producer published the log with, if any. A redelivery keeps it while a
+     * second publish of an identical line does not, so only logs that carry one get a
+     * deterministic document ID.
+     * Taken from the message properties, never from the payload, and not indexed.
+     */
+    @JsonIgnore
+    private String messageId;
 }
 
 // Made with Bob
@@ -12,7 +12,7 @@ import java.util.List;
  * DTO for log search requests
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class LogSearchRequest {
@@ -70,6 +70,16 @@ public class LogSearchRequest {
      */
     @Builder.Default
     private String sortOrder = "desc";
+    
+    /**
+     * Page with a point in time and search_after instead of page offsets
+     */
+    private boolean cursorPagination;
+    
+    /**
+     * Cursor returned with the previous page (cursor pagination only; null for the first page)
+     */
+    private String cursor;
 }
 
 // Made with Bob
\ No newline at end of file
@@ -35,6 +35,11 @@ public class LogSearchResponse {
      * Page size
      */
     private int size;
+    
+    /**
+     * Cursor for the next page with cursor pagination, or null on the last page
+     */
+    private String nextCursor;
 }
 
 // Made with Bob
\ No newline at end of file
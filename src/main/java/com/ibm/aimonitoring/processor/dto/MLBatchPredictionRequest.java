@@ -0,0 +1,21 @@
+package com.ibm.aimonitoring.processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Request DTO for ML service batch prediction
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MLBatchPredictionRequest {
+    private List<MLPredictionRequest> requests;
+}
+
+// Made with Bob
@@ -0,0 +1,21 @@
+package com.ibm.aimonitoring.processor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Response DTO from ML service batch prediction; predictions are in request order
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MLBatchPredictionResponse {
+    private List<MLPredictionResponse> predictions;
+}
+
+// Made with Bob
@@ -1,6 +1,7 @@
 package com.ibm.aimonitoring.processor.repository;
 
 import com.ibm.aimonitoring.processor.model.AnomalyDetection;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -31,7 +32,7 @@ public interface AnomalyDetectionRepository extends JpaRepository<AnomalyDetecti
      * Find recent anomalies (last N records)
      */
     @Query("SELECT a FROM AnomalyDetection a WHERE a.isAnomaly = true ORDER BY a.detectedAt DESC")
-    List<AnomalyDetection> findRecentAnomalies();
+    List<AnomalyDetection> findRecentAnomalies(Limit limit);
 
     /**
      * Count anomalies in time range
@@ -43,7 +44,7 @@ public interface AnomalyDetectionRepository extends JpaRepository<AnomalyDetecti
      * Find high confidence anomalies (confidence > threshold)
      */
     @Query("SELECT a FROM AnomalyDetection a WHERE a.isAnomaly = true AND a.confidence > :threshold ORDER BY a.confidence DESC, a.detectedAt DESC")
-    List<AnomalyDetection> findHighConfidenceAnomalies(@Param("threshold") Double threshold);
+    List<AnomalyDetection> findHighConfidenceAnomalies(@Param("threshold") Double threshold, Limit limit);
     
     /**
      * Find anomalies detected after a specific time
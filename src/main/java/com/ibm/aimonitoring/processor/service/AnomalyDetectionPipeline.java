@@ -0,0 +1,173 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.dto.MLPredictionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking anomaly detection pipeline, used when {@code ml.pipeline.mode} is {@code reactive}.
+ * <p>
+ * Logs are emitted into a bounded sink of {@code ml.pipeline.queue-capacity} entries and flow
+ * through {@code flatMap} with at most {@code ml.pipeline.max-concurrency} predictions in flight.
+ * No thread waits on the ML service, so throughput is bounded by the ML service rather than by a
+ * thread pool. Prediction results are handed to their (blocking) handlers on Reactor's
+ * bounded-elastic scheduler.
+ * <p>
+ * When the queue is full the log is not scored; this is counted in
+ * {@code ml.pipeline.overflow} instead of blocking the consumer or failing the message.
+ */
+@Slf4j
+@Service
+public class AnomalyDetectionPipeline {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ml.pipeline.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${ml.pipeline.max-concurrency:256}")
+    private int maxConcurrency;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private Sinks.Many<Job> sink;
+    private Disposable subscription;
+    private Scheduler handlerScheduler;
+    private Counter submittedCounter;
+    private Counter overflowCounter;
+    private Counter failedCounter;
+    private Timer predictionTimer;
+
+    private record Job(String logId, Mono<MLPredictionResponse> prediction, Consumer<MLPredictionResponse> onPrediction) {
+    }
+
+    public AnomalyDetectionPipeline(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Build the sink and subscribe the processing flux
+     */
+    @PostConstruct
+    public void start() {
+        // Reactor's own bounded queues round the capacity up to a power of two
+        sink = Sinks.many().unicast().onBackpressureBuffer(new ArrayBlockingQueue<>(queueCapacity));
+        handlerScheduler = Schedulers.boundedElastic();
+
+        submittedCounter = meterRegistry.counter("ml.pipeline.submitted");
+        overflowCounter = meterRegistry.counter("ml.pipeline.overflow");
+        failedCounter = meterRegistry.counter("ml.pipeline.failed");
+        predictionTimer = meterRegistry.timer("ml.pipeline.prediction");
+        Gauge.builder("ml.pipeline.queued", queued, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("ml.pipeline.in-flight", inFlight, AtomicInteger::get).register(meterRegistry);
+
+        subscription = sink.asFlux()
+                .flatMap(this::process, maxConcurrency)
+                .doFinally(signal -> terminated.countDown())
+                .subscribe();
+
+        log.info("Anomaly detection pipeline started: queueCapacity={}, maxConcurrency={}",
+                queueCapacity, maxConcurrency);
+    }
+
+    /**
+     * Queue a log for anomaly detection
+     *
+     * @param logId the document ID of the log
+     * @param prediction lazy prediction, subscribed once a concurrency slot is free
+     * @param onPrediction called with the prediction, if there is one
+     * @return false if the queue was full and the log will not be scored
+     */
+    public boolean submit(String logId, Mono<MLPredictionResponse> prediction, Consumer<MLPredictionResponse> onPrediction) {
+        queued.incrementAndGet();
+        Sinks.EmitResult result;
+        // Sinks reject concurrent emission; producers are serialized here, which is cheap next to
+        // the rest of the processing of a message
+        synchronized (this) {
+            result = sink.tryEmitNext(new Job(logId, prediction, onPrediction));
+        }
+
+        if (result.isSuccess()) {
+            submittedCounter.increment();
+            return true;
+        }
+
+        queued.decrementAndGet();
+        overflowCounter.increment();
+        log.debug("Anomaly detection queue full ({}), skipping log: {}", result, logId);
+        return false;
+    }
+
+    /**
+     * Number of logs waiting for a prediction slot
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * Number of predictions currently in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Stop accepting logs and let queued ones finish
+     */
+    @PreDestroy
+    public void close() {
+        synchronized (this) {
+            sink.tryEmitComplete();
+        }
+        try {
+            if (!terminated.await(10, TimeUnit.SECONDS)) {
+                log.warn("Anomaly detection pipeline did not drain within 10s ({} queued, {} in flight)",
+                        queued.get(), inFlight.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        subscription.dispose();
+    }
+
+    private Mono<Void> process(Job job) {
+        queued.decrementAndGet();
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+
+        return job.prediction()
+                .doOnNext(prediction -> predictionTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                .publishOn(handlerScheduler)
+                .doOnNext(job.onPrediction())
+                .then()
+                .onErrorResume(error -> {
+                    failedCounter.increment();
+                    log.error("Error in anomaly detection for log {}: {}", job.logId(), error.getMessage(), error);
+                    return Mono.empty();
+                })
+                .doFinally(signal -> inFlight.decrementAndGet());
+    }
+}
+
+// Made with Bob
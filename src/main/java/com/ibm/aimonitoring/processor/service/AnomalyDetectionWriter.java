@@ -0,0 +1,168 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.model.AnomalyDetection;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Writes {@link AnomalyDetection} rows in JDBC batches.
+ * <p>
+ * Hibernate cannot batch inserts of an {@code IDENTITY}-keyed entity, so saving through the
+ * repository costs one transaction and round trip per prediction. This writer queues rows and
+ * inserts them with {@link JdbcTemplate#batchUpdate} in batches of
+ * {@code anomaly-detection.writer.batch-size}, whenever a batch is full and every
+ * {@code flush-interval-ms}. The key is still generated by the database; with
+ * {@code reWriteBatchedInserts} the PostgreSQL driver sends each batch as multi-row inserts.
+ * <p>
+ * A batch the database rejects is retried row by row, so one bad row only costs itself. Rows
+ * that still fail, or that cannot be written because the database is unavailable, are dropped
+ * and counted in {@code anomaly-detection.writer.dropped}.
+ * <p>
+ * When the writer is disabled, closed or holds {@code max-queued} rows, {@link #enqueue} returns
+ * false and the caller saves the row itself. On shutdown the queue is drained before the
+ * datasource goes away.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnomalyDetectionWriter {
+
+    static final String INSERT_SQL = "INSERT INTO log_service.anomaly_detections "
+            + "(model_id, log_id, anomaly_score, is_anomaly, features, detected_at, model_version, confidence) "
+            + "VALUES (?, ?, ?, ?, CAST(? AS jsonb), ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${anomaly-detection.writer.enabled:true}")
+    private boolean enabled;
+
+    @Value("${anomaly-detection.writer.batch-size:500}")
+    private int batchSize;
+
+    @Value("${anomaly-detection.writer.max-queued:100000}")
+    private int maxQueued;
+
+    private BlockingQueue<AnomalyDetection> queue;
+    private volatile boolean closed;
+    private Counter droppedCounter;
+
+    /**
+     * Create the queue
+     */
+    @PostConstruct
+    public void init() {
+        queue = new LinkedBlockingQueue<>(maxQueued);
+        droppedCounter = meterRegistry.counter("anomaly-detection.writer.dropped");
+    }
+
+    /**
+     * Queue a row for the next batch
+     *
+     * @param anomalyDetection the row to insert
+     * @return false if the row was not queued and must be saved by the caller
+     */
+    public boolean enqueue(AnomalyDetection anomalyDetection) {
+        if (!enabled || closed || !queue.offer(anomalyDetection)) {
+            return false;
+        }
+        if (queue.size() >= batchSize) {
+            flush();
+        }
+        return true;
+    }
+
+    /**
+     * Number of rows waiting to be written
+     */
+    public int getQueued() {
+        return queue.size();
+    }
+
+    /**
+     * Insert all queued rows, one batch at a time
+     */
+    @Scheduled(fixedDelayString = "${anomaly-detection.writer.flush-interval-ms:1000}")
+    public void flush() {
+        List<AnomalyDetection> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Stop queueing and write what is left
+     */
+    @PreDestroy
+    public void close() {
+        closed = true;
+        flush();
+    }
+
+    private void write(List<AnomalyDetection> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), AnomalyDetectionWriter::bind);
+            log.debug("Inserted {} anomaly detection rows", batch.size());
+        } catch (DataAccessException e) {
+            log.warn("Failed to insert batch of {} anomaly detection rows, inserting them one by one: {}",
+                    batch.size(), e.getMessage());
+            writeRows(batch);
+        }
+    }
+
+    /**
+     * Insert rows one at a time, skipping rows the database rejects. Any other failure means the
+     * database is unavailable; the remaining rows are dropped instead of each timing out in turn.
+     */
+    private void writeRows(List<AnomalyDetection> batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            AnomalyDetection row = batch.get(i);
+            try {
+                jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, row));
+            } catch (DataIntegrityViolationException e) {
+                droppedCounter.increment();
+                log.error("Dropped anomaly detection row for log {}: {}", row.getLogId(), e.getMessage());
+            } catch (DataAccessException e) {
+                droppedCounter.increment(batch.size() - (double) i);
+                log.error("Dropped {} anomaly detection rows, database unavailable: {}",
+                        batch.size() - i, e.getMessage(), e);
+                return;
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement ps, AnomalyDetection row) throws SQLException {
+        Instant detectedAt = row.getDetectedAt() != null ? row.getDetectedAt() : Instant.now();
+        ps.setObject(1, row.getModelId(), Types.BIGINT);
+        ps.setString(2, row.getLogId());
+        ps.setObject(3, row.getAnomalyScore(), Types.DOUBLE);
+        ps.setObject(4, row.getIsAnomaly(), Types.BOOLEAN);
+        ps.setString(5, row.getFeatures());
+        ps.setTimestamp(6, Timestamp.from(detectedAt));
+        ps.setString(7, row.getModelVersion());
+        ps.setObject(8, row.getConfidence(), Types.DOUBLE);
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,351 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.config.VirtualThreadMode;
+import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs anomaly detection of the {@code async} pipeline mode on its own bounded pool.
+ * <p>
+ * Tasks wait in a queue of {@code ml.executor.queue-capacity}, ordered by log level (ERROR and
+ * FATAL first, then WARN, INFO, the rest) and then by arrival, and run on
+ * {@code ml.executor.threads} workers. What happens when the queue is full is set by
+ * {@code ml.executor.saturation-policy}:
+ * <ul>
+ *   <li>{@code block} (default) - the submitting consumer thread waits up to
+ *       {@code block-timeout-ms} for room, which slows intake to the pace of the ML service</li>
+ *   <li>{@code shed} - the queued task with the lowest level makes room for a higher-level
+ *       one; otherwise the new task is dropped</li>
+ *   <li>{@code spill} - the log is published to the durable queue
+ *       {@code rabbitmq.queue.anomaly-spill} and detected once the queue has room again</li>
+ * </ul>
+ * Above {@code throttle-watermark} of the capacity the executor reports a backlog
+ * ({@link #isBacklogged()}), on which the log listeners are paused.
+ * <p>
+ * In the virtual-thread mode ({@link VirtualThreadMode}) the workers are
+ * {@code ml.executor.virtual-threads} virtual threads; how many of them call the ML service or the
+ * database at once is bounded by {@link DownstreamLimiter}. Metrics: {@code ml.executor.queued},
+ * {@code ml.executor.active}, {@code ml.executor.completed}, {@code ml.executor.shed},
+ * {@code ml.executor.spilled} and {@code ml.executor.rejected}.
+ */
+@Slf4j
+@Component
+public class AnomalyExecutor {
+
+    enum SaturationPolicy { BLOCK, SHED, SPILL }
+
+    private static final Comparator<Task> ORDER = Comparator.comparingInt(Task::priority).reversed()
+            .thenComparingLong(Task::sequence);
+
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<RabbitTemplate> rabbitTemplate;
+    private final VirtualThreadMode virtualThreadMode;
+
+    @Value("${ml.executor.threads:10}")
+    private int threads;
+
+    @Value("${ml.executor.virtual-threads:256}")
+    private int virtualThreads;
+
+    @Value("${ml.executor.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${ml.executor.saturation-policy:block}")
+    private String saturationPolicy;
+
+    @Value("${ml.executor.block-timeout-ms:30000}")
+    private long blockTimeoutMs;
+
+    @Value("${ml.executor.throttle-watermark:0.8}")
+    private double throttleWatermark;
+
+    @Value("${rabbitmq.queue.anomaly-spill:logs.anomaly.spill}")
+    private String spillQueue;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final TreeSet<Task> queue = new TreeSet<>(ORDER);
+    private final List<Thread> workers = new ArrayList<>();
+
+    private SaturationPolicy policy;
+    private long sequence;
+    private int active;
+    private boolean closed;
+
+    private Counter completedCounter;
+    private Counter shedCounter;
+    private Counter spilledCounter;
+    private Counter rejectedCounter;
+
+    private record Task(int priority, long sequence, Runnable work) {
+    }
+
+    public AnomalyExecutor(MeterRegistry meterRegistry, ObjectProvider<RabbitTemplate> rabbitTemplate,
+                           VirtualThreadMode virtualThreadMode) {
+        this.meterRegistry = meterRegistry;
+        this.rabbitTemplate = rabbitTemplate;
+        this.virtualThreadMode = virtualThreadMode;
+    }
+
+    /**
+     * Start the workers
+     */
+    @PostConstruct
+    public void start() {
+        if (virtualThreadMode.isActive()) {
+            threads = virtualThreads;
+        }
+        start(virtualThreadMode.threadFactory("anomaly-"));
+    }
+
+    void start(ThreadFactory threadFactory) {
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException(
+                    "ml.executor.threads, virtual-threads and queue-capacity must be at least 1");
+        }
+        policy = SaturationPolicy.valueOf(saturationPolicy.trim().toUpperCase(Locale.ROOT));
+        completedCounter = meterRegistry.counter("ml.executor.completed");
+        shedCounter = meterRegistry.counter("ml.executor.shed");
+        spilledCounter = meterRegistry.counter("ml.executor.spilled");
+        rejectedCounter = meterRegistry.counter("ml.executor.rejected");
+        Gauge.builder("ml.executor.queued", this, AnomalyExecutor::getQueued).register(meterRegistry);
+        Gauge.builder("ml.executor.active", this, AnomalyExecutor::getActive).register(meterRegistry);
+
+        for (int i = 0; i < threads; i++) {
+            Thread worker = threadFactory.newThread(this::runWorker);
+            workers.add(worker);
+            worker.start();
+        }
+        log.info("Anomaly executor started: threads={}{}, queueCapacity={}, saturationPolicy={}",
+                threads, virtualThreadMode.isActive() ? " (virtual)" : "", queueCapacity, policy);
+    }
+
+    /**
+     * Queue anomaly detection of a log, applying the saturation policy when the queue is full
+     *
+     * @param logEntry the log, for its priority and, with {@code spill}, to publish
+     * @param work     the detection to run
+     * @return false if the detection was dropped
+     */
+    public boolean submit(LogEntryDTO logEntry, Runnable work) {
+        return submit(logEntry, work, policy);
+    }
+
+    /**
+     * Queue anomaly detection of a log, waiting for room whatever the saturation policy; used to
+     * bring spilled logs back
+     */
+    public boolean submitBlocking(LogEntryDTO logEntry, Runnable work) {
+        return submit(logEntry, work, SaturationPolicy.BLOCK);
+    }
+
+    private boolean submit(LogEntryDTO logEntry, Runnable work, SaturationPolicy saturation) {
+        lock.lock();
+        try {
+            if (closed) {
+                rejectedCounter.increment();
+                return false;
+            }
+            Task task = new Task(priority(logEntry.getLevel()), sequence++, work);
+            if (queue.size() < queueCapacity) {
+                enqueue(task);
+                return true;
+            }
+            if (saturation == SaturationPolicy.BLOCK) {
+                return awaitRoom(task);
+            }
+            if (saturation == SaturationPolicy.SHED) {
+                return shed(task);
+            }
+        } finally {
+            lock.unlock();
+        }
+        // Published outside the lock, so workers keep taking tasks meanwhile
+        return spill(logEntry);
+    }
+
+    private void enqueue(Task task) {
+        queue.add(task);
+        notEmpty.signal();
+    }
+
+    private boolean awaitRoom(Task task) {
+        long remainingNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        try {
+            while (queue.size() >= queueCapacity && !closed) {
+                if (remainingNanos <= 0) {
+                    log.warn("Anomaly executor full for {}ms, dropping detection", blockTimeoutMs);
+                    rejectedCounter.increment();
+                    return false;
+                }
+                remainingNanos = notFull.awaitNanos(remainingNanos);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejectedCounter.increment();
+            return false;
+        }
+        if (closed) {
+            rejectedCounter.increment();
+            return false;
+        }
+        enqueue(task);
+        return true;
+    }
+
+    private boolean shed(Task task) {
+        shedCounter.increment();
+        Task lowest = queue.last();
+        if (lowest.priority() >= task.priority()) {
+            return false;
+        }
+        queue.pollLast();
+        enqueue(task);
+        return true;
+    }
+
+    private boolean spill(LogEntryDTO logEntry) {
+        RabbitTemplate template = rabbitTemplate.getIfAvailable();
+        try {
+            if (template == null) {
+                throw new IllegalStateException("No RabbitTemplate to spill to");
+            }
+            template.convertAndSend("", spillQueue, logEntry);
+            spilledCounter.increment();
+            return true;
+        } catch (AmqpException | IllegalStateException e) {
+            log.warn("Failed to spill anomaly detection of log {}: {}", logEntry.getId(), e.getMessage());
+            rejectedCounter.increment();
+            return false;
+        }
+    }
+
+    private void runWorker() {
+        while (true) {
+            Task task;
+            lock.lock();
+            try {
+                while (queue.isEmpty() && !closed) {
+                    notEmpty.await();
+                }
+                if (queue.isEmpty()) {
+                    return;
+                }
+                task = queue.pollFirst();
+                active++;
+                notFull.signal();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                task.work().run();
+                completedCounter.increment();
+            } catch (RuntimeException e) {
+                log.error("Anomaly detection task failed: {}", e.getMessage(), e);
+            } finally {
+                lock.lock();
+                try {
+                    active--;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getActive() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether the queue is above {@code throttle-watermark} of its capacity
+     */
+    public boolean isBacklogged() {
+        return getQueued() >= Math.max(1, (int) (queueCapacity * throttleWatermark));
+    }
+
+    /**
+     * Finish queued work for up to 10 seconds, then stop the workers
+     */
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        int dropped = getQueued();
+        if (dropped > 0) {
+            log.warn("Anomaly executor stopped with {} detections queued", dropped);
+            workers.forEach(Thread::interrupt);
+        }
+    }
+
+    /**
+     * Queue priority of a log level: ERROR and FATAL first, then WARN, INFO, everything else
+     */
+    static int priority(String level) {
+        if (level == null) {
+            return 0;
+        }
+        return switch (level.toUpperCase(Locale.ROOT)) {
+            case "FATAL", "ERROR" -> 3;
+            case "WARN", "WARNING" -> 2;
+            case "INFO" -> 1;
+            default -> 0;
+        };
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,299 @@
+package com.ibm.aimonitoring.processor.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Maintains the range partitions of {@code log_service.anomaly_detections} on {@code detected_at}.
+ * <p>
+ * At startup and every {@code anomaly-detection.partitions.maintenance-interval-ms} it creates
+ * the partitions for the current and the next {@code premake} periods, daily or weekly (ISO weeks)
+ * in UTC. A partition that cannot be created is counted in
+ * {@code anomaly-detection.partitions.create-failures}. Partitions that ended more than
+ * {@code retention-days} ago are detached with {@code DETACH PARTITION ... CONCURRENTLY}, which
+ * does not lock out readers and writers of the parent table, and then dropped.
+ * <p>
+ * There is no default partition: PostgreSQL does not allow a concurrent detach while one exists,
+ * and a default holding rows for a range blocks creating that range's partition.
+ * <p>
+ * A table created before partitioning is migrated at startup, in one transaction: it is renamed
+ * to {@code anomaly_detections_unpartitioned}, {@code schema.sql} is run again to create the
+ * partitioned table and its indexes, and the rows within retention are copied over. Older rows
+ * stay in the renamed table, which can be dropped once they are no longer needed. If the
+ * migration fails nothing is changed and startup fails.
+ * <p>
+ * Partitions are named {@code anomaly_detections_pYYYYMMDD} after their first day.
+ * Requires PostgreSQL 14 or later.
+ */
+@Slf4j
+@Service
+public class AnomalyPartitionManager {
+
+    static final String SCHEMA = "log_service";
+    static final String TABLE = "anomaly_detections";
+    static final String PARTITION_PREFIX = TABLE + "_p";
+    static final String UNPARTITIONED_TABLE = TABLE + "_unpartitioned";
+
+    private static final String INTERVAL_WEEKLY = "weekly";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private static final String IS_PARTITIONED_SQL = "SELECT COUNT(*) FROM pg_partitioned_table pt "
+            + "JOIN pg_class c ON c.oid = pt.partrelid "
+            + "JOIN pg_namespace n ON n.oid = c.relnamespace "
+            + "WHERE n.nspname = ? AND c.relname = ?";
+
+    private static final String TABLE_EXISTS_SQL = "SELECT to_regclass(?) IS NOT NULL";
+
+    // Indexes schema.sql created on an unpartitioned table; their names are needed for the new one
+    private static final String SCHEMA_INDEXES_SQL = "SELECT indexname FROM pg_indexes "
+            + "WHERE schemaname = ? AND tablename = ? AND indexname LIKE 'idx\\_anomaly\\_detections\\_%'";
+
+    private static final String COLUMNS = "id, model_id, log_id, anomaly_score, is_anomaly, features, detected_at, "
+            + "model_version, confidence";
+
+    // Any constant shared by all instances; serializes their startup migrations
+    private static final long MIGRATION_LOCK = 0x616E6F6D616C79L;
+
+    private static final Resource SCHEMA_SCRIPT = new ClassPathResource("schema.sql");
+
+    private static final String LIST_PARTITIONS_SQL = "SELECT c.relname, i.inhdetachpending FROM pg_inherits i "
+            + "JOIN pg_class c ON c.oid = i.inhrelid "
+            + "JOIN pg_class p ON p.oid = i.inhparent "
+            + "JOIN pg_namespace n ON n.oid = p.relnamespace "
+            + "WHERE n.nspname = ? AND p.relname = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter createFailures;
+
+    @Value("${anomaly-detection.partitions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${anomaly-detection.partitions.interval:daily}")
+    private String interval;
+
+    @Value("${anomaly-detection.partitions.premake:7}")
+    private int premake;
+
+    @Value("${anomaly-detection.partitions.retention-days:30}")
+    private int retentionDays;
+
+    private boolean warnedNotPartitioned;
+
+    record Partition(String name, boolean detachPending) {
+    }
+
+    public AnomalyPartitionManager(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.createFailures = meterRegistry.counter("anomaly-detection.partitions.create-failures");
+    }
+
+    /**
+     * Partition a table created before partitioning, and make sure today's partition exists
+     * before the first row is written
+     */
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            migrateUnpartitionedTable(LocalDate.now(ZoneOffset.UTC));
+        }
+        maintain();
+    }
+
+    /**
+     * Create upcoming partitions and drop expired ones
+     */
+    @Scheduled(initialDelayString = "${anomaly-detection.partitions.maintenance-interval-ms:3600000}",
+            fixedDelayString = "${anomaly-detection.partitions.maintenance-interval-ms:3600000}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            maintain(LocalDate.now(ZoneOffset.UTC));
+        } catch (DataAccessException e) {
+            log.error("Anomaly detection partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    void maintain(LocalDate today) {
+        if (!isPartitioned()) {
+            if (!warnedNotPartitioned) {
+                log.warn("{}.{} is not partitioned, skipping partition maintenance", SCHEMA, TABLE);
+                warnedNotPartitioned = true;
+            }
+            return;
+        }
+
+        List<Partition> partitions = listPartitions();
+        createPartitions(periodStart(today), premake + 1);
+        dropExpiredPartitions(today, partitions);
+    }
+
+    /**
+     * Replace an existing unpartitioned table with a partitioned one holding its rows within
+     * retention
+     *
+     * @throws IllegalStateException if the migration failed; it was rolled back
+     */
+    void migrateUnpartitionedTable(LocalDate today) {
+        try {
+            if (!tableExists(SCHEMA + "." + TABLE) || isPartitioned()) {
+                return;
+            }
+            transactionTemplate.executeWithoutResult(status -> migrate(today));
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Failed to partition " + SCHEMA + "." + TABLE + ", nothing was changed: "
+                    + e.getMessage() + ". Fix the cause and restart, or set anomaly-detection.partitions.enabled=false "
+                    + "to run on the unpartitioned table without retention.", e);
+        }
+    }
+
+    private void migrate(LocalDate today) {
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(" + MIGRATION_LOCK + ")");
+        if (isPartitioned()) {
+            // Another instance migrated it while this one waited for the lock
+            return;
+        }
+        String unpartitioned = SCHEMA + "." + UNPARTITIONED_TABLE;
+        log.info("Partitioning {}.{}; the existing table is kept as {}", SCHEMA, TABLE, unpartitioned);
+
+        jdbcTemplate.execute("ALTER TABLE " + SCHEMA + "." + TABLE + " RENAME TO " + UNPARTITIONED_TABLE);
+        for (String index : jdbcTemplate.queryForList(SCHEMA_INDEXES_SQL, String.class, SCHEMA, UNPARTITIONED_TABLE)) {
+            jdbcTemplate.execute("DROP INDEX " + SCHEMA + "." + index);
+        }
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            ScriptUtils.executeSqlScript(connection, SCHEMA_SCRIPT);
+            return null;
+        });
+
+        Timestamp cutoff = Timestamp.from(today.minusDays(retentionDays).atStartOfDay(ZoneOffset.UTC).toInstant());
+        List<LocalDate> days = jdbcTemplate.queryForList("SELECT DISTINCT (detected_at AT TIME ZONE 'UTC')::date FROM "
+                + unpartitioned + " WHERE detected_at >= ?", LocalDate.class, cutoff);
+        days.stream().map(this::periodStart).distinct().forEach(start -> createPartitions(start, 1));
+        int copied = jdbcTemplate.update("INSERT INTO " + SCHEMA + "." + TABLE + " (" + COLUMNS + ") SELECT "
+                + COLUMNS.replace("features", "features::jsonb") + " FROM " + unpartitioned
+                + " WHERE detected_at >= ?", cutoff);
+        // New rows continue after the old IDs, so keyset pagination on (detected_at, id) stays unique
+        jdbcTemplate.execute("SELECT setval(pg_get_serial_sequence('" + SCHEMA + "." + TABLE + "', 'id'), "
+                + "COALESCE((SELECT MAX(id) FROM " + unpartitioned + "), 0) + 1, false)");
+
+        log.info("Partitioned {}.{}: {} rows within {} days copied; drop {} once its older rows are no longer needed",
+                SCHEMA, TABLE, copied, retentionDays, unpartitioned);
+    }
+
+    /**
+     * First day of the period containing {@code day}
+     */
+    LocalDate periodStart(LocalDate day) {
+        return isWeekly() ? day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)) : day;
+    }
+
+    /**
+     * First day of the period after the one starting on {@code start}
+     */
+    LocalDate nextPeriod(LocalDate start) {
+        return isWeekly() ? start.plusWeeks(1) : start.plusDays(1);
+    }
+
+    static String partitionName(LocalDate start) {
+        return PARTITION_PREFIX + PARTITION_SUFFIX.format(start);
+    }
+
+    private boolean tableExists(String qualifiedName) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(TABLE_EXISTS_SQL, Boolean.class, qualifiedName));
+    }
+
+    private boolean isPartitioned() {
+        Integer count = jdbcTemplate.queryForObject(IS_PARTITIONED_SQL, Integer.class, SCHEMA, TABLE);
+        return count != null && count > 0;
+    }
+
+    private List<Partition> listPartitions() {
+        return jdbcTemplate.query(LIST_PARTITIONS_SQL,
+                (rs, rowNum) -> new Partition(rs.getString(1), rs.getBoolean(2)), SCHEMA, TABLE);
+    }
+
+    /**
+     * Create {@code count} consecutive partitions starting with the period that starts on {@code start}
+     */
+    private void createPartitions(LocalDate start, int count) {
+        for (int i = 0; i < count; i++) {
+            LocalDate end = nextPeriod(start);
+            try {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + SCHEMA + "." + partitionName(start)
+                        + " PARTITION OF " + SCHEMA + "." + TABLE
+                        + " FOR VALUES FROM ('" + start + " 00:00:00+00') TO ('" + end + " 00:00:00+00')");
+            } catch (DataAccessException e) {
+                // Rows for this period fail to insert until it exists
+                createFailures.increment();
+                log.error("Failed to create anomaly detection partition {}: {}", partitionName(start), e.getMessage());
+            }
+            start = end;
+        }
+    }
+
+    private void dropExpiredPartitions(LocalDate today, List<Partition> partitions) {
+        LocalDate cutoff = today.minusDays(retentionDays);
+
+        for (Partition partition : partitions) {
+            String qualifiedName = SCHEMA + "." + partition.name();
+            LocalDate start = parseStart(partition.name());
+            if (partition.detachPending()) {
+                // A concurrent detach that was interrupted; it has to be finalized before anything else
+                log.info("Finalizing detach of anomaly detection partition {}", partition.name());
+                jdbcTemplate.execute("ALTER TABLE " + SCHEMA + "." + TABLE + " DETACH PARTITION " + qualifiedName
+                        + " FINALIZE");
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + qualifiedName);
+            } else if (start != null && !nextPeriod(start).isAfter(cutoff)) {
+                log.info("Dropping anomaly detection partition {} (older than {} days)", partition.name(), retentionDays);
+                // Must run outside a transaction block, which JdbcTemplate in auto-commit mode is
+                jdbcTemplate.execute("ALTER TABLE " + SCHEMA + "." + TABLE + " DETACH PARTITION " + qualifiedName
+                        + " CONCURRENTLY");
+                jdbcTemplate.execute("DROP TABLE IF EXISTS " + qualifiedName);
+            }
+        }
+    }
+
+    private static LocalDate parseStart(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private boolean isWeekly() {
+        return interval != null && INTERVAL_WEEKLY.equals(interval.toLowerCase(Locale.ROOT));
+    }
+}
+
+// Made with Bob
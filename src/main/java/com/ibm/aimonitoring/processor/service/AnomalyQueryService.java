@@ -0,0 +1,160 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.dto.AnomalyDetectionDTO;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Reads anomalies from {@code log_service.anomaly_detections} without loading unbounded result sets.
+ * <p>
+ * Pages use keyset pagination on {@code (detected_at, id)}, newest first: the cursor token encodes
+ * the last row of the previous page, so every page is an index range scan no matter how deep the
+ * client pages. The {@code features} column is only read when asked for. Streaming reads the whole
+ * range through a database cursor of {@code anomaly-detection.query.fetch-size} rows, handing each
+ * row to the caller as it arrives.
+ */
+@Service
+@RequiredArgsConstructor
+public class AnomalyQueryService {
+
+    private static final String SUMMARY_COLUMNS =
+            "id, model_id, log_id, anomaly_score, is_anomaly, detected_at, model_version, confidence";
+    private static final String KEYSET_WHERE = " FROM log_service.anomaly_detections "
+            + "WHERE is_anomaly = true AND detected_at >= ? AND (detected_at, id) < (?, ?) "
+            + "ORDER BY detected_at DESC, id DESC";
+    private static final String CURSOR_SEPARATOR = "|";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${anomaly-detection.query.fetch-size:500}")
+    private int fetchSize;
+
+    /**
+     * One page of anomalies
+     *
+     * @param items the anomalies, newest first
+     * @param nextCursor token for the next page, or null on the last page
+     */
+    public record Page(List<AnomalyDetectionDTO> items, String nextCursor) {
+    }
+
+    /**
+     * Read one page of anomalies detected in {@code [startTime, endTime]}
+     *
+     * @param cursor token from the previous page, or null for the first page
+     * @param limit maximum number of anomalies
+     * @param includeFeatures whether to read the {@code features} column
+     * @throws IllegalArgumentException if the cursor is not valid
+     */
+    public Page findAnomalies(Instant startTime, Instant endTime, String cursor, int limit, boolean includeFeatures) {
+        Keyset after = cursor != null && !cursor.isBlank()
+                ? decodeCursor(cursor)
+                : new Keyset(endTime, Long.MAX_VALUE);
+
+        // One extra row tells whether there is a next page
+        List<AnomalyDetectionDTO> rows = jdbcTemplate.query(
+                selectSql(includeFeatures) + " LIMIT ?",
+                rowMapper(includeFeatures),
+                Timestamp.from(startTime), Timestamp.from(after.detectedAt()), after.id(), limit + 1);
+
+        if (rows.size() <= limit) {
+            return new Page(rows, null);
+        }
+        List<AnomalyDetectionDTO> items = rows.subList(0, limit);
+        AnomalyDetectionDTO last = items.get(limit - 1);
+        return new Page(items, encodeCursor(last.getDetectedAt(), last.getId()));
+    }
+
+    /**
+     * Read all anomalies detected in {@code [startTime, endTime]}, newest first, through a database
+     * cursor. Runs in a read-only transaction, which the PostgreSQL driver needs to fetch in chunks.
+     *
+     * @param consumer called for every anomaly as it is read
+     */
+    @Transactional(readOnly = true)
+    public void streamAnomalies(Instant startTime, Instant endTime, boolean includeFeatures,
+                                Consumer<AnomalyDetectionDTO> consumer) {
+        RowMapper<AnomalyDetectionDTO> mapper = rowMapper(includeFeatures);
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement ps = connection.prepareStatement(selectSql(includeFeatures));
+                    ps.setFetchSize(fetchSize);
+                    ps.setTimestamp(1, Timestamp.from(startTime));
+                    ps.setTimestamp(2, Timestamp.from(endTime));
+                    ps.setLong(3, Long.MAX_VALUE);
+                    return ps;
+                },
+                (RowCallbackHandler) resultSet -> consumer.accept(mapper.mapRow(resultSet, 0)));
+    }
+
+    static String encodeCursor(Instant detectedAt, long id) {
+        String raw = detectedAt + CURSOR_SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Keyset decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(CURSOR_SEPARATOR);
+            if (separator < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new Keyset(Instant.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+        } catch (DateTimeParseException e) {
+            // NumberFormatException and the decoder's errors already are IllegalArgumentExceptions
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * Position of a row in {@code (detected_at DESC, id DESC)} order
+     */
+    record Keyset(Instant detectedAt, long id) {
+    }
+
+    private static String selectSql(boolean includeFeatures) {
+        return "SELECT " + SUMMARY_COLUMNS + (includeFeatures ? ", features" : "") + KEYSET_WHERE;
+    }
+
+    private static RowMapper<AnomalyDetectionDTO> rowMapper(boolean includeFeatures) {
+        return (rs, rowNum) -> AnomalyDetectionDTO.builder()
+                .id(rs.getLong("id"))
+                .modelId(nullableLong(rs, "model_id"))
+                .logId(rs.getString("log_id"))
+                .anomalyScore(nullableDouble(rs, "anomaly_score"))
+                .isAnomaly(rs.getBoolean("is_anomaly"))
+                .features(includeFeatures ? rs.getString("features") : null)
+                .detectedAt(rs.getTimestamp("detected_at").toInstant())
+                .modelVersion(rs.getString("model_version"))
+                .confidence(nullableDouble(rs, "confidence"))
+                .build();
+    }
+
+    private static Long nullableLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    private static Double nullableDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,220 @@
+package com.ibm.aimonitoring.processor.service;
+
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import com.ibm.aimonitoring.processor.dto.MLPredictionResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes ML anomaly results back onto the indexed log documents.
+ * <p>
+ * Results are collected per document ID and applied as bulk partial {@code update} operations
+ * through {@link BulkIndexer}, every {@code elasticsearch.anomaly-write-back.flush-interval-ms} or
+ * as soon as {@code max-pending} documents are waiting. Several results for the same document
+ * before a flush are coalesced into one update, later values winning.
+ * <p>
+ * A prediction is only enqueued once the create of its document has succeeded, so the update
+ * normally finds the document. The exception is a log spooled by {@link LogSpool} during an
+ * outage, which only reaches Elasticsearch when the spool is replayed. While the spool holds
+ * records, an update that finds no document, or fails because Elasticsearch is down, is parked
+ * (up to {@code max-awaiting-replay} documents) and queued again once the spool reports the
+ * document replayed. Parked updates are dropped when the spool has been drained without
+ * replaying them.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AnomalyWriteBackService {
+
+    public static final String FIELD_ANOMALY_DETECTED = "anomalyDetected";
+    public static final String FIELD_ANOMALY_SCORE = "anomalyScore";
+    public static final String FIELD_ANOMALY_CONFIDENCE = "anomalyConfidence";
+    public static final String FIELD_ML_MODEL_VERSION = "mlModelVersion";
+
+    private static final String FIELD_METADATA = "metadata";
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final int RETRY_ON_CONFLICT = 3;
+    // Rough size of one partial update request line plus its doc, for the bulk byte-size trigger
+    private static final long UPDATE_ESTIMATED_BYTES = 256;
+
+    private final BulkIndexer bulkIndexer;
+    private final LogIndexRouter indexRouter;
+    private final LogSpool logSpool;
+
+    @Value("${elasticsearch.anomaly-write-back.enabled:true}")
+    private boolean enabled;
+
+    @Value("${elasticsearch.anomaly-write-back.max-pending:1000}")
+    private int maxPending;
+
+    @Value("${elasticsearch.anomaly-write-back.max-awaiting-replay:100000}")
+    private int maxAwaitingReplay;
+
+    private final Map<String, PendingUpdate> pending = new ConcurrentHashMap<>();
+    // Updates of documents that may still be in the spool, by document ID
+    private final Map<String, PendingUpdate> awaitingReplay = new ConcurrentHashMap<>();
+
+    private record PendingUpdate(String index, Map<String, Object> fields) {
+
+        PendingUpdate merge(PendingUpdate newer) {
+            Map<String, Object> merged = new HashMap<>(fields);
+            merged.putAll(newer.fields());
+            return new PendingUpdate(index, merged);
+        }
+    }
+
+    /**
+     * Queue parked updates again as the spool replays their documents
+     */
+    @PostConstruct
+    public void init() {
+        logSpool.onReplayed(this::replayed);
+    }
+
+    /**
+     * Queue the anomaly fields of a prediction for the given document
+     *
+     * @param documentId the Elasticsearch document ID of the log
+     * @param prediction the ML prediction
+     */
+    public void enqueue(String documentId, MLPredictionResponse prediction) {
+        enqueue(documentId, null, prediction);
+    }
+
+    /**
+     * Queue the anomaly fields of a prediction for the given document, in the index the log with
+     * that event timestamp was written to (see {@link LogIndexRouter#writeIndex})
+     *
+     * @param documentId the Elasticsearch document ID of the log
+     * @param timestamp  the log's event timestamp
+     * @param prediction the ML prediction
+     */
+    public void enqueue(String documentId, Instant timestamp, MLPredictionResponse prediction) {
+        if (!enabled || documentId == null || prediction == null) {
+            return;
+        }
+
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(FIELD_ANOMALY_DETECTED, prediction.getIsAnomaly());
+        fields.put(FIELD_ANOMALY_SCORE, prediction.getAnomalyScore());
+        fields.put(FIELD_ANOMALY_CONFIDENCE, prediction.getConfidence());
+        fields.put(FIELD_ML_MODEL_VERSION, prediction.getModelVersion());
+
+        pending.merge(documentId, new PendingUpdate(indexRouter.writeIndex(timestamp), fields),
+                PendingUpdate::merge);
+        if (pending.size() >= maxPending) {
+            flush();
+        }
+    }
+
+    /**
+     * Number of documents waiting for the next flush
+     */
+    public int getPendingUpdates() {
+        return pending.size();
+    }
+
+    /**
+     * Number of documents whose update waits for the spool to replay them
+     */
+    public int getAwaitingReplay() {
+        return awaitingReplay.size();
+    }
+
+    /**
+     * Move the parked updates of replayed documents back to the next flush
+     */
+    void replayed(List<String> documentIds) {
+        for (String documentId : documentIds) {
+            PendingUpdate update = awaitingReplay.remove(documentId);
+            if (update != null) {
+                pending.merge(documentId, update, (newer, parked) -> parked.merge(newer));
+            }
+        }
+        if (logSpool.getPendingRecords() == 0 && !awaitingReplay.isEmpty()) {
+            log.warn("Dropping anomaly write-back of {} documents the spool did not replay", awaitingReplay.size());
+            awaitingReplay.clear();
+        }
+    }
+
+    /**
+     * Hand all pending updates to the bulk indexer
+     */
+    @Scheduled(fixedDelayString = "${elasticsearch.anomaly-write-back.flush-interval-ms:1000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<String> documentIds = new ArrayList<>(pending.keySet());
+        int submitted = 0;
+        for (String documentId : documentIds) {
+            // remove() is atomic per key, so a concurrent enqueue either lands in this update
+            // or starts a fresh entry for the next flush
+            PendingUpdate update = pending.remove(documentId);
+            if (update != null) {
+                submit(documentId, update);
+                submitted++;
+            }
+        }
+
+        if (submitted > 0) {
+            bulkIndexer.flush();
+            log.debug("Submitted {} anomaly write-back updates", submitted);
+        }
+    }
+
+    /**
+     * Submit whatever is still pending on shutdown
+     */
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    private void submit(String documentId, PendingUpdate update) {
+        Map<String, Object> partialDocument = Map.of(FIELD_METADATA, update.fields());
+        BulkOperation operation = BulkOperation.of(b -> b.update(u -> u
+                .index(update.index())
+                .id(documentId)
+                .retryOnConflict(RETRY_ON_CONFLICT)
+                .action(a -> a.doc(partialDocument))));
+
+        bulkIndexer.addNonBlocking(operation, UPDATE_ESTIMATED_BYTES).whenComplete((id, error) -> {
+            if (error != null) {
+                handleFailure(documentId, update, error);
+            }
+        });
+    }
+
+    private void handleFailure(String documentId, PendingUpdate update, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+
+        boolean notFound = cause instanceof BulkIndexer.BulkItemFailureException failure
+                && failure.getStatus() == HTTP_NOT_FOUND;
+        if ((notFound || ElasticsearchService.isOutage(cause)) && logSpool.getPendingRecords() > 0
+                && awaitingReplay.size() < maxAwaitingReplay) {
+            // The document may be in the spool; write back once it has been replayed
+            log.debug("Document {} may be spooled, anomaly write-back waits for the replay", documentId);
+            awaitingReplay.merge(documentId, update, (parked, newer) -> parked.merge(newer));
+            return;
+        }
+
+        log.warn("Failed to write anomaly results back to document {}: {}", documentId, cause.getMessage());
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,268 @@
+package com.ibm.aimonitoring.processor.service;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits how many operations {@link BulkIndexer} puts in a {@code _bulk} request and how many
+ * requests it keeps in flight.
+ * <p>
+ * With {@code elasticsearch.bulk.adaptive.enabled} the limits follow AIMD (additive increase,
+ * multiplicative decrease). They start at {@code min-actions} and {@code min-concurrent-requests}.
+ * Every response faster than {@code target-latency-ms} adds {@code increase-actions} to the batch
+ * size, and every window of as many fast responses as there are request slots adds one slot,
+ * up to {@code elasticsearch.bulk.max-actions} and {@code concurrent-requests}. Slower responses
+ * hold the limits. A rejection, meaning a 429, an {@code es_rejected_execution_exception} item,
+ * a timeout or a connection failure, multiplies both limits by {@code backoff-factor}. Only
+ * requests sent after the last backoff can trigger the next one, so one overloaded moment
+ * backs off once. Without adaptive mode the limits are the configured maximums.
+ * <p>
+ * When every slot is busy and another batch is waiting, the budget is exhausted
+ * ({@link #isSaturated()}), which is what pauses the RabbitMQ listeners.
+ */
+@Slf4j
+@Component
+public class BulkFlowController {
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVICE_UNAVAILABLE = 503;
+    private static final String REJECTED_EXECUTION = "es_rejected_execution_exception";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${elasticsearch.bulk.max-actions:500}")
+    private int maxActions;
+
+    @Value("${elasticsearch.bulk.concurrent-requests:4}")
+    private int maxConcurrentRequests;
+
+    @Value("${elasticsearch.bulk.adaptive.enabled:false}")
+    private boolean adaptive;
+
+    @Value("${elasticsearch.bulk.adaptive.min-actions:50}")
+    private int minActions;
+
+    @Value("${elasticsearch.bulk.adaptive.min-concurrent-requests:1}")
+    private int minConcurrentRequests;
+
+    @Value("${elasticsearch.bulk.adaptive.increase-actions:50}")
+    private int increaseActions;
+
+    @Value("${elasticsearch.bulk.adaptive.backoff-factor:0.5}")
+    private double backoffFactor;
+
+    @Value("${elasticsearch.bulk.adaptive.target-latency-ms:500}")
+    private long targetLatencyMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+
+    private volatile int batchActions;
+    private volatile int concurrentRequests;
+    private int inFlight;
+    private int waiting;
+    private int fastResponses;
+    private long lastBackoffNanos;
+
+    private Counter backoffCounter;
+
+    public BulkFlowController(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Validate the limits and register the metrics
+     */
+    @PostConstruct
+    public void start() {
+        if (maxConcurrentRequests < 1 || maxActions < 1) {
+            throw new IllegalArgumentException(
+                    "elasticsearch.bulk.concurrent-requests and max-actions must be at least 1");
+        }
+        if (adaptive && (backoffFactor <= 0 || backoffFactor >= 1)) {
+            throw new IllegalArgumentException(
+                    "elasticsearch.bulk.adaptive.backoff-factor must be between 0 and 1, got: " + backoffFactor);
+        }
+        minActions = Math.max(1, Math.min(minActions, maxActions));
+        minConcurrentRequests = Math.max(1, Math.min(minConcurrentRequests, maxConcurrentRequests));
+        batchActions = adaptive ? minActions : maxActions;
+        concurrentRequests = adaptive ? minConcurrentRequests : maxConcurrentRequests;
+        lastBackoffNanos = System.nanoTime();
+
+        backoffCounter = meterRegistry.counter("elasticsearch.bulk.flow.backoffs");
+        Gauge.builder("elasticsearch.bulk.flow.batch-actions", this, BulkFlowController::getBatchActions)
+                .register(meterRegistry);
+        Gauge.builder("elasticsearch.bulk.flow.concurrent-requests", this, BulkFlowController::getConcurrentRequests)
+                .register(meterRegistry);
+        Gauge.builder("elasticsearch.bulk.flow.in-flight", this, BulkFlowController::getInFlight)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Operations per bulk request
+     */
+    public int getBatchActions() {
+        return batchActions;
+    }
+
+    /**
+     * Bulk requests allowed in flight
+     */
+    public int getConcurrentRequests() {
+        return concurrentRequests;
+    }
+
+    /**
+     * Upper bound of {@link #getConcurrentRequests()}, the size of the bulk worker pool
+     */
+    public int getMaxConcurrentRequests() {
+        return maxConcurrentRequests;
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Whether all request slots are busy and a batch is waiting for one
+     */
+    public boolean isSaturated() {
+        lock.lock();
+        try {
+            return waiting > 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait for a request slot
+     *
+     * @return the time the request starts, for {@link #onResponse} and {@link #onFailure}
+     */
+    public long acquire() {
+        lock.lock();
+        try {
+            if (inFlight >= concurrentRequests) {
+                waiting++;
+                try {
+                    while (inFlight >= concurrentRequests) {
+                        slotFreed.awaitUninterruptibly();
+                    }
+                } finally {
+                    waiting--;
+                }
+            }
+            inFlight++;
+            return System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Give back a slot taken by {@link #acquire()} for a request that was not sent
+     */
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            slotFreed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Release the slot of a request Elasticsearch answered and adjust the limits
+     */
+    public void onResponse(long startNanos, BulkResponse response) {
+        boolean rejected = response.errors() && response.items().stream().anyMatch(BulkFlowController::isRejected);
+        complete(startNanos, rejected);
+    }
+
+    /**
+     * Release the slot of a request that failed as a whole and adjust the limits
+     */
+    public void onFailure(long startNanos, Throwable error) {
+        complete(startNanos, isRejection(error));
+    }
+
+    private void complete(long startNanos, boolean rejected) {
+        long latencyNanos = System.nanoTime() - startNanos;
+        lock.lock();
+        try {
+            inFlight--;
+            if (adaptive) {
+                adjust(startNanos, latencyNanos, rejected);
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjust(long startNanos, long latencyNanos, boolean rejected) {
+        // Responses to requests sent before the last backoff say nothing about the new limits
+        if (startNanos - lastBackoffNanos < 0) {
+            return;
+        }
+        if (rejected) {
+            batchActions = Math.max(minActions, (int) (batchActions * backoffFactor));
+            concurrentRequests = Math.max(minConcurrentRequests, (int) (concurrentRequests * backoffFactor));
+            fastResponses = 0;
+            lastBackoffNanos = System.nanoTime();
+            backoffCounter.increment();
+            log.info("Bulk indexing backed off to {} actions x {} requests", batchActions, concurrentRequests);
+        } else if (latencyNanos <= TimeUnit.MILLISECONDS.toNanos(targetLatencyMs)) {
+            batchActions = Math.min(maxActions, batchActions + increaseActions);
+            if (++fastResponses >= concurrentRequests) {
+                concurrentRequests = Math.min(maxConcurrentRequests, concurrentRequests + 1);
+                fastResponses = 0;
+            }
+        }
+    }
+
+    private static boolean isRejected(BulkResponseItem item) {
+        return item.error() != null
+                && (item.status() == HTTP_TOO_MANY_REQUESTS || REJECTED_EXECUTION.equals(item.error().type()));
+    }
+
+    /**
+     * Whether a failed bulk request means Elasticsearch is overloaded: a 429 or 503, a timeout,
+     * or a connection failure
+     */
+    static boolean isRejection(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof ElasticsearchException e) {
+                return e.status() == HTTP_TOO_MANY_REQUESTS || e.status() == HTTP_SERVICE_UNAVAILABLE
+                        || REJECTED_EXECUTION.equals(e.error().type());
+            }
+            if (t instanceof IOException || t instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,328 @@
+package com.ibm.aimonitoring.processor.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffers Elasticsearch bulk operations and sends them as {@code _bulk} requests.
+ * <p>
+ * A batch is flushed when it reaches the batch size of {@link BulkFlowController} (at most
+ * {@code elasticsearch.bulk.max-actions} operations) or {@code elasticsearch.bulk.max-bytes}
+ * estimated bytes, and at least every {@code elasticsearch.bulk.flush-interval-ms}. The
+ * controller also decides how many bulk requests run at once (at most
+ * {@code elasticsearch.bulk.concurrent-requests}); when all slots are busy the thread that
+ * fills the next batch through {@link #add} blocks, which pushes back on the consumers.
+ * <p>
+ * Interval flushes, {@link #flush()} and full batches of {@link #addNonBlocking} run on a flush
+ * thread of their own, which is the one that waits for a slot then. The shared
+ * {@code @Scheduled} pool (fsync, spool drain, listener flow control) never blocks on Elasticsearch.
+ * <p>
+ * Every operation gets its own future, completed with an {@link IndexResult} once Elasticsearch
+ * has accepted the item, or failed with {@link BulkItemFailureException} when only that item was
+ * rejected. A {@code create} that conflicts with an existing document counts as accepted, but its
+ * result is marked {@linkplain IndexResult#duplicate() duplicate}: the document is already there,
+ * typically because a message was redelivered.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BulkIndexer {
+
+    private static final int HTTP_CONFLICT = 409;
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final BulkFlowController flowController;
+
+    @Value("${elasticsearch.bulk.max-bytes:5242880}")
+    private long maxBytes;
+
+    @Value("${elasticsearch.bulk.flush-interval-ms:200}")
+    private long flushIntervalMs;
+
+    // Every consumer takes this lock per document; a ReentrantLock lets virtual threads park
+    // while they wait for it instead of pinning their carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private List<PendingOperation> buffer = new ArrayList<>();
+    private long bufferedBytes;
+    private boolean closed;
+
+    private ExecutorService executor;
+    private ScheduledExecutorService flusher;
+
+    private record PendingOperation(BulkOperation operation, long estimatedBytes, CompletableFuture<IndexResult> future) {
+    }
+
+    /**
+     * Start the bulk request workers and the flush thread
+     */
+    @PostConstruct
+    public void start() {
+        executor = Executors.newFixedThreadPool(flowController.getMaxConcurrentRequests(),
+                new CustomizableThreadFactory("es-bulk-"));
+        flusher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("es-bulk-flush-"));
+        flusher.scheduleWithFixedDelay(this::flushNow, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Bulk indexer started: batchActions={}, maxBytes={}, concurrentRequests={}",
+                flowController.getBatchActions(), maxBytes, flowController.getConcurrentRequests());
+    }
+
+    /**
+     * Queue a bulk operation. When it fills a batch and every request slot is busy, the calling
+     * thread waits for a slot.
+     *
+     * @param operation the operation to send
+     * @param estimatedBytes approximate serialized size, used for the byte-size flush trigger
+     * @return future completed with the result of the item once it is durable in Elasticsearch
+     */
+    public CompletableFuture<IndexResult> add(BulkOperation operation, long estimatedBytes) {
+        return add(operation, estimatedBytes, true);
+    }
+
+    /**
+     * Queue a bulk operation without ever blocking: a batch it fills is sent from the flush
+     * thread. For callers on the shared scheduler.
+     *
+     * @see #add(BulkOperation, long)
+     */
+    public CompletableFuture<IndexResult> addNonBlocking(BulkOperation operation, long estimatedBytes) {
+        return add(operation, estimatedBytes, false);
+    }
+
+    private CompletableFuture<IndexResult> add(BulkOperation operation, long estimatedBytes, boolean block) {
+        PendingOperation pending = new PendingOperation(operation, estimatedBytes, new CompletableFuture<>());
+        List<PendingOperation> ready = null;
+
+        lock.lock();
+        try {
+            if (closed) {
+                pending.future().completeExceptionally(new IllegalStateException("Bulk indexer is closed"));
+                return pending.future();
+            }
+            buffer.add(pending);
+            bufferedBytes += estimatedBytes;
+            if (buffer.size() >= flowController.getBatchActions() || bufferedBytes >= maxBytes) {
+                ready = drainBuffer();
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (ready != null && block) {
+            dispatch(ready);
+        } else if (ready != null) {
+            dispatchFromFlusher(ready);
+        }
+        return pending.future();
+    }
+
+    /**
+     * Send whatever is buffered from the flush thread, without waiting for it
+     */
+    public void flush() {
+        try {
+            flusher.execute(this::flushNow);
+        } catch (RejectedExecutionException e) {
+            // Closed: close() already flushed the buffer
+            log.debug("Bulk indexer is closed, flush skipped");
+        }
+    }
+
+    /**
+     * Send whatever is buffered; runs every flush interval on the flush thread, so no operation
+     * waits much longer than that
+     */
+    void flushNow() {
+        List<PendingOperation> ready;
+        lock.lock();
+        try {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            ready = drainBuffer();
+        } finally {
+            lock.unlock();
+        }
+        dispatch(ready);
+    }
+
+    /**
+     * Number of operations waiting for the next flush
+     */
+    public int getBufferedOperations() {
+        lock.lock();
+        try {
+            return buffer.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Flush remaining operations and wait for in-flight bulk requests on shutdown
+     */
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(30, TimeUnit.SECONDS)) {
+                flusher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            flusher.shutdownNow();
+        }
+        flushNow();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Bulk indexer did not finish in-flight requests within 30s");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    private List<PendingOperation> drainBuffer() {
+        List<PendingOperation> drained = buffer;
+        buffer = new ArrayList<>(Math.min(flowController.getBatchActions(), 1024));
+        bufferedBytes = 0;
+        return drained;
+    }
+
+    private void dispatchFromFlusher(List<PendingOperation> batch) {
+        try {
+            flusher.execute(() -> dispatch(batch));
+        } catch (RejectedExecutionException e) {
+            failAll(batch, e);
+        }
+    }
+
+    private void dispatch(List<PendingOperation> batch) {
+        long startNanos = flowController.acquire();
+        try {
+            executor.execute(() -> execute(batch, startNanos));
+        } catch (RejectedExecutionException e) {
+            flowController.release();
+            failAll(batch, e);
+        }
+    }
+
+    void execute(List<PendingOperation> batch, long startNanos) {
+        BulkResponse response = null;
+        Exception failure = null;
+        try {
+            BulkRequest request = BulkRequest.of(b -> b.operations(
+                    batch.stream().map(PendingOperation::operation).toList()));
+            response = elasticsearchClient.bulk(request);
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            // Give back the slot taken in dispatch whatever happened, or it is lost for good
+            if (response != null) {
+                flowController.onResponse(startNanos, response);
+            } else {
+                flowController.onFailure(startNanos, failure);
+            }
+        }
+        if (failure != null) {
+            log.error("Bulk request of {} operations failed: {}", batch.size(), failure.getMessage(), failure);
+            failAll(batch, new ElasticsearchService.ElasticsearchIndexException("Bulk request failed", failure));
+            return;
+        }
+
+        try {
+            complete(batch, response);
+        } catch (RuntimeException e) {
+            // Futures already completed keep their result
+            log.error("Failed to handle bulk response: {}", e.getMessage(), e);
+            failAll(batch, e);
+        }
+    }
+
+    private static void complete(List<PendingOperation> batch, BulkResponse response) {
+        List<BulkResponseItem> items = response.items();
+        if (items.size() != batch.size()) {
+            failAll(batch, new IllegalStateException(
+                    "Bulk response has " + items.size() + " items for " + batch.size() + " operations"));
+            return;
+        }
+
+        int failed = 0;
+        for (int i = 0; i < items.size(); i++) {
+            BulkResponseItem item = items.get(i);
+            CompletableFuture<IndexResult> future = batch.get(i).future();
+            if (item.error() != null && isDuplicateCreate(item)) {
+                log.debug("Document already exists, skipping duplicate: {}", item.id());
+                future.complete(IndexResult.duplicate(item.id()));
+            } else if (item.error() != null) {
+                failed++;
+                future.completeExceptionally(new BulkItemFailureException(
+                        item.status(), item.error().type(), item.error().reason()));
+            } else {
+                future.complete(IndexResult.created(item.id()));
+            }
+        }
+
+        if (failed > 0) {
+            log.warn("Bulk request completed with {} failed items out of {}", failed, items.size());
+        } else {
+            log.debug("Bulk request completed: {} items in {}ms", items.size(), response.took());
+        }
+    }
+
+    private static boolean isDuplicateCreate(BulkResponseItem item) {
+        return item.operationType() == OperationType.Create && item.status() == HTTP_CONFLICT;
+    }
+
+    private static void failAll(List<PendingOperation> batch, Throwable cause) {
+        for (PendingOperation pending : batch) {
+            pending.future().completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * A single bulk item rejected by Elasticsearch while the rest of the request succeeded
+     */
+    @Getter
+    public static class BulkItemFailureException extends RuntimeException {
+        private final int status;
+        private final String errorType;
+
+        public BulkItemFailureException(int status, String errorType, String reason) {
+            super("Bulk item failed with status " + status + " (" + errorType + "): " + reason);
+            this.status = status;
+            this.errorType = errorType;
+        }
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,215 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.ibm.aimonitoring.processor.dto.DashboardMetricsDTO;
+import com.ibm.aimonitoring.processor.dto.LogLevelDistributionDTO;
+import com.ibm.aimonitoring.processor.dto.LogVolumeDTO;
+import com.ibm.aimonitoring.processor.dto.ServiceLogCountDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+
+/**
+ * Stale-while-revalidate cache in front of the dashboard aggregations of {@link ElasticsearchService}.
+ * <p>
+ * Each endpoint has its own cache keyed by its request parameter ({@code hours} or {@code limit}).
+ * Once an entry is older than the endpoint's {@code ttl-seconds}, the next request still gets it
+ * immediately while one background refresh runs on the {@code dashboard-cache-} threads; further
+ * requests for the same key keep getting the stale entry until that refresh completes. Entries
+ * older than {@code max-stale-seconds} are not served and are reloaded by the requesting thread,
+ * with concurrent requests for the same key waiting on that one load.
+ * <p>
+ * Loads use the {@code load*} methods of {@link ElasticsearchService}, which fail instead of
+ * returning zeros: a failed refresh keeps serving the previous entry until it is older than
+ * {@code max-stale-seconds}, and a failed load reaches the caller rather than being cached.
+ * <p>
+ * Hit/miss/load metrics are published as {@code cache.*{cache=dashboard.<endpoint>}} and background
+ * refreshes as {@code dashboard.cache.refreshes{endpoint=<endpoint>}}.
+ */
+@Slf4j
+@Component
+public class DashboardCache {
+
+    static final String METRICS = "metrics";
+    static final String LOG_VOLUME = "log-volume";
+    static final String LOG_LEVEL_DISTRIBUTION = "log-level-distribution";
+    static final String TOP_SERVICES = "top-services";
+
+    // Key of the endpoints without parameters
+    private static final int NO_PARAMETERS = 0;
+
+    private final ElasticsearchService elasticsearchService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${dashboard.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${dashboard.cache.ttl-seconds.metrics:15}")
+    private long metricsTtlSeconds;
+
+    @Value("${dashboard.cache.ttl-seconds.log-volume:60}")
+    private long logVolumeTtlSeconds;
+
+    @Value("${dashboard.cache.ttl-seconds.log-level-distribution:30}")
+    private long levelDistributionTtlSeconds;
+
+    @Value("${dashboard.cache.ttl-seconds.top-services:30}")
+    private long topServicesTtlSeconds;
+
+    @Value("${dashboard.cache.max-stale-seconds:300}")
+    private long maxStaleSeconds;
+
+    @Value("${dashboard.cache.max-size:256}")
+    private long maxSize;
+
+    @Value("${dashboard.cache.refresh-threads:2}")
+    private int refreshThreads;
+
+    // Replaced in tests
+    Ticker ticker = Ticker.systemTicker();
+    Executor refreshExecutor;
+
+    private ExecutorService ownedExecutor;
+    private LoadingCache<Integer, DashboardMetricsDTO> metricsCache;
+    private LoadingCache<Integer, List<LogVolumeDTO>> logVolumeCache;
+    private LoadingCache<Integer, List<LogLevelDistributionDTO>> levelDistributionCache;
+    private LoadingCache<Integer, List<ServiceLogCountDTO>> topServicesCache;
+
+    public DashboardCache(ElasticsearchService elasticsearchService, MeterRegistry meterRegistry) {
+        this.elasticsearchService = elasticsearchService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Build the caches when enabled
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (refreshThreads < 1) {
+            throw new IllegalArgumentException("dashboard.cache.refresh-threads must be at least 1");
+        }
+        if (refreshExecutor == null) {
+            ownedExecutor = Executors.newFixedThreadPool(refreshThreads, new CustomizableThreadFactory("dashboard-cache-"));
+            refreshExecutor = ownedExecutor;
+        }
+
+        metricsCache = build(METRICS, metricsTtlSeconds,
+                key -> elasticsearchService.loadDashboardMetrics());
+        logVolumeCache = build(LOG_VOLUME, logVolumeTtlSeconds, hours -> {
+            Instant endTime = Instant.now();
+            return elasticsearchService.loadLogVolume(endTime.minus(hours, ChronoUnit.HOURS), endTime);
+        });
+        levelDistributionCache = build(LOG_LEVEL_DISTRIBUTION, levelDistributionTtlSeconds,
+                key -> elasticsearchService.loadLogLevelDistribution());
+        topServicesCache = build(TOP_SERVICES, topServicesTtlSeconds, elasticsearchService::loadTopServices);
+
+        log.info("Dashboard cache enabled: ttlSeconds(metrics={}, logVolume={}, levelDistribution={}, topServices={}), "
+                        + "maxStaleSeconds={}, maxSize={}", metricsTtlSeconds, logVolumeTtlSeconds,
+                levelDistributionTtlSeconds, topServicesTtlSeconds, maxStaleSeconds, maxSize);
+    }
+
+    /**
+     * Stop the refresh threads
+     */
+    @PreDestroy
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdownNow();
+        }
+    }
+
+    public boolean isEnabled() {
+        return metricsCache != null;
+    }
+
+    /**
+     * Dashboard metrics summary, see {@link ElasticsearchService#getDashboardMetrics()}
+     */
+    public DashboardMetricsDTO getDashboardMetrics() {
+        return metricsCache != null
+                ? metricsCache.get(NO_PARAMETERS)
+                : elasticsearchService.getDashboardMetrics();
+    }
+
+    /**
+     * Log volume of the last {@code hours}, see {@link ElasticsearchService#getLogVolume(Instant, Instant)}
+     */
+    public List<LogVolumeDTO> getLogVolume(int hours) {
+        if (logVolumeCache == null) {
+            Instant endTime = Instant.now();
+            return elasticsearchService.getLogVolume(endTime.minus(hours, ChronoUnit.HOURS), endTime);
+        }
+        return logVolumeCache.get(hours);
+    }
+
+    /**
+     * Log level distribution, see {@link ElasticsearchService#getLogLevelDistribution()}
+     */
+    public List<LogLevelDistributionDTO> getLogLevelDistribution() {
+        return levelDistributionCache != null
+                ? levelDistributionCache.get(NO_PARAMETERS)
+                : elasticsearchService.getLogLevelDistribution();
+    }
+
+    /**
+     * Top services by log count, see {@link ElasticsearchService#getTopServices(int)}
+     */
+    public List<ServiceLogCountDTO> getTopServices(int limit) {
+        return topServicesCache != null
+                ? topServicesCache.get(limit)
+                : elasticsearchService.getTopServices(limit);
+    }
+
+    private <V> LoadingCache<Integer, V> build(String endpoint, long ttlSeconds, IntFunction<V> loader) {
+        if (ttlSeconds < 1 || maxStaleSeconds <= ttlSeconds) {
+            throw new IllegalArgumentException("dashboard.cache.ttl-seconds." + endpoint
+                    + " must be at least 1 and less than dashboard.cache.max-stale-seconds");
+        }
+        Counter refreshes = meterRegistry.counter("dashboard.cache.refreshes", "endpoint", endpoint);
+
+        LoadingCache<Integer, V> cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .expireAfterWrite(Duration.ofSeconds(maxStaleSeconds))
+                .executor(refreshExecutor)
+                .ticker(ticker)
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public V load(Integer key) {
+                        return loader.apply(key);
+                    }
+
+                    @Override
+                    public V reload(Integer key, V oldValue) {
+                        refreshes.increment();
+                        return loader.apply(key);
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "dashboard." + endpoint);
+        return cache;
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,163 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+
+/**
+ * Generates Elasticsearch document IDs on the processor instead of letting Elasticsearch assign them.
+ * <p>
+ * IDs are 128-bit values rendered as 26-character Crockford base32 strings (ULID layout), so they
+ * sort lexicographically by time. The upper 48 bits are epoch milliseconds; the lower 80 bits are
+ * either
+ * <ul>
+ *     <li>a 16-bit node ID followed by a 64-bit per-millisecond sequence ({@link #nextId()}): unique
+ *     across processor instances and strictly increasing per instance, or</li>
+ *     <li>an 80-bit fingerprint of the AMQP message ID and the log content
+ *     ({@link #idFor(LogEntryDTO)}): a redelivered message maps onto the document that already
+ *     exists, while identical lines published as separate messages stay distinct.</li>
+ * </ul>
+ * The message ID is what tells a redelivery from a second publish of the same line; content and
+ * timestamp alone cannot, so without one a log always gets a {@link #nextId()} ID.
+ */
+@Slf4j
+@Component
+public class DocumentIdGenerator {
+
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ID_LENGTH = 26;
+    private static final long MAX_TIMESTAMP = (1L << 48) - 1;
+    private static final byte FIELD_SEPARATOR = 0x1F;
+
+    @Getter
+    private final int nodeId;
+
+    private long lastMillis = -1;
+    private long sequence;
+
+    public DocumentIdGenerator(@Value("${processor.node-id:-1}") int configuredNodeId) {
+        this.nodeId = configuredNodeId >= 0 ? configuredNodeId & 0xFFFF : deriveNodeId();
+        log.info("Document ID generator node id: {}", nodeId);
+    }
+
+    /**
+     * Next time-ordered ID for this node. IDs never go backwards, even if the wall clock does.
+     */
+    public String nextId() {
+        long millis;
+        long seq;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (now > lastMillis) {
+                lastMillis = now;
+                sequence = 0;
+            } else {
+                // Same millisecond or clock moved backwards: stay on the last timestamp
+                sequence++;
+            }
+            millis = lastMillis;
+            seq = sequence;
+        }
+        return encode(millis, ((long) nodeId << 48) | (seq >>> 16), seq & 0xFFFF);
+    }
+
+    /**
+     * Deterministic ID for a log entry: event timestamp followed by a fingerprint of the message ID
+     * and the content. The entry must carry the producer's timestamp and message ID, both of which
+     * a redelivery keeps.
+     */
+    public String idFor(LogEntryDTO logEntry) {
+        Instant timestamp = logEntry.getTimestamp();
+        if (timestamp == null) {
+            throw new IllegalArgumentException("Log entry has no timestamp");
+        }
+        if (logEntry.getMessageId() == null || logEntry.getMessageId().isBlank()) {
+            throw new IllegalArgumentException("Log entry has no message ID");
+        }
+
+        MessageDigest digest = sha256();
+        digest.update(Long.toString(timestamp.getEpochSecond()).getBytes(StandardCharsets.UTF_8));
+        digest.update(FIELD_SEPARATOR);
+        digest.update(Integer.toString(timestamp.getNano()).getBytes(StandardCharsets.UTF_8));
+        update(digest, logEntry.getLevel());
+        update(digest, logEntry.getService());
+        update(digest, logEntry.getHost());
+        update(digest, logEntry.getEnvironment());
+        update(digest, logEntry.getTraceId());
+        update(digest, logEntry.getSpanId());
+        update(digest, logEntry.getMessage());
+        update(digest, logEntry.getMessageId());
+        byte[] hash = digest.digest();
+
+        long high = 0;
+        for (int i = 0; i < 8; i++) {
+            high = (high << 8) | (hash[i] & 0xFF);
+        }
+        long low = ((hash[8] & 0xFF) << 8) | (hash[9] & 0xFF);
+        return encode(timestamp.toEpochMilli(), high, low);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(FIELD_SEPARATOR);
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Encode 48 bits of time plus 80 bits (64 high + 16 low) as 26 Crockford base32 characters
+     */
+    private static String encode(long millis, long high64, long low16) {
+        long time = Math.max(0, Math.min(millis, MAX_TIMESTAMP));
+        char[] out = new char[ID_LENGTH];
+
+        // 48-bit time -> 10 chars (50 bits, top 2 always zero)
+        for (int i = 9; i >= 0; i--) {
+            out[i] = CROCKFORD[(int) (time & 0x1F)];
+            time >>>= 5;
+        }
+
+        // 80-bit payload -> 16 chars: consume from the least significant end
+        long low = low16 & 0xFFFF;
+        long high = high64;
+        for (int i = ID_LENGTH - 1; i >= 10; i--) {
+            out[i] = CROCKFORD[(int) (low & 0x1F)];
+            // shift the 80-bit value (high:low16) right by 5
+            low = (low >>> 5) | ((high & 0x1F) << 11);
+            high >>>= 5;
+        }
+        return new String(out);
+    }
+
+    private static int deriveNodeId() {
+        String host = System.getenv("HOSTNAME");
+        if (host == null || host.isBlank()) {
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (UnknownHostException e) {
+                host = Long.toString(ProcessHandle.current().pid());
+            }
+        }
+        int hash = host.hashCode();
+        return (hash ^ (hash >>> 16)) & 0xFFFF;
+    }
+}
+
+// Made with Bob
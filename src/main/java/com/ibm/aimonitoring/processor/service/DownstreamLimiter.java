@@ -0,0 +1,123 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.config.VirtualThreadMode;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bounds concurrent blocking calls to Elasticsearch, the ML service and the database in the
+ * virtual-thread execution mode ({@link VirtualThreadMode}).
+ * <p>
+ * With platform threads the listener and executor pool sizes cap how many threads can block on a
+ * downstream at once. Virtual threads are cheap enough that nothing caps them, so each downstream
+ * gets a fair semaphore of {@code processor.virtual-threads.permits.*} instead; a virtual thread
+ * waiting for a permit costs almost nothing. With platform threads calls pass straight through.
+ * Metrics: {@code downstream.permits.in-use} and {@code downstream.permits.waiting}, tagged by
+ * downstream.
+ */
+@Slf4j
+@Component
+public class DownstreamLimiter {
+
+    public enum Downstream {
+        ELASTICSEARCH("elasticsearch"),
+        ML_SERVICE("ml-service"),
+        DATABASE("database");
+
+        private final String tag;
+
+        Downstream(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    /**
+     * A blocking call to a downstream
+     */
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    private final VirtualThreadMode virtualThreadMode;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${processor.virtual-threads.permits.elasticsearch:64}")
+    private int elasticsearchPermits;
+
+    @Value("${processor.virtual-threads.permits.ml-service:64}")
+    private int mlServicePermits;
+
+    @Value("${processor.virtual-threads.permits.database:10}")
+    private int databasePermits;
+
+    private final Map<Downstream, Semaphore> permits = new EnumMap<>(Downstream.class);
+
+    public DownstreamLimiter(VirtualThreadMode virtualThreadMode, MeterRegistry meterRegistry) {
+        this.virtualThreadMode = virtualThreadMode;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Create the semaphores when running on virtual threads
+     */
+    @PostConstruct
+    public void init() {
+        if (!virtualThreadMode.isActive()) {
+            return;
+        }
+        register(Downstream.ELASTICSEARCH, elasticsearchPermits);
+        register(Downstream.ML_SERVICE, mlServicePermits);
+        register(Downstream.DATABASE, databasePermits);
+        log.info("Downstream permits: elasticsearch={}, ml-service={}, database={}",
+                elasticsearchPermits, mlServicePermits, databasePermits);
+    }
+
+    private void register(Downstream downstream, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException(
+                    "processor.virtual-threads.permits." + downstream.tag + " must be at least 1, got: " + count);
+        }
+        Semaphore semaphore = new Semaphore(count, true);
+        permits.put(downstream, semaphore);
+        Tags tags = Tags.of("downstream", downstream.tag);
+        Gauge.builder("downstream.permits.in-use", semaphore, s -> count - s.availablePermits())
+                .tags(tags).register(meterRegistry);
+        Gauge.builder("downstream.permits.waiting", semaphore, Semaphore::getQueueLength)
+                .tags(tags).register(meterRegistry);
+    }
+
+    /**
+     * Run a blocking call once the downstream has a free permit
+     *
+     * @throws IllegalStateException if the thread is interrupted while waiting
+     */
+    public <T, E extends Exception> T call(Downstream downstream, Call<T, E> call) throws E {
+        Semaphore semaphore = permits.get(downstream);
+        if (semaphore == null) {
+            return call.call();
+        }
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a " + downstream.tag + " permit", e);
+        }
+        try {
+            return call.call();
+        } finally {
+            semaphore.release();
+        }
+    }
+}
+
+// Made with Bob
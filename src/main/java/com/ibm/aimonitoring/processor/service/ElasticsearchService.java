@@ -1,29 +1,70 @@
 package com.ibm.aimonitoring.processor.service;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.OpType;
 import co.elastic.clients.elasticsearch._types.Result;
 import co.elastic.clients.elasticsearch._types.SortOrder;
 import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.FiltersBucket;
 import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import co.elastic.clients.elasticsearch.core.IndexResponse;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.search.Hit;
+import co.elastic.clients.elasticsearch._types.mapping.TypeMapping;
 import co.elastic.clients.elasticsearch.indices.CreateIndexResponse;
 import co.elastic.clients.elasticsearch.indices.ExistsRequest;
+import co.elastic.clients.elasticsearch.indices.GetIndexResponse;
+import co.elastic.clients.elasticsearch.indices.GetMappingResponse;
+import co.elastic.clients.elasticsearch.indices.IndexSettings;
+import co.elastic.clients.elasticsearch.indices.PutIndexTemplateResponse;
+import co.elastic.clients.json.JsonData;
+import co.elastic.clients.json.JsonpUtils;
 import co.elastic.clients.transport.endpoints.BooleanResponse;
+import co.elastic.clients.util.BinaryData;
+import co.elastic.clients.util.ContentType;
+import co.elastic.clients.util.NamedValue;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamWriteFeature;
 import com.ibm.aimonitoring.processor.dto.*;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.ConnectionClosedException;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.ResponseException;
+import org.elasticsearch.client.RestClient;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.HashMap;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 /**
  * Service for Elasticsearch operations
@@ -47,11 +88,65 @@ public class ElasticsearchService {
     private static final String AGG_VOLUME_OVER_TIME = "volume_over_time";
     private static final String AGG_LEVEL_DISTRIBUTION = "level_distribution";
     private static final String AGG_TOP_SERVICES = "top_services";
+    private static final String AGG_TOTAL = "total";
+    private static final String AGG_ANOMALIES = "anomalies";
+    private static final String AGG_METRICS = "metrics";
+    private static final String AGG_VOLUME_RANGE = "volume_range";
+    private static final String AGG_OLDEST = "oldest";
+    private static final String FILTER_ERRORS = "errors";
+    private static final String FILTER_WARNINGS = "warnings";
+    private static final String FILTER_ANOMALIES = "anomalies";
+    private static final String FILTER_LAST_HOUR = "last_hour";
+    private static final String LAST_HOUR = "now-1h";
+
+    // Bucket size of the log volume histogram
+    private static final String VOLUME_INTERVAL_EXPRESSION = "1h";
+
+    // _meta key of the rollup index recording since when it counts logs
+    static final String ROLLUP_META_START = "rollupStart";
+    // How often to check again whether raw logs older than the rollup are left
+    private static final Duration ROLLUP_COVERAGE_CHECK_INTERVAL = Duration.ofMinutes(10);
+
+    private static final int HTTP_CONFLICT = 409;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVER_ERROR = 500;
+    private static final int HTTP_NOT_FOUND = 404;
+
+    // Tiebreaker sort of point-in-time searches: unique per document within the point in time
+    private static final String FIELD_SHARD_DOC = "_shard_doc";
+    private static final String CURSOR_SEPARATOR = ".";
+
+    // Log fields returned by raw searches, and the parts of the search response they read
+    private static final List<String> LOG_FIELDS = List.of(FIELD_TIMESTAMP, FIELD_LEVEL, FIELD_MESSAGE,
+            FIELD_SERVICE, FIELD_HOST, FIELD_ENVIRONMENT, FIELD_TRACE_ID, FIELD_SPAN_ID, FIELD_METADATA);
+    private static final String RAW_FILTER_PATH =
+            "pit_id,hits.total.value,hits.hits._id,hits.hits._source,hits.hits.sort";
+    // Raw pages are copied token by token; the generator must not close the servlet stream
+    private static final JsonFactory RAW_JSON = JsonFactory.builder()
+            .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+            .build();
+
+    // Below the built-in logs-*-* data stream template (100), which would win where the patterns overlap;
+    // <name>-yyyy.MM.dd does not match logs-*-* unless the name starts with logs-, warned about at startup
+    private static final long INDEX_TEMPLATE_PRIORITY = 90;
+    private static final String BUILT_IN_LOGS_PREFIX = "logs-";
+
+    // Rough size of a bulk action line, added to the document size for the bulk byte-size trigger
+    private static final int ACTION_LINE_BYTES = 96;
 
     private final ElasticsearchClient elasticsearchClient;
+    private final BulkIndexer bulkIndexer;
+    private final LogIndexRouter indexRouter;
+    // Low-level client under elasticsearchClient, for searches whose response is streamed as is
+    private final RestClient restClient;
+    private final LogSpool logSpool;
+    private final DownstreamLimiter downstreamLimiter;
+
+    @Value("${elasticsearch.bulk.enabled:false}")
+    private boolean bulkEnabled;
 
-    @Value("${elasticsearch.index.name:logs}")
-    private String indexName;
+    @Value("${elasticsearch.index.rolling.retention-days:30}")
+    private int retentionDays;
 
     @Value("${elasticsearch.index.shards:1}")
     private int numberOfShards;
@@ -59,6 +154,27 @@ public class ElasticsearchService {
     @Value("${elasticsearch.index.replicas:0}")
     private int numberOfReplicas;
 
+    @Value("${elasticsearch.search.pit-keep-alive:1m}")
+    private String pitKeepAlive;
+
+    @Value("${elasticsearch.search.export-page-size:1000}")
+    private int exportPageSize;
+
+    @Value("${elasticsearch.rollup.enabled:false}")
+    private boolean rollupEnabled;
+
+    @Value("${elasticsearch.rollup.use-for-dashboard:false}")
+    private boolean rollupForDashboard;
+
+    @Value("${elasticsearch.rollup.index-name:rollup-logs-1m}")
+    private String rollupIndexName;
+
+    // Since when the rollup index counts processed logs; null until known
+    private volatile Instant rollupStart;
+    // Whether no raw log older than rollupStart is left, so the rollup holds every log
+    private volatile boolean rollupCoversAllLogs;
+    private volatile Instant nextRollupCoverageCheck = Instant.MIN;
+
     @FunctionalInterface
     private interface EsIoSupplier<T> {
         T get() throws IOException;
@@ -67,8 +183,14 @@ public class ElasticsearchService {
     /**
      * Apache HttpClient may reuse a pooled connection that the server or load balancer already
      * closed; the next request then fails with {@link ConnectionClosedException}. Retry once.
+     * The call holds an Elasticsearch permit of {@link DownstreamLimiter} while it runs.
      */
     private <T> T withStaleConnectionRetry(EsIoSupplier<T> supplier) throws IOException {
+        return downstreamLimiter.call(DownstreamLimiter.Downstream.ELASTICSEARCH,
+                () -> retryStaleConnection(supplier));
+    }
+
+    private static <T> T retryStaleConnection(EsIoSupplier<T> supplier) throws IOException {
         try {
             return supplier.get();
         } catch (IOException e) {
@@ -111,7 +233,14 @@ public class ElasticsearchService {
     public void init() {
         try {
             if (elasticsearchClient != null && elasticsearchClient.indices() != null) {
-                createIndexIfNotExists();
+                if (indexRouter.isRolling()) {
+                    putIndexTemplate();
+                } else {
+                    createIndexIfNotExists();
+                }
+                if (rollupEnabled) {
+                    createRollupIndexIfNotExists();
+                }
                 log.info("Elasticsearch service initialized successfully");
             } else {
                 log.warn("Elasticsearch client not available, skipping index initialization");
@@ -128,6 +257,7 @@ public class ElasticsearchService {
         if (elasticsearchClient == null || elasticsearchClient.indices() == null) {
             throw new IOException("Elasticsearch client is not available");
         }
+        String indexName = indexRouter.getIndexName();
         
         BooleanResponse exists = withStaleConnectionRetry(() -> elasticsearchClient.indices()
                 .exists(ExistsRequest.of(e -> e.index(indexName))));
@@ -138,54 +268,194 @@ public class ElasticsearchService {
             CreateIndexResponse response = withStaleConnectionRetry(() -> elasticsearchClient.indices()
                     .create(c -> c
                             .index(indexName)
+                            .settings(this::logIndexSettings)
+                            .mappings(ElasticsearchService::logMappings)
+                    ));
+
+            log.info("Index created: {}, acknowledged: {}", indexName, response.acknowledged());
+        } else {
+            log.info("Index already exists: {}", indexName);
+        }
+    }
+
+    /**
+     * Create or update the index template the daily indices of {@link LogIndexRouter} are created from
+     */
+    private void putIndexTemplate() throws IOException {
+        String pattern = indexRouter.pattern();
+        if (indexRouter.getIndexName().startsWith(BUILT_IN_LOGS_PREFIX)) {
+            log.warn("Daily indices {} match the built-in logs-*-* data stream template, which takes precedence; "
+                    + "choose an elasticsearch.index.name without the logs- prefix", pattern);
+        }
+        PutIndexTemplateResponse response = withStaleConnectionRetry(() -> elasticsearchClient.indices()
+                .putIndexTemplate(t -> t
+                        .name(indexRouter.getIndexName())
+                        .indexPatterns(pattern)
+                        .priority(INDEX_TEMPLATE_PRIORITY)
+                        .template(tm -> tm
+                                .settings(this::logIndexSettings)
+                                .mappings(ElasticsearchService::logMappings))));
+
+        log.info("Index template put: {} -> {}, acknowledged: {}", indexRouter.getIndexName(), pattern,
+                response.acknowledged());
+    }
+
+    private IndexSettings.Builder logIndexSettings(IndexSettings.Builder s) {
+        return s.numberOfShards(String.valueOf(numberOfShards))
+                .numberOfReplicas(String.valueOf(numberOfReplicas));
+    }
+
+    private static TypeMapping.Builder logMappings(TypeMapping.Builder m) {
+        return m
+                .properties(FIELD_TIMESTAMP, p -> p.date(d -> d.format("strict_date_optional_time")))
+                .properties(FIELD_LEVEL, p -> p.keyword(k -> k))
+                .properties(FIELD_MESSAGE, p -> p.text(t -> t.analyzer("standard")))
+                .properties(FIELD_SERVICE, p -> p.keyword(k -> k))
+                .properties(FIELD_HOST, p -> p.keyword(k -> k))
+                .properties(FIELD_ENVIRONMENT, p -> p.keyword(k -> k))
+                .properties(FIELD_TRACE_ID, p -> p.keyword(k -> k))
+                .properties(FIELD_SPAN_ID, p -> p.keyword(k -> k))
+                .properties(FIELD_METADATA, p -> p.object(o -> o
+                        .enabled(true)
+                        .properties(AnomalyWriteBackService.FIELD_ANOMALY_DETECTED,
+                                mp -> mp.boolean_(b -> b))
+                        .properties(AnomalyWriteBackService.FIELD_ANOMALY_SCORE,
+                                mp -> mp.double_(d -> d))
+                        .properties(AnomalyWriteBackService.FIELD_ANOMALY_CONFIDENCE,
+                                mp -> mp.double_(d -> d))
+                        .properties(AnomalyWriteBackService.FIELD_ML_MODEL_VERSION,
+                                mp -> mp.keyword(k -> k))));
+    }
+
+    /**
+     * Delete daily indices older than {@code elasticsearch.index.rolling.retention-days}
+     */
+    @Scheduled(initialDelayString = "${elasticsearch.index.rolling.maintenance-interval-ms:3600000}",
+            fixedDelayString = "${elasticsearch.index.rolling.maintenance-interval-ms:3600000}")
+    public void deleteExpiredIndices() {
+        if (!indexRouter.isRolling() || retentionDays <= 0) {
+            return;
+        }
+        try {
+            deleteExpiredIndices(LocalDate.now(ZoneOffset.UTC));
+        } catch (IOException | ElasticsearchException e) {
+            log.error("Failed to delete expired log indices: {}", e.getMessage(), e);
+        }
+    }
+
+    void deleteExpiredIndices(LocalDate today) throws IOException {
+        LocalDate oldestKept = today.minusDays(retentionDays);
+        GetIndexResponse indices = withStaleConnectionRetry(() -> elasticsearchClient.indices()
+                .get(g -> g.index(indexRouter.pattern())));
+
+        List<String> expired = indices.result().keySet().stream()
+                .filter(index -> {
+                    LocalDate day = indexRouter.dayOf(index);
+                    return day != null && day.isBefore(oldestKept);
+                })
+                .sorted()
+                .toList();
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        withStaleConnectionRetry(() -> elasticsearchClient.indices().delete(d -> d.index(expired)));
+        log.info("Deleted {} expired log indices: {}", expired.size(), expired);
+    }
+
+    /**
+     * Create the rollup index maintained by {@link LogRollupService} if it doesn't exist, and
+     * learn since when it counts logs from its {@code _meta}. An index created before the start
+     * was recorded gets the current time, which errs on the side of reading raw logs.
+     */
+    private void createRollupIndexIfNotExists() throws IOException {
+        BooleanResponse exists = withStaleConnectionRetry(() -> elasticsearchClient.indices()
+                .exists(ExistsRequest.of(e -> e.index(rollupIndexName))));
+
+        if (exists.value()) {
+            GetMappingResponse mapping = withStaleConnectionRetry(() -> elasticsearchClient.indices()
+                    .getMapping(g -> g.index(rollupIndexName)));
+            Instant recorded = mapping.result().values().stream()
+                    .map(record -> record.mappings().meta().get(ROLLUP_META_START))
+                    .filter(Objects::nonNull)
+                    .map(start -> Instant.parse(start.to(String.class)))
+                    .findFirst()
+                    .orElse(null);
+            if (recorded == null) {
+                recorded = Instant.now();
+                String start = recorded.toString();
+                withStaleConnectionRetry(() -> elasticsearchClient.indices().putMapping(m -> m
+                        .index(rollupIndexName)
+                        .meta(ROLLUP_META_START, JsonData.of(start))));
+            }
+            rollupStart = recorded;
+            log.info("Rollup index {} counts logs since {}", rollupIndexName, rollupStart);
+        } else {
+            log.info("Creating Elasticsearch rollup index: {}", rollupIndexName);
+            Instant start = Instant.now();
+
+            CreateIndexResponse response = withStaleConnectionRetry(() -> elasticsearchClient.indices()
+                    .create(c -> c
+                            .index(rollupIndexName)
                             .settings(s -> s
                                     .numberOfShards(String.valueOf(numberOfShards))
                                     .numberOfReplicas(String.valueOf(numberOfReplicas))
                             )
                             .mappings(m -> m
-                                    .properties(FIELD_TIMESTAMP, p -> p.date(d -> d.format("strict_date_optional_time")))
-                                    .properties(FIELD_LEVEL, p -> p.keyword(k -> k))
-                                    .properties(FIELD_MESSAGE, p -> p.text(t -> t.analyzer("standard")))
-                                    .properties(FIELD_SERVICE, p -> p.keyword(k -> k))
-                                    .properties(FIELD_HOST, p -> p.keyword(k -> k))
-                                    .properties(FIELD_ENVIRONMENT, p -> p.keyword(k -> k))
-                                    .properties(FIELD_TRACE_ID, p -> p.keyword(k -> k))
-                                    .properties(FIELD_SPAN_ID, p -> p.keyword(k -> k))
-                                    .properties(FIELD_METADATA, p -> p.object(o -> o.enabled(true)))
+                                    .meta(ROLLUP_META_START, JsonData.of(start.toString()))
+                                    .properties(LogRollupService.FIELD_TIMESTAMP, p -> p.date(d -> d.format("strict_date_optional_time")))
+                                    .properties(LogRollupService.FIELD_SERVICE, p -> p.keyword(k -> k))
+                                    .properties(LogRollupService.FIELD_LEVEL, p -> p.keyword(k -> k))
+                                    .properties(LogRollupService.FIELD_ENVIRONMENT, p -> p.keyword(k -> k))
+                                    .properties(LogRollupService.FIELD_COUNT, p -> p.long_(l -> l))
+                                    .properties(LogRollupService.FIELD_MESSAGE_LENGTH_SUM, p -> p.long_(l -> l))
+                                    .properties(LogRollupService.FIELD_ANOMALY_COUNT, p -> p.long_(l -> l))
                             )
                     ));
 
-            log.info("Index created: {}, acknowledged: {}", indexName, response.acknowledged());
-        } else {
-            log.info("Index already exists: {}", indexName);
+            rollupStart = start;
+            log.info("Rollup index created: {}, acknowledged: {}", rollupIndexName, response.acknowledged());
         }
     }
 
     /**
-     * Index a log entry to Elasticsearch
+     * Index a log entry to Elasticsearch. When the entry carries an ID it is written with
+     * {@code op_type=create}; if a document with that ID already exists (a redelivered message),
+     * the call is a no-op and returns the existing ID.
      *
      * @param logEntry the log entry to index
      * @return the document ID
      */
     public String indexLog(LogEntryDTO logEntry) {
-        try {
-            // Convert DTO to Map for indexing
-            Map<String, Object> document = convertToDocument(logEntry);
+        return indexDocument(indexRouter.writeIndex(logEntry.getTimestamp()), logEntry.getId(),
+                LogDocumentSerializer.toBinaryData(logEntry)).documentId();
+    }
 
-            // Index the document
-            IndexResponse response = withStaleConnectionRetry(() -> elasticsearchClient.index(i -> i
-                    .index(indexName)
-                    .document(document)
-            ));
+    private IndexResult indexDocument(String index, String documentId, BinaryData document) {
+        try {
+            IndexResponse response = withStaleConnectionRetry(() -> elasticsearchClient.index(i -> {
+                i.index(index).document(document);
+                if (documentId != null) {
+                    i.id(documentId).opType(OpType.Create);
+                }
+                return i;
+            }));
 
             if (response.result() == Result.Created || response.result() == Result.Updated) {
                 log.debug("Log indexed successfully: {}", response.id());
-                return response.id();
+                return IndexResult.created(response.id());
             } else {
                 log.warn("Unexpected index result: {}", response.result());
-                return null;
+                return IndexResult.created(null);
             }
 
+        } catch (ElasticsearchException e) {
+            if (e.status() == HTTP_CONFLICT && documentId != null) {
+                log.debug("Log already indexed, skipping duplicate: {}", documentId);
+                return IndexResult.duplicate(documentId);
+            }
+            log.error("Failed to index log to Elasticsearch: {}", e.getMessage(), e);
+            throw new ElasticsearchIndexException("Failed to index log", e);
         } catch (IOException e) {
             log.error("Failed to index log to Elasticsearch: {}", e.getMessage(), e);
             throw new ElasticsearchIndexException("Failed to index log", e);
@@ -193,28 +463,75 @@ public class ElasticsearchService {
     }
 
     /**
-     * Convert LogEntryDTO to a Map for Elasticsearch
+     * Index a log entry without waiting for Elasticsearch. With {@code elasticsearch.bulk.enabled}
+     * the document is buffered by {@link BulkIndexer} (as a {@code create} when it carries an ID);
+     * otherwise it is indexed synchronously. With {@code elasticsearch.spool.enabled}, a log that
+     * fails because Elasticsearch is unreachable or overloaded is written to the {@link LogSpool}
+     * instead, and the future completes once it is spooled.
+     *
+     * @param logEntry the log entry to index
+     * @return future completed once the document is durable, {@linkplain IndexResult#duplicate()
+     *         marked duplicate} if it already existed, or failed if this document could not be indexed
      */
-    private Map<String, Object> convertToDocument(LogEntryDTO logEntry) {
-        Map<String, Object> document = new HashMap<>();
-        
-        document.put(FIELD_TIMESTAMP, logEntry.getTimestamp() != null ?
-                logEntry.getTimestamp().toString() : null);
-        document.put(FIELD_LEVEL, logEntry.getLevel());
-        document.put(FIELD_MESSAGE, logEntry.getMessage());
-        document.put(FIELD_SERVICE, logEntry.getService());
-        document.put(FIELD_HOST, logEntry.getHost());
-        document.put(FIELD_ENVIRONMENT, logEntry.getEnvironment());
-        document.put(FIELD_TRACE_ID, logEntry.getTraceId());
-        document.put(FIELD_SPAN_ID, logEntry.getSpanId());
-        
-        if (logEntry.getMetadata() != null) {
-            document.put(FIELD_METADATA, logEntry.getMetadata());
+    public CompletableFuture<IndexResult> indexLogAsync(LogEntryDTO logEntry) {
+        // Serialized now, straight into the bytes of the bulk body: no map, and no concurrent
+        // metadata update from anomaly detection can reach the buffered or spooled document
+        byte[] source = LogDocumentSerializer.serialize(logEntry);
+        BinaryData document = BinaryData.of(source, ContentType.APPLICATION_JSON);
+        String documentId = logEntry.getId();
+        String index = indexRouter.writeIndex(logEntry.getTimestamp());
+
+        CompletableFuture<IndexResult> indexed;
+        if (bulkEnabled) {
+            BulkOperation operation = documentId != null
+                    ? BulkOperation.of(b -> b.create(c -> c
+                            .index(index)
+                            .id(documentId)
+                            .document(document)))
+                    : BulkOperation.of(b -> b.index(i -> i
+                            .index(index)
+                            .document(document)));
+            indexed = bulkIndexer.add(operation, source.length + ACTION_LINE_BYTES);
+        } else {
+            try {
+                indexed = CompletableFuture.completedFuture(indexDocument(index, documentId, document));
+            } catch (RuntimeException e) {
+                indexed = CompletableFuture.failedFuture(e);
+            }
         }
-        
-        return document;
+
+        if (!logSpool.isEnabled() || documentId == null) {
+            return indexed;
+        }
+        return indexed.exceptionallyCompose(error -> spoolOnOutage(index, documentId, source, error));
     }
 
+    private CompletableFuture<IndexResult> spoolOnOutage(String index, String documentId, byte[] source, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (isOutage(cause) && logSpool.append(index, documentId, source)) {
+            log.debug("Elasticsearch unavailable, log spooled: {} ({})", documentId, cause.getMessage());
+            return CompletableFuture.completedFuture(IndexResult.created(documentId));
+        }
+        return CompletableFuture.failedFuture(error);
+    }
+
+    /**
+     * Whether indexing failed because Elasticsearch was unreachable or rejecting load (429, 5xx),
+     * rather than because of the document itself
+     */
+    static boolean isOutage(Throwable error) {
+        if (error instanceof BulkIndexer.BulkItemFailureException itemFailure) {
+            return isOutageStatus(itemFailure.getStatus());
+        }
+        if (error instanceof ElasticsearchIndexException) {
+            return !(error.getCause() instanceof ElasticsearchException e) || isOutageStatus(e.status());
+        }
+        return false;
+    }
+
+    private static boolean isOutageStatus(int status) {
+        return status == HTTP_TOO_MANY_REQUESTS || status >= HTTP_SERVER_ERROR;
+    }
 
     /**
      * Check if Elasticsearch is available
@@ -229,12 +546,17 @@ public class ElasticsearchService {
     }
 
     /**
-     * Search logs with filters and pagination
+     * Search logs with filters and pagination. With {@link LogSearchRequest#isCursorPagination()}
+     * pages are read from a point in time with {@code search_after}, see {@link #searchLogsAfter}.
      *
      * @param request the search request
      * @return search response with results
+     * @throws IllegalArgumentException if the request's cursor is invalid or has expired
      */
     public LogSearchResponse searchLogs(LogSearchRequest request) {
+        if (request.isCursorPagination()) {
+            return searchLogsAfter(request);
+        }
         try {
             @SuppressWarnings("unchecked")
             SearchResponse<Map<String, Object>> response = withStaleConnectionRetry(() ->
@@ -251,20 +573,364 @@ public class ElasticsearchService {
         }
     }
 
+    /**
+     * Read all logs matching the request, in its sort order, one point-in-time page of
+     * {@code elasticsearch.search.export-page-size} hits at a time. Only one page is held in memory.
+     * The request's page, size and cursor are ignored.
+     *
+     * @param consumer called for every log as its page arrives
+     */
+    public void streamLogs(LogSearchRequest request, Consumer<LogEntryDTO> consumer) {
+        LogSearchRequest page = request.toBuilder()
+                .cursorPagination(true)
+                .cursor(null)
+                .page(0)
+                .size(exportPageSize)
+                .build();
+        // The point in time still open while its logs are consumed; searchLogsAfter closes it after the last page
+        String pitId = null;
+        try {
+            do {
+                LogSearchResponse response = searchLogsAfter(page);
+                page.setCursor(response.getNextCursor());
+                pitId = page.getCursor() != null ? decodeSearchCursor(page.getCursor()).pitId() : null;
+                response.getLogs().forEach(consumer);
+            } while (page.getCursor() != null);
+        } catch (RuntimeException e) {
+            // Typically the client went away; release the point in time instead of waiting for it to expire
+            if (pitId != null) {
+                closePointInTime(pitId);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Search one page after the request's cursor, or the first page of a new point in time when it
+     * has none. Every page is a {@code search_after} on the last sort values of the previous page
+     * with {@code _shard_doc} as tiebreaker, so its cost does not grow with the depth and it is not
+     * bounded by {@code index.max_result_window}. The point in time is kept alive for
+     * {@code elasticsearch.search.pit-keep-alive} between pages and closed after the last page.
+     */
+    private LogSearchResponse searchLogsAfter(LogSearchRequest request) {
+        SearchCursor after = request.getCursor() != null && !request.getCursor().isBlank()
+                ? decodeSearchCursor(request.getCursor())
+                : null;
+        // Opened for this first page; closed again if its search fails, as no cursor will reference it
+        String openedPitId = null;
+        try {
+            if (after == null) {
+                openedPitId = openPointInTime(request);
+            }
+            String pitId = after != null ? after.pitId() : openedPitId;
+
+            @SuppressWarnings("unchecked")
+            SearchResponse<Map<String, Object>> response = withStaleConnectionRetry(() ->
+                    (SearchResponse<Map<String, Object>>) (SearchResponse<?>) elasticsearchClient.search(s -> {
+                        s.pit(p -> p.id(pitId).keepAlive(k -> k.time(pitKeepAlive)))
+                         .size(request.getSize())
+                         .sort(fieldSort(request))
+                         .sort(so -> so.field(f -> f.field(FIELD_SHARD_DOC).order(sortOrder(request))))
+                         .query(searchQuery(request));
+                        if (after != null) {
+                            s.searchAfter(after.sortValues());
+                        }
+                        return s;
+                    }, Map.class));
+
+            // Elasticsearch may hand out a new ID for the same point in time
+            String currentPitId = response.pitId() != null ? response.pitId() : pitId;
+            List<Hit<Map<String, Object>>> hits = response.hits().hits();
+            String nextCursor = null;
+            if (!hits.isEmpty() && hits.size() >= request.getSize()) {
+                nextCursor = encodeSearchCursor(new SearchCursor(currentPitId, hits.get(hits.size() - 1).sort()));
+            } else {
+                closePointInTime(currentPitId);
+            }
+
+            LogSearchResponse result = buildSearchResponse(response, request);
+            result.setNextCursor(nextCursor);
+            return result;
+
+        } catch (ElasticsearchException e) {
+            if (after != null && e.status() == HTTP_NOT_FOUND) {
+                throw new IllegalArgumentException("Search cursor has expired", e);
+            }
+            log.error("Failed to search logs: {}", e.getMessage(), e);
+            closeOpenedPointInTime(openedPitId);
+            throw new ElasticsearchIndexException("Failed to search logs", e);
+        } catch (IOException e) {
+            log.error("Failed to search logs: {}", e.getMessage(), e);
+            closeOpenedPointInTime(openedPitId);
+            throw new ElasticsearchIndexException("Failed to search logs", e);
+        }
+    }
+
+    private void closeOpenedPointInTime(String pitId) {
+        if (pitId != null) {
+            closePointInTime(pitId);
+        }
+    }
+
+    private String openPointInTime(LogSearchRequest request) throws IOException {
+        return withStaleConnectionRetry(() -> elasticsearchClient.openPointInTime(o -> o
+                .index(indexRouter.readIndices(request.getStartTime(), request.getEndTime()))
+                .ignoreUnavailable(true)
+                .keepAlive(k -> k.time(pitKeepAlive)))).id();
+    }
+
+    /**
+     * Release a point in time after its last page; it would otherwise expire after the keep-alive
+     */
+    private void closePointInTime(String pitId) {
+        try {
+            withStaleConnectionRetry(() -> elasticsearchClient.closePointInTime(c -> c.id(pitId)));
+        } catch (IOException | ElasticsearchException e) {
+            log.warn("Failed to close point in time: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Search like {@link #searchLogs} but return the hits' {@code _source} as Elasticsearch sent it.
+     * Elasticsearch is asked for only the page's IDs, sources (limited to {@code fields}), sort
+     * values and total ({@code filter_path}), and {@link RawLogPage#writeTo} copies them token by
+     * token into the {@link LogSearchResponse} JSON envelope, without building Java objects per hit.
+     * The search runs here, so its errors surface before anything is written.
+     *
+     * @param fields source fields to return; all log fields when null or empty
+     * @throws IllegalArgumentException if a field is unknown, or the cursor is invalid or has expired
+     */
+    public RawLogPage searchLogsRaw(LogSearchRequest request, List<String> fields) {
+        List<String> includes = fields == null || fields.isEmpty() ? LOG_FIELDS : fields;
+        for (String field : includes) {
+            if (!LOG_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unknown log field: " + field);
+            }
+        }
+
+        boolean cursorPagination = request.isCursorPagination();
+        SearchCursor after = cursorPagination && request.getCursor() != null && !request.getCursor().isBlank()
+                ? decodeSearchCursor(request.getCursor())
+                : null;
+        // Opened for this first page; closed again if its search fails, as no cursor will reference it
+        String openedPitId = null;
+        try {
+            if (cursorPagination && after == null) {
+                openedPitId = openPointInTime(request);
+            }
+            String pitId = after != null ? after.pitId() : openedPitId;
+
+            SearchRequest search = SearchRequest.of(s -> {
+                if (pitId != null) {
+                    s.pit(p -> p.id(pitId).keepAlive(k -> k.time(pitKeepAlive)))
+                     .size(request.getSize())
+                     .sort(fieldSort(request))
+                     .sort(so -> so.field(f -> f.field(FIELD_SHARD_DOC).order(sortOrder(request))))
+                     .query(searchQuery(request));
+                    if (after != null) {
+                        s.searchAfter(after.sortValues());
+                    }
+                } else {
+                    buildSearchRequest(s, request);
+                }
+                return s.source(src -> src.filter(f -> f.includes(includes)));
+            });
+
+            // The index is a path parameter and not part of the serialized body
+            Request httpRequest = new Request("POST", pitId != null ? "/_search"
+                    : "/" + String.join(",", indexRouter.readIndices(request.getStartTime(), request.getEndTime()))
+                            + "/_search");
+            if (pitId == null) {
+                httpRequest.addParameter("ignore_unavailable", "true");
+            }
+            httpRequest.addParameter("filter_path", RAW_FILTER_PATH);
+            httpRequest.setJsonEntity(JsonpUtils.toJsonString(search, elasticsearchClient._jsonpMapper()));
+
+            Response response = withStaleConnectionRetry(() -> restClient.performRequest(httpRequest));
+            return new RawLogPage(request, pitId, response);
+
+        } catch (ResponseException e) {
+            if (after != null && e.getResponse().getStatusLine().getStatusCode() == HTTP_NOT_FOUND) {
+                throw new IllegalArgumentException("Search cursor has expired", e);
+            }
+            log.error("Failed to search logs: {}", e.getMessage(), e);
+            closeOpenedPointInTime(openedPitId);
+            throw new ElasticsearchIndexException("Failed to search logs", e);
+        } catch (IOException | ElasticsearchException e) {
+            log.error("Failed to search logs: {}", e.getMessage(), e);
+            closeOpenedPointInTime(openedPitId);
+            throw new ElasticsearchIndexException("Failed to search logs", e);
+        }
+    }
+
+    /**
+     * One page of {@link #searchLogsRaw}: the response as the low-level client buffered it, not yet
+     * parsed
+     */
+    public final class RawLogPage {
+
+        private final LogSearchRequest request;
+        private final String pitId;
+        private final Response response;
+
+        private RawLogPage(LogSearchRequest request, String pitId, Response response) {
+            this.request = request;
+            this.pitId = pitId;
+            this.response = response;
+        }
+
+        /**
+         * Write the page as a {@link LogSearchResponse} JSON object: {@code page}, {@code size},
+         * {@code total}, {@code logs} (each hit's {@code id} followed by its source fields) and,
+         * with cursor pagination, {@code nextCursor}. Closes the point in time after the last page.
+         */
+        public void writeTo(OutputStream out) throws IOException {
+            String currentPitId = pitId;
+            List<FieldValue> lastSort = null;
+            int hitCount = 0;
+            boolean logsWritten = false;
+
+            try (InputStream in = response.getEntity().getContent();
+                 JsonParser parser = RAW_JSON.createParser(in);
+                 JsonGenerator generator = RAW_JSON.createGenerator(out)) {
+                generator.writeStartObject();
+                generator.writeNumberField("page", request.getPage());
+                generator.writeNumberField("size", request.getSize());
+
+                expect(parser.nextToken(), JsonToken.START_OBJECT);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.currentName();
+                    parser.nextToken();
+                    if ("pit_id".equals(name)) {
+                        currentPitId = parser.getText();
+                    } else if ("hits".equals(name)) {
+                        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                            String hitsField = parser.currentName();
+                            parser.nextToken();
+                            if ("total".equals(hitsField)) {
+                                generator.writeNumberField("total", totalValue(parser));
+                            } else if ("hits".equals(hitsField)) {
+                                generator.writeArrayFieldStart("logs");
+                                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                                    lastSort = copyHit(parser, generator);
+                                    hitCount++;
+                                }
+                                generator.writeEndArray();
+                                logsWritten = true;
+                            } else {
+                                parser.skipChildren();
+                            }
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+
+                if (!logsWritten) {
+                    // filter_path drops hits.hits when there are none
+                    generator.writeArrayFieldStart("logs");
+                    generator.writeEndArray();
+                }
+                if (request.isCursorPagination()) {
+                    String nextCursor = hitCount > 0 && hitCount >= request.getSize() && lastSort != null
+                            ? encodeSearchCursor(new SearchCursor(currentPitId, lastSort))
+                            : null;
+                    generator.writeStringField("nextCursor", nextCursor);
+                    if (nextCursor == null) {
+                        closePointInTime(currentPitId);
+                        currentPitId = null;
+                    }
+                }
+                generator.writeEndObject();
+            } catch (IOException | RuntimeException e) {
+                // The client went away or the response was cut off; the cursor was never handed out
+                if (currentPitId != null && request.isCursorPagination()) {
+                    closePointInTime(currentPitId);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static long totalValue(JsonParser parser) throws IOException {
+        long total = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            if ("value".equals(name)) {
+                total = parser.getLongValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Copy one hit as {@code {"id": _id, ..._source}} and return its sort values
+     */
+    private static List<FieldValue> copyHit(JsonParser parser, JsonGenerator generator) throws IOException {
+        List<FieldValue> sortValues = null;
+        generator.writeStartObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("_id".equals(name)) {
+                generator.writeStringField("id", parser.getText());
+            } else if ("_source".equals(name) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    generator.copyCurrentStructure(parser);
+                }
+            } else if ("sort".equals(name) && value == JsonToken.START_ARRAY) {
+                sortValues = new ArrayList<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    sortValues.add(switch (parser.currentToken()) {
+                        case VALUE_NUMBER_INT -> FieldValue.of(parser.getLongValue());
+                        case VALUE_NUMBER_FLOAT -> FieldValue.of(parser.getDoubleValue());
+                        case VALUE_TRUE, VALUE_FALSE -> FieldValue.of(parser.getBooleanValue());
+                        case VALUE_NULL -> FieldValue.NULL;
+                        default -> FieldValue.of(parser.getText());
+                    });
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        generator.writeEndObject();
+        return sortValues;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Unexpected search response token: " + actual);
+        }
+    }
+
     /**
      * Build the Elasticsearch search request
      */
     private void buildSearchRequest(SearchRequest.Builder s, LogSearchRequest request) {
-        s.index(indexName)
+        s.index(indexRouter.readIndices(request.getStartTime(), request.getEndTime()))
+         .ignoreUnavailable(true)
          .from(request.getPage() * request.getSize())
          .size(request.getSize())
-         .sort(sort -> sort.field(f -> f
-             .field(request.getSortBy())
-             .order(request.getSortOrder().equalsIgnoreCase("asc") ? 
-                    SortOrder.Asc : SortOrder.Desc)
-         ));
+         .sort(fieldSort(request))
+         .query(searchQuery(request));
+    }
+
+    private static SortOptions fieldSort(LogSearchRequest request) {
+        return SortOptions.of(sort -> sort.field(f -> f
+            .field(request.getSortBy())
+            .order(sortOrder(request))
+        ));
+    }
 
-        s.query(q -> q.bool(b -> {
+    private static SortOrder sortOrder(LogSearchRequest request) {
+        return request.getSortOrder().equalsIgnoreCase("asc") ? SortOrder.Asc : SortOrder.Desc;
+    }
+
+    private Query searchQuery(LogSearchRequest request) {
+        return Query.of(q -> q.bool(b -> {
             addTextSearch(b, request);
             addLevelFilter(b, request);
             addServiceFilter(b, request);
@@ -331,7 +997,11 @@ public class ElasticsearchService {
      */
     private LogSearchResponse buildSearchResponse(SearchResponse<Map<String, Object>> response, LogSearchRequest request) {
         List<LogEntryDTO> logs = response.hits().hits().stream()
-            .map(hit -> convertToLogEntry(hit.source()))
+            .map(hit -> {
+                LogEntryDTO dto = convertToLogEntry(hit.source());
+                dto.setId(hit.id());
+                return dto;
+            })
             .toList();
 
         return LogSearchResponse.builder()
@@ -342,6 +1012,64 @@ public class ElasticsearchService {
             .build();
     }
 
+    /**
+     * Point in time and sort values of the last hit of a page
+     */
+    record SearchCursor(String pitId, List<FieldValue> sortValues) {
+    }
+
+    /**
+     * Encode a cursor as URL-safe tokens joined by {@value #CURSOR_SEPARATOR}: the point-in-time ID,
+     * then each sort value prefixed with its type
+     */
+    static String encodeSearchCursor(SearchCursor cursor) {
+        List<String> tokens = new ArrayList<>();
+        tokens.add(cursor.pitId());
+        for (FieldValue value : cursor.sortValues()) {
+            tokens.add(switch (value._kind()) {
+                case Long -> "l" + value.longValue();
+                case Double -> "d" + value.doubleValue();
+                case Boolean -> "b" + value.booleanValue();
+                case String -> "s" + value.stringValue();
+                case Null -> "n";
+                default -> throw new IllegalStateException("Unsupported sort value: " + value._kind());
+            });
+        }
+        return String.join(CURSOR_SEPARATOR, tokens.stream()
+                .map(token -> Base64.getUrlEncoder().withoutPadding()
+                        .encodeToString(token.getBytes(StandardCharsets.UTF_8)))
+                .toList());
+    }
+
+    static SearchCursor decodeSearchCursor(String cursor) {
+        // NumberFormatException and the decoder's errors are IllegalArgumentExceptions too
+        String[] tokens = cursor.split("\\" + CURSOR_SEPARATOR);
+        if (tokens.length < 2) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+        List<FieldValue> sortValues = new ArrayList<>();
+        for (int i = 1; i < tokens.length; i++) {
+            String token = decodeToken(tokens[i]);
+            if (token.isEmpty()) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            String value = token.substring(1);
+            sortValues.add(switch (token.charAt(0)) {
+                case 'l' -> FieldValue.of(Long.parseLong(value));
+                case 'd' -> FieldValue.of(Double.parseDouble(value));
+                case 'b' -> FieldValue.of(Boolean.parseBoolean(value));
+                case 's' -> FieldValue.of(value);
+                case 'n' -> FieldValue.NULL;
+                default -> throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            });
+        }
+        return new SearchCursor(decodeToken(tokens[0]), sortValues);
+    }
+
+    private static String decodeToken(String token) {
+        return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+    }
+
     /**
      * Convert Elasticsearch document to LogEntryDTO
      */
@@ -367,260 +1095,462 @@ public class ElasticsearchService {
     }
 
     /**
-     * Get dashboard metrics summary
+     * Get dashboard metrics summary: total, ERROR, WARN and anomaly counts in one request,
+     * or zeros when Elasticsearch fails
      */
     public DashboardMetricsDTO getDashboardMetrics() {
         try {
-            // Get total logs count
-            @SuppressWarnings("unchecked")
-            SearchResponse<Map<String, Object>> totalResponse = withStaleConnectionRetry(() ->
-                    (SearchResponse<Map<String, Object>>) (SearchResponse<?>) elasticsearchClient.search(s -> s
-                .index(indexName)
-                .size(0)
-                .query(q -> q.matchAll(m -> m))
-            , Map.class));
-            
-            long totalLogs = totalResponse.hits().total().value();
-            
-            // Get error count
-            @SuppressWarnings("unchecked")
-            SearchResponse<Map<String, Object>> errorResponse = withStaleConnectionRetry(() ->
-                    (SearchResponse<Map<String, Object>>) (SearchResponse<?>) elasticsearchClient.search(s -> s
-                .index(indexName)
-                .size(0)
-                .query(q -> q.term(t -> t.field(FIELD_LEVEL).value("ERROR")))
-            , Map.class));
-            
-            long errorCount = errorResponse.hits().total().value();
-            
-            // Get warning count
-            @SuppressWarnings("unchecked")
-            SearchResponse<Map<String, Object>> warningResponse = withStaleConnectionRetry(() ->
-                    (SearchResponse<Map<String, Object>>) (SearchResponse<?>) elasticsearchClient.search(s -> s
-                .index(indexName)
-                .size(0)
-                .query(q -> q.term(t -> t.field(FIELD_LEVEL).value("WARN")))
-            , Map.class));
-            
-            long warningCount = warningResponse.hits().total().value();
-            
-            // Calculate logs per minute (last 24 hours)
-            double logsPerMinute = totalLogs / (24.0 * 60.0);
-            
-            // Calculate error rate
-            double errorRate = totalLogs > 0 ? (errorCount * 100.0 / totalLogs) : 0.0;
-            
-            return DashboardMetricsDTO.builder()
-                .totalLogs(totalLogs)
-                .errorCount(errorCount)
-                .warningCount(warningCount)
-                .activeAlerts(0)
-                .anomalyCount(0)
-                .logsPerMinute(logsPerMinute)
-                .errorRate(errorRate)
-                .build();
-                
+            return loadDashboardMetrics();
+        } catch (ElasticsearchIndexException e) {
+            return emptyMetrics();
+        }
+    }
+
+    /**
+     * {@link #getDashboardMetrics()}, failing with {@link ElasticsearchIndexException} rather than
+     * returning zeros, for callers such as {@link DashboardCache} that keep the last good value
+     */
+    DashboardMetricsDTO loadDashboardMetrics() {
+        try {
+            boolean rollup = useRollup(null);
+            return toMetrics(aggregate(rollup, null, metricsAggregations(rollup)), rollup);
         } catch (IOException e) {
             log.error("Failed to get dashboard metrics: {}", e.getMessage(), e);
-            return DashboardMetricsDTO.builder()
-                .totalLogs(0).errorCount(0).warningCount(0)
-                .activeAlerts(0).anomalyCount(0)
-                .logsPerMinute(0.0).errorRate(0.0)
-                .build();
+            throw new ElasticsearchIndexException("Failed to get dashboard metrics", e);
         }
     }
     
     /**
-     * Get log volume over time
+     * Get log volume over time, or an empty list when Elasticsearch fails
      */
     public List<LogVolumeDTO> getLogVolume(Instant startTime, Instant endTime) {
         try {
-            @SuppressWarnings("unchecked")
-            SearchResponse<Map<String, Object>> response = withStaleConnectionRetry(() ->
-                    (SearchResponse<Map<String, Object>>) (SearchResponse<?>) elasticsearchClient.search(s -> s
-                .index(indexName)
-                .size(0)
-                .query(q -> q.range(r -> r.date(d -> d
-                    .field(FIELD_TIMESTAMP)
-                    .gte(startTime.toString())
-                    .lte(endTime.toString())
-                )))
-                .aggregations(AGG_VOLUME_OVER_TIME, a -> a
-                    .dateHistogram(dh -> dh
-                        .field(FIELD_TIMESTAMP)
-                        .fixedInterval(fi -> fi.time("1h"))
-                        .minDocCount(0)
-                    )
-                )
-            , Map.class));
-            
-            if (response.aggregations() == null || !response.aggregations().containsKey(AGG_VOLUME_OVER_TIME)) {
-                log.warn("No volume_over_time aggregation found in response");
-                return List.of();
-            }
-            
-            var agg = response.aggregations().get(AGG_VOLUME_OVER_TIME);
-            if (agg == null) {
-                log.warn("Volume over time aggregation is null");
-                return List.of();
-            }
-            
-            if (!agg.isDateHistogram()) {
-                log.warn("Volume over time aggregation is not a date histogram");
-                return List.of();
-            }
-            
-            var buckets = agg.dateHistogram().buckets().array();
-            log.debug("Found {} log volume buckets", buckets.size());
-            
-            return buckets.stream()
-                .map(bucket -> {
-                    // bucket.key() returns a Long for date histogram buckets
-                    String keyStr = bucket.keyAsString();
-                    Instant timestamp;
-                    if (keyStr != null && !keyStr.isEmpty()) {
-                        timestamp = Instant.parse(keyStr);
-                    } else {
-                        // Fallback: use bucket.key() directly as it returns Long (epoch millis)
-                        timestamp = Instant.ofEpochMilli(bucket.key());
-                    }
-                    return LogVolumeDTO.builder()
-                        .timestamp(timestamp)
-                        .count(bucket.docCount())
-                        .build();
-                })
-                .toList();
-                
+            return loadLogVolume(startTime, endTime);
+        } catch (ElasticsearchIndexException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * {@link #getLogVolume(Instant, Instant)}, failing with {@link ElasticsearchIndexException}
+     */
+    List<LogVolumeDTO> loadLogVolume(Instant startTime, Instant endTime) {
+        try {
+            boolean rollup = useRollup(startTime);
+            SearchResponse<Map<String, Object>> response = aggregate(rollup,
+                    indexRouter.readIndices(startTime, endTime), timeRange(startTime, endTime),
+                    Map.of(AGG_VOLUME_OVER_TIME, volumeAggregation(rollup)));
+            return toLogVolume(response.aggregations(), rollup);
         } catch (IOException e) {
             log.error("Failed to get log volume: {}", e.getMessage(), e);
-            return List.of();
+            throw new ElasticsearchIndexException("Failed to get log volume", e);
         }
     }
     
     /**
-     * Get log level distribution
+     * Get log level distribution, or an empty list when Elasticsearch fails
      */
     public List<LogLevelDistributionDTO> getLogLevelDistribution() {
         try {
-            @SuppressWarnings("unchecked")
-            SearchResponse<Map<String, Object>> response = withStaleConnectionRetry(() ->
-                    (SearchResponse<Map<String, Object>>) (SearchResponse<?>) elasticsearchClient.search(s -> s
-                .index(indexName)
-                .size(0)
-                .aggregations(AGG_LEVEL_DISTRIBUTION, a -> a
-                    .terms(t -> t.field(FIELD_LEVEL))
-                )
-            , Map.class));
-            
-            long totalLogs = response.hits().total().value();
-            log.debug("Total logs for level distribution: {}", totalLogs);
-            
-            if (response.aggregations() == null || !response.aggregations().containsKey(AGG_LEVEL_DISTRIBUTION)) {
-                log.warn("No level_distribution aggregation found in response");
-                return List.of();
-            }
-            
-            var agg = response.aggregations().get(AGG_LEVEL_DISTRIBUTION);
-            if (agg == null) {
-                log.warn("Level distribution aggregation is null");
-                return List.of();
-            }
-            
-            // Try both sterms() and lterms() as the field might be mapped differently
-            if (agg.isSterms()) {
-                var buckets = agg.sterms().buckets().array();
-                log.debug("Found {} level distribution buckets (sterms)", buckets.size());
-                return buckets.stream()
-                    .map(bucket -> {
-                        long count = bucket.docCount();
-                        double percentage = totalLogs > 0 ? (count * 100.0 / totalLogs) : 0.0;
-                        return LogLevelDistributionDTO.builder()
-                            .level(bucket.key().stringValue())
-                            .count(count)
-                            .percentage(percentage)
-                            .build();
-                    })
-                    .toList();
-            } else if (agg.isLterms()) {
-                var buckets = agg.lterms().buckets().array();
-                log.debug("Found {} level distribution buckets (lterms)", buckets.size());
-                return buckets.stream()
-                    .map(bucket -> {
-                        long count = bucket.docCount();
-                        double percentage = totalLogs > 0 ? (count * 100.0 / totalLogs) : 0.0;
-                        return LogLevelDistributionDTO.builder()
-                            .level(String.valueOf(bucket.key()))
-                            .count(count)
-                            .percentage(percentage)
-                            .build();
-                    })
-                    .toList();
-            } else {
-                log.warn("Could not extract buckets from level_distribution aggregation - not sterms or lterms");
-                return List.of();
+            return loadLogLevelDistribution();
+        } catch (ElasticsearchIndexException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * {@link #getLogLevelDistribution()}, failing with {@link ElasticsearchIndexException}
+     */
+    List<LogLevelDistributionDTO> loadLogLevelDistribution() {
+        try {
+            boolean rollup = useRollup(null);
+            Map<String, Aggregation> aggregations = new LinkedHashMap<>();
+            if (rollup) {
+                aggregations.put(AGG_TOTAL, sumOfCount());
             }
-                
+            aggregations.put(AGG_LEVEL_DISTRIBUTION, levelAggregation(rollup));
+            SearchResponse<Map<String, Object>> response = aggregate(rollup, null, aggregations);
+            return toLevelDistribution(response, rollup);
         } catch (IOException e) {
             log.error("Failed to get log level distribution: {}", e.getMessage(), e);
-            return List.of();
+            throw new ElasticsearchIndexException("Failed to get log level distribution", e);
         }
     }
     
     /**
-     * Get top services by log count
+     * Get top services by log count, or an empty list when Elasticsearch fails
      */
     public List<ServiceLogCountDTO> getTopServices(int limit) {
         try {
-            @SuppressWarnings("unchecked")
-            SearchResponse<Map<String, Object>> response = withStaleConnectionRetry(() ->
-                    (SearchResponse<Map<String, Object>>) (SearchResponse<?>) elasticsearchClient.search(s -> s
-                .index(indexName)
-                .size(0)
-                .aggregations(AGG_TOP_SERVICES, a -> a
-                    .terms(t -> t
-                        .field(FIELD_SERVICE)
-                        .size(limit)
-                    )
-                )
-            , Map.class));
-            
-            if (response.aggregations() == null || !response.aggregations().containsKey(AGG_TOP_SERVICES)) {
-                log.warn("No top_services aggregation found in response");
-                return List.of();
+            return loadTopServices(limit);
+        } catch (ElasticsearchIndexException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * {@link #getTopServices(int)}, failing with {@link ElasticsearchIndexException}
+     */
+    List<ServiceLogCountDTO> loadTopServices(int limit) {
+        try {
+            boolean rollup = useRollup(null);
+            SearchResponse<Map<String, Object>> response = aggregate(rollup, null,
+                    Map.of(AGG_TOP_SERVICES, topServicesAggregation(limit, rollup)));
+            return toTopServices(response.aggregations(), rollup);
+        } catch (IOException e) {
+            log.error("Failed to get top services: {}", e.getMessage(), e);
+            throw new ElasticsearchIndexException("Failed to get top services", e);
+        }
+    }
+
+    /**
+     * Get everything the dashboard shows - metrics, log volume between {@code startTime} and
+     * {@code endTime}, level distribution and top services - with a single search request
+     */
+    public DashboardSummaryDTO getDashboardSummary(Instant startTime, Instant endTime, int topServicesLimit) {
+        try {
+            // Metrics, levels and services cover all logs, so the rollup must hold all of them
+            boolean rollup = useRollup(null);
+            Map<String, Aggregation> aggregations = new LinkedHashMap<>(metricsAggregations(rollup));
+            aggregations.put(AGG_LEVEL_DISTRIBUTION, levelAggregation(rollup));
+            aggregations.put(AGG_TOP_SERVICES, topServicesAggregation(topServicesLimit, rollup));
+            // The other aggregations cover the whole index, so the time range is a filter of its own
+            aggregations.put(AGG_VOLUME_RANGE, Aggregation.of(a -> a
+                    .filter(timeRange(startTime, endTime))
+                    .aggregations(AGG_VOLUME_OVER_TIME, volumeAggregation(rollup))));
+
+            SearchResponse<Map<String, Object>> response = aggregate(rollup, null, aggregations);
+
+            Aggregate volumeRange = response.aggregations() != null ? response.aggregations().get(AGG_VOLUME_RANGE) : null;
+            return DashboardSummaryDTO.builder()
+                .metrics(toMetrics(response, rollup))
+                .logVolume(volumeRange != null && volumeRange.isFilter()
+                        ? toLogVolume(volumeRange.filter().aggregations(), rollup) : List.of())
+                .levelDistribution(toLevelDistribution(response, rollup))
+                .topServices(toTopServices(response.aggregations(), rollup))
+                .build();
+        } catch (IOException e) {
+            log.error("Failed to get dashboard summary: {}", e.getMessage(), e);
+            throw new ElasticsearchIndexException("Failed to get dashboard summary", e);
+        }
+    }
+
+    /**
+     * Whether a dashboard query over logs from {@code from} on can be answered from the rollup
+     * index, which only counts logs processed since {@link #rollupStart}. A query over all logs
+     * ({@code from} null) can once no raw log older than that is left; until then it reads raw logs.
+     */
+    private boolean useRollup(Instant from) throws IOException {
+        Instant start = rollupStart;
+        if (!rollupEnabled || !rollupForDashboard || start == null) {
+            return false;
+        }
+        if (from != null) {
+            return !from.isBefore(start);
+        }
+        if (rollupCoversAllLogs || Instant.now().isBefore(nextRollupCoverageCheck)) {
+            return rollupCoversAllLogs;
+        }
+        nextRollupCoverageCheck = Instant.now().plus(ROLLUP_COVERAGE_CHECK_INTERVAL);
+
+        SearchResponse<Map<String, Object>> response = aggregate(false, null,
+                Map.of(AGG_OLDEST, Aggregation.of(a -> a.min(m -> m.field(FIELD_TIMESTAMP)))));
+        Aggregate oldest = response.aggregations() != null ? response.aggregations().get(AGG_OLDEST) : null;
+        // No logs at all has no minimum, which covers nothing the rollup misses either
+        Double oldestMillis = oldest != null && oldest.isMin() ? oldest.min().value() : null;
+        rollupCoversAllLogs = oldestMillis == null || oldestMillis.isInfinite()
+                || oldestMillis >= start.toEpochMilli();
+        if (rollupCoversAllLogs) {
+            log.info("No log older than the rollup start {} left, dashboard totals now read the rollup index", start);
+        }
+        return rollupCoversAllLogs;
+    }
+
+    /**
+     * Run a {@code size=0} search over all logs or the rollup index
+     */
+    private SearchResponse<Map<String, Object>> aggregate(boolean rollup, Query query,
+                                                          Map<String, Aggregation> aggregations) throws IOException {
+        return aggregate(rollup, indexRouter.allIndices(), query, aggregations);
+    }
+
+    /**
+     * Run a {@code size=0} search over the given log indices or the rollup index
+     */
+    private SearchResponse<Map<String, Object>> aggregate(boolean rollup, List<String> indices, Query query,
+                                                          Map<String, Aggregation> aggregations) throws IOException {
+        @SuppressWarnings("unchecked")
+        SearchResponse<Map<String, Object>> response = withStaleConnectionRetry(() ->
+                (SearchResponse<Map<String, Object>>) (SearchResponse<?>) elasticsearchClient.search(s -> {
+            if (rollup) {
+                s.index(rollupIndexName);
+            } else {
+                s.index(indices).ignoreUnavailable(true);
             }
-            
-            var agg = response.aggregations().get(AGG_TOP_SERVICES);
-            if (agg == null) {
-                log.warn("Top services aggregation is null");
-                return List.of();
+            s.size(0)
+                // Exact totals; by default hits.total stops counting at 10,000
+                .trackTotalHits(t -> t.enabled(true))
+                .aggregations(aggregations);
+            if (query != null) {
+                s.query(query);
             }
-            
-            // Try both sterms() and lterms() as the field might be mapped differently
-            if (agg.isSterms()) {
-                var buckets = agg.sterms().buckets().array();
-                log.debug("Found {} top service buckets (sterms)", buckets.size());
-                return buckets.stream()
-                    .map(bucket -> ServiceLogCountDTO.builder()
-                        .service(bucket.key().stringValue())
-                        .count(bucket.docCount())
-                        .build())
-                    .toList();
-            } else if (agg.isLterms()) {
-                var buckets = agg.lterms().buckets().array();
-                log.debug("Found {} top service buckets (lterms)", buckets.size());
-                return buckets.stream()
-                    .map(bucket -> ServiceLogCountDTO.builder()
-                        .service(String.valueOf(bucket.key()))
-                        .count(bucket.docCount())
-                        .build())
-                    .toList();
-            } else {
-                log.warn("Could not extract buckets from top_services aggregation - not sterms or lterms");
-                return List.of();
+            return s;
+        }, Map.class));
+        return response;
+    }
+
+    private static Query timeRange(Instant startTime, Instant endTime) {
+        return Query.of(q -> q.range(r -> r.date(d -> d
+            .field(FIELD_TIMESTAMP)
+            .gte(startTime.toString())
+            .lte(endTime.toString())
+        )));
+    }
+
+    /**
+     * ERROR, WARN, anomaly and last-hour counts as buckets of one {@code filters} aggregation. Each
+     * rollup document counts many logs, so over the rollup the counts are sums of {@code count}.
+     */
+    private static Map<String, Aggregation> metricsAggregations(boolean rollup) {
+        Map<String, Query> filters = new LinkedHashMap<>();
+        filters.put(FILTER_ERRORS, Query.of(q -> q.term(t -> t.field(FIELD_LEVEL).value("ERROR"))));
+        filters.put(FILTER_WARNINGS, Query.of(q -> q.term(t -> t.field(FIELD_LEVEL).value("WARN"))));
+        filters.put(FILTER_LAST_HOUR, Query.of(q -> q.range(r -> r.date(d -> d.field(FIELD_TIMESTAMP).gte(LAST_HOUR)))));
+        if (!rollup) {
+            filters.put(FILTER_ANOMALIES, Query.of(q -> q.term(t -> t
+                    .field(FIELD_METADATA + "." + AnomalyWriteBackService.FIELD_ANOMALY_DETECTED)
+                    .value(true))));
+        }
+
+        Map<String, Aggregation> aggregations = new LinkedHashMap<>();
+        aggregations.put(AGG_METRICS, Aggregation.of(a -> {
+            var filtersAggregation = a.filters(f -> f.filters(b -> b.keyed(filters)));
+            return rollup ? filtersAggregation.aggregations(AGG_TOTAL, sumOfCount()) : filtersAggregation;
+        }));
+        if (rollup) {
+            aggregations.put(AGG_TOTAL, sumOfCount());
+            aggregations.put(AGG_ANOMALIES, Aggregation.of(a -> a.sum(s -> s.field(LogRollupService.FIELD_ANOMALY_COUNT))));
+        }
+        return aggregations;
+    }
+
+    private static Aggregation volumeAggregation(boolean rollup) {
+        return Aggregation.of(a -> {
+            var histogram = a.dateHistogram(dh -> dh
+                .field(FIELD_TIMESTAMP)
+                .fixedInterval(fi -> fi.time(VOLUME_INTERVAL_EXPRESSION))
+                .minDocCount(0));
+            return rollup ? histogram.aggregations(AGG_TOTAL, sumOfCount()) : histogram;
+        });
+    }
+
+    private static Aggregation levelAggregation(boolean rollup) {
+        return Aggregation.of(a -> {
+            var terms = a.terms(t -> t.field(FIELD_LEVEL));
+            return rollup ? terms.aggregations(AGG_TOTAL, sumOfCount()) : terms;
+        });
+    }
+
+    private static Aggregation topServicesAggregation(int limit, boolean rollup) {
+        return Aggregation.of(a -> {
+            if (!rollup) {
+                return a.terms(t -> t.field(FIELD_SERVICE).size(limit));
             }
-                
-        } catch (IOException e) {
-            log.error("Failed to get top services: {}", e.getMessage(), e);
+            // Rank by the summed count rather than by the number of rollup documents
+            return a.terms(t -> t
+                    .field(FIELD_SERVICE)
+                    .size(limit)
+                    .order(List.of(NamedValue.of(AGG_TOTAL, SortOrder.Desc))))
+                .aggregations(AGG_TOTAL, sumOfCount());
+        });
+    }
+
+    private static Aggregation sumOfCount() {
+        return Aggregation.of(a -> a.sum(s -> s.field(LogRollupService.FIELD_COUNT)));
+    }
+
+    private static long sumValue(Map<String, Aggregate> aggregations, String name) {
+        if (aggregations == null || !aggregations.containsKey(name) || !aggregations.get(name).isSum()) {
+            return 0;
+        }
+        return Math.round(aggregations.get(name).sum().value());
+    }
+
+    /**
+     * Number of logs in a bucket: its document count, or over the rollup the summed {@code count}
+     */
+    private static long bucketCount(long docCount, Map<String, Aggregate> subAggregations, boolean rollup) {
+        return rollup ? sumValue(subAggregations, AGG_TOTAL) : docCount;
+    }
+
+    private static long totalLogs(SearchResponse<Map<String, Object>> response, boolean rollup) {
+        if (rollup) {
+            return sumValue(response.aggregations(), AGG_TOTAL);
+        }
+        return response.hits().total() != null ? response.hits().total().value() : 0;
+    }
+
+    private static DashboardMetricsDTO toMetrics(SearchResponse<Map<String, Object>> response, boolean rollup) {
+        long totalLogs = totalLogs(response, rollup);
+
+        Map<String, FiltersBucket> buckets = Map.of();
+        Aggregate metrics = response.aggregations() != null ? response.aggregations().get(AGG_METRICS) : null;
+        if (metrics != null && metrics.isFilters() && metrics.filters().buckets().isKeyed()) {
+            buckets = metrics.filters().buckets().keyed();
+        }
+        long errorCount = filterCount(buckets.get(FILTER_ERRORS), rollup);
+        long warningCount = filterCount(buckets.get(FILTER_WARNINGS), rollup);
+        long anomalyCount = rollup
+                ? sumValue(response.aggregations(), AGG_ANOMALIES)
+                : filterCount(buckets.get(FILTER_ANOMALIES), false);
+
+        // Logs per minute over the last hour
+        double logsPerMinute = filterCount(buckets.get(FILTER_LAST_HOUR), rollup) / 60.0;
+
+        // Calculate error rate
+        double errorRate = totalLogs > 0 ? (errorCount * 100.0 / totalLogs) : 0.0;
+
+        return DashboardMetricsDTO.builder()
+            .totalLogs(totalLogs)
+            .errorCount(errorCount)
+            .warningCount(warningCount)
+            .activeAlerts(0)
+            .anomalyCount(anomalyCount)
+            .logsPerMinute(logsPerMinute)
+            .errorRate(errorRate)
+            .build();
+    }
+
+    private static long filterCount(FiltersBucket bucket, boolean rollup) {
+        return bucket != null ? bucketCount(bucket.docCount(), bucket.aggregations(), rollup) : 0;
+    }
+
+    private static DashboardMetricsDTO emptyMetrics() {
+        return DashboardMetricsDTO.builder()
+            .totalLogs(0).errorCount(0).warningCount(0)
+            .activeAlerts(0).anomalyCount(0)
+            .logsPerMinute(0.0).errorRate(0.0)
+            .build();
+    }
+
+    private static List<LogVolumeDTO> toLogVolume(Map<String, Aggregate> aggregations, boolean rollup) {
+        if (aggregations == null || !aggregations.containsKey(AGG_VOLUME_OVER_TIME)) {
+            log.warn("No volume_over_time aggregation found in response");
+            return List.of();
+        }
+        
+        var agg = aggregations.get(AGG_VOLUME_OVER_TIME);
+        if (agg == null) {
+            log.warn("Volume over time aggregation is null");
+            return List.of();
+        }
+        
+        if (!agg.isDateHistogram()) {
+            log.warn("Volume over time aggregation is not a date histogram");
+            return List.of();
+        }
+        
+        var buckets = agg.dateHistogram().buckets().array();
+        log.debug("Found {} log volume buckets", buckets.size());
+        
+        return buckets.stream()
+            .map(bucket -> {
+                // bucket.key() returns a Long for date histogram buckets
+                String keyStr = bucket.keyAsString();
+                Instant timestamp;
+                if (keyStr != null && !keyStr.isEmpty()) {
+                    timestamp = Instant.parse(keyStr);
+                } else {
+                    // Fallback: use bucket.key() directly as it returns Long (epoch millis)
+                    timestamp = Instant.ofEpochMilli(bucket.key());
+                }
+                return LogVolumeDTO.builder()
+                    .timestamp(timestamp)
+                    .count(bucketCount(bucket.docCount(), bucket.aggregations(), rollup))
+                    .build();
+            })
+            .toList();
+    }
+
+    private static List<LogLevelDistributionDTO> toLevelDistribution(SearchResponse<Map<String, Object>> response,
+                                                                     boolean rollup) {
+        long totalLogs = totalLogs(response, rollup);
+        log.debug("Total logs for level distribution: {}", totalLogs);
+        
+        if (response.aggregations() == null || !response.aggregations().containsKey(AGG_LEVEL_DISTRIBUTION)) {
+            log.warn("No level_distribution aggregation found in response");
+            return List.of();
+        }
+        
+        var agg = response.aggregations().get(AGG_LEVEL_DISTRIBUTION);
+        if (agg == null) {
+            log.warn("Level distribution aggregation is null");
+            return List.of();
+        }
+        
+        // Try both sterms() and lterms() as the field might be mapped differently
+        if (agg.isSterms()) {
+            var buckets = agg.sterms().buckets().array();
+            log.debug("Found {} level distribution buckets (sterms)", buckets.size());
+            return buckets.stream()
+                .map(bucket -> levelDistribution(bucket.key().stringValue(),
+                        bucketCount(bucket.docCount(), bucket.aggregations(), rollup), totalLogs))
+                .toList();
+        } else if (agg.isLterms()) {
+            var buckets = agg.lterms().buckets().array();
+            log.debug("Found {} level distribution buckets (lterms)", buckets.size());
+            return buckets.stream()
+                .map(bucket -> levelDistribution(String.valueOf(bucket.key()),
+                        bucketCount(bucket.docCount(), bucket.aggregations(), rollup), totalLogs))
+                .toList();
+        } else {
+            log.warn("Could not extract buckets from level_distribution aggregation - not sterms or lterms");
+            return List.of();
+        }
+    }
+
+    private static LogLevelDistributionDTO levelDistribution(String level, long count, long totalLogs) {
+        double percentage = totalLogs > 0 ? (count * 100.0 / totalLogs) : 0.0;
+        return LogLevelDistributionDTO.builder()
+            .level(level)
+            .count(count)
+            .percentage(percentage)
+            .build();
+    }
+
+    private static List<ServiceLogCountDTO> toTopServices(Map<String, Aggregate> aggregations, boolean rollup) {
+        if (aggregations == null || !aggregations.containsKey(AGG_TOP_SERVICES)) {
+            log.warn("No top_services aggregation found in response");
+            return List.of();
+        }
+        
+        var agg = aggregations.get(AGG_TOP_SERVICES);
+        if (agg == null) {
+            log.warn("Top services aggregation is null");
+            return List.of();
+        }
+        
+        // Try both sterms() and lterms() as the field might be mapped differently
+        if (agg.isSterms()) {
+            var buckets = agg.sterms().buckets().array();
+            log.debug("Found {} top service buckets (sterms)", buckets.size());
+            return buckets.stream()
+                .map(bucket -> ServiceLogCountDTO.builder()
+                    .service(bucket.key().stringValue())
+                    .count(bucketCount(bucket.docCount(), bucket.aggregations(), rollup))
+                    .build())
+                .toList();
+        } else if (agg.isLterms()) {
+            var buckets = agg.lterms().buckets().array();
+            log.debug("Found {} top service buckets (lterms)", buckets.size());
+            return buckets.stream()
+                .map(bucket -> ServiceLogCountDTO.builder()
+                    .service(String.valueOf(bucket.key()))
+                    .count(bucketCount(bucket.docCount(), bucket.aggregations(), rollup))
+                    .build())
+                .toList();
+        } else {
+            log.warn("Could not extract buckets from top_services aggregation - not sterms or lterms");
             return List.of();
         }
     }
@@ -0,0 +1,27 @@
+package com.ibm.aimonitoring.processor.service;
+
+/**
+ * Outcome of indexing one log document
+ *
+ * @param documentId the document ID
+ * @param duplicate  the document was written with {@code op_type=create} and already existed,
+ *                   typically because the message was redelivered; nothing was written
+ */
+public record IndexResult(String documentId, boolean duplicate) {
+
+    /**
+     * The document was written (or spooled to be written)
+     */
+    public static IndexResult created(String documentId) {
+        return new IndexResult(documentId, false);
+    }
+
+    /**
+     * A document with this ID already existed
+     */
+    public static IndexResult duplicate(String documentId) {
+        return new IndexResult(documentId, true);
+    }
+}
+
+// Made with Bob
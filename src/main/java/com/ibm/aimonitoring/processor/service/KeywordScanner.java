@@ -0,0 +1,191 @@
+package com.ibm.aimonitoring.processor.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.TreeSet;
+
+/**
+ * Case-insensitive multi-keyword matcher (Aho-Corasick), scanning a text once for every keyword
+ * of up to 32 groups.
+ * <p>
+ * The automaton is compiled into a dense transition table: one column per ASCII character plus
+ * one per non-ASCII character that occurs in a keyword. Characters are folded to lower case one
+ * at a time while scanning, through a lookup table for ASCII, so no lower-case copy of the text
+ * is made; a character that occurs in no keyword sends the scan back to the root. Immutable and
+ * thread-safe.
+ */
+final class KeywordScanner {
+
+    private static final int ASCII = 128;
+    // Column of each ASCII character, folded to lower case
+    private static final int[] ASCII_COLUMNS = new int[ASCII];
+
+    // Non-ASCII lower-case characters used by keywords, sorted; column ASCII + index
+    private final char[] extraChars;
+    private final int columns;
+    // transitions[state * columns + column] = next state * columns, so a state is its row offset
+    private final int[] transitions;
+    // Bit mask of the groups with a keyword ending at the state at each row offset, including
+    // through failure links
+    private final int[] outputs;
+    private final int allGroups;
+
+    /**
+     * @param groups keyword groups; a match of any keyword of group {@code i} sets bit {@code i}
+     *               of {@link #scan}. Blank keywords are ignored.
+     */
+    KeywordScanner(List<List<String>> groups) {
+        if (groups.size() > Integer.SIZE) {
+            throw new IllegalArgumentException("At most 32 keyword groups, got: " + groups.size());
+        }
+        List<List<String>> keywords = new ArrayList<>(groups.size());
+        TreeSet<Character> extra = new TreeSet<>();
+        int groupMask = 0;
+        for (int g = 0; g < groups.size(); g++) {
+            List<String> lowered = new ArrayList<>();
+            for (String keyword : groups.get(g)) {
+                if (keyword == null || keyword.isBlank()) {
+                    continue;
+                }
+                String lower = keyword.toLowerCase(Locale.ROOT);
+                lowered.add(lower);
+                for (int i = 0; i < lower.length(); i++) {
+                    char c = fold(lower.charAt(i));
+                    if (c >= ASCII) {
+                        extra.add(c);
+                    }
+                }
+            }
+            if (!lowered.isEmpty()) {
+                groupMask |= 1 << g;
+            }
+            keywords.add(lowered);
+        }
+        extraChars = new char[extra.size()];
+        int index = 0;
+        for (char c : extra) {
+            extraChars[index++] = c;
+        }
+        columns = ASCII + extraChars.length;
+        allGroups = groupMask;
+
+        // Trie, with -1 for a missing edge
+        List<int[]> trie = new ArrayList<>();
+        List<Integer> trieOutputs = new ArrayList<>();
+        trie.add(newRow());
+        trieOutputs.add(0);
+        for (int g = 0; g < keywords.size(); g++) {
+            for (String keyword : keywords.get(g)) {
+                int state = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    int column = column(fold(keyword.charAt(i)));
+                    int next = trie.get(state)[column];
+                    if (next < 0) {
+                        next = trie.size();
+                        trie.get(state)[column] = next;
+                        trie.add(newRow());
+                        trieOutputs.add(0);
+                    }
+                    state = next;
+                }
+                trieOutputs.set(state, trieOutputs.get(state) | (1 << g));
+            }
+        }
+
+        // Breadth-first: a state's failure target is shallower, so its row is already complete
+        int states = trie.size();
+        int[] next = new int[states * columns];
+        int[] stateOutputs = new int[states];
+        int[] failure = new int[states];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < columns; c++) {
+            int child = trie.get(0)[c];
+            next[c] = Math.max(child, 0);
+            if (child > 0) {
+                queue.add(child);
+            }
+        }
+        for (int s = 0; s < states; s++) {
+            stateOutputs[s] = trieOutputs.get(s);
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            stateOutputs[state] |= stateOutputs[failure[state]];
+            int[] row = trie.get(state);
+            for (int c = 0; c < columns; c++) {
+                int fallback = next[failure[state] * columns + c];
+                if (row[c] < 0) {
+                    next[state * columns + c] = fallback;
+                } else {
+                    failure[row[c]] = fallback;
+                    next[state * columns + c] = row[c];
+                    queue.add(row[c]);
+                }
+            }
+        }
+
+        transitions = new int[next.length];
+        outputs = new int[next.length];
+        for (int i = 0; i < next.length; i++) {
+            transitions[i] = next[i] * columns;
+        }
+        for (int s = 0; s < states; s++) {
+            outputs[s * columns] = stateOutputs[s];
+        }
+    }
+
+    private int[] newRow() {
+        int[] row = new int[columns];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    /**
+     * Find which groups have a keyword in the text, stopping early once every group has matched
+     *
+     * @return bit {@code i} set if a keyword of group {@code i} occurs in the text
+     */
+    int scan(String text) {
+        int[] transitions = this.transitions;
+        int[] outputs = this.outputs;
+        int state = 0;
+        int found = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            int column = c < ASCII ? ASCII_COLUMNS[c] : column(Character.toLowerCase(c));
+            state = column < 0 ? 0 : transitions[state + column];
+            found |= outputs[state];
+            if (found == allGroups) {
+                break;
+            }
+        }
+        return found;
+    }
+
+    static {
+        for (char c = 0; c < ASCII; c++) {
+            ASCII_COLUMNS[c] = fold(c);
+        }
+    }
+
+    private static char fold(char c) {
+        if (c < ASCII) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    private int column(char folded) {
+        if (folded < ASCII) {
+            return folded;
+        }
+        int index = Arrays.binarySearch(extraChars, folded);
+        return index < 0 ? -1 : ASCII + index;
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,213 @@
+package com.ibm.aimonitoring.processor.service;
+
+import co.elastic.clients.util.BinaryData;
+import co.elastic.clients.util.ContentType;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes a {@link LogEntryDTO} as the JSON source document of the logs index, straight from its
+ * fields: field names are pre-encoded, the timestamp is formatted into a reusable buffer, and
+ * each thread writes into its own reusable byte buffer, so the only allocation per document is
+ * the final byte array. Wrapped in {@link BinaryData}, the bytes are copied into the
+ * {@code _bulk} request body without going through the client's object mapper.
+ * <p>
+ * The output matches what {@code JacksonJsonpMapper} writes for the equivalent map: fields and
+ * metadata entries that are null are left out.
+ */
+public final class LogDocumentSerializer {
+
+    private static final SerializableString FIELD_TIMESTAMP = new SerializedString("timestamp");
+    private static final SerializableString FIELD_LEVEL = new SerializedString("level");
+    private static final SerializableString FIELD_MESSAGE = new SerializedString("message");
+    private static final SerializableString FIELD_SERVICE = new SerializedString("service");
+    private static final SerializableString FIELD_HOST = new SerializedString("host");
+    private static final SerializableString FIELD_ENVIRONMENT = new SerializedString("environment");
+    private static final SerializableString FIELD_TRACE_ID = new SerializedString("traceId");
+    private static final SerializableString FIELD_SPAN_ID = new SerializedString("spanId");
+    private static final SerializableString FIELD_METADATA = new SerializedString("metadata");
+
+    // Metadata values other than scalars, maps and collections go through a plain mapper, like the client's
+    private static final JsonFactory JSON = new ObjectMapper().getFactory();
+
+    private static final int SECONDS_PER_DAY = 86_400;
+    private static final int MAX_TIMESTAMP_CHARS = 30;
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private static final class Buffers {
+        final ByteArrayBuilder bytes = new ByteArrayBuilder(1024);
+        final char[] timestamp = new char[MAX_TIMESTAMP_CHARS];
+    }
+
+    private LogDocumentSerializer() {
+    }
+
+    /**
+     * The log's source document, for a bulk {@code index} or {@code create} operation
+     */
+    public static BinaryData toBinaryData(LogEntryDTO logEntry) {
+        return BinaryData.of(serialize(logEntry), ContentType.APPLICATION_JSON);
+    }
+
+    /**
+     * The log's source document as UTF-8 JSON
+     */
+    public static byte[] serialize(LogEntryDTO logEntry) {
+        Buffers buffers = BUFFERS.get();
+        ByteArrayBuilder bytes = buffers.bytes;
+        bytes.reset();
+        try (JsonGenerator generator = JSON.createGenerator(bytes)) {
+            generator.writeStartObject();
+            if (logEntry.getTimestamp() != null) {
+                generator.writeFieldName(FIELD_TIMESTAMP);
+                int length = formatInstant(logEntry.getTimestamp(), buffers.timestamp);
+                if (length > 0) {
+                    generator.writeString(buffers.timestamp, 0, length);
+                } else {
+                    generator.writeString(logEntry.getTimestamp().toString());
+                }
+            }
+            writeString(generator, FIELD_LEVEL, logEntry.getLevel());
+            writeString(generator, FIELD_MESSAGE, logEntry.getMessage());
+            writeString(generator, FIELD_SERVICE, logEntry.getService());
+            writeString(generator, FIELD_HOST, logEntry.getHost());
+            writeString(generator, FIELD_ENVIRONMENT, logEntry.getEnvironment());
+            writeString(generator, FIELD_TRACE_ID, logEntry.getTraceId());
+            writeString(generator, FIELD_SPAN_ID, logEntry.getSpanId());
+            if (logEntry.getMetadata() != null) {
+                generator.writeFieldName(FIELD_METADATA);
+                writeMap(generator, logEntry.getMetadata());
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            // Writing to memory; only an unserializable metadata value gets here
+            throw new UncheckedIOException("Failed to serialize log document", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(JsonGenerator generator, SerializableString name, String value) throws IOException {
+        if (value != null) {
+            generator.writeFieldName(name);
+            generator.writeString(value);
+        }
+    }
+
+    private static void writeMap(JsonGenerator generator, Map<?, ?> map) throws IOException {
+        generator.writeStartObject();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (entry.getValue() != null) {
+                generator.writeFieldName(String.valueOf(entry.getKey()));
+                writeValue(generator, entry.getValue());
+            }
+        }
+        generator.writeEndObject();
+    }
+
+    private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value instanceof String s) {
+            generator.writeString(s);
+        } else if (value instanceof Boolean b) {
+            generator.writeBoolean(b);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            generator.writeNumber(((Number) value).longValue());
+        } else if (value instanceof Double d) {
+            generator.writeNumber(d);
+        } else if (value instanceof Float f) {
+            generator.writeNumber(f);
+        } else if (value instanceof BigDecimal d) {
+            generator.writeNumber(d);
+        } else if (value instanceof BigInteger i) {
+            generator.writeNumber(i);
+        } else if (value instanceof Map<?, ?> map) {
+            writeMap(generator, map);
+        } else if (value instanceof Collection<?> collection) {
+            generator.writeStartArray();
+            for (Object element : collection) {
+                if (element == null) {
+                    generator.writeNull();
+                } else {
+                    writeValue(generator, element);
+                }
+            }
+            generator.writeEndArray();
+        } else {
+            generator.writeObject(value);
+        }
+    }
+
+    /**
+     * Format like {@link Instant#toString()} into {@code out}: {@code yyyy-MM-ddTHH:mm:ss[.SSS[SSS[SSS]]]Z}
+     *
+     * @return the number of chars written, or 0 for years outside 0000-9999
+     */
+    static int formatInstant(Instant instant, char[] out) {
+        long epochSecond = instant.getEpochSecond();
+        long epochDay = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(epochSecond, SECONDS_PER_DAY);
+
+        // Civil date from days since 1970-01-01 (proleptic Gregorian), see H. Hinnant's date algorithms
+        long z = epochDay + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            return 0;
+        }
+
+        int pos = digits(out, 0, (int) year, 4);
+        out[pos++] = '-';
+        pos = digits(out, pos, month, 2);
+        out[pos++] = '-';
+        pos = digits(out, pos, day, 2);
+        out[pos++] = 'T';
+        pos = digits(out, pos, secondOfDay / 3600, 2);
+        out[pos++] = ':';
+        pos = digits(out, pos, secondOfDay / 60 % 60, 2);
+        out[pos++] = ':';
+        pos = digits(out, pos, secondOfDay % 60, 2);
+
+        int nanos = instant.getNano();
+        if (nanos > 0) {
+            out[pos++] = '.';
+            if (nanos % 1_000_000 == 0) {
+                pos = digits(out, pos, nanos / 1_000_000, 3);
+            } else if (nanos % 1_000 == 0) {
+                pos = digits(out, pos, nanos / 1_000, 6);
+            } else {
+                pos = digits(out, pos, nanos, 9);
+            }
+        }
+        out[pos++] = 'Z';
+        return pos;
+    }
+
+    private static int digits(char[] out, int pos, int value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + width;
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,74 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Extracts {@link LogFeatures} from a log, scanning its message once for every keyword group
+ * with a case-insensitive {@link KeywordScanner} instead of lower-casing it and searching for
+ * each keyword in turn.
+ * <p>
+ * The keyword groups are configured under {@code processor.features}: a message has an exception
+ * if it contains one of {@code exception-keywords}, a timeout with {@code timeout-keywords}, a
+ * connection with {@code connection-keywords}, and a connection error if it also contains one of
+ * {@code connection-failure-keywords}. Matching is by substring, so {@code connect} also matches
+ * {@code connection}.
+ */
+@Slf4j
+@Component
+public class LogFeatureExtractor {
+
+    private static final int EXCEPTION = 1;
+    private static final int TIMEOUT = 1 << 1;
+    private static final int CONNECTION = 1 << 2;
+    private static final int CONNECTION_FAILURE = 1 << 3;
+
+    private static final String DEFAULT_LEVEL = "INFO";
+    private static final String UNKNOWN_SERVICE = "unknown";
+
+    private final KeywordScanner scanner;
+
+    public LogFeatureExtractor(
+            @Value("${processor.features.exception-keywords:exception,error}") List<String> exceptionKeywords,
+            @Value("${processor.features.timeout-keywords:timeout,timed out}") List<String> timeoutKeywords,
+            @Value("${processor.features.connection-keywords:connect}") List<String> connectionKeywords,
+            @Value("${processor.features.connection-failure-keywords:refused,failed,reset}")
+            List<String> connectionFailureKeywords) {
+        this.scanner = new KeywordScanner(
+                List.of(exceptionKeywords, timeoutKeywords, connectionKeywords, connectionFailureKeywords));
+        log.debug("Feature keywords: exception={}, timeout={}, connection={}, connectionFailure={}",
+                exceptionKeywords, timeoutKeywords, connectionKeywords, connectionFailureKeywords);
+    }
+
+    /**
+     * An extractor with the default keywords
+     */
+    public static LogFeatureExtractor withDefaultKeywords() {
+        return new LogFeatureExtractor(List.of("exception", "error"), List.of("timeout", "timed out"),
+                List.of("connect"), List.of("refused", "failed", "reset"));
+    }
+
+    /**
+     * Extract the features of a log
+     */
+    public LogFeatures extract(LogEntryDTO logEntry) {
+        String message = logEntry.getMessage();
+        int found = message != null ? scanner.scan(message) : 0;
+        boolean connection = (found & CONNECTION) != 0;
+        return new LogFeatures(
+                message != null ? message.length() : 0,
+                logEntry.getLevel() != null ? logEntry.getLevel().toUpperCase(Locale.ROOT) : DEFAULT_LEVEL,
+                logEntry.getService() != null ? logEntry.getService() : UNKNOWN_SERVICE,
+                (found & EXCEPTION) != 0,
+                (found & TIMEOUT) != 0,
+                connection,
+                connection && (found & CONNECTION_FAILURE) != 0);
+    }
+}
+
+// Made with Bob
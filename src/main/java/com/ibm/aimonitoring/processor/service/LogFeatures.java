@@ -0,0 +1,41 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.dto.MLPredictionRequest;
+
+/**
+ * Features of a log, extracted once by {@link LogFeatureExtractor} and shared by enrichment, the
+ * ML service request, the embedded scorer and the stored anomaly detection row
+ *
+ * @param messageLength      length of the message, 0 without one
+ * @param level              upper-case level, {@code INFO} without one
+ * @param service            service name, {@code unknown} without one
+ * @param hasException       the message mentions an exception or error
+ * @param hasTimeout         the message mentions a timeout
+ * @param hasConnection      the message mentions a connection
+ * @param hasConnectionError the message mentions a connection and a failure
+ */
+public record LogFeatures(
+        int messageLength,
+        String level,
+        String service,
+        boolean hasException,
+        boolean hasTimeout,
+        boolean hasConnection,
+        boolean hasConnectionError) {
+
+    /**
+     * The features in the shape the ML service expects
+     */
+    public MLPredictionRequest.LogFeatures toRequestFeatures() {
+        return MLPredictionRequest.LogFeatures.builder()
+                .messageLength(messageLength)
+                .level(level)
+                .service(service)
+                .hasException(hasException)
+                .hasTimeout(hasTimeout)
+                .hasConnectionError(hasConnectionError)
+                .build();
+    }
+}
+
+// Made with Bob
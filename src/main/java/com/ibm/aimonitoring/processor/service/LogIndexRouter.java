@@ -0,0 +1,126 @@
+package com.ibm.aimonitoring.processor.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decides which Elasticsearch indices logs are written to and read from.
+ * <p>
+ * By default all logs live in the single index {@code elasticsearch.index.name}. With
+ * {@code elasticsearch.index.rolling.enabled} every log goes to the daily index of its event
+ * timestamp, {@code <name>-yyyy.MM.dd} in UTC, created on first write from the index template.
+ * Reads bounded by a time range then only name the daily indices that overlap it; ranges longer
+ * than {@code max-explicit-indices} days, or open-ended ones, use the {@code <name>-*.*.*} pattern,
+ * which only matches dated names so that, with the default name {@code logs}, the
+ * {@code logs-<dataset>-<namespace>} data streams of Elasticsearch's built-in templates are neither
+ * read nor created from this service's template.
+ * Reads also include the single index, so logs written before rolling was enabled stay
+ * searchable; missing indices are skipped ({@code ignore_unavailable}).
+ */
+@Component
+public class LogIndexRouter {
+
+    private static final DateTimeFormatter DAY_SUFFIX = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+
+    private final String indexName;
+    private final boolean rolling;
+    private final int maxExplicitIndices;
+
+    public LogIndexRouter(@Value("${elasticsearch.index.name:logs}") String indexName,
+                          @Value("${elasticsearch.index.rolling.enabled:false}") boolean rolling,
+                          @Value("${elasticsearch.index.rolling.max-explicit-indices:90}") int maxExplicitIndices) {
+        this.indexName = indexName;
+        this.rolling = rolling;
+        this.maxExplicitIndices = maxExplicitIndices;
+    }
+
+    public boolean isRolling() {
+        return rolling;
+    }
+
+    /**
+     * The single index, or the name the daily indices are derived from
+     */
+    public String getIndexName() {
+        return indexName;
+    }
+
+    /**
+     * Pattern matching all daily indices: the dots of the {@code yyyy.MM.dd} suffix keep it from
+     * matching other {@code <name>-} indices
+     */
+    public String pattern() {
+        return indexName + "-*.*.*";
+    }
+
+    /**
+     * Index a log with the given event timestamp is written to; {@code null} means now
+     */
+    public String writeIndex(Instant timestamp) {
+        if (!rolling) {
+            return indexName;
+        }
+        return dailyIndex(LocalDate.ofInstant(timestamp != null ? timestamp : Instant.now(), ZoneOffset.UTC));
+    }
+
+    /**
+     * Indices holding the logs of {@code [startTime, endTime]}; either bound may be null
+     */
+    public List<String> readIndices(Instant startTime, Instant endTime) {
+        if (!rolling) {
+            return List.of(indexName);
+        }
+        if (startTime == null || endTime == null || endTime.isBefore(startTime)) {
+            return allIndices();
+        }
+
+        LocalDate first = LocalDate.ofInstant(startTime, ZoneOffset.UTC);
+        LocalDate last = LocalDate.ofInstant(endTime, ZoneOffset.UTC);
+        if (first.plusDays(maxExplicitIndices).isBefore(last.plusDays(1))) {
+            return allIndices();
+        }
+
+        List<String> indices = new ArrayList<>();
+        indices.add(indexName);
+        for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1)) {
+            indices.add(dailyIndex(day));
+        }
+        return indices;
+    }
+
+    /**
+     * Indices holding all logs
+     */
+    public List<String> allIndices() {
+        return rolling ? List.of(indexName, pattern()) : List.of(indexName);
+    }
+
+    /**
+     * Day of a daily index, or null if the name is not one
+     */
+    public LocalDate dayOf(String index) {
+        String prefix = indexName + "-";
+        if (!index.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(index.substring(prefix.length()), DAY_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    String dailyIndex(LocalDate day) {
+        return indexName + "-" + DAY_SUFFIX.format(day);
+    }
+}
+
+// Made with Bob
@@ -8,13 +8,18 @@ import com.ibm.aimonitoring.processor.model.AnomalyDetection;
 import com.ibm.aimonitoring.processor.repository.AnomalyDetectionRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.annotation.Lazy;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
-import java.util.Map;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Service for processing log entries
@@ -24,11 +29,6 @@ import java.util.Map;
 public class LogProcessorService {
 
     private static final String UNKNOWN_ENVIRONMENT = "unknown";
-    private static final String EXCEPTION_KEYWORD = "exception";
-    private static final String ERROR_KEYWORD = "error";
-    private static final String TIMEOUT_KEYWORD = "timeout";
-    private static final String CONNECTION_KEYWORD = "connection";
-    private static final String CONNECT_KEYWORD = "connect";
     private static final String METADATA_KEY_ANOMALY_DETECTED = "anomalyDetected";
     private static final String METADATA_KEY_ANOMALY_SCORE = "anomalyScore";
     private static final String METADATA_KEY_ANOMALY_CONFIDENCE = "anomalyConfidence";
@@ -39,37 +39,118 @@ public class LogProcessorService {
     private static final String METADATA_KEY_HAS_EXCEPTION = "hasException";
     private static final String METADATA_KEY_HAS_TIMEOUT = "hasTimeout";
     private static final String METADATA_KEY_HAS_CONNECTION = "hasConnection";
+    private static final String PIPELINE_MODE_REACTIVE = "reactive";
+    private static final String SCORING_MODE_EMBEDDED = "embedded";
+    private static final String SCORING_MODE_FALLBACK = "fallback";
+    private static final String SCORING_MODE_PREFILTER = "prefilter";
     private static final String PROCESSOR_SERVICE_NAME = "log-processor-service";
 
     private final ElasticsearchService elasticsearchService;
     private final MLServiceClient mlServiceClient;
     private final AnomalyDetectionRepository anomalyDetectionRepository;
     private final ObjectMapper objectMapper;
-    private final LogProcessorService self;
+    private final DocumentIdGenerator documentIdGenerator;
+    private final AnomalyWriteBackService anomalyWriteBackService;
+    private final AnomalyDetectionPipeline anomalyDetectionPipeline;
+    private final StreamingAnomalyScorer streamingAnomalyScorer;
+    private final AnomalyDetectionWriter anomalyDetectionWriter;
+    private final LogRollupService logRollupService;
+    private final SlidingWindowCounters slidingWindowCounters;
+    private final AnomalyExecutor anomalyExecutor;
+    private final DownstreamLimiter downstreamLimiter;
+    private final LogFeatureExtractor featureExtractor;
+
+    @Value("${ml.pipeline.mode:async}")
+    private String pipelineMode;
+
+    @Value("${ml.scoring.mode:remote}")
+    private String scoringMode;
+
+    @Value("${ml.scoring.prefilter-threshold:0.3}")
+    private double prefilterThreshold;
     
-    /**
-     * Constructor injection with self-injection for async method calls
-     * @Lazy on self parameter prevents circular dependency and ensures @Async proxy works correctly
-     */
     public LogProcessorService(
             ElasticsearchService elasticsearchService,
             MLServiceClient mlServiceClient,
             AnomalyDetectionRepository anomalyDetectionRepository,
             ObjectMapper objectMapper,
-            @Lazy LogProcessorService self) {
+            DocumentIdGenerator documentIdGenerator,
+            AnomalyWriteBackService anomalyWriteBackService,
+            AnomalyDetectionPipeline anomalyDetectionPipeline,
+            StreamingAnomalyScorer streamingAnomalyScorer,
+            AnomalyDetectionWriter anomalyDetectionWriter,
+            LogRollupService logRollupService,
+            SlidingWindowCounters slidingWindowCounters,
+            AnomalyExecutor anomalyExecutor,
+            DownstreamLimiter downstreamLimiter,
+            LogFeatureExtractor featureExtractor) {
         this.elasticsearchService = elasticsearchService;
         this.mlServiceClient = mlServiceClient;
         this.anomalyDetectionRepository = anomalyDetectionRepository;
         this.objectMapper = objectMapper;
-        this.self = self;
+        this.documentIdGenerator = documentIdGenerator;
+        this.anomalyWriteBackService = anomalyWriteBackService;
+        this.anomalyDetectionPipeline = anomalyDetectionPipeline;
+        this.streamingAnomalyScorer = streamingAnomalyScorer;
+        this.anomalyDetectionWriter = anomalyDetectionWriter;
+        this.logRollupService = logRollupService;
+        this.slidingWindowCounters = slidingWindowCounters;
+        this.anomalyExecutor = anomalyExecutor;
+        this.downstreamLimiter = downstreamLimiter;
+        this.featureExtractor = featureExtractor;
     }
 
     /**
-     * Process a log entry: normalize, enrich, index to Elasticsearch, and detect anomalies
+     * Process a log entry: normalize, enrich, index to Elasticsearch, and detect anomalies.
+     * Returns once the document is durable in Elasticsearch.
      *
      * @param logEntry the log entry to process
      */
     public void processLog(LogEntryDTO logEntry) {
+        complete(submit(logEntry));
+    }
+
+    /**
+     * Process a batch of log entries as a unit. All entries are submitted before any is awaited,
+     * so with bulk indexing enabled the whole batch travels in as few bulk requests as possible.
+     * A failure of one entry does not affect the others.
+     *
+     * @param logEntries the log entries to process
+     * @return indexes (into {@code logEntries}) of the entries that failed
+     */
+    public BitSet processLogBatch(List<LogEntryDTO> logEntries) {
+        List<SubmittedLog> submitted = new ArrayList<>(logEntries.size());
+        for (LogEntryDTO logEntry : logEntries) {
+            submitted.add(submit(logEntry));
+        }
+
+        BitSet failures = new BitSet(logEntries.size());
+        for (int i = 0; i < submitted.size(); i++) {
+            try {
+                complete(submitted.get(i));
+            } catch (LogProcessingException e) {
+                failures.set(i);
+            }
+        }
+        log.debug("Processed log batch: size={}, failed={}", logEntries.size(), failures.cardinality());
+        return failures;
+    }
+
+    /**
+     * A log handed to Elasticsearch whose indexing has not been awaited yet
+     *
+     * @param firstWrite completed by {@link #complete} once indexing finished: true if this
+     *                   delivery created the document, false on a duplicate or a failure
+     */
+    private record SubmittedLog(LogEntryDTO logEntry, CompletableFuture<IndexResult> indexed,
+                                CompletableFuture<Boolean> firstWrite) {
+    }
+
+    /**
+     * Normalize and enrich a log, then start indexing it and detecting its anomalies side by side,
+     * without waiting for Elasticsearch
+     */
+    private SubmittedLog submit(LogEntryDTO logEntry) {
         try {
             log.debug("Processing log: service={}, level={}, message={}",
                     logEntry.getService(), logEntry.getLevel(),
@@ -78,59 +159,144 @@ public class LogProcessorService {
             // Normalize the log entry
             LogEntryDTO normalizedLog = normalizeLog(logEntry);
 
+            // Extract features once for enrichment, scoring and the anomaly detection row
+            LogFeatures features = featureExtractor.extract(normalizedLog);
+
             // Enrich with processing metadata
-            LogEntryDTO enrichedLog = enrichLog(normalizedLog);
+            LogEntryDTO enrichedLog = enrichLog(normalizedLog, features);
 
             // Index to Elasticsearch
-            String documentId = elasticsearchService.indexLog(enrichedLog);
+            CompletableFuture<IndexResult> indexed = elasticsearchService.indexLogAsync(enrichedLog);
 
-            log.debug("Log processed successfully: documentId={}", documentId);
+            // The document ID is already known, so the prediction does not wait for the write;
+            // only its side effects do
+            CompletableFuture<Boolean> firstWrite = new CompletableFuture<>();
+            detectAnomalies(enrichedLog.getId(), enrichedLog, features, firstWrite);
 
-            // Asynchronously detect anomalies via injected dependency
-            self.detectAnomaliesAsync(documentId, enrichedLog);
+            return new SubmittedLog(enrichedLog, indexed, firstWrite);
 
         } catch (Exception e) {
             log.error("Failed to process log: {}", e.getMessage(), e);
-            throw new LogProcessingException("Failed to process log entry", e);
+            return new SubmittedLog(logEntry,
+                    CompletableFuture.failedFuture(new LogProcessingException("Failed to process log entry", e)),
+                    CompletableFuture.completedFuture(false));
+        }
+    }
+
+    /**
+     * Wait until a submitted log is durable, count it, and release the side effects of its
+     * prediction. A duplicate create means the message was redelivered after its document was
+     * written; the first delivery already counted it and recorded its prediction, so neither is
+     * done again.
+     */
+    private void complete(SubmittedLog submitted) {
+        IndexResult result;
+        try {
+            result = awaitIndexed(submitted.indexed());
+        } catch (LogProcessingException e) {
+            submitted.firstWrite().complete(false);
+            throw e;
+        }
+        LogEntryDTO logEntry = submitted.logEntry();
+        if (result.duplicate()) {
+            log.debug("Log already indexed, skipping redelivery: {}", logEntry.getId());
+            submitted.firstWrite().complete(false);
+            return;
+        }
+        log.debug("Log processed successfully: documentId={}", result.documentId());
+        logRollupService.record(logEntry);
+        slidingWindowCounters.record(logEntry.getService(), logEntry.getLevel());
+        submitted.firstWrite().complete(true);
+    }
+
+    private static IndexResult awaitIndexed(CompletableFuture<IndexResult> indexed) {
+        try {
+            return indexed.join();
+        } catch (CompletionException e) {
+            Throwable cause = unwrap(e);
+            if (cause instanceof LogProcessingException processingException) {
+                throw processingException;
+            }
+            log.error("Failed to process log: {}", cause.getMessage(), cause);
+            throw new LogProcessingException("Failed to process log entry", cause);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    /**
+     * Hand a log to anomaly detection: the reactive pipeline with {@code ml.pipeline.mode=reactive},
+     * otherwise a task on the {@link AnomalyExecutor}. The prediction is applied once
+     * {@code firstWrite} completes with true.
+     */
+    private void detectAnomalies(String logId, LogEntryDTO logEntry, LogFeatures features,
+                                 CompletableFuture<Boolean> firstWrite) {
+        if (PIPELINE_MODE_REACTIVE.equalsIgnoreCase(pipelineMode)) {
+            anomalyDetectionPipeline.submit(logId,
+                    score(logId, features, Mono.defer(() -> mlServiceClient.predict(logId, features))),
+                    prediction -> applyOnFirstWrite(firstWrite, logId, logEntry, features, prediction));
+        } else if (!anomalyExecutor.submit(logEntry, () -> detectAnomaliesAsync(logId, logEntry, features, firstWrite))) {
+            log.debug("Anomaly executor saturated, skipping anomaly detection for log: {}", logId);
         }
     }
 
     /**
-     * Asynchronously detect anomalies using ML service
+     * Apply a prediction once its log is indexed, and only if this delivery created the document.
+     * Runs on the detecting thread when indexing finished first, otherwise on the consumer thread
+     * completing {@code firstWrite}, never on an Elasticsearch client thread.
+     */
+    private void applyOnFirstWrite(CompletableFuture<Boolean> firstWrite, String logId, LogEntryDTO logEntry,
+                                   LogFeatures features, MLPredictionResponse prediction) {
+        firstWrite.thenAccept(created -> {
+            if (!created) {
+                log.debug("Log was not newly indexed, discarding its prediction: {}", logId);
+                return;
+            }
+            try {
+                applyPrediction(logId, logEntry, features, prediction);
+            } catch (Exception e) {
+                log.error("Error applying anomaly prediction for log {}: {}", logId, e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Queue anomaly detection of a log that was spilled while the {@link AnomalyExecutor} was
+     * full, waiting for room in its queue
+     *
+     * @param logEntry the enriched log, as it was spilled
+     * @return false if the executor is shutting down or stayed full
+     */
+    public boolean detectSpilledAnomalies(LogEntryDTO logEntry) {
+        return anomalyExecutor.submitBlocking(logEntry, () -> detectAnomaliesAsync(logEntry.getId(), logEntry));
+    }
+
+    /**
+     * Detect anomalies of an indexed log whose features were not extracted yet
      */
-    @Async
     protected void detectAnomaliesAsync(String logId, LogEntryDTO logEntry) {
+        detectAnomaliesAsync(logId, logEntry, featureExtractor.extract(logEntry), CompletableFuture.completedFuture(true));
+    }
+
+    /**
+     * Detect anomalies using the ML service; runs on an {@link AnomalyExecutor} worker
+     */
+    private void detectAnomaliesAsync(String logId, LogEntryDTO logEntry, LogFeatures features,
+                                      CompletableFuture<Boolean> firstWrite) {
         try {
             log.debug("Starting anomaly detection for log: {}", logId);
             
-            MLPredictionResponse prediction = mlServiceClient.predictAnomaly(logId, logEntry);
+            MLPredictionResponse prediction = score(logId, features,
+                    Mono.fromSupplier(() -> mlServiceClient.predictAnomaly(logId, features))).block();
             
             if (prediction != null) {
-                // Add anomaly detection results to metadata
-                if (logEntry.getMetadata() == null) {
-                    logEntry.setMetadata(new HashMap<>());
-                }
-                
-                logEntry.getMetadata().put(METADATA_KEY_ANOMALY_DETECTED, prediction.getIsAnomaly());
-                logEntry.getMetadata().put(METADATA_KEY_ANOMALY_SCORE, prediction.getAnomalyScore());
-                logEntry.getMetadata().put(METADATA_KEY_ANOMALY_CONFIDENCE, prediction.getConfidence());
-                logEntry.getMetadata().put(METADATA_KEY_ML_MODEL_VERSION, prediction.getModelVersion());
-                
-                // Store anomaly detection result in database
-                saveAnomalyDetection(logId, logEntry, prediction);
-                
-                if (prediction.getIsAnomaly()) {
-                    log.warn("Anomaly detected in log {}: score={}, confidence={}",
-                            logId, prediction.getAnomalyScore(), prediction.getConfidence());
-                    
-                    // Trigger alerts for high-confidence anomalies
-                    if (prediction.getConfidence() > 0.7) {
-                        log.info("High-confidence anomaly detected (confidence={}), alert should be triggered",
-                                prediction.getConfidence());
-                        // Note: Alert service integration can be added here when alert service is available
-                    }
-                }
-                
+                applyOnFirstWrite(firstWrite, logId, logEntry, features, prediction);
             } else {
                 log.debug("ML service unavailable, skipping anomaly detection for log: {}", logId);
             }
@@ -141,22 +307,78 @@ public class LogProcessorService {
     }
 
     /**
-     * Save anomaly detection result to database
+     * Combine the ML service prediction with the embedded {@link StreamingAnomalyScorer} according
+     * to {@code ml.scoring.mode}:
+     * <ul>
+     *   <li>{@code remote} (default) - ML service only</li>
+     *   <li>{@code embedded} - embedded scorer only, no network call</li>
+     *   <li>{@code fallback} - ML service, embedded result when the service gives none</li>
+     *   <li>{@code prefilter} - embedded scorer first; only logs scoring at least
+     *       {@code ml.scoring.prefilter-threshold} go to the ML service</li>
+     * </ul>
+     * Every mode but {@code remote} scores each log with the embedded scorer, which keeps its
+     * per-service statistics current.
      */
-    private void saveAnomalyDetection(String logId, LogEntryDTO logEntry, MLPredictionResponse prediction) {
-        try {
-            // Prepare features as JSON
-            Map<String, Object> features = new HashMap<>();
-            features.put(METADATA_KEY_MESSAGE_LENGTH, logEntry.getMessage() != null ? logEntry.getMessage().length() : 0);
-            features.put("level", logEntry.getLevel());
-            features.put("service", logEntry.getService());
-            features.put(METADATA_KEY_HAS_EXCEPTION, logEntry.getMetadata() != null &&
-                    Boolean.TRUE.equals(logEntry.getMetadata().get(METADATA_KEY_HAS_EXCEPTION)));
-            features.put(METADATA_KEY_HAS_TIMEOUT, logEntry.getMetadata() != null &&
-                    Boolean.TRUE.equals(logEntry.getMetadata().get(METADATA_KEY_HAS_TIMEOUT)));
-            features.put(METADATA_KEY_HAS_CONNECTION, logEntry.getMetadata() != null &&
-                    Boolean.TRUE.equals(logEntry.getMetadata().get(METADATA_KEY_HAS_CONNECTION)));
+    private Mono<MLPredictionResponse> score(String logId, LogFeatures features, Mono<MLPredictionResponse> remote) {
+        String mode = scoringMode != null ? scoringMode.toLowerCase(Locale.ROOT) : "remote";
+        return switch (mode) {
+            case SCORING_MODE_EMBEDDED -> Mono.fromSupplier(() -> streamingAnomalyScorer.score(logId, features));
+            case SCORING_MODE_FALLBACK -> Mono.defer(() -> {
+                MLPredictionResponse embedded = streamingAnomalyScorer.score(logId, features);
+                return remote.defaultIfEmpty(embedded);
+            });
+            case SCORING_MODE_PREFILTER -> Mono.defer(() -> {
+                MLPredictionResponse embedded = streamingAnomalyScorer.score(logId, features);
+                if (embedded.getAnomalyScore() < prefilterThreshold) {
+                    return Mono.just(embedded);
+                }
+                return remote.defaultIfEmpty(embedded);
+            });
+            default -> remote;
+        };
+    }
+
+    /**
+     * Record a prediction: log metadata, Elasticsearch write-back, database row and alerting
+     */
+    private void applyPrediction(String logId, LogEntryDTO logEntry, LogFeatures features,
+                                 MLPredictionResponse prediction) {
+        // Add anomaly detection results to metadata
+        if (logEntry.getMetadata() == null) {
+            logEntry.setMetadata(new HashMap<>());
+        }
+        
+        logEntry.getMetadata().put(METADATA_KEY_ANOMALY_DETECTED, prediction.getIsAnomaly());
+        logEntry.getMetadata().put(METADATA_KEY_ANOMALY_SCORE, prediction.getAnomalyScore());
+        logEntry.getMetadata().put(METADATA_KEY_ANOMALY_CONFIDENCE, prediction.getConfidence());
+        logEntry.getMetadata().put(METADATA_KEY_ML_MODEL_VERSION, prediction.getModelVersion());
+        
+        // Make the results searchable on the indexed document
+        anomalyWriteBackService.enqueue(logId, logEntry.getTimestamp(), prediction);
+        
+        // Store anomaly detection result in database
+        saveAnomalyDetection(logId, features, prediction);
+        
+        if (Boolean.TRUE.equals(prediction.getIsAnomaly())) {
+            log.warn("Anomaly detected in log {}: score={}, confidence={}",
+                    logId, prediction.getAnomalyScore(), prediction.getConfidence());
+            logRollupService.recordAnomaly(logEntry);
             
+            // Trigger alerts for high-confidence anomalies
+            if (prediction.getConfidence() != null && prediction.getConfidence() > 0.7) {
+                log.info("High-confidence anomaly detected (confidence={}), alert should be triggered",
+                        prediction.getConfidence());
+                // Note: Alert service integration can be added here when alert service is available
+            }
+        }
+    }
+
+    /**
+     * Save anomaly detection result to database, batched through {@link AnomalyDetectionWriter}
+     * when it accepts the row
+     */
+    private void saveAnomalyDetection(String logId, LogFeatures features, MLPredictionResponse prediction) {
+        try {
             String featuresJson = objectMapper.writeValueAsString(features);
             
             // Create and save anomaly detection entity
@@ -170,7 +392,12 @@ public class LogProcessorService {
                     .detectedAt(Instant.now())
                     .build();
             
-            anomalyDetectionRepository.save(anomalyDetection);
+            if (anomalyDetectionWriter.enqueue(anomalyDetection)) {
+                log.debug("Anomaly detection result queued for database for log: {}", logId);
+                return;
+            }
+            downstreamLimiter.call(DownstreamLimiter.Downstream.DATABASE,
+                    () -> anomalyDetectionRepository.save(anomalyDetection));
             
             log.debug("Anomaly detection result saved to database for log: {}", logId);
             
@@ -186,7 +413,8 @@ public class LogProcessorService {
      */
     private LogEntryDTO normalizeLog(LogEntryDTO logEntry) {
         // Ensure timestamp is set
-        if (logEntry.getTimestamp() == null) {
+        boolean producerTimestamp = logEntry.getTimestamp() != null;
+        if (!producerTimestamp) {
             logEntry.setTimestamp(Instant.now());
         }
 
@@ -205,13 +433,23 @@ public class LogProcessorService {
             logEntry.setEnvironment(UNKNOWN_ENVIRONMENT);
         }
 
+        // Assign the document ID. With a producer timestamp and message ID the ID is derived from
+        // them, so a redelivered message gets the same ID and its create becomes a no-op. Without
+        // either a redelivery cannot be told from a second publish, so every delivery gets its own.
+        if (logEntry.getId() == null || logEntry.getId().isBlank()) {
+            boolean messageId = logEntry.getMessageId() != null && !logEntry.getMessageId().isBlank();
+            logEntry.setId(producerTimestamp && messageId
+                    ? documentIdGenerator.idFor(logEntry)
+                    : documentIdGenerator.nextId());
+        }
+
         return logEntry;
     }
 
     /**
      * Enrich log entry with additional metadata
      */
-    private LogEntryDTO enrichLog(LogEntryDTO logEntry) {
+    private LogEntryDTO enrichLog(LogEntryDTO logEntry, LogFeatures features) {
         // Add processing timestamp to metadata
         if (logEntry.getMetadata() == null) {
             logEntry.setMetadata(new java.util.HashMap<>());
@@ -220,19 +458,12 @@ public class LogProcessorService {
         logEntry.getMetadata().put(METADATA_KEY_PROCESSED_AT, Instant.now().toString());
         logEntry.getMetadata().put(METADATA_KEY_PROCESSOR, PROCESSOR_SERVICE_NAME);
 
-        // Add message length for analytics
-        if (logEntry.getMessage() != null) {
-            logEntry.getMetadata().put(METADATA_KEY_MESSAGE_LENGTH, logEntry.getMessage().length());
-        }
-
-        // Extract error indicators
+        // Add message length and error indicators for analytics
         if (logEntry.getMessage() != null) {
-            String messageLower = logEntry.getMessage().toLowerCase();
-            logEntry.getMetadata().put(METADATA_KEY_HAS_EXCEPTION,
-                    messageLower.contains(EXCEPTION_KEYWORD) || messageLower.contains(ERROR_KEYWORD));
-            logEntry.getMetadata().put(METADATA_KEY_HAS_TIMEOUT, messageLower.contains(TIMEOUT_KEYWORD));
-            logEntry.getMetadata().put(METADATA_KEY_HAS_CONNECTION,
-                    messageLower.contains(CONNECTION_KEYWORD) || messageLower.contains(CONNECT_KEYWORD));
+            logEntry.getMetadata().put(METADATA_KEY_MESSAGE_LENGTH, features.messageLength());
+            logEntry.getMetadata().put(METADATA_KEY_HAS_EXCEPTION, features.hasException());
+            logEntry.getMetadata().put(METADATA_KEY_HAS_TIMEOUT, features.hasTimeout());
+            logEntry.getMetadata().put(METADATA_KEY_HAS_CONNECTION, features.hasConnection());
         }
 
         return logEntry;
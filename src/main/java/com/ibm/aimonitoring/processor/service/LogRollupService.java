@@ -0,0 +1,206 @@
+package com.ibm.aimonitoring.processor.service;
+
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.json.JsonData;
+import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains the per-minute rollup index used by the dashboard.
+ * <p>
+ * Processed logs are counted in memory per minute (UTC) × service × level × environment, along with
+ * the sum of message lengths and the number of anomalies. Every
+ * {@code elasticsearch.rollup.flush-interval-ms} the accumulated counters are added to the rollup
+ * documents through {@link BulkIndexer} as scripted upserts, so counters from several flushes and
+ * several processor instances add up. Counters of a failed flush are kept for the next one.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LogRollupService {
+
+    public static final String FIELD_TIMESTAMP = "timestamp";
+    public static final String FIELD_SERVICE = "service";
+    public static final String FIELD_LEVEL = "level";
+    public static final String FIELD_ENVIRONMENT = "environment";
+    public static final String FIELD_COUNT = "count";
+    public static final String FIELD_MESSAGE_LENGTH_SUM = "messageLengthSum";
+    public static final String FIELD_ANOMALY_COUNT = "anomalyCount";
+
+    private static final String UNKNOWN = "unknown";
+    private static final long MINUTE_MILLIS = 60_000L;
+    private static final int RETRY_ON_CONFLICT = 5;
+    // Rough size of one scripted upsert request line plus its body, for the bulk byte-size trigger
+    private static final long UPSERT_ESTIMATED_BYTES = 512;
+    private static final String UPSERT_SCRIPT = "ctx._source." + FIELD_COUNT + " += params." + FIELD_COUNT + "; "
+            + "ctx._source." + FIELD_MESSAGE_LENGTH_SUM + " += params." + FIELD_MESSAGE_LENGTH_SUM + "; "
+            + "ctx._source." + FIELD_ANOMALY_COUNT + " += params." + FIELD_ANOMALY_COUNT + ";";
+
+    private final BulkIndexer bulkIndexer;
+
+    @Value("${elasticsearch.rollup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${elasticsearch.rollup.index-name:rollup-logs-1m}")
+    private String rollupIndexName;
+
+    private final Map<RollupKey, Counters> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * One rollup document: a minute of one service, level and environment
+     */
+    record RollupKey(long minute, String service, String level, String environment) {
+
+        String documentId() {
+            return minute + ":" + service + ":" + level + ":" + environment;
+        }
+    }
+
+    /**
+     * Counters of one rollup document, only mutated inside {@link ConcurrentHashMap#compute}
+     */
+    static final class Counters {
+        long count;
+        long messageLengthSum;
+        long anomalyCount;
+
+        void add(long count, long messageLengthSum, long anomalyCount) {
+            this.count += count;
+            this.messageLengthSum += messageLengthSum;
+            this.anomalyCount += anomalyCount;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Count a processed log
+     */
+    public void record(LogEntryDTO logEntry) {
+        if (!enabled) {
+            return;
+        }
+        int messageLength = logEntry.getMessage() != null ? logEntry.getMessage().length() : 0;
+        add(keyOf(logEntry), 1, messageLength, 0);
+    }
+
+    /**
+     * Count an anomaly detected in a processed log
+     */
+    public void recordAnomaly(LogEntryDTO logEntry) {
+        if (!enabled) {
+            return;
+        }
+        add(keyOf(logEntry), 0, 0, 1);
+    }
+
+    /**
+     * Number of rollup documents waiting for the next flush
+     */
+    public int getPendingBuckets() {
+        return buckets.size();
+    }
+
+    /**
+     * Add the accumulated counters to the rollup index
+     */
+    @Scheduled(fixedDelayString = "${elasticsearch.rollup.flush-interval-ms:10000}")
+    public void flush() {
+        if (buckets.isEmpty()) {
+            return;
+        }
+
+        List<RollupKey> keys = new ArrayList<>(buckets.keySet());
+        int submitted = 0;
+        for (RollupKey key : keys) {
+            // remove() and compute() are atomic per key, so no increment is lost
+            Counters counters = buckets.remove(key);
+            if (counters != null) {
+                submit(key, counters);
+                submitted++;
+            }
+        }
+
+        if (submitted > 0) {
+            bulkIndexer.flush();
+            log.debug("Submitted {} rollup upserts", submitted);
+        }
+    }
+
+    /**
+     * Submit what is still accumulated on shutdown
+     */
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    private void add(RollupKey key, long count, long messageLengthSum, long anomalyCount) {
+        buckets.compute(key, (k, counters) -> {
+            Counters updated = counters != null ? counters : new Counters();
+            updated.add(count, messageLengthSum, anomalyCount);
+            return updated;
+        });
+    }
+
+    private void submit(RollupKey key, Counters counters) {
+        Map<String, JsonData> params = Map.of(
+                FIELD_COUNT, JsonData.of(counters.count),
+                FIELD_MESSAGE_LENGTH_SUM, JsonData.of(counters.messageLengthSum),
+                FIELD_ANOMALY_COUNT, JsonData.of(counters.anomalyCount));
+
+        Map<String, Object> upsert = new HashMap<>();
+        upsert.put(FIELD_TIMESTAMP, Instant.ofEpochMilli(key.minute() * MINUTE_MILLIS).toString());
+        upsert.put(FIELD_SERVICE, key.service());
+        upsert.put(FIELD_LEVEL, key.level());
+        upsert.put(FIELD_ENVIRONMENT, key.environment());
+        upsert.put(FIELD_COUNT, counters.count);
+        upsert.put(FIELD_MESSAGE_LENGTH_SUM, counters.messageLengthSum);
+        upsert.put(FIELD_ANOMALY_COUNT, counters.anomalyCount);
+
+        BulkOperation operation = BulkOperation.of(b -> b.update(u -> u
+                .index(rollupIndexName)
+                .id(key.documentId())
+                .retryOnConflict(RETRY_ON_CONFLICT)
+                .action(a -> a
+                        .script(s -> s.source(UPSERT_SCRIPT).params(params))
+                        .upsert(upsert))));
+
+        bulkIndexer.addNonBlocking(operation, UPSERT_ESTIMATED_BYTES).whenComplete((id, error) -> {
+            if (error != null) {
+                log.warn("Failed to update rollup {}, keeping counters for the next flush: {}",
+                        key.documentId(), error.getMessage());
+                add(key, counters.count, counters.messageLengthSum, counters.anomalyCount);
+            }
+        });
+    }
+
+    private static RollupKey keyOf(LogEntryDTO logEntry) {
+        Instant timestamp = logEntry.getTimestamp() != null ? logEntry.getTimestamp() : Instant.now();
+        return new RollupKey(
+                Math.floorDiv(timestamp.toEpochMilli(), MINUTE_MILLIS),
+                valueOrUnknown(logEntry.getService()),
+                valueOrUnknown(logEntry.getLevel()),
+                valueOrUnknown(logEntry.getEnvironment()));
+    }
+
+    private static String valueOrUnknown(String value) {
+        return value != null && !value.isEmpty() ? value : UNKNOWN;
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,604 @@
+package com.ibm.aimonitoring.processor.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.util.BinaryData;
+import co.elastic.clients.util.ContentType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Local write-ahead spool for logs that could not be indexed because Elasticsearch was down or
+ * rejecting writes.
+ * <p>
+ * Records are appended to memory-mapped segment files of {@code elasticsearch.spool.segment-bytes}
+ * in {@code elasticsearch.spool.directory}. A record is its payload length, the CRC32 of the
+ * payload, and the payload: target index, document ID and source document. Once {@link #append}
+ * returns true the message may be acknowledged. When the record reaches the disk depends on
+ * {@code fsync}: {@code always} forces each record before returning, {@code interval} forces the
+ * active segment every {@code fsync-interval-ms}, and {@code never} leaves it to the page cache,
+ * which survives a process crash but not a host crash.
+ * <p>
+ * Every {@code drain-interval-ms}, while records are pending and Elasticsearch answers a ping,
+ * records are replayed in {@code _bulk} requests of {@code drain-batch-size} {@code create}
+ * operations, and the read position is saved in a checkpoint file after each one; drained
+ * segments are unmapped and deleted. A record replayed twice after a crash is a 409, which counts
+ * as done. Listeners registered with {@link #onReplayed} learn the IDs of the replayed documents.
+ * Disk usage is capped at {@code max-bytes}: when no further segment fits, {@link #append}
+ * returns false and the caller fails the message as before. A deleted segment's disk space is
+ * only freed once it is unmapped; where the JVM does not allow unmapping explicitly, that waits
+ * for the buffer to be garbage collected and disk usage can exceed {@code max-bytes} meanwhile.
+ * <p>
+ * On startup the segments are scanned from the checkpoint. A record with a bad length or CRC, a
+ * write torn by a crash, ends its segment and appends resume at its offset.
+ * <p>
+ * Segment state is guarded by a {@link ReentrantLock} rather than a monitor: with
+ * {@code fsync: always} a consumer forces its record to disk while holding it, and on Java 21 a
+ * virtual thread blocked inside a monitor, or waiting to enter one, pins its carrier thread.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LogSpool {
+
+    static final int RECORD_HEADER_BYTES = 8;
+    static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".spool";
+    private static final int CHECKPOINT_BYTES = Long.BYTES + Integer.BYTES;
+
+    private static final int HTTP_CONFLICT = 409;
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVER_ERROR = 500;
+
+    enum FsyncPolicy { ALWAYS, INTERVAL, NEVER }
+
+    // Unmaps a drained segment at once rather than when its buffer is garbage collected
+    private static final Consumer<MappedByteBuffer> UNMAPPER = unmapper();
+
+    private final ElasticsearchClient elasticsearchClient;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${elasticsearch.spool.enabled:false}")
+    private boolean enabled;
+
+    @Value("${elasticsearch.spool.directory:./spool}")
+    private String directory;
+
+    @Value("${elasticsearch.spool.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    @Value("${elasticsearch.spool.max-bytes:1073741824}")
+    private long maxBytes;
+
+    @Value("${elasticsearch.spool.fsync:interval}")
+    private String fsync;
+
+    @Value("${elasticsearch.spool.drain-batch-size:1000}")
+    private int drainBatchSize;
+
+    @Value("${elasticsearch.spool.drain-interval-ms:1000}")
+    private long drainIntervalMs;
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final AtomicLong pendingRecords = new AtomicLong();
+    private final List<Consumer<List<String>>> replayListeners = new CopyOnWriteArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private Path spoolDirectory;
+    private FsyncPolicy fsyncPolicy;
+    private Segment active;
+    private long readSegment;
+    private int readOffset;
+    private volatile boolean closed;
+
+    private Counter appendedCounter;
+    private Counter drainedCounter;
+    private Counter rejectedCounter;
+    private Counter droppedCounter;
+
+    private static final class Segment {
+        final long sequence;
+        final Path path;
+        final MappedByteBuffer buffer;
+        int writeOffset;
+        boolean dirty;
+
+        Segment(long sequence, Path path, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    record SpooledLog(String index, String documentId, byte[] document) {
+    }
+
+    private record Batch(List<SpooledLog> logs, long endSegment, int endOffset) {
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Be told the IDs of spooled documents once they have been replayed into Elasticsearch
+     * (created, or found to exist already); called on the drain thread
+     */
+    public void onReplayed(Consumer<List<String>> listener) {
+        replayListeners.add(listener);
+    }
+
+    /**
+     * Recover the segments and the read position left by the previous run
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            recoverSegments();
+        } finally {
+            lock.unlock();
+        }
+
+        appendedCounter = meterRegistry.counter("elasticsearch.spool.appended");
+        drainedCounter = meterRegistry.counter("elasticsearch.spool.drained");
+        rejectedCounter = meterRegistry.counter("elasticsearch.spool.rejected");
+        droppedCounter = meterRegistry.counter("elasticsearch.spool.dropped");
+        Gauge.builder("elasticsearch.spool.records", pendingRecords, AtomicLong::get).register(meterRegistry);
+        Gauge.builder("elasticsearch.spool.bytes", this, LogSpool::getDiskBytes).register(meterRegistry);
+
+        log.info("Log spool opened at {} ({} fsync): {} pending records in {} segments",
+                spoolDirectory.toAbsolutePath(), fsyncPolicy, pendingRecords.get(), segments.size());
+    }
+
+    private void recoverSegments() throws IOException {
+        fsyncPolicy = FsyncPolicy.valueOf(fsync.trim().toUpperCase(Locale.ROOT));
+        if (segmentBytes <= RECORD_HEADER_BYTES || maxBytes < segmentBytes) {
+            throw new IllegalArgumentException("elasticsearch.spool.max-bytes must hold at least one segment of "
+                    + "elasticsearch.spool.segment-bytes: " + maxBytes + " < " + segmentBytes);
+        }
+        spoolDirectory = Path.of(directory);
+        Files.createDirectories(spoolDirectory);
+        readCheckpoint();
+
+        List<Long> sequences;
+        try (Stream<Path> files = Files.list(spoolDirectory)) {
+            sequences = files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name, SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length(), 10))
+                    .sorted()
+                    .toList();
+        }
+        for (long sequence : sequences) {
+            if (sequence < readSegment) {
+                // Drained before the last shutdown, but not yet deleted
+                Files.deleteIfExists(segmentPath(sequence));
+            } else {
+                recover(mapSegment(sequence));
+            }
+        }
+
+        if (segments.isEmpty()) {
+            mapSegment(readSegment);
+        }
+        Segment first = segments.get(readSegment);
+        if (first == null) {
+            readSegment = segments.firstKey();
+            readOffset = 0;
+        } else if (readOffset > first.writeOffset) {
+            readOffset = first.writeOffset;
+        }
+        active = segments.lastEntry().getValue();
+    }
+
+    /**
+     * Append a log document for later replay
+     *
+     * @param index       target index
+     * @param documentId  document ID; replays are {@code create} operations, so it is required
+     * @param document    source document as UTF-8 JSON
+     * @return false if the log was not spooled: disabled, closed, full or not writable
+     */
+    public boolean append(String index, String documentId, byte[] document) {
+        if (!enabled || documentId == null) {
+            return false;
+        }
+        byte[] payload = encode(index, documentId, document);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int recordBytes = RECORD_HEADER_BYTES + payload.length;
+
+        lock.lock();
+        try {
+            if (closed || recordBytes > segmentBytes || !ensureCapacity(recordBytes)) {
+                rejectedCounter.increment();
+                return false;
+            }
+            Segment segment = active;
+            int offset = segment.writeOffset;
+            segment.buffer.put(offset + RECORD_HEADER_BYTES, payload);
+            segment.buffer.putInt(offset + Integer.BYTES, (int) crc.getValue());
+            segment.buffer.putInt(offset, payload.length);
+            segment.writeOffset = offset + recordBytes;
+            if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                segment.buffer.force(offset, recordBytes);
+            } else {
+                segment.dirty = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        pendingRecords.incrementAndGet();
+        appendedCounter.increment();
+        return true;
+    }
+
+    /**
+     * Force appended records of the active segment to disk, for {@code fsync: interval}
+     */
+    @Scheduled(fixedDelayString = "${elasticsearch.spool.fsync-interval-ms:1000}")
+    public void sync() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (!closed && fsyncPolicy == FsyncPolicy.INTERVAL && active.dirty) {
+                active.buffer.force();
+                active.dirty = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replay pending records while Elasticsearch is healthy, for at most one drain interval
+     */
+    @Scheduled(fixedDelayString = "${elasticsearch.spool.drain-interval-ms:1000}")
+    public void drain() {
+        if (!enabled || closed || pendingRecords.get() == 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + drainIntervalMs * 1_000_000;
+        try {
+            if (!elasticsearchClient.ping().value()) {
+                return;
+            }
+            while (!closed && drainBatch() > 0 && System.nanoTime() < deadline) {
+                // next batch
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Log spool drain paused, {} records pending: {}", pendingRecords.get(), e.getMessage());
+        }
+    }
+
+    /**
+     * Replay one bulk request of pending records
+     *
+     * @return records drained, 0 if none are pending or Elasticsearch rejected the request
+     */
+    int drainBatch() throws IOException {
+        Batch batch = nextBatch();
+        if (batch.logs().isEmpty()) {
+            return 0;
+        }
+
+        List<BulkOperation> operations = new ArrayList<>(batch.logs().size());
+        for (SpooledLog spooled : batch.logs()) {
+            BinaryData document = BinaryData.of(spooled.document(), ContentType.APPLICATION_JSON);
+            operations.add(BulkOperation.of(b -> b.create(c -> c
+                    .index(spooled.index())
+                    .id(spooled.documentId())
+                    .document(document))));
+        }
+        BulkResponse response = elasticsearchClient.bulk(BulkRequest.of(b -> b.operations(operations)));
+
+        int dropped = 0;
+        List<String> replayed = new ArrayList<>(batch.logs().size());
+        for (BulkResponseItem item : response.items()) {
+            if (item.error() == null || item.status() == HTTP_CONFLICT) {
+                replayed.add(item.id());
+                continue;
+            }
+            if (item.status() == HTTP_TOO_MANY_REQUESTS || item.status() >= HTTP_SERVER_ERROR) {
+                // Replayed again from the same position; the documents already created become 409s
+                log.debug("Spool replay rejected with status {}, retrying later", item.status());
+                return 0;
+            }
+            log.warn("Dropping spooled log {} rejected with status {} ({}): {}",
+                    item.id(), item.status(), item.error().type(), item.error().reason());
+            dropped++;
+        }
+
+        advance(batch);
+        int drained = batch.logs().size();
+        drainedCounter.increment(drained - dropped);
+        droppedCounter.increment(dropped);
+        notifyReplayed(replayed);
+        return drained;
+    }
+
+    private void notifyReplayed(List<String> documentIds) {
+        for (Consumer<List<String>> listener : replayListeners) {
+            try {
+                listener.accept(documentIds);
+            } catch (RuntimeException e) {
+                log.warn("Log spool replay listener failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Force the active segment and save the read position
+     */
+    @PreDestroy
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                active.buffer.force();
+            }
+            try {
+                writeCheckpoint();
+            } catch (IOException e) {
+                log.warn("Failed to save log spool checkpoint: {}", e.getMessage());
+            }
+        } finally {
+            lock.unlock();
+        }
+        log.info("Log spool closed with {} pending records", pendingRecords.get());
+    }
+
+    public long getPendingRecords() {
+        return pendingRecords.get();
+    }
+
+    /**
+     * Disk space held by segment files
+     */
+    public long getDiskBytes() {
+        lock.lock();
+        try {
+            return (long) segments.size() * segmentBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Batch nextBatch() {
+        lock.lock();
+        try {
+            List<SpooledLog> logs = new ArrayList<>(Math.min(drainBatchSize, 1024));
+            long sequence = readSegment;
+            int offset = readOffset;
+            while (logs.size() < drainBatchSize) {
+                Segment segment = segments.get(sequence);
+                if (offset < segment.writeOffset) {
+                    int length = segment.buffer.getInt(offset);
+                    byte[] payload = new byte[length];
+                    segment.buffer.get(offset + RECORD_HEADER_BYTES, payload);
+                    logs.add(decode(payload));
+                    offset += RECORD_HEADER_BYTES + length;
+                } else if (segment != active) {
+                    sequence = segments.higherKey(sequence);
+                    offset = 0;
+                } else {
+                    break;
+                }
+            }
+            return new Batch(logs, sequence, offset);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void advance(Batch batch) throws IOException {
+        lock.lock();
+        try {
+            readSegment = batch.endSegment();
+            readOffset = batch.endOffset();
+            pendingRecords.addAndGet(-batch.logs().size());
+            writeCheckpoint();
+
+            Map<Long, Segment> drained = segments.headMap(readSegment);
+            for (Segment segment : drained.values()) {
+                // Nothing reads a drained segment again; nextBatch copies records out under this lock
+                UNMAPPER.accept(segment.buffer);
+                Files.deleteIfExists(segment.path);
+            }
+            drained.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean ensureCapacity(int recordBytes) {
+        if (active.writeOffset + recordBytes <= segmentBytes) {
+            return true;
+        }
+        if ((long) (segments.size() + 1) * segmentBytes > maxBytes) {
+            return false;
+        }
+        try {
+            if (fsyncPolicy != FsyncPolicy.NEVER) {
+                active.buffer.force();
+            }
+            active = mapSegment(active.sequence + 1);
+            return true;
+        } catch (IOException e) {
+            log.error("Failed to create log spool segment: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private Segment mapSegment(long sequence) throws IOException {
+        Path path = segmentPath(sequence);
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        Segment segment = new Segment(sequence, path, buffer);
+        segments.put(sequence, segment);
+        return segment;
+    }
+
+    private void recover(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        while (offset + RECORD_HEADER_BYTES <= segmentBytes) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || length > segmentBytes - offset - RECORD_HEADER_BYTES) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + RECORD_HEADER_BYTES, payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(offset + Integer.BYTES)) {
+                log.warn("Truncating log spool segment {} at offset {}: record CRC mismatch", segment.path, offset);
+                buffer.putInt(offset, 0);
+                break;
+            }
+            if (segment.sequence > readSegment || offset >= readOffset) {
+                pendingRecords.incrementAndGet();
+            }
+            offset += RECORD_HEADER_BYTES + length;
+        }
+        segment.writeOffset = offset;
+    }
+
+    private void readCheckpoint() throws IOException {
+        Path checkpoint = spoolDirectory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(checkpoint)) {
+            return;
+        }
+        byte[] bytes = Files.readAllBytes(checkpoint);
+        if (bytes.length != CHECKPOINT_BYTES) {
+            // Replays from the first segment; documents already indexed become 409s
+            log.warn("Ignoring log spool checkpoint of {} bytes", bytes.length);
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        readSegment = buffer.getLong();
+        readOffset = buffer.getInt();
+    }
+
+    private void writeCheckpoint() throws IOException {
+        Path checkpoint = spoolDirectory.resolve(CHECKPOINT_FILE);
+        Path temporary = spoolDirectory.resolve(CHECKPOINT_FILE + ".tmp");
+        ByteBuffer buffer = ByteBuffer.allocate(CHECKPOINT_BYTES).putLong(readSegment).putInt(readOffset).flip();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path segmentPath(long sequence) {
+        return spoolDirectory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX));
+    }
+
+    private static byte[] encode(String index, String documentId, byte[] document) {
+        byte[] indexBytes = index.getBytes(StandardCharsets.UTF_8);
+        byte[] idBytes = documentId.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(2 * Short.BYTES + indexBytes.length + idBytes.length + document.length)
+                .putShort((short) indexBytes.length).put(indexBytes)
+                .putShort((short) idBytes.length).put(idBytes)
+                .put(document)
+                .array();
+    }
+
+    private static SpooledLog decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        String index = readString(buffer);
+        String documentId = readString(buffer);
+        byte[] document = new byte[buffer.remaining()];
+        buffer.get(document);
+        return new SpooledLog(index, documentId, document);
+    }
+
+    /**
+     * Unmap through {@code sun.misc.Unsafe.invokeCleaner}, as Java 17 has no public API for it;
+     * without it the mapping, and the disk space of a deleted segment, lasts until garbage collection
+     */
+    private static Consumer<MappedByteBuffer> unmapper() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            return buffer -> {
+                try {
+                    invokeCleaner.invoke(unsafe, buffer);
+                } catch (ReflectiveOperationException e) {
+                    log.warn("Failed to unmap log spool segment: {}", e.getMessage());
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Drained log spool segments cannot be unmapped, their disk space is freed on garbage collection: {}",
+                    e.getMessage());
+            return buffer -> { };
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,251 @@
+package com.ibm.aimonitoring.processor.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Circuit breaker for calls to the ML service.
+ * <p>
+ * Outcomes of the last {@code ml.service.circuit-breaker.window-size} calls are kept in a ring.
+ * Once at least {@code minimum-calls} are recorded, the breaker opens when the failure rate reaches
+ * {@code failure-rate-threshold} percent or the share of calls slower than {@code slow-call-ms}
+ * reaches {@code slow-call-rate-threshold} percent. While open, calls are rejected immediately.
+ * <p>
+ * After {@code open-duration-ms} the next call moves the breaker to half-open and triggers one
+ * background probe (the ML health check); calls are still rejected until the probe answers. A
+ * healthy probe closes the breaker, otherwise it opens again.
+ * <p>
+ * The state is reported as the {@code mlCircuitBreaker} health component (always UP, so an ML
+ * outage does not fail this service's health) and through {@code ml.circuit.*} metrics.
+ */
+@Slf4j
+@Component("mlCircuitBreaker")
+public class MLCircuitBreaker implements HealthIndicator {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ml.service.circuit-breaker.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ml.service.circuit-breaker.window-size:50}")
+    private int windowSize;
+
+    @Value("${ml.service.circuit-breaker.minimum-calls:20}")
+    private int minimumCalls;
+
+    @Value("${ml.service.circuit-breaker.failure-rate-threshold:50}")
+    private int failureRateThreshold;
+
+    @Value("${ml.service.circuit-breaker.slow-call-ms:2000}")
+    private long slowCallMs;
+
+    @Value("${ml.service.circuit-breaker.slow-call-rate-threshold:80}")
+    private int slowCallRateThreshold;
+
+    @Value("${ml.service.circuit-breaker.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    private volatile State state = State.CLOSED;
+    private volatile BooleanSupplier probe = () -> false;
+
+    // Guarded by this
+    private boolean[] failed;
+    private boolean[] slow;
+    private int recorded;
+    private int next;
+    private int failures;
+    private int slowCalls;
+    private long openedAt;
+
+    private Counter shortCircuitCounter;
+
+    public MLCircuitBreaker(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Allocate the outcome window and register metrics
+     */
+    @PostConstruct
+    public void init() {
+        failed = new boolean[windowSize];
+        slow = new boolean[windowSize];
+        shortCircuitCounter = meterRegistry.counter("ml.circuit.short-circuited");
+        Gauge.builder("ml.circuit.state", this, breaker -> breaker.getState().ordinal())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .register(meterRegistry);
+        for (State from : State.values()) {
+            for (State to : State.values()) {
+                if (from != to) {
+                    meterRegistry.counter("ml.circuit.transitions", "from", from.name(), "to", to.name());
+                }
+            }
+        }
+    }
+
+    /**
+     * Set the health check used for half-open probes
+     */
+    public void setProbe(BooleanSupplier probe) {
+        this.probe = probe;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Whether a call may go to the ML service now. A rejected call is counted as short-circuited.
+     */
+    public boolean tryAcquirePermission() {
+        if (!enabled || state == State.CLOSED) {
+            return true;
+        }
+
+        boolean startProbe = false;
+        synchronized (this) {
+            if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDurationMs) {
+                transitionTo(State.HALF_OPEN);
+                startProbe = true;
+            }
+        }
+        if (startProbe) {
+            Schedulers.boundedElastic().schedule(this::runProbe);
+        }
+
+        shortCircuitCounter.increment();
+        return false;
+    }
+
+    /**
+     * Record a completed call
+     */
+    public void onSuccess(long durationNanos) {
+        record(false, durationNanos);
+    }
+
+    /**
+     * Record a failed call
+     */
+    public void onError(long durationNanos) {
+        record(true, durationNanos);
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = Health.up().withDetail("state", state.name());
+        synchronized (this) {
+            if (recorded > 0) {
+                builder.withDetail("failureRate", failures * 100 / recorded)
+                        .withDetail("slowCallRate", slowCalls * 100 / recorded);
+            }
+            builder.withDetail("bufferedCalls", recorded);
+        }
+        return builder.build();
+    }
+
+    private void record(boolean isFailure, long durationNanos) {
+        if (!enabled) {
+            return;
+        }
+        boolean isSlow = TimeUnit.NANOSECONDS.toMillis(durationNanos) >= slowCallMs;
+
+        synchronized (this) {
+            if (state != State.CLOSED) {
+                // Outcome of a call admitted before the breaker opened
+                return;
+            }
+            if (recorded == windowSize) {
+                if (failed[next]) {
+                    failures--;
+                }
+                if (slow[next]) {
+                    slowCalls--;
+                }
+            } else {
+                recorded++;
+            }
+            failed[next] = isFailure;
+            slow[next] = isSlow;
+            if (isFailure) {
+                failures++;
+            }
+            if (isSlow) {
+                slowCalls++;
+            }
+            next = (next + 1) % windowSize;
+
+            if (recorded >= minimumCalls
+                    && (failures * 100 >= failureRateThreshold * recorded
+                        || slowCalls * 100 >= slowCallRateThreshold * recorded)) {
+                log.warn("Opening ML circuit breaker: {} failed and {} slow of the last {} calls",
+                        failures, slowCalls, recorded);
+                open();
+            }
+        }
+    }
+
+    private void runProbe() {
+        boolean healthy;
+        try {
+            healthy = probe.getAsBoolean();
+        } catch (RuntimeException e) {
+            healthy = false;
+        }
+
+        synchronized (this) {
+            if (state != State.HALF_OPEN) {
+                return;
+            }
+            if (healthy) {
+                log.info("ML service probe succeeded, closing circuit breaker");
+                resetWindow();
+                transitionTo(State.CLOSED);
+            } else {
+                log.warn("ML service probe failed, circuit breaker stays open");
+                open();
+            }
+        }
+    }
+
+    private void open() {
+        openedAt = System.currentTimeMillis();
+        transitionTo(State.OPEN);
+    }
+
+    private void resetWindow() {
+        Arrays.fill(failed, false);
+        Arrays.fill(slow, false);
+        recorded = 0;
+        next = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    private void transitionTo(State target) {
+        State previous = state;
+        if (previous == target) {
+            return;
+        }
+        state = target;
+        meterRegistry.counter("ml.circuit.transitions", "from", previous.name(), "to", target.name()).increment();
+    }
+}
+
+// Made with Bob
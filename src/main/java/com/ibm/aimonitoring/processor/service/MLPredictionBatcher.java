@@ -0,0 +1,168 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.dto.MLPredictionRequest;
+import com.ibm.aimonitoring.processor.dto.MLPredictionResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects prediction requests from concurrent callers into micro-batches.
+ * <p>
+ * A batch is sent when it reaches {@code maxBatchSize} requests or when the first request in it
+ * has waited {@code maxWait}, whichever comes first. The responses are fanned back out to the
+ * callers by log ID, or by position when the service does not echo the ID. A caller whose request
+ * got no response, or whose batch failed, receives {@code null}: the same "service unavailable"
+ * result as a failed single request.
+ */
+@Slf4j
+public class MLPredictionBatcher implements AutoCloseable {
+
+    private final int maxBatchSize;
+    private final Duration maxWait;
+    private final Function<List<MLPredictionRequest>, CompletableFuture<List<MLPredictionResponse>>> sender;
+    private final ScheduledExecutorService timer;
+
+    private final Object lock = new Object();
+    private List<Pending> buffer = new ArrayList<>();
+    private ScheduledFuture<?> windowTimer;
+    private boolean closed;
+
+    private record Pending(MLPredictionRequest request, CompletableFuture<MLPredictionResponse> future) {
+    }
+
+    /**
+     * @param maxBatchSize maximum requests per batch
+     * @param maxWait longest a request waits for its batch to fill
+     * @param sender sends one batch and completes with the responses
+     */
+    public MLPredictionBatcher(
+            int maxBatchSize,
+            Duration maxWait,
+            Function<List<MLPredictionRequest>, CompletableFuture<List<MLPredictionResponse>>> sender) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be at least 1");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxWait = maxWait;
+        this.sender = sender;
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("ml-batch-");
+        threadFactory.setDaemon(true);
+        this.timer = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    }
+
+    /**
+     * Queue a prediction request
+     *
+     * @param request the request to send
+     * @return future completed with the prediction, or with {@code null} if none was returned
+     */
+    public CompletableFuture<MLPredictionResponse> submit(MLPredictionRequest request) {
+        Pending pending = new Pending(request, new CompletableFuture<>());
+        List<Pending> ready = null;
+
+        synchronized (lock) {
+            if (closed) {
+                pending.future().complete(null);
+                return pending.future();
+            }
+            buffer.add(pending);
+            if (buffer.size() >= maxBatchSize) {
+                ready = drainBuffer();
+            } else if (buffer.size() == 1) {
+                windowTimer = timer.schedule(this::flush, maxWait.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        if (ready != null) {
+            dispatch(ready);
+        }
+        return pending.future();
+    }
+
+    /**
+     * Send whatever is buffered now
+     */
+    public void flush() {
+        List<Pending> ready;
+        synchronized (lock) {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            ready = drainBuffer();
+        }
+        dispatch(ready);
+    }
+
+    /**
+     * Send remaining requests and stop the window timer
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        flush();
+        timer.shutdownNow();
+    }
+
+    private List<Pending> drainBuffer() {
+        if (windowTimer != null) {
+            windowTimer.cancel(false);
+            windowTimer = null;
+        }
+        List<Pending> drained = buffer;
+        buffer = new ArrayList<>(maxBatchSize);
+        return drained;
+    }
+
+    private void dispatch(List<Pending> batch) {
+        List<MLPredictionRequest> requests = batch.stream().map(Pending::request).toList();
+        CompletableFuture<List<MLPredictionResponse>> responses;
+        try {
+            responses = sender.apply(requests);
+        } catch (RuntimeException e) {
+            responses = CompletableFuture.failedFuture(e);
+        }
+
+        responses.whenComplete((results, error) -> {
+            if (error != null) {
+                log.warn("ML batch of {} requests failed: {}", batch.size(), error.getMessage());
+                batch.forEach(pending -> pending.future().complete(null));
+                return;
+            }
+            fanOut(batch, results != null ? results : List.of());
+        });
+    }
+
+    private static void fanOut(List<Pending> batch, List<MLPredictionResponse> results) {
+        Map<String, MLPredictionResponse> byLogId = new HashMap<>(results.size() * 2);
+        for (MLPredictionResponse result : results) {
+            if (result != null && result.getLogId() != null) {
+                byLogId.put(result.getLogId(), result);
+            }
+        }
+        boolean positional = byLogId.isEmpty() && results.size() == batch.size();
+
+        for (int i = 0; i < batch.size(); i++) {
+            Pending pending = batch.get(i);
+            MLPredictionResponse result = positional
+                    ? results.get(i)
+                    : byLogId.get(pending.request().getLogId());
+            pending.future().complete(result);
+        }
+    }
+}
+
+// Made with Bob
@@ -0,0 +1,192 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.ibm.aimonitoring.processor.dto.MLPredictionRequest;
+import com.ibm.aimonitoring.processor.dto.MLPredictionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Caches ML predictions by feature vector.
+ * <p>
+ * The ML model only sees {@link MLPredictionRequest.LogFeatures}, a handful of low-cardinality
+ * values, so identical vectors are common and give identical predictions. Entries are keyed by the
+ * canonical vector, with {@code messageLength} optionally rounded down to multiples of
+ * {@code ml.service.cache.message-length-bucket}. Concurrent misses for the same vector share one
+ * ML call.
+ * <p>
+ * Entries expire after {@code ttl-seconds} and are evicted beyond {@code max-size}. When the ML
+ * service starts answering with a different {@code modelVersion}, the whole cache is dropped.
+ * Hit/miss/eviction metrics are published as {@code cache.*{cache=ml.prediction}}.
+ */
+@Slf4j
+@Component
+public class MLPredictionCache {
+
+    private static final String CACHE_NAME = "ml.prediction";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ml.service.cache.enabled:false}")
+    private boolean enabled;
+
+    @Value("${ml.service.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${ml.service.cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${ml.service.cache.message-length-bucket:0}")
+    private int messageLengthBucket;
+
+    private AsyncCache<FeatureKey, MLPredictionResponse> cache;
+    private Counter invalidationCounter;
+    private volatile String currentModelVersion;
+
+    /**
+     * Canonical feature vector used as the cache key
+     */
+    record FeatureKey(int messageLength, String level, String service,
+                      boolean hasException, boolean hasTimeout, boolean hasConnectionError) {
+    }
+
+    public MLPredictionCache(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Build the cache when enabled
+     */
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        invalidationCounter = meterRegistry.counter("ml.prediction.cache.invalidations");
+        log.info("ML prediction cache enabled: maxSize={}, ttlSeconds={}, messageLengthBucket={}",
+                maxSize, ttlSeconds, messageLengthBucket);
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Look up the prediction for a request's feature vector, calling {@code loader} on a miss.
+     * Empty loader results are not cached.
+     *
+     * @param request the prediction request
+     * @param loader performs the actual ML call
+     * @return the prediction carrying the request's log ID, or empty if none
+     */
+    public Mono<MLPredictionResponse> get(MLPredictionRequest request,
+                                          Function<MLPredictionRequest, Mono<MLPredictionResponse>> loader) {
+        if (cache == null || request.getFeatures() == null) {
+            return loader.apply(request);
+        }
+
+        return Mono.defer(() -> {
+            FeatureKey key = keyOf(request.getFeatures());
+            // Cancelling one caller must not cancel the load other callers share (suppressCancel)
+            CompletableFuture<MLPredictionResponse> cached = cache.get(key, (k, executor) ->
+                    loader.apply(request)
+                            .doOnNext(this::observeModelVersion)
+                            .toFuture());
+
+            return Mono.fromFuture(cached, true).flatMap(prediction -> {
+                if (isStale(prediction)) {
+                    // Loaded before the model changed; replace it with a fresh prediction
+                    cache.synchronous().invalidate(key);
+                    return loader.apply(request).doOnNext(this::observeModelVersion);
+                }
+                return Mono.just(prediction);
+            });
+        }).map(prediction -> forLog(request.getLogId(), prediction));
+    }
+
+    /**
+     * Drop all cached predictions
+     */
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.synchronous().invalidateAll();
+            invalidationCounter.increment();
+        }
+    }
+
+    /**
+     * Number of cached feature vectors (approximate)
+     */
+    public long size() {
+        return cache != null ? cache.synchronous().estimatedSize() : 0;
+    }
+
+    FeatureKey keyOf(MLPredictionRequest.LogFeatures features) {
+        int messageLength = features.getMessageLength() != null ? features.getMessageLength() : 0;
+        if (messageLengthBucket > 1) {
+            messageLength = messageLength / messageLengthBucket * messageLengthBucket;
+        }
+        return new FeatureKey(
+                messageLength,
+                features.getLevel(),
+                features.getService(),
+                Boolean.TRUE.equals(features.getHasException()),
+                Boolean.TRUE.equals(features.getHasTimeout()),
+                Boolean.TRUE.equals(features.getHasConnectionError()));
+    }
+
+    private void observeModelVersion(MLPredictionResponse prediction) {
+        String modelVersion = prediction.getModelVersion();
+        if (modelVersion == null || modelVersion.equals(currentModelVersion)) {
+            return;
+        }
+        String previous;
+        synchronized (this) {
+            previous = currentModelVersion;
+            if (modelVersion.equals(previous)) {
+                return;
+            }
+            currentModelVersion = modelVersion;
+        }
+        if (previous != null) {
+            log.info("ML model version changed from {} to {}, dropping cached predictions", previous, modelVersion);
+            invalidateAll();
+        }
+    }
+
+    private boolean isStale(MLPredictionResponse prediction) {
+        String current = currentModelVersion;
+        return current != null && !Objects.equals(current, prediction.getModelVersion());
+    }
+
+    private static MLPredictionResponse forLog(String logId, MLPredictionResponse prediction) {
+        return MLPredictionResponse.builder()
+                .logId(logId)
+                .isAnomaly(prediction.getIsAnomaly())
+                .anomalyScore(prediction.getAnomalyScore())
+                .confidence(prediction.getConfidence())
+                .timestamp(prediction.getTimestamp())
+                .modelVersion(prediction.getModelVersion())
+                .build();
+    }
+}
+
+// Made with Bob
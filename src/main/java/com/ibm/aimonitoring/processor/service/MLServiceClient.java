@@ -1,20 +1,37 @@
 package com.ibm.aimonitoring.processor.service;
 
-import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
+import com.ibm.aimonitoring.processor.dto.MLBatchPredictionRequest;
+import com.ibm.aimonitoring.processor.dto.MLBatchPredictionResponse;
 import com.ibm.aimonitoring.processor.dto.MLPredictionRequest;
 import com.ibm.aimonitoring.processor.dto.MLPredictionResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * Client for ML Service anomaly detection
+ * Client for ML Service anomaly detection.
+ * <p>
+ * With {@code ml.service.batch.enabled} concurrent predictions are collected by
+ * {@link MLPredictionBatcher} and sent to {@code /api/v1/predict/batch} as one request. If the ML
+ * service has no batch endpoint (404/405), the batch is sent as single requests instead and the
+ * batch endpoint is not tried again for a while.
+ * <p>
+ * With {@code ml.service.cache.enabled} predictions are served from {@link MLPredictionCache}
+ * whenever the same feature vector was scored recently.
+ * <p>
+ * Calls that reach the ML service go through {@link MLCircuitBreaker}; while it is open,
+ * predictions return empty immediately instead of waiting for timeouts and retries.
  */
 @Slf4j
 @Service
@@ -31,75 +48,219 @@ public class MLServiceClient {
     @Value("${ml.service.retry.max-attempts:3}")
     private int maxRetryAttempts;
 
-    public MLServiceClient(WebClient.Builder webClientBuilder) {
+    @Value("${ml.service.batch.enabled:false}")
+    private boolean batchEnabled;
+
+    @Value("${ml.service.batch.max-size:32}")
+    private int batchMaxSize;
+
+    @Value("${ml.service.batch.max-wait-ms:10}")
+    private long batchMaxWaitMs;
+
+    // How long to use single requests after the batch endpoint turned out to be missing
+    private static final Duration BATCH_ENDPOINT_RECHECK_INTERVAL = Duration.ofMinutes(5);
+
+    private MLPredictionBatcher batcher;
+    private volatile long batchEndpointRecheckAt;
+
+    private final MLPredictionCache predictionCache;
+    private final MLCircuitBreaker circuitBreaker;
+    private final DownstreamLimiter downstreamLimiter;
+
+    public MLServiceClient(
+            WebClient.Builder webClientBuilder,
+            MLPredictionCache predictionCache,
+            MLCircuitBreaker circuitBreaker,
+            DownstreamLimiter downstreamLimiter) {
         this.webClient = webClientBuilder.build();
+        this.predictionCache = predictionCache;
+        this.circuitBreaker = circuitBreaker;
+        this.downstreamLimiter = downstreamLimiter;
+    }
+
+    /**
+     * Register the half-open health probe and start the prediction batcher when batching is enabled
+     */
+    @PostConstruct
+    public void init() {
+        circuitBreaker.setProbe(this::isServiceAvailable);
+        if (batchEnabled) {
+            batcher = new MLPredictionBatcher(batchMaxSize, Duration.ofMillis(batchMaxWaitMs), this::sendBatch);
+            log.info("ML prediction batching enabled: maxSize={}, maxWaitMs={}", batchMaxSize, batchMaxWaitMs);
+        }
     }
 
     /**
-     * Extract features from log entry for ML prediction
+     * Send predictions still waiting for a batch on shutdown
      */
-    private MLPredictionRequest.LogFeatures extractFeatures(LogEntryDTO logEntry) {
-        String message = logEntry.getMessage() != null ? logEntry.getMessage() : "";
-        String messageLower = message.toLowerCase();
-        
-        return MLPredictionRequest.LogFeatures.builder()
-                .messageLength(message.length())
-                .level(logEntry.getLevel() != null ? logEntry.getLevel().toUpperCase() : "INFO")
-                .service(logEntry.getService() != null ? logEntry.getService() : "unknown")
-                .hasException(messageLower.contains("exception") || messageLower.contains("error"))
-                .hasTimeout(messageLower.contains("timeout") || messageLower.contains("timed out"))
-                .hasConnectionError(messageLower.contains("connection") && 
-                                   (messageLower.contains("refused") || 
-                                    messageLower.contains("failed") || 
-                                    messageLower.contains("reset")))
-                .build();
+    @PreDestroy
+    public void close() {
+        if (batcher != null) {
+            batcher.close();
+        }
     }
 
     /**
-     * Predict if a log entry is anomalous
+     * Predict if a log entry is anomalous, blocking while holding an ML service permit of
+     * {@link DownstreamLimiter}
      * 
      * @param logId Unique log identifier
-     * @param logEntry Log entry to analyze
+     * @param features Features of the log, from {@link LogFeatureExtractor}
      * @return Prediction response or null if service unavailable
      */
-    public MLPredictionResponse predictAnomaly(String logId, LogEntryDTO logEntry) {
+    public MLPredictionResponse predictAnomaly(String logId, LogFeatures features) {
+        try {
+            return downstreamLimiter.call(DownstreamLimiter.Downstream.ML_SERVICE,
+                    () -> predictAnomalyAsync(logId, features).join());
+        } catch (Exception e) {
+            log.error("Unexpected error in ML prediction for log {}: {}", logId, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Predict if a log entry is anomalous without blocking the caller
+     *
+     * @param logId Unique log identifier
+     * @param features Features of the log, from {@link LogFeatureExtractor}
+     * @return future completed with the prediction, or with null if service unavailable
+     */
+    public CompletableFuture<MLPredictionResponse> predictAnomalyAsync(String logId, LogFeatures features) {
+        return predict(logId, features).toFuture();
+    }
+
+    /**
+     * Reactive prediction; nothing is sent until the result is subscribed to
+     *
+     * @param logId Unique log identifier
+     * @param features Features of the log, from {@link LogFeatureExtractor}
+     * @return the prediction, or empty if service unavailable
+     */
+    public Mono<MLPredictionResponse> predict(String logId, LogFeatures features) {
         try {
-            MLPredictionRequest.LogFeatures features = extractFeatures(logEntry);
-            
             MLPredictionRequest request = MLPredictionRequest.builder()
                     .logId(logId)
-                    .features(features)
+                    .features(features.toRequestFeatures())
                     .build();
-            
-            log.debug("Calling ML service for log: {}", logId);
-            
-            return webClient.post()
-                    .uri(mlServiceUrl + "/api/v1/predict")
-                    .bodyValue(request)
-                    .retrieve()
-                    .bodyToMono(MLPredictionResponse.class)
-                    .timeout(Duration.ofMillis(timeout))
-                    .retryWhen(Retry.backoff(maxRetryAttempts, Duration.ofMillis(100))
-                            .filter(throwable -> !(throwable instanceof WebClientResponseException.NotFound))
-                            .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> {
-                                log.warn("ML service retry exhausted for log: {}", logId);
-                                return retrySignal.failure();
-                            }))
-                    .doOnSuccess(response -> 
-                        log.debug("ML prediction for log {}: isAnomaly={}, score={}", 
-                                logId, response.getIsAnomaly(), response.getAnomalyScore()))
-                    .doOnError(error -> 
-                        log.error("Error calling ML service for log {}: {}", logId, error.getMessage()))
-                    .onErrorResume(error -> {
-                        log.warn("ML service unavailable, skipping anomaly detection for log: {}", logId);
-                        return Mono.empty();
-                    })
-                    .block();
-                    
+
+            return predictionCache.get(request, this::predictUncached);
+
         } catch (Exception e) {
             log.error("Unexpected error in ML prediction for log {}: {}", logId, e.getMessage(), e);
-            return null;
+            return Mono.empty();
+        }
+    }
+
+    private Mono<MLPredictionResponse> predictUncached(MLPredictionRequest request) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            log.debug("ML circuit breaker {}, skipping anomaly detection for log: {}",
+                    circuitBreaker.getState(), request.getLogId());
+            return Mono.empty();
+        }
+        if (batcher != null) {
+            return Mono.defer(() -> Mono.fromFuture(batcher.submit(request)));
+        }
+        return predictSingle(request);
+    }
+
+    private Mono<MLPredictionResponse> predictSingle(MLPredictionRequest request) {
+        String logId = request.getLogId();
+        log.debug("Calling ML service for log: {}", logId);
+
+        return webClient.post()
+                .uri(mlServiceUrl + "/api/v1/predict")
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(MLPredictionResponse.class)
+                .timeout(Duration.ofMillis(timeout))
+                .retryWhen(Retry.backoff(maxRetryAttempts, Duration.ofMillis(100))
+                        .filter(throwable -> !(throwable instanceof WebClientResponseException.NotFound))
+                        .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> {
+                            log.warn("ML service retry exhausted for log: {}", logId);
+                            return retrySignal.failure();
+                        }))
+                .transform(this::recordOutcome)
+                .doOnSuccess(response -> {
+                    if (response != null) {
+                        log.debug("ML prediction for log {}: isAnomaly={}, score={}",
+                                logId, response.getIsAnomaly(), response.getAnomalyScore());
+                    }
+                })
+                .doOnError(error ->
+                    log.error("Error calling ML service for log {}: {}", logId, error.getMessage()))
+                .onErrorResume(error -> {
+                    log.warn("ML service unavailable, skipping anomaly detection for log: {}", logId);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Send one batch of predictions. Falls back to single requests when the ML service has no
+     * batch endpoint.
+     */
+    CompletableFuture<List<MLPredictionResponse>> sendBatch(List<MLPredictionRequest> requests) {
+        if (System.currentTimeMillis() < batchEndpointRecheckAt) {
+            return predictEach(requests).toFuture();
         }
+
+        log.debug("Calling ML service batch endpoint for {} logs", requests.size());
+        return webClient.post()
+                .uri(mlServiceUrl + "/api/v1/predict/batch")
+                .bodyValue(MLBatchPredictionRequest.builder().requests(requests).build())
+                .retrieve()
+                .bodyToMono(MLBatchPredictionResponse.class)
+                .timeout(Duration.ofMillis(timeout))
+                .retryWhen(Retry.backoff(maxRetryAttempts, Duration.ofMillis(100))
+                        .filter(throwable -> !isBatchEndpointMissing(throwable)))
+                .transform(this::recordOutcome)
+                .map(response -> response.getPredictions() != null
+                        ? response.getPredictions()
+                        : List.<MLPredictionResponse>of())
+                .onErrorResume(MLServiceClient::isBatchEndpointMissing, error -> {
+                    log.warn("ML service has no batch endpoint ({}), falling back to single requests",
+                            error.getMessage());
+                    batchEndpointRecheckAt = System.currentTimeMillis() + BATCH_ENDPOINT_RECHECK_INTERVAL.toMillis();
+                    return predictEach(requests);
+                })
+                .doOnError(error ->
+                    log.error("Error calling ML service batch endpoint for {} logs: {}",
+                            requests.size(), error.getMessage()))
+                .toFuture();
+    }
+
+    private Mono<List<MLPredictionResponse>> predictEach(List<MLPredictionRequest> requests) {
+        return Flux.fromIterable(requests)
+                .flatMap(request -> predictSingle(request).map(response -> {
+                    if (response.getLogId() == null) {
+                        response.setLogId(request.getLogId());
+                    }
+                    return response;
+                }))
+                .collectList();
+    }
+
+    /**
+     * Report the outcome and duration of one ML call (including its retries) to the circuit
+     * breaker. Client errors (4xx) mean the service is up and count as successes.
+     */
+    private <T> Mono<T> recordOutcome(Mono<T> call) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call.doOnSuccess(result -> circuitBreaker.onSuccess(System.nanoTime() - start))
+                    .doOnError(error -> {
+                        if (error instanceof WebClientResponseException responseError
+                                && responseError.getStatusCode().is4xxClientError()) {
+                            circuitBreaker.onSuccess(System.nanoTime() - start);
+                        } else {
+                            circuitBreaker.onError(System.nanoTime() - start);
+                        }
+                    });
+        });
+    }
+
+    private static boolean isBatchEndpointMissing(Throwable error) {
+        return error instanceof WebClientResponseException.NotFound
+                || error instanceof WebClientResponseException.MethodNotAllowed;
     }
 
     /**
@@ -0,0 +1,244 @@
+package com.ibm.aimonitoring.processor.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory counts of the logs this instance processed over the last
+ * {@code dashboard.live-metrics.window-seconds}, by service and level, for dashboard rates that
+ * need no Elasticsearch query.
+ * <p>
+ * Counts live in a ring of one-second buckets. A bucket holds a {@link LongAdder} per level for the
+ * totals and one per service × level, created on first use. A {@code LongAdder} spreads concurrent
+ * increments over padded cells, so consumers recording the same level or service do not contend
+ * on one cache line. Recording is lock-free: a thread that finds a bucket of an older second swaps
+ * in a fresh bucket with a CAS. Reading a window sums the buckets of its seconds, which takes
+ * microseconds.
+ * <p>
+ * Services beyond {@code dashboard.live-metrics.max-services} share one overflow slot, reported as
+ * {@value #OTHER}. The counts cover this instance only.
+ */
+@Slf4j
+@Component
+public class SlidingWindowCounters {
+
+    static final String OTHER = "OTHER";
+
+    private static final String[] LEVELS = {"TRACE", "DEBUG", "INFO", "WARN", "ERROR", "FATAL", OTHER};
+    private static final int LEVEL_COUNT = LEVELS.length;
+    private static final int LEVEL_OTHER = LEVEL_COUNT - 1;
+    private static final Map<String, Integer> LEVEL_INDEX = Map.of(
+            "TRACE", 0, "DEBUG", 1, "INFO", 2, "WARN", 3, "WARNING", 3, "ERROR", 4, "FATAL", 5, "CRITICAL", 5);
+    private final int windowSeconds;
+    private final int maxServices;
+    private final int serviceCells;
+    private final long startedAtSecond;
+
+    private final AtomicReferenceArray<Bucket> ring;
+    private final Map<String, Integer> serviceIds = new ConcurrentHashMap<>();
+    private final String[] serviceNames;
+
+    /**
+     * Counts of one second: totals by level, and [service slot × level] cells created on first use
+     */
+    private static final class Bucket {
+        final long second;
+        final LongAdder[] levels;
+        final AtomicReferenceArray<LongAdder> services;
+
+        Bucket(long second, int serviceCells) {
+            this.second = second;
+            this.levels = new LongAdder[LEVEL_COUNT];
+            for (int level = 0; level < LEVEL_COUNT; level++) {
+                levels[level] = new LongAdder();
+            }
+            this.services = new AtomicReferenceArray<>(serviceCells);
+        }
+
+        LongAdder service(int cell) {
+            LongAdder adder = services.get(cell);
+            if (adder == null) {
+                LongAdder fresh = new LongAdder();
+                adder = services.compareAndExchange(cell, null, fresh);
+                if (adder == null) {
+                    adder = fresh;
+                }
+            }
+            return adder;
+        }
+    }
+
+    /**
+     * Logs counted over a window
+     *
+     * @param seconds the length of the window the counts cover, shorter than requested while this
+     *                instance has not been running for the whole window
+     * @param levels counts by level, in severity order, including levels with no logs
+     * @param services counts by service, or empty when not requested
+     */
+    public record WindowCounts(long seconds, Map<String, Long> levels, Map<String, Long> services) {
+
+        public long total() {
+            return levels.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public long count(String level) {
+            return levels.getOrDefault(level, 0L);
+        }
+    }
+
+    public SlidingWindowCounters(
+            @Value("${dashboard.live-metrics.window-seconds:900}") int windowSeconds,
+            @Value("${dashboard.live-metrics.max-services:128}") int maxServices) {
+        this(windowSeconds, maxServices, nowSecond());
+    }
+
+    SlidingWindowCounters(int windowSeconds, int maxServices, long startedAtSecond) {
+        if (windowSeconds < 1 || maxServices < 1) {
+            throw new IllegalArgumentException("dashboard.live-metrics.window-seconds and max-services must be >= 1");
+        }
+        this.windowSeconds = windowSeconds;
+        this.maxServices = maxServices;
+        // Slot 0 is the shared overflow slot
+        this.serviceCells = (maxServices + 1) * LEVEL_COUNT;
+        this.startedAtSecond = startedAtSecond;
+        this.ring = new AtomicReferenceArray<>(windowSeconds);
+        this.serviceNames = new String[maxServices + 1];
+        this.serviceNames[0] = OTHER;
+    }
+
+    /**
+     * Longest window that can be read
+     */
+    public int getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    /**
+     * Count a processed log
+     */
+    public void record(String service, String level) {
+        record(service, level, nowSecond());
+    }
+
+    void record(String service, String level, long second) {
+        int levelIndex = levelIndex(level);
+        Bucket bucket = bucketFor(second);
+        bucket.service(slotOf(service) * LEVEL_COUNT + levelIndex).increment();
+        bucket.levels[levelIndex].increment();
+    }
+
+    /**
+     * Count the logs of the last {@code seconds}, capped at the configured window
+     *
+     * @param includeServices whether to break the counts down by service as well
+     */
+    public WindowCounts count(int seconds, boolean includeServices) {
+        return count(seconds, includeServices, nowSecond());
+    }
+
+    WindowCounts count(int seconds, boolean includeServices, long nowSecond) {
+        int window = Math.max(1, Math.min(seconds, windowSeconds));
+        long firstSecond = Math.max(nowSecond - window + 1, startedAtSecond);
+
+        long[] levelCounts = new long[LEVEL_COUNT];
+        long[] serviceCounts = includeServices ? new long[maxServices + 1] : null;
+
+        for (long second = firstSecond; second <= nowSecond; second++) {
+            Bucket bucket = ring.get(index(second));
+            if (bucket == null || bucket.second != second) {
+                continue;
+            }
+            for (int level = 0; level < LEVEL_COUNT; level++) {
+                levelCounts[level] += bucket.levels[level].sum();
+            }
+            if (serviceCounts != null) {
+                for (int cell = 0; cell < serviceCells; cell++) {
+                    LongAdder adder = bucket.services.get(cell);
+                    if (adder != null) {
+                        serviceCounts[cell / LEVEL_COUNT] += adder.sum();
+                    }
+                }
+            }
+        }
+
+        Map<String, Long> levels = new LinkedHashMap<>();
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            levels.put(LEVELS[level], levelCounts[level]);
+        }
+        Map<String, Long> services = new LinkedHashMap<>();
+        if (serviceCounts != null) {
+            for (int slot = 0; slot <= maxServices; slot++) {
+                if (serviceCounts[slot] > 0 && serviceNames[slot] != null) {
+                    services.put(serviceNames[slot], serviceCounts[slot]);
+                }
+            }
+        }
+        return new WindowCounts(Math.max(1, nowSecond - firstSecond + 1), levels, services);
+    }
+
+    private Bucket bucketFor(long second) {
+        int index = index(second);
+        while (true) {
+            Bucket bucket = ring.get(index);
+            if (bucket != null && bucket.second == second) {
+                return bucket;
+            }
+            if (bucket != null && bucket.second > second) {
+                // A late caller from a second that has already been recycled; count it in the newer bucket
+                return bucket;
+            }
+            Bucket fresh = new Bucket(second, serviceCells);
+            if (ring.compareAndSet(index, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private int index(long second) {
+        return (int) Math.floorMod(second, (long) windowSeconds);
+    }
+
+    private int slotOf(String service) {
+        String key = service != null ? service : "unknown";
+        Integer id = serviceIds.get(key);
+        if (id != null) {
+            return id;
+        }
+        if (serviceIds.size() >= maxServices) {
+            return 0;
+        }
+        synchronized (serviceIds) {
+            id = serviceIds.get(key);
+            if (id == null) {
+                if (serviceIds.size() >= maxServices) {
+                    log.warn("Live metrics track {} services, counting as {}: {}", maxServices, OTHER, key);
+                    return 0;
+                }
+                id = serviceIds.size() + 1;
+                serviceNames[id] = key;
+                serviceIds.put(key, id);
+            }
+            return id;
+        }
+    }
+
+    private static int levelIndex(String level) {
+        Integer index = level != null ? LEVEL_INDEX.get(level.toUpperCase(Locale.ROOT)) : null;
+        return index != null ? index : LEVEL_OTHER;
+    }
+
+    private static long nowSecond() {
+        return System.currentTimeMillis() / 1000;
+    }
+}
+
+// Made with Bob
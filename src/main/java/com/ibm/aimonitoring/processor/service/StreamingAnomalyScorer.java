@@ -0,0 +1,224 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.dto.MLPredictionResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process anomaly scorer based on per-service streaming statistics.
+ * <p>
+ * For every service it tracks exponentially weighted statistics (EWMA, weight
+ * {@code ml.embedded.alpha}) of five signals: message length, and the rates of error levels and of
+ * the exception, timeout and connection keyword flags. A log is scored by the largest upward
+ * z-score of its signals against the service's statistics <em>before</em> the log is folded in:
+ * <ul>
+ *     <li>message length ({@code log1p}) by its deviation from the mean, in standard deviations;</li>
+ *     <li>each flag by the deviation of its recent rate (EWMA weight {@code ml.embedded.short-alpha},
+ *     about {@code 2 / short-alpha} logs, including this one) from its long-run rate, in standard
+ *     deviations of that recent rate. A single flag in a service where it is rare is not an anomaly,
+ *     a burst of them is.</li>
+ * </ul>
+ * Logs above {@code ml.embedded.z-threshold} are anomalies once the service has seen
+ * {@code ml.embedded.warmup} logs; confidence grows with the number of logs seen.
+ * <p>
+ * Statistics live in flat primitive arrays indexed by a dense service id, so scoring allocates
+ * nothing but the response and takes microseconds. Services beyond {@code ml.embedded.max-services}
+ * share one overflow slot. Results use the {@link MLPredictionResponse} shape with model version
+ * {@value #MODEL_VERSION}.
+ */
+@Slf4j
+@Component
+public class StreamingAnomalyScorer {
+
+    public static final String MODEL_VERSION = "streaming-ewma-v1";
+
+    private static final int SIGNAL_ERROR = 0;
+    private static final int SIGNAL_LENGTH = 1;
+    private static final int SIGNAL_EXCEPTION = 2;
+    private static final int SIGNAL_TIMEOUT = 3;
+    private static final int SIGNAL_CONNECTION = 4;
+    private static final int SIGNALS = 5;
+
+    // Length variance floor (a standard deviation of 0.25 in log1p, about 30% longer): a service
+    // whose messages never varied does not flag every small change in length
+    private static final double MIN_LENGTH_VARIANCE = 0.0625;
+
+    private final int maxServices;
+    private final double alpha;
+    private final double shortAlpha;
+    private final double zThreshold;
+    private final long warmup;
+    // Variance of the recent rate of a flag with long-run rate p is p * (1 - p) * recentVariance
+    private final double recentVariance;
+    // Long-run rates are taken as at least one flag per recent window, and at most all but one,
+    // so rare or constant flags do not shrink that variance towards zero
+    private final double minRate;
+
+    private final Map<String, Integer> serviceIds = new ConcurrentHashMap<>();
+    // Length mean and flag long-run rates
+    private final double[] means;
+    private final double[] variances;
+    // Flag recent rates
+    private final double[] recentRates;
+    private final long[] counts;
+    private final Object[] locks;
+
+    public StreamingAnomalyScorer(
+            @Value("${ml.embedded.max-services:1024}") int maxServices,
+            @Value("${ml.embedded.alpha:0.01}") double alpha,
+            @Value("${ml.embedded.short-alpha:0.1}") double shortAlpha,
+            @Value("${ml.embedded.z-threshold:4.0}") double zThreshold,
+            @Value("${ml.embedded.warmup:50}") long warmup) {
+        if (maxServices < 1 || alpha <= 0 || alpha >= 1 || shortAlpha <= alpha || shortAlpha >= 1) {
+            throw new IllegalArgumentException(
+                    "ml.embedded.max-services must be >= 1, alpha in (0, 1) and short-alpha in (alpha, 1)");
+        }
+        this.maxServices = maxServices;
+        this.alpha = alpha;
+        this.shortAlpha = shortAlpha;
+        this.zThreshold = zThreshold;
+        this.warmup = warmup;
+        this.recentVariance = shortAlpha / (2 - shortAlpha);
+        this.minRate = recentVariance;
+        // Slot 0 is the shared overflow slot
+        this.means = new double[(maxServices + 1) * SIGNALS];
+        this.variances = new double[(maxServices + 1) * SIGNALS];
+        this.recentRates = new double[(maxServices + 1) * SIGNALS];
+        this.counts = new long[maxServices + 1];
+        this.locks = new Object[maxServices + 1];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Score a log and fold it into its service's statistics
+     *
+     * @param logId the document ID of the log
+     * @param features the features of the log, from {@link LogFeatureExtractor}
+     * @return the prediction, in the same shape as the ML service's
+     */
+    public MLPredictionResponse score(String logId, LogFeatures features) {
+        double error = isErrorLevel(features.level()) ? 1.0 : 0.0;
+        double length = Math.log1p(features.messageLength());
+        double exception = features.hasException() ? 1.0 : 0.0;
+        double timeout = features.hasTimeout() ? 1.0 : 0.0;
+        double connection = features.hasConnection() ? 1.0 : 0.0;
+
+        int slot = slotOf(features.service());
+        int base = slot * SIGNALS;
+        double maxZ;
+        long seen;
+
+        synchronized (locks[slot]) {
+            seen = counts[slot];
+            maxZ = Math.max(
+                    Math.max(rateZScore(base + SIGNAL_ERROR, error), zScore(base + SIGNAL_LENGTH, length)),
+                    Math.max(rateZScore(base + SIGNAL_EXCEPTION, exception),
+                            Math.max(rateZScore(base + SIGNAL_TIMEOUT, timeout),
+                                    rateZScore(base + SIGNAL_CONNECTION, connection))));
+
+            if (seen == 0) {
+                means[base + SIGNAL_LENGTH] = length;
+                initRate(base + SIGNAL_ERROR, error);
+                initRate(base + SIGNAL_EXCEPTION, exception);
+                initRate(base + SIGNAL_TIMEOUT, timeout);
+                initRate(base + SIGNAL_CONNECTION, connection);
+            } else {
+                update(base + SIGNAL_LENGTH, length);
+                updateRate(base + SIGNAL_ERROR, error);
+                updateRate(base + SIGNAL_EXCEPTION, exception);
+                updateRate(base + SIGNAL_TIMEOUT, timeout);
+                updateRate(base + SIGNAL_CONNECTION, connection);
+            }
+            counts[slot] = seen + 1;
+        }
+
+        // Score in [0, 1), 0.5 at the threshold. During warm-up the score is reported (with low
+        // confidence) but never flagged, as the statistics are not yet meaningful.
+        return MLPredictionResponse.builder()
+                .logId(logId)
+                .isAnomaly(seen >= warmup && maxZ >= zThreshold)
+                .anomalyScore(maxZ / (maxZ + zThreshold))
+                .confidence((double) seen / (seen + warmup))
+                .timestamp(Instant.now().toString())
+                .modelVersion(MODEL_VERSION)
+                .build();
+    }
+
+    /**
+     * Number of services with their own statistics
+     */
+    public int getTrackedServices() {
+        return serviceIds.size();
+    }
+
+    private double zScore(int index, double value) {
+        double deviation = value - means[index];
+        // Only deviations upwards (longer messages) are anomalous
+        return deviation <= 0 ? 0.0 : deviation / Math.sqrt(Math.max(variances[index], MIN_LENGTH_VARIANCE));
+    }
+
+    private double rateZScore(int index, double flag) {
+        double recent = recentRates[index] + shortAlpha * (flag - recentRates[index]);
+        double deviation = recent - means[index];
+        // Only deviations upwards (more errors, more keywords) are anomalous
+        if (deviation <= 0) {
+            return 0.0;
+        }
+        double rate = Math.min(Math.max(means[index], minRate), 1 - minRate);
+        return deviation / Math.sqrt(rate * (1 - rate) * recentVariance);
+    }
+
+    private void update(int index, double value) {
+        // Incremental EWMA mean/variance (Finch, "Incremental calculation of weighted mean and variance")
+        double delta = value - means[index];
+        double increment = alpha * delta;
+        means[index] += increment;
+        variances[index] = (1 - alpha) * (variances[index] + delta * increment);
+    }
+
+    private void initRate(int index, double flag) {
+        means[index] = flag;
+        recentRates[index] = flag;
+    }
+
+    private void updateRate(int index, double flag) {
+        means[index] += alpha * (flag - means[index]);
+        recentRates[index] += shortAlpha * (flag - recentRates[index]);
+    }
+
+    private int slotOf(String service) {
+        String key = service != null ? service : "unknown";
+        Integer id = serviceIds.get(key);
+        if (id != null) {
+            return id;
+        }
+        if (serviceIds.size() >= maxServices) {
+            return 0;
+        }
+        synchronized (serviceIds) {
+            id = serviceIds.get(key);
+            if (id == null) {
+                if (serviceIds.size() >= maxServices) {
+                    log.warn("Embedded scorer tracks {} services, sharing statistics for: {}", maxServices, key);
+                    return 0;
+                }
+                id = serviceIds.size() + 1;
+                serviceIds.put(key, id);
+            }
+            return id;
+        }
+    }
+
+    private static boolean isErrorLevel(String level) {
+        return "ERROR".equalsIgnoreCase(level) || "FATAL".equalsIgnoreCase(level);
+    }
+}
+
+// Made with Bob
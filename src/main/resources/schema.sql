@@ -1,2 +1,31 @@
 -- Create schema for log-processor (anomaly_detections table)
 CREATE SCHEMA IF NOT EXISTS log_service;
+
+-- Anomaly detection results, range-partitioned by day or week on detected_at.
+-- Partitions are created and dropped by AnomalyPartitionManager. There is no default partition,
+-- so expired partitions can be detached concurrently.
+-- A table created earlier without partitioning is renamed by AnomalyPartitionManager at startup,
+-- which then runs this script again to create the partitioned table. Statements must stay
+-- repeatable.
+CREATE TABLE IF NOT EXISTS log_service.anomaly_detections (
+    id BIGSERIAL,
+    model_id BIGINT,
+    log_id VARCHAR(255) NOT NULL,
+    anomaly_score DOUBLE PRECISION NOT NULL,
+    is_anomaly BOOLEAN NOT NULL,
+    features JSONB,
+    detected_at TIMESTAMPTZ NOT NULL,
+    model_version VARCHAR(255),
+    confidence DOUBLE PRECISION,
+    PRIMARY KEY (id, detected_at)
+) PARTITION BY RANGE (detected_at);
+
+-- Dashboard queries only read anomalies, newest first; (detected_at, id) is the keyset
+CREATE INDEX IF NOT EXISTS idx_anomaly_detections_anomalies_detected_at
+    ON log_service.anomaly_detections (detected_at DESC, id DESC) WHERE is_anomaly = true;
+
+CREATE INDEX IF NOT EXISTS idx_anomaly_detections_anomalies_confidence
+    ON log_service.anomaly_detections (confidence DESC, detected_at DESC) WHERE is_anomaly = true;
+
+CREATE INDEX IF NOT EXISTS idx_anomaly_detections_log_id
+    ON log_service.anomaly_detections (log_id);
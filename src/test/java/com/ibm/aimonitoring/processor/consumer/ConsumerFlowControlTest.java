@@ -0,0 +1,115 @@
+package com.ibm.aimonitoring.processor.consumer;
+
+import com.ibm.aimonitoring.processor.service.AnomalyExecutor;
+import com.ibm.aimonitoring.processor.service.BulkFlowController;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConsumerFlowControlTest {
+
+    @Mock
+    private RabbitListenerEndpointRegistry listenerRegistry;
+
+    @Mock
+    private BulkFlowController flowController;
+
+    @Mock
+    private AnomalyExecutor anomalyExecutor;
+
+    @Mock
+    private MessageListenerContainer batchContainer;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ConsumerFlowControl flowControl;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        flowControl = new ConsumerFlowControl(listenerRegistry, flowController, anomalyExecutor, meterRegistry);
+        ReflectionTestUtils.setField(flowControl, "bulkEnabled", true);
+        ReflectionTestUtils.setField(flowControl, "pauseListeners", true);
+        ReflectionTestUtils.setField(flowControl, "throttleOnAnomalyBacklog", false);
+        ReflectionTestUtils.setField(flowControl, "pipelineMode", "async");
+        ReflectionTestUtils.setField(flowControl, "resumeDelayMs", 0L);
+        flowControl.init();
+    }
+
+    @Test
+    void testCheck_SaturatedPausesRunningListeners() {
+        // Given - only the batch listener is running
+        when(flowController.isSaturated()).thenReturn(true);
+        when(listenerRegistry.getListenerContainer(LogConsumer.SINGLE_LISTENER_ID)).thenReturn(null);
+        when(listenerRegistry.getListenerContainer(LogConsumer.BATCH_LISTENER_ID)).thenReturn(batchContainer);
+        when(batchContainer.isRunning()).thenReturn(true);
+
+        // When
+        flowControl.check();
+
+        // Then
+        verify(batchContainer).stop(any(Runnable.class));
+        assertTrue(flowControl.isPaused());
+        assertEquals(1.0, meterRegistry.get("rabbitmq.listener.paused").gauge().value());
+    }
+
+    @Test
+    void testCheck_ResumesAfterSaturationClears() {
+        // Given
+        when(flowController.isSaturated()).thenReturn(true, false, false);
+        when(listenerRegistry.getListenerContainer(LogConsumer.SINGLE_LISTENER_ID)).thenReturn(null);
+        when(listenerRegistry.getListenerContainer(LogConsumer.BATCH_LISTENER_ID)).thenReturn(batchContainer);
+        when(batchContainer.isRunning()).thenReturn(true);
+        flowControl.check();
+
+        // When - the first unsaturated check starts the resume delay, the next one resumes
+        flowControl.check();
+        verify(batchContainer, never()).start();
+        flowControl.check();
+
+        // Then
+        verify(batchContainer).start();
+        assertFalse(flowControl.isPaused());
+    }
+
+    @Test
+    void testCheck_DisabledWithoutBulkIndexing() {
+        // Given
+        ReflectionTestUtils.setField(flowControl, "bulkEnabled", false);
+
+        // When
+        flowControl.check();
+
+        // Then
+        verifyNoInteractions(flowController, listenerRegistry);
+    }
+
+    @Test
+    void testCheck_AnomalyBacklogPausesListeners() {
+        // Given - bulk indexing is off, anomaly detection is falling behind
+        ReflectionTestUtils.setField(flowControl, "bulkEnabled", false);
+        ReflectionTestUtils.setField(flowControl, "throttleOnAnomalyBacklog", true);
+        when(anomalyExecutor.isBacklogged()).thenReturn(true);
+        when(listenerRegistry.getListenerContainer(LogConsumer.SINGLE_LISTENER_ID)).thenReturn(batchContainer);
+        when(listenerRegistry.getListenerContainer(LogConsumer.BATCH_LISTENER_ID)).thenReturn(null);
+        when(batchContainer.isRunning()).thenReturn(true);
+
+        // When
+        flowControl.check();
+
+        // Then
+        verify(batchContainer).stop(any(Runnable.class));
+        verify(flowController, never()).isSaturated();
+        assertTrue(flowControl.isPaused());
+    }
+}
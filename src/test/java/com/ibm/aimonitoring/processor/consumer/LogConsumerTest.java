@@ -10,11 +10,16 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.amqp.core.Message;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.support.MessageBuilder;
 
 import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -94,4 +99,83 @@ class LogConsumerTest {
         verify(logProcessorService).processLog(testLogEntry);
         verify(channel).basicNack(deliveryTag, false, false);
     }
+
+    @Test
+    void testConsumeLogBatch_AllSucceed_SingleMultipleAck() throws IOException {
+        // Given
+        when(logProcessorService.processLogBatch(anyList())).thenReturn(new BitSet());
+
+        // When
+        logConsumer.consumeLogBatch(List.of(batchMessage(10L), batchMessage(11L), batchMessage(12L)), channel);
+
+        // Then
+        verify(logProcessorService).processLogBatch(List.of(testLogEntry, testLogEntry, testLogEntry));
+        verify(channel).basicAck(12L, true);
+        verify(channel, times(1)).basicAck(anyLong(), anyBoolean());
+        verify(channel, never()).basicNack(anyLong(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    void testConsumeLogBatch_PartialFailure_NacksOnlyFailures() throws IOException {
+        // Given - the last message fails, so the multiple-ack must stop at the previous tag
+        BitSet failures = new BitSet();
+        failures.set(0);
+        failures.set(2);
+        when(logProcessorService.processLogBatch(anyList())).thenReturn(failures);
+
+        // When
+        logConsumer.consumeLogBatch(List.of(batchMessage(10L), batchMessage(11L), batchMessage(12L)), channel);
+
+        // Then
+        verify(channel).basicNack(10L, false, false);
+        verify(channel).basicNack(12L, false, false);
+        verify(channel).basicAck(11L, true);
+        verify(channel, times(1)).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void testConsumeLogBatch_AllFail_NoAck() throws IOException {
+        // Given
+        BitSet failures = new BitSet();
+        failures.set(0, 2);
+        when(logProcessorService.processLogBatch(anyList())).thenReturn(failures);
+
+        // When
+        logConsumer.consumeLogBatch(List.of(batchMessage(10L), batchMessage(11L)), channel);
+
+        // Then
+        verify(channel).basicNack(10L, false, false);
+        verify(channel).basicNack(11L, false, false);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void testConsumeLogBatch_ProcessorThrows_NacksWholeBatch() throws IOException {
+        // Given
+        when(logProcessorService.processLogBatch(anyList())).thenThrow(new RuntimeException("boom"));
+
+        // When
+        assertDoesNotThrow(() ->
+                logConsumer.consumeLogBatch(List.of(batchMessage(10L), batchMessage(11L)), channel));
+
+        // Then
+        verify(channel).basicNack(10L, false, false);
+        verify(channel).basicNack(11L, false, false);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void testConsumeLogBatch_Empty() {
+        // When
+        logConsumer.consumeLogBatch(List.of(), channel);
+
+        // Then
+        verifyNoInteractions(logProcessorService, channel);
+    }
+
+    private org.springframework.messaging.Message<LogEntryDTO> batchMessage(long tag) {
+        return MessageBuilder.withPayload(testLogEntry)
+                .setHeader(AmqpHeaders.DELIVERY_TAG, tag)
+                .build();
+    }
 }
@@ -1,9 +1,13 @@
 package com.ibm.aimonitoring.processor.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.ibm.aimonitoring.processor.dto.*;
-import com.ibm.aimonitoring.processor.model.AnomalyDetection;
-import com.ibm.aimonitoring.processor.repository.AnomalyDetectionRepository;
+import com.ibm.aimonitoring.processor.service.AnomalyQueryService;
+import com.ibm.aimonitoring.processor.service.DashboardCache;
 import com.ibm.aimonitoring.processor.service.ElasticsearchService;
+import com.ibm.aimonitoring.processor.service.SlidingWindowCounters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,14 +15,24 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,14 +42,20 @@ class DashboardControllerTest {
     private ElasticsearchService elasticsearchService;
 
     @Mock
-    private AnomalyDetectionRepository anomalyDetectionRepository;
+    private AnomalyQueryService anomalyQueryService;
+
+    private SlidingWindowCounters slidingWindowCounters;
 
     @InjectMocks
     private DashboardController dashboardController;
 
     @BeforeEach
     void setUp() {
-        dashboardController = new DashboardController(elasticsearchService, anomalyDetectionRepository);
+        slidingWindowCounters = new SlidingWindowCounters(300, 8);
+        // Not initialized: passes every call through to Elasticsearch
+        DashboardCache dashboardCache = new DashboardCache(elasticsearchService, new SimpleMeterRegistry());
+        dashboardController = new DashboardController(elasticsearchService, dashboardCache, anomalyQueryService,
+                slidingWindowCounters, new ObjectMapper().registerModule(new JavaTimeModule()));
     }
 
     @Test
@@ -80,6 +100,67 @@ class DashboardControllerTest {
         assertEquals(0.0, response.getBody().getErrorRate());
     }
 
+    @Test
+    void testGetSummary_Success() {
+        // Given
+        DashboardSummaryDTO summary = DashboardSummaryDTO.builder()
+                .metrics(DashboardMetricsDTO.builder().totalLogs(10).build())
+                .logVolume(List.of())
+                .levelDistribution(List.of())
+                .topServices(List.of())
+                .build();
+        when(elasticsearchService.getDashboardSummary(any(Instant.class), any(Instant.class), eq(5))).thenReturn(summary);
+
+        // When
+        ResponseEntity<DashboardSummaryDTO> response = dashboardController.getSummary(6, 5);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(summary, response.getBody());
+        verify(elasticsearchService).getDashboardSummary(
+                argThat(start -> start.isBefore(Instant.now().minusSeconds(6 * 3600 - 60))), any(Instant.class), eq(5));
+    }
+
+    @Test
+    void testGetSummary_ServiceUnavailable() {
+        // Given
+        when(elasticsearchService.getDashboardSummary(any(Instant.class), any(Instant.class), anyInt()))
+                .thenThrow(new RuntimeException("Elasticsearch error"));
+
+        // When
+        ResponseEntity<DashboardSummaryDTO> response = dashboardController.getSummary(24, 10);
+
+        // Then
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, response.getStatusCode());
+    }
+
+    @Test
+    void testGetLiveMetrics_RatesFromInMemoryCounters() {
+        // Given
+        for (int i = 0; i < 8; i++) {
+            slidingWindowCounters.record("checkout", "INFO");
+        }
+        slidingWindowCounters.record("checkout", "ERROR");
+        slidingWindowCounters.record("auth", "WARN");
+
+        // When
+        ResponseEntity<LiveMetricsDTO> response = dashboardController.getLiveMetrics(5, 1);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        LiveMetricsDTO metrics = response.getBody();
+        assertNotNull(metrics);
+        assertEquals(10, metrics.getTotalLogs());
+        assertEquals(1, metrics.getErrorCount());
+        assertEquals(1, metrics.getWarningCount());
+        assertEquals(10.0, metrics.getErrorRate());
+        assertEquals(10 * 60.0 / metrics.getWindowSeconds(), metrics.getLogsPerMinute());
+        assertEquals(1, metrics.getTopServices().size());
+        assertEquals("checkout", metrics.getTopServices().get(0).getService());
+        assertEquals(9, metrics.getTopServices().get(0).getCount());
+        verifyNoInteractions(elasticsearchService);
+    }
+
     @Test
     void testGetLogVolume_Success() {
         // Given
@@ -198,8 +279,8 @@ class DashboardControllerTest {
     void testGetAnomalies_Success() {
         // Given
         int hours = 24;
-        List<AnomalyDetection> expectedAnomalies = List.of(
-                AnomalyDetection.builder()
+        List<AnomalyDetectionDTO> expectedAnomalies = List.of(
+                AnomalyDetectionDTO.builder()
                         .logId("log-123")
                         .isAnomaly(true)
                         .anomalyScore(0.85)
@@ -207,27 +288,78 @@ class DashboardControllerTest {
                         .build()
         );
 
-        when(anomalyDetectionRepository.findByDetectedAtAfterOrderByDetectedAtDesc(any(Instant.class)))
-                .thenReturn(expectedAnomalies);
+        when(anomalyQueryService.findAnomalies(any(Instant.class), any(Instant.class), isNull(), eq(500), eq(false)))
+                .thenReturn(new AnomalyQueryService.Page(expectedAnomalies, null));
 
         // When
-        ResponseEntity<List<AnomalyDetection>> response = dashboardController.getAnomalies(hours);
+        ResponseEntity<List<AnomalyDetectionDTO>> response = dashboardController.getAnomalies(hours, 500, null, false);
 
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertNotNull(response.getBody());
         assertEquals(1, response.getBody().size());
-        verify(anomalyDetectionRepository).findByDetectedAtAfterOrderByDetectedAtDesc(any(Instant.class));
+        assertFalse(response.getHeaders().containsKey("X-Next-Cursor"));
+    }
+
+    @Test
+    void testGetAnomalies_NextCursorHeaderAndLimitCap() {
+        // Given
+        when(anomalyQueryService.findAnomalies(any(Instant.class), any(Instant.class), eq("cursor-1"), eq(5000), eq(true)))
+                .thenReturn(new AnomalyQueryService.Page(List.of(), "cursor-2"));
+
+        // When
+        ResponseEntity<List<AnomalyDetectionDTO>> response = dashboardController.getAnomalies(720, 1_000_000, "cursor-1", true);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("cursor-2", response.getHeaders().getFirst("X-Next-Cursor"));
+    }
+
+    @Test
+    void testGetAnomalies_InvalidCursor() {
+        // Given
+        when(anomalyQueryService.findAnomalies(any(Instant.class), any(Instant.class), eq("garbage"), anyInt(), anyBoolean()))
+                .thenThrow(new IllegalArgumentException("Invalid cursor: garbage"));
+
+        // When
+        ResponseEntity<List<AnomalyDetectionDTO>> response = dashboardController.getAnomalies(24, 500, "garbage", false);
+
+        // Then
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testStreamAnomalies_WritesNdjson() throws IOException {
+        // Given
+        doAnswer(invocation -> {
+            Consumer<AnomalyDetectionDTO> consumer = invocation.getArgument(3);
+            consumer.accept(AnomalyDetectionDTO.builder().id(2L).logId("log-2").isAnomaly(true).build());
+            consumer.accept(AnomalyDetectionDTO.builder().id(1L).logId("log-1").isAnomaly(true).build());
+            return null;
+        }).when(anomalyQueryService).streamAnomalies(any(Instant.class), any(Instant.class), eq(false), any(Consumer.class));
+
+        // When
+        ResponseEntity<StreamingResponseBody> response = dashboardController.streamAnomalies(720, false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        // Then
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("{\"id\":2,\"logId\":\"log-2\",\"isAnomaly\":true}", lines[0]);
+        assertFalse(lines[1].contains("features"));
     }
 
     @Test
     void testGetAnomalies_InternalServerError() {
         // Given
-        when(anomalyDetectionRepository.findByDetectedAtAfterOrderByDetectedAtDesc(any(Instant.class)))
+        when(anomalyQueryService.findAnomalies(any(Instant.class), any(Instant.class), isNull(), anyInt(), anyBoolean()))
                 .thenThrow(new RuntimeException("Database error"));
 
         // When
-        ResponseEntity<List<AnomalyDetection>> response = dashboardController.getAnomalies(24);
+        ResponseEntity<List<AnomalyDetectionDTO>> response = dashboardController.getAnomalies(24, 500, null, false);
 
         // Then
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, response.getStatusCode());
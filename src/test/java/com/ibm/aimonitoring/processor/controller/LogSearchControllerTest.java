@@ -1,6 +1,7 @@
 package com.ibm.aimonitoring.processor.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
 import com.ibm.aimonitoring.processor.dto.LogSearchRequest;
 import com.ibm.aimonitoring.processor.dto.LogSearchResponse;
@@ -11,13 +12,30 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,7 +48,7 @@ class LogSearchControllerTest {
 
     @BeforeEach
     void setUp() {
-        logSearchController = new LogSearchController(elasticsearchService, new ObjectMapper());
+        logSearchController = new LogSearchController(elasticsearchService, new ObjectMapper().registerModule(new JavaTimeModule()));
     }
 
     @Test
@@ -46,7 +64,7 @@ class LogSearchControllerTest {
                 .thenReturn(expectedResponse);
 
         ResponseEntity<LogSearchResponse> response = logSearchController.searchLogs(
-                0, 50, "timestamp", "desc", null, null, null, null, null, null, null, null
+                0, 50, "timestamp", "desc", null, null, null, null, null, null, null, null, "offset", null
         );
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -74,7 +92,7 @@ class LogSearchControllerTest {
                 .thenReturn(expectedResponse);
 
         ResponseEntity<LogSearchResponse> response = logSearchController.searchLogs(
-                1, 20, "timestamp", "asc", level, service, query, null, startTime, null, endTime, null
+                1, 20, "timestamp", "asc", level, service, query, null, startTime, null, endTime, null, "offset", null
         );
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
@@ -99,7 +117,7 @@ class LogSearchControllerTest {
                 .thenReturn(LogSearchResponse.builder().logs(List.of()).total(0L).page(0).size(50).build());
 
         logSearchController.searchLogs(
-                0, 50, "timestamp", "desc", null, null, null, "hello", null, null, null, null
+                0, 50, "timestamp", "desc", null, null, null, "hello", null, null, null, null, "offset", null
         );
 
         ArgumentCaptor<LogSearchRequest> captor = ArgumentCaptor.forClass(LogSearchRequest.class);
@@ -122,7 +140,7 @@ class LogSearchControllerTest {
                 .thenReturn(expectedResponse);
 
         logSearchController.searchLogs(
-                0, 50, "timestamp", "desc", levels, null, null, null, null, null, null, null
+                0, 50, "timestamp", "desc", levels, null, null, null, null, null, null, null, "offset", null
         );
 
         ArgumentCaptor<LogSearchRequest> captor = ArgumentCaptor.forClass(LogSearchRequest.class);
@@ -151,7 +169,7 @@ class LogSearchControllerTest {
                 .thenReturn(expectedResponse);
 
         logSearchController.searchLogs(
-                0, 50, "timestamp", "desc", null, services, null, null, null, null, null, null
+                0, 50, "timestamp", "desc", null, services, null, null, null, null, null, null, "offset", null
         );
 
         ArgumentCaptor<LogSearchRequest> captor = ArgumentCaptor.forClass(LogSearchRequest.class);
@@ -161,4 +179,161 @@ class LogSearchControllerTest {
         assertNotNull(request.getServices());
         assertEquals(3, request.getServices().size());
     }
+
+    @Test
+    void testSearchLogs_CursorPagination() {
+        when(elasticsearchService.searchLogs(any(LogSearchRequest.class)))
+                .thenReturn(LogSearchResponse.builder().logs(List.of()).nextCursor("next").build());
+
+        ResponseEntity<LogSearchResponse> response = logSearchController.searchLogs(
+                0, 50, "timestamp", "desc", null, null, null, null, null, null, null, null, "offset", "abc"
+        );
+
+        ArgumentCaptor<LogSearchRequest> captor = ArgumentCaptor.forClass(LogSearchRequest.class);
+        verify(elasticsearchService).searchLogs(captor.capture());
+
+        assertTrue(captor.getValue().isCursorPagination());
+        assertEquals("abc", captor.getValue().getCursor());
+        assertEquals("next", response.getBody().getNextCursor());
+    }
+
+    @Test
+    void testSearchLogs_InvalidCursor() {
+        when(elasticsearchService.searchLogs(any(LogSearchRequest.class)))
+                .thenThrow(new IllegalArgumentException("Invalid cursor: abc"));
+
+        ResponseEntity<LogSearchResponse> response = logSearchController.searchLogs(
+                0, 50, "timestamp", "desc", null, null, null, null, null, null, null, null, "cursor", "abc"
+        );
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void testSearchLogsRaw_StreamsPage() throws IOException {
+        ElasticsearchService.RawLogPage page = mock(ElasticsearchService.RawLogPage.class);
+        doAnswer(inv -> {
+            inv.getArgument(0, java.io.OutputStream.class).write("{\"logs\":[]}".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(page).writeTo(any());
+        when(elasticsearchService.searchLogsRaw(any(LogSearchRequest.class), eq(List.of("message", "level"))))
+                .thenReturn(page);
+
+        ResponseEntity<StreamingResponseBody> response = logSearchController.searchLogsRaw(
+                0, 50, "timestamp", "desc", "ERROR", null, null, null, null, null, null, null, "offset", null,
+                List.of("message", "level"));
+
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        assertEquals("{\"logs\":[]}", write(response.getBody()).toString(StandardCharsets.UTF_8));
+        ArgumentCaptor<LogSearchRequest> captor = ArgumentCaptor.forClass(LogSearchRequest.class);
+        verify(elasticsearchService).searchLogsRaw(captor.capture(), any());
+        assertEquals(List.of("ERROR"), captor.getValue().getLevels());
+    }
+
+    @Test
+    void testSearchLogsRaw_UnknownField() {
+        when(elasticsearchService.searchLogsRaw(any(LogSearchRequest.class), any()))
+                .thenThrow(new IllegalArgumentException("Unknown log field: password"));
+
+        ResponseEntity<StreamingResponseBody> response = logSearchController.searchLogsRaw(
+                0, 50, "timestamp", "desc", null, null, null, null, null, null, null, null, "offset", null,
+                List.of("password"));
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    void testExportCsv_StreamsEveryLog() throws IOException {
+        streamLogs(
+                LogEntryDTO.builder().timestamp(Instant.parse("2024-01-01T00:00:00Z")).level("ERROR")
+                        .service("api").message("failed, retrying").build(),
+                LogEntryDTO.builder().level("INFO").message("ok").build());
+
+        ResponseEntity<StreamingResponseBody> response = logSearchController.exportCsv(
+                "ERROR,INFO", null, null, null, null, null, null, null, false);
+        String body = write(response.getBody()).toString(StandardCharsets.UTF_8);
+
+        assertEquals("timestamp,level,service,message,host,environment,traceId,spanId\n"
+                + "2024-01-01T00:00:00Z,ERROR,api,\"failed, retrying\",,,,\n"
+                + ",INFO,,ok,,,,\n", body);
+        assertEquals("attachment; filename=\"logs.csv\"",
+                response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+
+        ArgumentCaptor<LogSearchRequest> captor = ArgumentCaptor.forClass(LogSearchRequest.class);
+        verify(elasticsearchService).streamLogs(captor.capture(), any(Consumer.class));
+        assertEquals(List.of("ERROR", "INFO"), captor.getValue().getLevels());
+    }
+
+    @Test
+    void testExportJson_StreamsArray() throws IOException {
+        streamLogs(LogEntryDTO.builder().message("a").build(), LogEntryDTO.builder().message("b").build());
+
+        ResponseEntity<StreamingResponseBody> response = logSearchController.exportJson(
+                null, null, null, null, null, null, null, null, false);
+        LogEntryDTO[] logs = new ObjectMapper().registerModule(new JavaTimeModule())
+                .readValue(write(response.getBody()).toByteArray(), LogEntryDTO[].class);
+
+        assertEquals(2, logs.length);
+        assertEquals("b", logs[1].getMessage());
+    }
+
+    @Test
+    void testExportNdjson_Gzip() throws IOException {
+        streamLogs(LogEntryDTO.builder().message("a").build(), LogEntryDTO.builder().message("b").build());
+
+        ResponseEntity<StreamingResponseBody> response = logSearchController.exportNdjson(
+                null, null, null, null, null, null, null, null, true);
+        byte[] compressed = write(response.getBody()).toByteArray();
+        String body;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        assertEquals(MediaType.parseMediaType("application/gzip"), response.getHeaders().getContentType());
+        assertEquals("attachment; filename=\"logs.ndjson.gz\"",
+                response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"message\":\"a\""));
+    }
+
+    @Test
+    void testExport_OverridesAsyncRequestTimeout() {
+        // Given - a request being handled by Spring MVC with the global async timeout set
+        MockHttpServletRequest servletRequest = new MockHttpServletRequest();
+        AsyncWebRequest asyncRequest = mock(AsyncWebRequest.class);
+        WebAsyncUtils.getAsyncManager(servletRequest).setAsyncWebRequest(asyncRequest);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(servletRequest));
+        ReflectionTestUtils.setField(logSearchController, "exportTimeoutMs", 3_600_000L);
+
+        try {
+            // When
+            logSearchController.exportNdjson(null, null, null, null, null, null, null, null, false);
+            ReflectionTestUtils.setField(logSearchController, "exportTimeoutMs", 0L);
+            logSearchController.exportCsv(null, null, null, null, null, null, null, null, false);
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+
+        // Then
+        verify(asyncRequest).setTimeout(3_600_000L);
+        verify(asyncRequest).setTimeout(-1L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamLogs(LogEntryDTO... logs) {
+        doAnswer(inv -> {
+            Consumer<LogEntryDTO> consumer = inv.getArgument(1);
+            for (LogEntryDTO entry : logs) {
+                consumer.accept(entry);
+            }
+            return null;
+        }).when(elasticsearchService).streamLogs(any(LogSearchRequest.class), any(Consumer.class));
+    }
+
+    private static ByteArrayOutputStream write(StreamingResponseBody body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        body.writeTo(out);
+        return out;
+    }
 }
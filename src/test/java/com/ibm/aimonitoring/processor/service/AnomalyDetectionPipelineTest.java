@@ -0,0 +1,138 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.dto.MLPredictionResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnomalyDetectionPipelineTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private AnomalyDetectionPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        pipeline = new AnomalyDetectionPipeline(meterRegistry);
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 16);
+        ReflectionTestUtils.setField(pipeline, "maxConcurrency", 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pipeline.close();
+    }
+
+    @Test
+    void testSubmit_DeliversPredictionToHandler() throws InterruptedException {
+        // Given
+        pipeline.start();
+        MLPredictionResponse prediction = MLPredictionResponse.builder().logId("log-1").isAnomaly(true).build();
+        CountDownLatch handled = new CountDownLatch(1);
+        List<MLPredictionResponse> received = new CopyOnWriteArrayList<>();
+
+        // When
+        boolean accepted = pipeline.submit("log-1", Mono.just(prediction), result -> {
+            received.add(result);
+            handled.countDown();
+        });
+
+        // Then
+        assertTrue(accepted);
+        assertTrue(handled.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(prediction), received);
+        assertEquals(1.0, meterRegistry.counter("ml.pipeline.submitted").count());
+    }
+
+    @Test
+    void testSubmit_NoPredictionSkipsHandler() {
+        // Given
+        pipeline.start();
+        List<MLPredictionResponse> received = new CopyOnWriteArrayList<>();
+
+        // When
+        pipeline.submit("log-1", Mono.empty(), received::add);
+        pipeline.close();
+
+        // Then
+        assertTrue(received.isEmpty());
+        assertEquals(0, pipeline.getInFlight());
+    }
+
+    @Test
+    void testSubmit_LimitsConcurrencyAndCountsOverflow() {
+        // Given - predictions do not complete until the end, so the pipeline fills up
+        ReflectionTestUtils.setField(pipeline, "queueCapacity", 3);
+        ReflectionTestUtils.setField(pipeline, "maxConcurrency", 1);
+        pipeline.start();
+        CompletableFuture<MLPredictionResponse> slowPrediction = new CompletableFuture<>();
+        AtomicInteger subscriptions = new AtomicInteger();
+        Mono<MLPredictionResponse> prediction = Mono.defer(() -> {
+            subscriptions.incrementAndGet();
+            return Mono.fromFuture(slowPrediction);
+        });
+
+        // When
+        int accepted = 0;
+        for (int i = 0; i < 10; i++) {
+            if (pipeline.submit("log-" + i, prediction, result -> { })) {
+                accepted++;
+            }
+        }
+
+        // Then - one in flight and exactly the configured capacity queued, not rounded up
+        assertEquals(1, pipeline.getInFlight());
+        assertEquals(4, accepted);
+        assertEquals(10 - accepted, meterRegistry.counter("ml.pipeline.overflow").count());
+        assertEquals(3, pipeline.getQueued());
+        assertEquals(1, subscriptions.get());
+        slowPrediction.complete(null);
+    }
+
+    @Test
+    void testSubmit_HandlerFailureDoesNotStopPipeline() throws InterruptedException {
+        // Given
+        pipeline.start();
+        Mono<MLPredictionResponse> prediction = Mono.just(MLPredictionResponse.builder().build());
+        CountDownLatch secondHandled = new CountDownLatch(1);
+
+        // When
+        pipeline.submit("log-1", prediction, result -> {
+            throw new IllegalStateException("database down");
+        });
+        pipeline.submit("log-2", prediction, result -> secondHandled.countDown());
+
+        // Then
+        assertTrue(secondHandled.await(5, TimeUnit.SECONDS));
+        pipeline.close();
+        assertEquals(1.0, meterRegistry.counter("ml.pipeline.failed").count());
+    }
+
+    @Test
+    void testSubmit_PredictionErrorIsContained() throws InterruptedException {
+        // Given
+        pipeline.start();
+        CountDownLatch handled = new CountDownLatch(1);
+
+        // When
+        pipeline.submit("log-1", Mono.error(new IllegalStateException("boom")), result -> { });
+        pipeline.submit("log-2", Mono.just(MLPredictionResponse.builder().build()), result -> handled.countDown());
+
+        // Then
+        assertTrue(handled.await(5, TimeUnit.SECONDS));
+        pipeline.close();
+        assertEquals(1.0, meterRegistry.counter("ml.pipeline.failed").count());
+    }
+}
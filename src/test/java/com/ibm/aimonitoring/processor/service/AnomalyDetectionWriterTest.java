@@ -0,0 +1,241 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.model.AnomalyDetection;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnomalyDetectionWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AnomalyDetectionWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        writer = new AnomalyDetectionWriter(jdbcTemplate, meterRegistry);
+        ReflectionTestUtils.setField(writer, "enabled", true);
+        ReflectionTestUtils.setField(writer, "batchSize", 3);
+        ReflectionTestUtils.setField(writer, "maxQueued", 10);
+        writer.init();
+    }
+
+    @Test
+    void testEnqueue_FlushesWhenBatchIsFull() {
+        // Given
+        List<Integer> batchSizes = recordBatchSizes();
+
+        // When
+        for (int i = 0; i < 7; i++) {
+            assertTrue(writer.enqueue(row("log-" + i)));
+        }
+
+        // Then
+        assertEquals(List.of(3, 3), batchSizes);
+        assertEquals(1, writer.getQueued());
+    }
+
+    @Test
+    void testFlush_WritesRemainingRowsInBatches() {
+        // Given
+        ReflectionTestUtils.setField(writer, "batchSize", 100);
+        List<Integer> batchSizes = recordBatchSizes();
+        for (int i = 0; i < 5; i++) {
+            writer.enqueue(row("log-" + i));
+        }
+        ReflectionTestUtils.setField(writer, "batchSize", 2);
+
+        // When
+        writer.flush();
+
+        // Then
+        assertEquals(List.of(2, 2, 1), batchSizes);
+        assertEquals(0, writer.getQueued());
+    }
+
+    @Test
+    void testFlush_EmptyQueueDoesNothing() {
+        // When
+        writer.flush();
+
+        // Then
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFlush_BindsAllColumns() throws SQLException {
+        // Given
+        Instant detectedAt = Instant.parse("2024-05-01T10:15:30Z");
+        AnomalyDetection anomalyDetection = AnomalyDetection.builder()
+                .logId("log-1")
+                .anomalyScore(0.9)
+                .isAnomaly(true)
+                .features("{\"level\":\"ERROR\"}")
+                .detectedAt(detectedAt)
+                .modelVersion("v1.0")
+                .confidence(0.8)
+                .build();
+        writer.enqueue(anomalyDetection);
+        ArgumentCaptor<ParameterizedPreparedStatementSetter<AnomalyDetection>> setter =
+                ArgumentCaptor.forClass(ParameterizedPreparedStatementSetter.class);
+
+        // When
+        writer.flush();
+
+        // Then
+        verify(jdbcTemplate).batchUpdate(eq(AnomalyDetectionWriter.INSERT_SQL), anyCollection(), eq(1), setter.capture());
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.getValue().setValues(ps, anomalyDetection);
+        verify(ps).setObject(1, null, Types.BIGINT);
+        verify(ps).setString(2, "log-1");
+        verify(ps).setObject(3, 0.9, Types.DOUBLE);
+        verify(ps).setObject(4, true, Types.BOOLEAN);
+        verify(ps).setString(5, "{\"level\":\"ERROR\"}");
+        verify(ps).setTimestamp(6, Timestamp.from(detectedAt));
+        verify(ps).setString(7, "v1.0");
+        verify(ps).setObject(8, 0.8, Types.DOUBLE);
+    }
+
+    @Test
+    void testFlush_FailedBatchDoesNotStopLaterBatches() {
+        // Given
+        ReflectionTestUtils.setField(writer, "batchSize", 100);
+        for (int i = 0; i < 4; i++) {
+            writer.enqueue(row("log-" + i));
+        }
+        ReflectionTestUtils.setField(writer, "batchSize", 2);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("database down"))
+                .thenReturn(new int[][]{{1, 1}});
+
+        // When
+        writer.flush();
+
+        // Then
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(0, writer.getQueued());
+    }
+
+    @Test
+    void testFlush_FailedBatchFallsBackToRowsAndSkipsOnlyBadRows() {
+        // Given
+        ReflectionTestUtils.setField(writer, "batchSize", 100);
+        for (int i = 0; i < 3; i++) {
+            writer.enqueue(row("log-" + i));
+        }
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataIntegrityViolationException("invalid input syntax for type json"));
+        when(jdbcTemplate.update(eq(AnomalyDetectionWriter.INSERT_SQL), any(PreparedStatementSetter.class)))
+                .thenReturn(1)
+                .thenThrow(new DataIntegrityViolationException("invalid input syntax for type json"))
+                .thenReturn(1);
+
+        // When
+        writer.flush();
+
+        // Then
+        verify(jdbcTemplate, times(3)).update(eq(AnomalyDetectionWriter.INSERT_SQL), any(PreparedStatementSetter.class));
+        assertEquals(1.0, meterRegistry.counter("anomaly-detection.writer.dropped").count());
+    }
+
+    @Test
+    void testFlush_DatabaseDownDropsRemainingRows() {
+        // Given
+        ReflectionTestUtils.setField(writer, "batchSize", 100);
+        for (int i = 0; i < 3; i++) {
+            writer.enqueue(row("log-" + i));
+        }
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("database down"));
+        when(jdbcTemplate.update(eq(AnomalyDetectionWriter.INSERT_SQL), any(PreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("database down"));
+
+        // When
+        writer.flush();
+
+        // Then - one attempt, not one timeout per row
+        verify(jdbcTemplate, times(1)).update(eq(AnomalyDetectionWriter.INSERT_SQL), any(PreparedStatementSetter.class));
+        assertEquals(3.0, meterRegistry.counter("anomaly-detection.writer.dropped").count());
+    }
+
+    @Test
+    void testEnqueue_RejectedWhenDisabledOrFull() {
+        // Given
+        ReflectionTestUtils.setField(writer, "batchSize", 100);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(writer.enqueue(row("log-" + i)));
+        }
+
+        // When / Then
+        assertFalse(writer.enqueue(row("log-overflow")));
+        ReflectionTestUtils.setField(writer, "enabled", false);
+        writer.flush();
+        assertFalse(writer.enqueue(row("log-disabled")));
+    }
+
+    @Test
+    void testClose_DrainsQueueAndRejectsNewRows() {
+        // Given
+        List<Integer> batchSizes = recordBatchSizes();
+        writer.enqueue(row("log-1"));
+        writer.enqueue(row("log-2"));
+
+        // When
+        writer.close();
+
+        // Then
+        assertEquals(List.of(2), batchSizes);
+        assertFalse(writer.enqueue(row("log-3")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Integer> recordBatchSizes() {
+        List<Integer> batchSizes = new ArrayList<>();
+        lenient().when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    batchSizes.add(invocation.<Collection<AnomalyDetection>>getArgument(1).size());
+                    return new int[0][];
+                });
+        return batchSizes;
+    }
+
+    private static AnomalyDetection row(String logId) {
+        return AnomalyDetection.builder()
+                .logId(logId)
+                .anomalyScore(0.5)
+                .isAnomaly(false)
+                .detectedAt(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,217 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.config.VirtualThreadMode;
+import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.ConnectException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnomalyExecutorTest {
+
+    @Mock
+    private ObjectProvider<RabbitTemplate> rabbitTemplateProvider;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AnomalyExecutor executor;
+    private CountDownLatch release;
+    private CountDownLatch workerBusy;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        executor = new AnomalyExecutor(meterRegistry, rabbitTemplateProvider, new VirtualThreadMode(false));
+        ReflectionTestUtils.setField(executor, "threads", 1);
+        ReflectionTestUtils.setField(executor, "queueCapacity", 2);
+        ReflectionTestUtils.setField(executor, "saturationPolicy", "block");
+        ReflectionTestUtils.setField(executor, "blockTimeoutMs", 50L);
+        ReflectionTestUtils.setField(executor, "throttleWatermark", 0.5);
+        ReflectionTestUtils.setField(executor, "spillQueue", "logs.anomaly.spill");
+        release = new CountDownLatch(1);
+        workerBusy = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.close();
+    }
+
+    @Test
+    void testQueuedTasks_RunByLevelThenArrival() throws Exception {
+        // Given - the only worker is busy
+        executor.start();
+        occupyWorker();
+        List<String> order = new CopyOnWriteArrayList<>();
+        ReflectionTestUtils.setField(executor, "queueCapacity", 10);
+
+        // When
+        executor.submit(log("INFO"), () -> order.add("info"));
+        executor.submit(log("WARN"), () -> order.add("warn"));
+        executor.submit(log("ERROR"), () -> order.add("error-1"));
+        executor.submit(log("ERROR"), () -> order.add("error-2"));
+        CountDownLatch done = new CountDownLatch(1);
+        executor.submit(log("DEBUG"), done::countDown);
+        release.countDown();
+
+        // Then
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("error-1", "error-2", "warn", "info"), order);
+    }
+
+    @Test
+    void testBlockPolicy_RejectsAfterTimeout() throws Exception {
+        // Given
+        executor.start();
+        occupyWorker();
+        fillQueue();
+
+        // When
+        boolean accepted = executor.submit(log("ERROR"), () -> { });
+
+        // Then
+        assertFalse(accepted);
+        assertEquals(1.0, meterRegistry.counter("ml.executor.rejected").count());
+        assertTrue(executor.isBacklogged());
+        assertEquals(2.0, meterRegistry.get("ml.executor.queued").gauge().value());
+    }
+
+    @Test
+    void testShedPolicy_EvictsLowestLevel() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(executor, "saturationPolicy", "shed");
+        executor.start();
+        occupyWorker();
+        fillQueue();
+
+        // When - an ERROR displaces an INFO, another INFO has nothing lower to displace
+        boolean error = executor.submit(log("ERROR"), () -> { });
+        boolean info = executor.submit(log("INFO"), () -> { });
+
+        // Then
+        assertTrue(error);
+        assertFalse(info);
+        assertEquals(2, executor.getQueued());
+        assertEquals(2.0, meterRegistry.counter("ml.executor.shed").count());
+    }
+
+    @Test
+    void testSpillPolicy_PublishesToSpillQueue() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(executor, "saturationPolicy", "spill");
+        when(rabbitTemplateProvider.getIfAvailable()).thenReturn(rabbitTemplate);
+        executor.start();
+        occupyWorker();
+        fillQueue();
+        LogEntryDTO entry = log("WARN");
+
+        // When
+        boolean accepted = executor.submit(entry, () -> { });
+
+        // Then
+        assertTrue(accepted);
+        verify(rabbitTemplate).convertAndSend("", "logs.anomaly.spill", entry);
+        assertEquals(1.0, meterRegistry.counter("ml.executor.spilled").count());
+    }
+
+    @Test
+    void testSpillPolicy_BrokerDownRejects() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(executor, "saturationPolicy", "spill");
+        when(rabbitTemplateProvider.getIfAvailable()).thenReturn(rabbitTemplate);
+        doThrow(new AmqpConnectException(new ConnectException("refused")))
+                .when(rabbitTemplate).convertAndSend(anyString(), eq("logs.anomaly.spill"), any(Object.class));
+        executor.start();
+        occupyWorker();
+        fillQueue();
+
+        // When
+        boolean accepted = executor.submit(log("WARN"), () -> { });
+
+        // Then
+        assertFalse(accepted);
+        assertEquals(1.0, meterRegistry.counter("ml.executor.rejected").count());
+    }
+
+    @Test
+    void testSubmitBlocking_WaitsForRoom() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(executor, "saturationPolicy", "shed");
+        ReflectionTestUtils.setField(executor, "blockTimeoutMs", 5_000L);
+        executor.start();
+        occupyWorker();
+        fillQueue();
+        CountDownLatch ran = new CountDownLatch(1);
+
+        // When - the worker frees a slot while the submitter waits
+        Thread submitter = new Thread(() -> executor.submitBlocking(log("INFO"), ran::countDown));
+        submitter.start();
+        release.countDown();
+
+        // Then
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        submitter.join(5_000);
+        assertEquals(0.0, meterRegistry.counter("ml.executor.shed").count());
+        assertEquals(0.0, meterRegistry.counter("ml.executor.rejected").count());
+    }
+
+    @Test
+    void testPriority() {
+        // When / Then
+        assertEquals(3, AnomalyExecutor.priority("fatal"));
+        assertEquals(3, AnomalyExecutor.priority("ERROR"));
+        assertEquals(2, AnomalyExecutor.priority("WARNING"));
+        assertEquals(1, AnomalyExecutor.priority("INFO"));
+        assertEquals(0, AnomalyExecutor.priority("DEBUG"));
+        assertEquals(0, AnomalyExecutor.priority(null));
+    }
+
+    private void occupyWorker() throws InterruptedException {
+        executor.submit(log("ERROR"), () -> {
+            workerBusy.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(workerBusy.await(5, TimeUnit.SECONDS));
+    }
+
+    private void fillQueue() {
+        assertTrue(executor.submit(log("INFO"), () -> { }));
+        assertTrue(executor.submit(log("WARN"), () -> { }));
+    }
+
+    private static LogEntryDTO log(String level) {
+        return LogEntryDTO.builder()
+                .id("log-" + level)
+                .level(level)
+                .message("message")
+                .service("api")
+                .build();
+    }
+}
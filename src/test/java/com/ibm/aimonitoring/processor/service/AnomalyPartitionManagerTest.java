@@ -0,0 +1,264 @@
+package com.ibm.aimonitoring.processor.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnomalyPartitionManagerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 5, 15); // a Wednesday
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AnomalyPartitionManager partitionManager;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        partitionManager = new AnomalyPartitionManager(jdbcTemplate, transactionManager, meterRegistry);
+        ReflectionTestUtils.setField(partitionManager, "enabled", true);
+        ReflectionTestUtils.setField(partitionManager, "interval", "daily");
+        ReflectionTestUtils.setField(partitionManager, "premake", 2);
+        ReflectionTestUtils.setField(partitionManager, "retentionDays", 30);
+    }
+
+    @Test
+    void testMaintain_CreatesDailyPartitionsAhead() {
+        // Given
+        partitioned(true);
+        existingPartitions();
+
+        // When
+        partitionManager.maintain(TODAY);
+
+        // Then
+        List<String> statements = executedStatements();
+        assertEquals(3, statements.size());
+        assertEquals("CREATE TABLE IF NOT EXISTS log_service.anomaly_detections_p20240515 "
+                + "PARTITION OF log_service.anomaly_detections "
+                + "FOR VALUES FROM ('2024-05-15 00:00:00+00') TO ('2024-05-16 00:00:00+00')", statements.get(0));
+        assertTrue(statements.get(2).contains("anomaly_detections_p20240517"));
+        assertTrue(statements.get(2).contains("TO ('2024-05-18 00:00:00+00')"));
+        verify(jdbcTemplate, never()).execute(contains("DEFAULT"));
+    }
+
+    @Test
+    void testMaintain_CreatesWeeklyPartitionsFromMonday() {
+        // Given
+        ReflectionTestUtils.setField(partitionManager, "interval", "weekly");
+        ReflectionTestUtils.setField(partitionManager, "premake", 1);
+        partitioned(true);
+        existingPartitions();
+
+        // When
+        partitionManager.maintain(TODAY);
+
+        // Then
+        List<String> statements = executedStatements();
+        assertTrue(statements.get(0).endsWith("anomaly_detections_p20240513 PARTITION OF log_service.anomaly_detections "
+                + "FOR VALUES FROM ('2024-05-13 00:00:00+00') TO ('2024-05-20 00:00:00+00')"));
+        assertTrue(statements.get(1).contains("anomaly_detections_p20240520"));
+    }
+
+    @Test
+    void testMaintain_DetachesExpiredPartitionsConcurrentlyThenDrops() {
+        // Given
+        partitioned(true);
+        existingPartitions(
+                "anomaly_detections_p20240414",   // ended 2024-04-15, the cutoff
+                "anomaly_detections_p20240415",
+                "anomaly_detections_p20240301",
+                "anomaly_detections_pmanual");
+
+        // When
+        partitionManager.maintain(TODAY);
+
+        // Then
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE log_service.anomaly_detections "
+                + "DETACH PARTITION log_service.anomaly_detections_p20240414 CONCURRENTLY");
+        inOrder.verify(jdbcTemplate).execute("DROP TABLE IF EXISTS log_service.anomaly_detections_p20240414");
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS log_service.anomaly_detections_p20240301");
+        verify(jdbcTemplate, times(2)).execute(contains("DETACH PARTITION"));
+        verify(jdbcTemplate, times(2)).execute(contains("DROP TABLE"));
+    }
+
+    @Test
+    void testMaintain_FinalizesInterruptedDetach() {
+        // Given
+        partitioned(true);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq("log_service"), eq("anomaly_detections")))
+                .thenReturn(List.of(new AnomalyPartitionManager.Partition("anomaly_detections_p20240514", true)));
+
+        // When
+        partitionManager.maintain(TODAY);
+
+        // Then
+        verify(jdbcTemplate).execute("ALTER TABLE log_service.anomaly_detections "
+                + "DETACH PARTITION log_service.anomaly_detections_p20240514 FINALIZE");
+        verify(jdbcTemplate).execute("DROP TABLE IF EXISTS log_service.anomaly_detections_p20240514");
+    }
+
+    @Test
+    void testMigrate_PartitionsExistingTableAndCopiesRowsWithinRetention() {
+        // Given - a table created before partitioning, holding rows of 2024-05-10
+        tableExists(true);
+        partitioned(false);
+        when(jdbcTemplate.queryForList(startsWith("SELECT indexname"), eq(String.class),
+                eq("log_service"), eq("anomaly_detections_unpartitioned")))
+                .thenReturn(List.of("idx_anomaly_detections_log_id"));
+        when(jdbcTemplate.queryForList(contains("SELECT DISTINCT"), eq(LocalDate.class), any(Object[].class)))
+                .thenReturn(List.of(LocalDate.of(2024, 5, 10)));
+
+        // When
+        partitionManager.migrateUnpartitionedTable(TODAY);
+
+        // Then
+        InOrder inOrder = inOrder(jdbcTemplate, transactionManager);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(jdbcTemplate).execute(startsWith("SELECT pg_advisory_xact_lock"));
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE log_service.anomaly_detections "
+                + "RENAME TO anomaly_detections_unpartitioned");
+        inOrder.verify(jdbcTemplate).execute("DROP INDEX log_service.idx_anomaly_detections_log_id");
+        inOrder.verify(jdbcTemplate).execute(any(ConnectionCallback.class));
+        inOrder.verify(jdbcTemplate).execute(contains("anomaly_detections_p20240510 PARTITION OF"));
+        inOrder.verify(jdbcTemplate).update(startsWith("INSERT INTO log_service.anomaly_detections (id, "),
+                any(Object[].class));
+        inOrder.verify(jdbcTemplate).execute(startsWith("SELECT setval(pg_get_serial_sequence"));
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void testMigrate_FailureRollsBackAndFailsStartup() {
+        // Given
+        tableExists(true);
+        partitioned(false);
+        lenient().doThrow(new UncategorizedSQLException("rename", "ALTER TABLE", new java.sql.SQLException("permission denied")))
+                .when(jdbcTemplate).execute(startsWith("ALTER TABLE"));
+
+        // When / Then
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+                () -> partitionManager.migrateUnpartitionedTable(TODAY));
+        assertTrue(error.getMessage().contains("anomaly-detection.partitions.enabled=false"));
+        verify(transactionManager).rollback(any());
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+    }
+
+    @Test
+    void testMigrate_SkipsPartitionedTable() {
+        // Given
+        tableExists(true);
+        partitioned(true);
+
+        // When
+        partitionManager.migrateUnpartitionedTable(TODAY);
+
+        // Then
+        verifyNoInteractions(transactionManager);
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+
+    @Test
+    void testMaintain_ContinuesWhenOnePartitionCannotBeCreated() {
+        // Given
+        partitioned(true);
+        existingPartitions();
+        lenient().doThrow(new DataIntegrityViolationException("permission denied for schema log_service"))
+                .when(jdbcTemplate).execute(contains("anomaly_detections_p20240515"));
+
+        // When
+        partitionManager.maintain(TODAY);
+
+        // Then
+        verify(jdbcTemplate).execute(contains("anomaly_detections_p20240517"));
+        assertEquals(1.0, meterRegistry.counter("anomaly-detection.partitions.create-failures").count());
+    }
+
+    @Test
+    void testMaintain_SkipsTableThatIsNotPartitioned() {
+        // Given
+        partitioned(false);
+
+        // When
+        partitionManager.maintain(TODAY);
+
+        // Then
+        verify(jdbcTemplate, never()).execute(anyString());
+        verify(jdbcTemplate, never()).query(anyString(), any(RowMapper.class), any(), any());
+    }
+
+    @Test
+    void testMaintain_DatabaseUnavailableIsContained() {
+        // Given
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), any(), any()))
+                .thenThrow(new CannotGetJdbcConnectionException("connection refused"));
+
+        // When / Then
+        assertDoesNotThrow(() -> partitionManager.maintain());
+    }
+
+    @Test
+    void testMaintain_DisabledDoesNothing() {
+        // Given
+        ReflectionTestUtils.setField(partitionManager, "enabled", false);
+
+        // When
+        partitionManager.maintain();
+
+        // Then
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private void tableExists(boolean exists) {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class), eq("log_service.anomaly_detections")))
+                .thenReturn(exists);
+    }
+
+    private void partitioned(boolean partitioned) {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Integer.class), eq("log_service"), eq("anomaly_detections")))
+                .thenReturn(partitioned ? 1 : 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void existingPartitions(String... names) {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq("log_service"), eq("anomaly_detections")))
+                .thenReturn(Arrays.stream(names).map(name -> new AnomalyPartitionManager.Partition(name, false)).toList());
+    }
+
+    private List<String> executedStatements() {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, atLeastOnce()).execute(captor.capture());
+        return captor.getAllValues();
+    }
+}
@@ -0,0 +1,154 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.dto.AnomalyDetectionDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnomalyQueryServiceTest {
+
+    private static final Instant START = Instant.parse("2024-05-01T00:00:00Z");
+    private static final Instant END = Instant.parse("2024-05-02T00:00:00Z");
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private AnomalyQueryService queryService;
+
+    @BeforeEach
+    void setUp() {
+        queryService = new AnomalyQueryService(jdbcTemplate);
+        ReflectionTestUtils.setField(queryService, "fetchSize", 250);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFindAnomalies_FirstPageStartsAtEndTime() {
+        // Given
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), any(), any()))
+                .thenReturn(rows(3));
+
+        // When
+        AnomalyQueryService.Page page = queryService.findAnomalies(START, END, null, 5, false);
+
+        // Then
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowMapper.class),
+                eq(Timestamp.from(START)), eq(Timestamp.from(END)), eq(Long.MAX_VALUE), eq(6));
+        assertTrue(sql.getValue().contains("(detected_at, id) < (?, ?)"));
+        assertTrue(sql.getValue().contains("ORDER BY detected_at DESC, id DESC LIMIT ?"));
+        assertFalse(sql.getValue().contains("features"));
+        assertEquals(3, page.items().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFindAnomalies_FullPageReturnsCursorOfLastItem() {
+        // Given
+        List<AnomalyDetectionDTO> rows = rows(6);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), any(), any())).thenReturn(rows);
+
+        // When
+        AnomalyQueryService.Page page = queryService.findAnomalies(START, END, null, 5, true);
+
+        // Then
+        assertEquals(5, page.items().size());
+        AnomalyQueryService.Keyset keyset = AnomalyQueryService.decodeCursor(page.nextCursor());
+        assertEquals(rows.get(4).getDetectedAt(), keyset.detectedAt());
+        assertEquals(rows.get(4).getId(), keyset.id());
+        verify(jdbcTemplate).query(contains(", features FROM"), any(RowMapper.class), any(), any(), any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testFindAnomalies_ContinuesAfterCursor() {
+        // Given
+        Instant lastSeen = Instant.parse("2024-05-01T12:34:56.123456Z");
+        String cursor = AnomalyQueryService.encodeCursor(lastSeen, 42L);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any(), any(), any())).thenReturn(List.of());
+
+        // When
+        queryService.findAnomalies(START, END, cursor, 10, false);
+
+        // Then
+        verify(jdbcTemplate).query(anyString(), any(RowMapper.class),
+                eq(Timestamp.from(START)), eq(Timestamp.from(lastSeen)), eq(42L), eq(11));
+    }
+
+    @Test
+    void testDecodeCursor_RejectsGarbage() {
+        assertThrows(IllegalArgumentException.class, () -> AnomalyQueryService.decodeCursor("not base64!"));
+        assertThrows(IllegalArgumentException.class, () -> AnomalyQueryService.decodeCursor("bm9zZXBhcmF0b3I"));
+        assertThrows(IllegalArgumentException.class,
+                () -> queryService.findAnomalies(START, END, "bm90LWEtZGF0ZXwx", 10, false));
+    }
+
+    @Test
+    void testStreamAnomalies_UsesFetchSizeAndHandsOverEveryRow() throws SQLException {
+        // Given
+        List<AnomalyDetectionDTO> received = new ArrayList<>();
+
+        // When
+        queryService.streamAnomalies(START, END, false, received::add);
+
+        // Then
+        ArgumentCaptor<PreparedStatementCreator> creator = ArgumentCaptor.forClass(PreparedStatementCreator.class);
+        ArgumentCaptor<RowCallbackHandler> handler = ArgumentCaptor.forClass(RowCallbackHandler.class);
+        verify(jdbcTemplate).query(creator.capture(), handler.capture());
+
+        Connection connection = mock(Connection.class);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(ps);
+        creator.getValue().createPreparedStatement(connection);
+        verify(ps).setFetchSize(250);
+        verify(ps).setTimestamp(2, Timestamp.from(END));
+        verify(ps).setLong(3, Long.MAX_VALUE);
+
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(7L);
+        when(rs.getString("log_id")).thenReturn("log-7");
+        when(rs.getBoolean("is_anomaly")).thenReturn(true);
+        when(rs.getTimestamp("detected_at")).thenReturn(Timestamp.from(START));
+        handler.getValue().processRow(rs);
+        assertEquals(1, received.size());
+        assertEquals("log-7", received.get(0).getLogId());
+        assertNull(received.get(0).getFeatures());
+    }
+
+    private static List<AnomalyDetectionDTO> rows(int count) {
+        return new ArrayList<>(LongStream.range(0, count)
+                .mapToObj(i -> AnomalyDetectionDTO.builder()
+                        .id(100 - i)
+                        .logId("log-" + i)
+                        .isAnomaly(true)
+                        .detectedAt(END.minusSeconds(i * 60))
+                        .build())
+                .toList());
+    }
+}
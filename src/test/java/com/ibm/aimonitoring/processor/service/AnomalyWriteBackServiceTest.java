@@ -0,0 +1,245 @@
+package com.ibm.aimonitoring.processor.service;
+
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import com.ibm.aimonitoring.processor.dto.MLPredictionResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnomalyWriteBackServiceTest {
+
+    @Mock
+    private BulkIndexer bulkIndexer;
+
+    @Mock
+    private LogSpool logSpool;
+
+    private AnomalyWriteBackService writeBackService;
+
+    @BeforeEach
+    void setUp() {
+        writeBackService = new AnomalyWriteBackService(bulkIndexer, new LogIndexRouter("logs", false, 90), logSpool);
+        ReflectionTestUtils.setField(writeBackService, "enabled", true);
+        ReflectionTestUtils.setField(writeBackService, "maxPending", 100);
+        ReflectionTestUtils.setField(writeBackService, "maxAwaitingReplay", 100);
+    }
+
+    @Test
+    void testFlush_SendsPartialUpdateWithAnomalyFields() {
+        // Given
+        when(bulkIndexer.addNonBlocking(any(BulkOperation.class), anyLong())).thenReturn(CompletableFuture.completedFuture(IndexResult.created("doc-1")));
+        writeBackService.enqueue("doc-1", prediction(true, 0.9, "v1.0"));
+
+        // When
+        writeBackService.flush();
+
+        // Then
+        ArgumentCaptor<BulkOperation> captor = ArgumentCaptor.forClass(BulkOperation.class);
+        verify(bulkIndexer).addNonBlocking(captor.capture(), anyLong());
+        verify(bulkIndexer).flush();
+        BulkOperation operation = captor.getValue();
+        assertTrue(operation.isUpdate());
+        assertEquals("logs", operation.update().index());
+        assertEquals("doc-1", operation.update().id());
+        assertEquals(3, operation.update().retryOnConflict());
+        Map<String, Object> metadata = metadataOf(operation);
+        assertEquals(true, metadata.get("anomalyDetected"));
+        assertEquals(0.9, metadata.get("anomalyScore"));
+        assertEquals("v1.0", metadata.get("mlModelVersion"));
+        assertEquals(0, writeBackService.getPendingUpdates());
+    }
+
+    @Test
+    void testEnqueue_CoalescesUpdatesForSameDocument() {
+        // Given
+        when(bulkIndexer.addNonBlocking(any(BulkOperation.class), anyLong())).thenReturn(CompletableFuture.completedFuture(IndexResult.created("doc-1")));
+
+        // When
+        writeBackService.enqueue("doc-1", prediction(false, 0.2, "v1.0"));
+        writeBackService.enqueue("doc-1", prediction(true, 0.95, "v1.1"));
+        writeBackService.enqueue("doc-2", prediction(false, 0.1, "v1.1"));
+        assertEquals(2, writeBackService.getPendingUpdates());
+        writeBackService.flush();
+
+        // Then
+        ArgumentCaptor<BulkOperation> captor = ArgumentCaptor.forClass(BulkOperation.class);
+        verify(bulkIndexer, times(2)).addNonBlocking(captor.capture(), anyLong());
+        BulkOperation doc1 = captor.getAllValues().stream()
+                .filter(op -> "doc-1".equals(op.update().id()))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(0.95, metadataOf(doc1).get("anomalyScore"));
+        assertEquals("v1.1", metadataOf(doc1).get("mlModelVersion"));
+    }
+
+    @Test
+    void testEnqueue_FlushesWhenMaxPendingReached() {
+        // Given
+        ReflectionTestUtils.setField(writeBackService, "maxPending", 2);
+        when(bulkIndexer.addNonBlocking(any(BulkOperation.class), anyLong())).thenReturn(CompletableFuture.completedFuture(IndexResult.created("id")));
+
+        // When
+        writeBackService.enqueue("doc-1", prediction(false, 0.1, "v1.0"));
+        writeBackService.enqueue("doc-2", prediction(false, 0.1, "v1.0"));
+
+        // Then
+        verify(bulkIndexer, times(2)).addNonBlocking(any(BulkOperation.class), anyLong());
+        assertEquals(0, writeBackService.getPendingUpdates());
+    }
+
+    @Test
+    void testFlush_MissingDocumentWithEmptySpoolIsDropped() {
+        // Given - nothing is spooled, so the document will not appear later
+        when(bulkIndexer.addNonBlocking(any(BulkOperation.class), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new BulkIndexer.BulkItemFailureException(404, "document_missing_exception", "missing")));
+        writeBackService.enqueue("doc-1", prediction(true, 0.9, "v1.0"));
+
+        // When
+        writeBackService.flush();
+        writeBackService.flush();
+
+        // Then
+        verify(bulkIndexer).addNonBlocking(any(BulkOperation.class), anyLong());
+        assertEquals(0, writeBackService.getPendingUpdates());
+        assertEquals(0, writeBackService.getAwaitingReplay());
+    }
+
+    @Test
+    void testReplayed_RequeuesUpdateOfSpooledDocument() {
+        // Given - the log is in the spool, so the update finds no document
+        when(logSpool.getPendingRecords()).thenReturn(1L);
+        when(bulkIndexer.addNonBlocking(any(BulkOperation.class), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new BulkIndexer.BulkItemFailureException(404, "document_missing_exception", "missing")));
+        writeBackService.enqueue("doc-1", prediction(true, 0.9, "v1.0"));
+        writeBackService.flush();
+        assertEquals(1, writeBackService.getAwaitingReplay());
+        assertEquals(0, writeBackService.getPendingUpdates());
+
+        // When - the spool replays the document
+        when(bulkIndexer.addNonBlocking(any(BulkOperation.class), anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(IndexResult.created("doc-1")));
+        writeBackService.replayed(List.of("doc-2", "doc-1"));
+        writeBackService.flush();
+
+        // Then
+        ArgumentCaptor<BulkOperation> captor = ArgumentCaptor.forClass(BulkOperation.class);
+        verify(bulkIndexer, times(2)).addNonBlocking(captor.capture(), anyLong());
+        assertEquals(true, metadataOf(captor.getValue()).get("anomalyDetected"));
+        assertEquals(0, writeBackService.getAwaitingReplay());
+        assertEquals(0, writeBackService.getPendingUpdates());
+    }
+
+    @Test
+    void testFlush_OutageWhileSpoolingParksUpdate() {
+        // Given
+        when(logSpool.getPendingRecords()).thenReturn(10L);
+        when(bulkIndexer.addNonBlocking(any(BulkOperation.class), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(new ElasticsearchService.ElasticsearchIndexException(
+                        "Bulk request failed", new IOException("Connection refused"))));
+        writeBackService.enqueue("doc-1", prediction(true, 0.9, "v1.0"));
+
+        // When
+        writeBackService.flush();
+
+        // Then
+        assertEquals(1, writeBackService.getAwaitingReplay());
+    }
+
+    @Test
+    void testReplayed_DrainedSpoolDropsUnreplayedUpdates() {
+        // Given
+        when(logSpool.getPendingRecords()).thenReturn(1L);
+        when(bulkIndexer.addNonBlocking(any(BulkOperation.class), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new BulkIndexer.BulkItemFailureException(404, "document_missing_exception", "missing")));
+        writeBackService.enqueue("doc-1", prediction(true, 0.9, "v1.0"));
+        writeBackService.flush();
+        assertEquals(1, writeBackService.getAwaitingReplay());
+
+        // When - the spool is drained without the document
+        when(logSpool.getPendingRecords()).thenReturn(0L);
+        writeBackService.replayed(List.of("doc-2"));
+
+        // Then
+        assertEquals(0, writeBackService.getAwaitingReplay());
+        assertEquals(0, writeBackService.getPendingUpdates());
+    }
+
+    @Test
+    void testFlush_DoesNotRetryOtherFailures() {
+        // Given
+        when(bulkIndexer.addNonBlocking(any(BulkOperation.class), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(
+                        new BulkIndexer.BulkItemFailureException(400, "mapper_parsing_exception", "bad")));
+        writeBackService.enqueue("doc-1", prediction(true, 0.9, "v1.0"));
+
+        // When
+        writeBackService.flush();
+
+        // Then
+        assertEquals(0, writeBackService.getPendingUpdates());
+    }
+
+    @Test
+    void testFlush_RollingUpdatesDailyIndexOfTimestamp() {
+        // Given
+        ReflectionTestUtils.setField(writeBackService, "indexRouter", new LogIndexRouter("logs", true, 90));
+        when(bulkIndexer.addNonBlocking(any(BulkOperation.class), anyLong())).thenReturn(CompletableFuture.completedFuture(IndexResult.created("doc-1")));
+        writeBackService.enqueue("doc-1", Instant.parse("2026-03-01T12:00:00Z"), prediction(true, 0.9, "v1.0"));
+
+        // When
+        writeBackService.flush();
+
+        // Then
+        ArgumentCaptor<BulkOperation> captor = ArgumentCaptor.forClass(BulkOperation.class);
+        verify(bulkIndexer).addNonBlocking(captor.capture(), anyLong());
+        assertEquals("logs-2026.03.01", captor.getValue().update().index());
+    }
+
+    @Test
+    void testEnqueue_DisabledDoesNothing() {
+        // Given
+        ReflectionTestUtils.setField(writeBackService, "enabled", false);
+
+        // When
+        writeBackService.enqueue("doc-1", prediction(true, 0.9, "v1.0"));
+        writeBackService.flush();
+
+        // Then
+        assertEquals(0, writeBackService.getPendingUpdates());
+        verifyNoInteractions(bulkIndexer);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> metadataOf(BulkOperation operation) {
+        Map<String, Object> document = (Map<String, Object>) operation.update().action().doc();
+        return (Map<String, Object>) document.get("metadata");
+    }
+
+    private static MLPredictionResponse prediction(boolean anomaly, double score, String modelVersion) {
+        return MLPredictionResponse.builder()
+                .isAnomaly(anomaly)
+                .anomalyScore(score)
+                .confidence(0.8)
+                .modelVersion(modelVersion)
+                .build();
+    }
+}
@@ -0,0 +1,155 @@
+package com.ibm.aimonitoring.processor.service;
+
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkFlowControllerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private BulkFlowController controller;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        controller = new BulkFlowController(meterRegistry);
+        ReflectionTestUtils.setField(controller, "maxActions", 500);
+        ReflectionTestUtils.setField(controller, "maxConcurrentRequests", 4);
+        ReflectionTestUtils.setField(controller, "adaptive", true);
+        ReflectionTestUtils.setField(controller, "minActions", 50);
+        ReflectionTestUtils.setField(controller, "minConcurrentRequests", 1);
+        ReflectionTestUtils.setField(controller, "increaseActions", 50);
+        ReflectionTestUtils.setField(controller, "backoffFactor", 0.5);
+        ReflectionTestUtils.setField(controller, "targetLatencyMs", 10_000L);
+        controller.start();
+    }
+
+    @Test
+    void testFastResponses_GrowLimitsAdditively() {
+        // When
+        for (int i = 0; i < 3; i++) {
+            controller.onResponse(controller.acquire(), success());
+        }
+
+        // Then - +50 actions per response, +1 request per window of fast responses
+        assertEquals(200, controller.getBatchActions());
+        assertEquals(3, controller.getConcurrentRequests());
+        assertEquals(200.0, meterRegistry.get("elasticsearch.bulk.flow.batch-actions").gauge().value());
+    }
+
+    @Test
+    void testSlowResponses_HoldLimits() {
+        // Given
+        ReflectionTestUtils.setField(controller, "targetLatencyMs", 0L);
+
+        // When
+        long start = controller.acquire() - TimeUnit.MILLISECONDS.toNanos(5);
+        controller.onResponse(start, success());
+
+        // Then
+        assertEquals(50, controller.getBatchActions());
+        assertEquals(1, controller.getConcurrentRequests());
+    }
+
+    @Test
+    void testRejectedItem_BacksOffMultiplicativelyOncePerWindow() {
+        // Given - grown to the maximum, with requests sent before the rejection still in flight
+        for (int i = 0; i < 20; i++) {
+            controller.onResponse(controller.acquire(), success());
+        }
+        assertEquals(500, controller.getBatchActions());
+        assertEquals(4, controller.getConcurrentRequests());
+        long first = controller.acquire();
+        long second = controller.acquire();
+
+        // When
+        controller.onResponse(first, rejected());
+        controller.onResponse(second, rejected());
+
+        // Then
+        assertEquals(250, controller.getBatchActions());
+        assertEquals(2, controller.getConcurrentRequests());
+        assertEquals(1.0, meterRegistry.counter("elasticsearch.bulk.flow.backoffs").count());
+    }
+
+    @Test
+    void testTimeout_BacksOff() {
+        // When
+        controller.onResponse(controller.acquire(), success());
+        controller.onFailure(controller.acquire(), new SocketTimeoutException("Read timed out"));
+
+        // Then
+        assertEquals(50, controller.getBatchActions());
+        assertEquals(0, controller.getInFlight());
+    }
+
+    @Test
+    void testIsRejection() {
+        // When / Then
+        assertTrue(BulkFlowController.isRejection(new ElasticsearchException("bulk", ErrorResponse.of(r -> r
+                .status(429)
+                .error(e -> e.type("es_rejected_execution_exception").reason("queue is full"))))));
+        assertTrue(BulkFlowController.isRejection(new RuntimeException(new SocketTimeoutException())));
+        assertFalse(BulkFlowController.isRejection(new ElasticsearchException("bulk", ErrorResponse.of(r -> r
+                .status(400)
+                .error(e -> e.type("parse_exception").reason("bad request"))))));
+        assertFalse(BulkFlowController.isRejection(new IllegalStateException("closed")));
+    }
+
+    @Test
+    void testAcquire_WaitsForFreeSlotAndReportsSaturation() throws Exception {
+        // Given - the only slot is taken
+        long start = controller.acquire();
+
+        // When
+        CompletableFuture<Long> waiting = CompletableFuture.supplyAsync(controller::acquire);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!controller.isSaturated() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        // Then
+        assertTrue(controller.isSaturated());
+        assertFalse(waiting.isDone());
+        controller.onResponse(start, success());
+        waiting.get(5, TimeUnit.SECONDS);
+        assertFalse(controller.isSaturated());
+    }
+
+    @Test
+    void testFixedMode_UsesConfiguredMaximums() {
+        // Given
+        ReflectionTestUtils.setField(controller, "adaptive", false);
+        controller.start();
+
+        // When
+        controller.onResponse(controller.acquire(), rejected());
+
+        // Then
+        assertEquals(500, controller.getBatchActions());
+        assertEquals(4, controller.getConcurrentRequests());
+    }
+
+    private static BulkResponse success() {
+        return BulkResponse.of(r -> r.errors(false).took(1).items(BulkResponseItem.of(i -> i
+                .operationType(OperationType.Index).index("logs").id("1").status(201))));
+    }
+
+    private static BulkResponse rejected() {
+        return BulkResponse.of(r -> r.errors(true).took(1).items(BulkResponseItem.of(i -> i
+                .operationType(OperationType.Index).index("logs").id("1").status(429)
+                .error(e -> e.type("es_rejected_execution_exception").reason("queue is full")))));
+    }
+}
@@ -0,0 +1,325 @@
+package com.ibm.aimonitoring.processor.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkIndexerTest {
+
+    @Mock
+    private ElasticsearchClient elasticsearchClient;
+
+    private BulkFlowController flowController;
+    private BulkIndexer bulkIndexer;
+
+    @BeforeEach
+    void setUp() {
+        flowController = new BulkFlowController(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(flowController, "maxActions", 3);
+        ReflectionTestUtils.setField(flowController, "maxConcurrentRequests", 2);
+        flowController.start();
+        bulkIndexer = new BulkIndexer(elasticsearchClient, flowController);
+        ReflectionTestUtils.setField(bulkIndexer, "maxBytes", 10_000L);
+        ReflectionTestUtils.setField(bulkIndexer, "flushIntervalMs", 200L);
+        bulkIndexer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkIndexer.close();
+    }
+
+    @Test
+    void testAdd_FlushesWhenMaxActionsReached() throws IOException {
+        // Given
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenAnswer(inv -> successResponse(inv.getArgument(0)));
+
+        // When
+        CompletableFuture<IndexResult> first = bulkIndexer.add(indexOperation("1"), 10);
+        CompletableFuture<IndexResult> second = bulkIndexer.add(indexOperation("2"), 10);
+        assertEquals(2, bulkIndexer.getBufferedOperations());
+        CompletableFuture<IndexResult> third = bulkIndexer.add(indexOperation("3"), 10);
+
+        // Then
+        assertEquals("1", first.join().documentId());
+        assertFalse(first.join().duplicate());
+        assertEquals("2", second.join().documentId());
+        assertEquals("3", third.join().documentId());
+        verify(elasticsearchClient, times(1)).bulk(any(BulkRequest.class));
+    }
+
+    @Test
+    void testAdd_FlushesWhenMaxBytesReached() throws IOException {
+        // Given
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenAnswer(inv -> successResponse(inv.getArgument(0)));
+
+        // When
+        CompletableFuture<IndexResult> result = bulkIndexer.add(indexOperation("big"), 20_000);
+
+        // Then
+        assertEquals("big", result.join().documentId());
+        assertEquals(0, bulkIndexer.getBufferedOperations());
+    }
+
+    @Test
+    void testFlush_SendsPartialBatch() throws IOException {
+        // Given
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenAnswer(inv -> successResponse(inv.getArgument(0)));
+        CompletableFuture<IndexResult> result = bulkIndexer.add(indexOperation("1"), 10);
+        assertFalse(result.isDone());
+
+        // When
+        bulkIndexer.flush();
+
+        // Then
+        assertEquals("1", result.join().documentId());
+    }
+
+    @Test
+    void testFlush_EmptyBufferDoesNothing() {
+        // When
+        bulkIndexer.flush();
+
+        // Then
+        verifyNoInteractions(elasticsearchClient);
+    }
+
+    @Test
+    void testFlush_DoesNotBlockCallerWhenAllSlotsBusy() throws Exception {
+        // Given - both request slots held by bulk requests that do not return yet
+        CountDownLatch release = new CountDownLatch(1);
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return successResponse(inv.getArgument(0));
+        });
+        CompletableFuture<IndexResult> first = bulkIndexer.add(indexOperation("1"), 10);
+        bulkIndexer.flushNow();
+        CompletableFuture<IndexResult> second = bulkIndexer.add(indexOperation("2"), 10);
+        bulkIndexer.flushNow();
+        assertEquals(2, flowController.getInFlight());
+
+        // When - a scheduled task queues more work and flushes
+        long start = System.nanoTime();
+        CompletableFuture<IndexResult> third = bulkIndexer.addNonBlocking(indexOperation("3"), 10);
+        bulkIndexer.flush();
+        List<CompletableFuture<IndexResult>> more = new ArrayList<>();
+        for (int i = 4; i <= 6; i++) {
+            more.add(bulkIndexer.addNonBlocking(indexOperation(String.valueOf(i)), 10));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!flowController.isSaturated() && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        // Then - the caller returned at once; the flush thread waits for a slot instead
+        assertTrue(elapsedMillis < 1000, "caller blocked for " + elapsedMillis + "ms");
+        assertTrue(flowController.isSaturated());
+        release.countDown();
+        assertEquals("1", first.get(5, TimeUnit.SECONDS).documentId());
+        assertEquals("2", second.get(5, TimeUnit.SECONDS).documentId());
+        assertEquals("3", third.get(5, TimeUnit.SECONDS).documentId());
+        for (CompletableFuture<IndexResult> result : more) {
+            assertNotNull(result.get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testExecute_PerItemFailureOnlyFailsThatItem() throws IOException {
+        // Given - second item rejected by Elasticsearch
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenAnswer(inv -> {
+            BulkRequest request = inv.getArgument(0);
+            List<BulkResponseItem> items = new ArrayList<>();
+            for (BulkOperation op : request.operations()) {
+                String id = op.index().id();
+                if ("2".equals(id)) {
+                    items.add(BulkResponseItem.of(i -> i.operationType(OperationType.Index).index("logs").id(id)
+                            .status(400)
+                            .error(e -> e.type("mapper_parsing_exception").reason("failed to parse"))));
+                } else {
+                    items.add(BulkResponseItem.of(i -> i.operationType(OperationType.Index).index("logs").id(id)
+                            .status(201)));
+                }
+            }
+            return BulkResponse.of(r -> r.errors(true).took(1).items(items));
+        });
+
+        // When
+        CompletableFuture<IndexResult> first = bulkIndexer.add(indexOperation("1"), 10);
+        CompletableFuture<IndexResult> second = bulkIndexer.add(indexOperation("2"), 10);
+        CompletableFuture<IndexResult> third = bulkIndexer.add(indexOperation("3"), 10);
+
+        // Then
+        assertEquals("1", first.join().documentId());
+        assertEquals("3", third.join().documentId());
+        CompletionException error = assertThrows(CompletionException.class, second::join);
+        BulkIndexer.BulkItemFailureException failure =
+                assertInstanceOf(BulkIndexer.BulkItemFailureException.class, error.getCause());
+        assertEquals(400, failure.getStatus());
+        assertEquals("mapper_parsing_exception", failure.getErrorType());
+    }
+
+    @Test
+    void testExecute_DuplicateCreateCountsAsIndexed() throws IOException {
+        // Given - the document was already created by an earlier delivery
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenReturn(BulkResponse.of(r -> r
+                .errors(true)
+                .took(1)
+                .items(BulkResponseItem.of(i -> i.operationType(OperationType.Create).index("logs").id("dup")
+                        .status(409)
+                        .error(e -> e.type("version_conflict_engine_exception").reason("document already exists"))))));
+
+        // When
+        CompletableFuture<IndexResult> result = bulkIndexer.add(
+                BulkOperation.of(b -> b.create(c -> c.index("logs").id("dup").document(Map.of("message", "m")))), 10);
+        bulkIndexer.flush();
+
+        // Then
+        assertEquals("dup", result.join().documentId());
+        assertTrue(result.join().duplicate());
+    }
+
+    @Test
+    void testExecute_RequestFailureFailsWholeBatch() throws IOException {
+        // Given
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenThrow(new IOException("Connection refused"));
+
+        // When
+        CompletableFuture<IndexResult> first = bulkIndexer.add(indexOperation("1"), 10);
+        bulkIndexer.flush();
+
+        // Then
+        CompletionException error = assertThrows(CompletionException.class, first::join);
+        assertInstanceOf(ElasticsearchService.ElasticsearchIndexException.class, error.getCause());
+        assertEquals(0, flowController.getInFlight());
+    }
+
+    @Test
+    void testExecute_UnreadableResponseFailsBatchAndFreesSlot() throws IOException {
+        // Given - a response that cannot be handled after the request succeeded
+        BulkResponse response = mock(BulkResponse.class);
+        when(response.items()).thenThrow(new IllegalStateException("Missing required property 'items'"));
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenReturn(response);
+
+        // When
+        CompletableFuture<IndexResult> first = bulkIndexer.add(indexOperation("1"), 10);
+        bulkIndexer.flush();
+
+        // Then
+        ExecutionException error = assertThrows(ExecutionException.class, () -> first.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, error.getCause());
+        assertEquals(0, flowController.getInFlight());
+    }
+
+    @Test
+    void testDispatch_RunsBulkRequestsConcurrently() throws Exception {
+        // Given - each bulk request blocks until both are in flight
+        CountDownLatch bothInFlight = new CountDownLatch(2);
+        AtomicInteger calls = new AtomicInteger();
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenAnswer(inv -> {
+            calls.incrementAndGet();
+            bothInFlight.countDown();
+            assertTrue(bothInFlight.await(5, TimeUnit.SECONDS), "bulk requests should overlap");
+            return successResponse(inv.getArgument(0));
+        });
+
+        // When
+        CompletableFuture<IndexResult> first = bulkIndexer.add(indexOperation("1"), 10);
+        bulkIndexer.flushNow();
+        CompletableFuture<IndexResult> second = bulkIndexer.add(indexOperation("2"), 10);
+        bulkIndexer.flushNow();
+
+        // Then
+        assertEquals("1", first.get(5, TimeUnit.SECONDS).documentId());
+        assertEquals("2", second.get(5, TimeUnit.SECONDS).documentId());
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testExecute_RejectedItemsShrinkAdaptiveBatch() throws IOException {
+        // Given - adaptive limits grown to the maximum, then Elasticsearch rejects a bulk item
+        ReflectionTestUtils.setField(flowController, "adaptive", true);
+        ReflectionTestUtils.setField(flowController, "minActions", 1);
+        ReflectionTestUtils.setField(flowController, "increaseActions", 2);
+        ReflectionTestUtils.setField(flowController, "backoffFactor", 0.5);
+        ReflectionTestUtils.setField(flowController, "targetLatencyMs", 10_000L);
+        flowController.start();
+        when(elasticsearchClient.bulk(any(BulkRequest.class)))
+                .thenAnswer(inv -> successResponse(inv.getArgument(0)))
+                .thenReturn(BulkResponse.of(r -> r
+                        .errors(true)
+                        .took(1)
+                        .items(BulkResponseItem.of(i -> i.operationType(OperationType.Index).index("logs").id("2")
+                                .status(429)
+                                .error(e -> e.type("es_rejected_execution_exception").reason("queue is full"))))));
+        CompletableFuture<IndexResult> accepted = bulkIndexer.add(indexOperation("1"), 10);
+        bulkIndexer.flush();
+        accepted.join();
+        assertEquals(3, flowController.getBatchActions());
+
+        // When
+        CompletableFuture<IndexResult> rejected = bulkIndexer.add(indexOperation("2"), 10);
+        bulkIndexer.flush();
+
+        // Then
+        assertThrows(CompletionException.class, rejected::join);
+        assertEquals(1, flowController.getBatchActions());
+    }
+
+    @Test
+    void testClose_FlushesBufferAndRejectsNewOperations() throws IOException {
+        // Given
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenAnswer(inv -> successResponse(inv.getArgument(0)));
+        CompletableFuture<IndexResult> pending = bulkIndexer.add(indexOperation("1"), 10);
+
+        // When
+        bulkIndexer.close();
+
+        // Then
+        assertEquals("1", pending.join().documentId());
+        CompletableFuture<IndexResult> rejected = bulkIndexer.add(indexOperation("2"), 10);
+        assertTrue(rejected.isCompletedExceptionally());
+    }
+
+    private static BulkOperation indexOperation(String id) {
+        return BulkOperation.of(b -> b.index(i -> i.index("logs").id(id).document(Map.of("message", "m" + id))));
+    }
+
+    private static BulkResponse successResponse(BulkRequest request) {
+        List<BulkResponseItem> items = request.operations().stream()
+                .map(op -> BulkResponseItem.of(i -> i
+                        .operationType(OperationType.Index)
+                        .index("logs")
+                        .id(op.index().id())
+                        .status(201)))
+                .toList();
+        return BulkResponse.of(r -> r.errors(false).took(1).items(items));
+    }
+}
@@ -0,0 +1,237 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.dto.DashboardMetricsDTO;
+import com.ibm.aimonitoring.processor.dto.ServiceLogCountDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DashboardCacheTest {
+
+    @Mock
+    private ElasticsearchService elasticsearchService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private DashboardCache cache;
+    private final AtomicLong nanos = new AtomicLong();
+    // Background refreshes (and cache maintenance) wait here until the test runs them
+    private final Queue<Runnable> pendingTasks = new ArrayDeque<>();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new DashboardCache(elasticsearchService, meterRegistry);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "metricsTtlSeconds", 15L);
+        ReflectionTestUtils.setField(cache, "logVolumeTtlSeconds", 60L);
+        ReflectionTestUtils.setField(cache, "levelDistributionTtlSeconds", 30L);
+        ReflectionTestUtils.setField(cache, "topServicesTtlSeconds", 30L);
+        ReflectionTestUtils.setField(cache, "maxStaleSeconds", 300L);
+        ReflectionTestUtils.setField(cache, "maxSize", 100L);
+        ReflectionTestUtils.setField(cache, "refreshThreads", 1);
+        cache.ticker = nanos::get;
+        cache.refreshExecutor = pendingTasks::add;
+        cache.init();
+    }
+
+    @Test
+    void testGetDashboardMetrics_FreshEntryIsHit() {
+        // Given
+        when(elasticsearchService.loadDashboardMetrics()).thenReturn(metrics(1));
+
+        // When
+        cache.getDashboardMetrics();
+        advance(Duration.ofSeconds(10));
+        DashboardMetricsDTO second = cache.getDashboardMetrics();
+
+        // Then
+        assertEquals(1, second.getTotalLogs());
+        runPendingTasks();
+        verify(elasticsearchService, times(1)).loadDashboardMetrics();
+        assertEquals(0.0, refreshes("metrics"));
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "dashboard.metrics").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "dashboard.metrics").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    void testGetDashboardMetrics_StaleEntryServedWhileOneRefreshRuns() {
+        // Given
+        when(elasticsearchService.loadDashboardMetrics()).thenReturn(metrics(1), metrics(2));
+        cache.getDashboardMetrics();
+        advance(Duration.ofSeconds(20));
+
+        // When - several requests after the TTL, before the refresh completes
+        DashboardMetricsDTO first = cache.getDashboardMetrics();
+        DashboardMetricsDTO second = cache.getDashboardMetrics();
+
+        // Then - both get the stale entry
+        assertEquals(1, first.getTotalLogs());
+        assertEquals(1, second.getTotalLogs());
+
+        // When - the refresh runs
+        runPendingTasks();
+
+        // Then - one refresh for both requests
+        assertEquals(2, cache.getDashboardMetrics().getTotalLogs());
+        verify(elasticsearchService, times(2)).loadDashboardMetrics();
+        assertEquals(1.0, refreshes("metrics"));
+    }
+
+    @Test
+    void testGetDashboardMetrics_BeyondMaxStaleReloadsSynchronously() {
+        // Given
+        when(elasticsearchService.loadDashboardMetrics()).thenReturn(metrics(1), metrics(2));
+        cache.getDashboardMetrics();
+        advance(Duration.ofSeconds(301));
+
+        // When
+        DashboardMetricsDTO metrics = cache.getDashboardMetrics();
+
+        // Then
+        assertEquals(2, metrics.getTotalLogs());
+        runPendingTasks();
+        assertEquals(0.0, refreshes("metrics"));
+    }
+
+    @Test
+    void testGetTopServices_KeyedByLimit() {
+        // Given
+        when(elasticsearchService.loadTopServices(5)).thenReturn(List.of(service("a")));
+        when(elasticsearchService.loadTopServices(10)).thenReturn(List.of(service("a"), service("b")));
+
+        // When
+        cache.getTopServices(5);
+        cache.getTopServices(5);
+        List<ServiceLogCountDTO> ten = cache.getTopServices(10);
+
+        // Then
+        assertEquals(2, ten.size());
+        verify(elasticsearchService, times(1)).loadTopServices(5);
+        verify(elasticsearchService, times(1)).loadTopServices(10);
+    }
+
+    @Test
+    void testGetLogVolume_TtlPerEndpoint() {
+        // Given
+        when(elasticsearchService.loadLogVolume(any(Instant.class), any(Instant.class))).thenReturn(List.of());
+        when(elasticsearchService.loadLogLevelDistribution()).thenReturn(List.of());
+        cache.getLogVolume(24);
+        cache.getLogLevelDistribution();
+
+        // When - past the level distribution TTL, within the log volume TTL
+        advance(Duration.ofSeconds(45));
+        cache.getLogVolume(24);
+        cache.getLogLevelDistribution();
+
+        // Then
+        runPendingTasks();
+        assertEquals(0.0, refreshes("log-volume"));
+        assertEquals(1.0, refreshes("log-level-distribution"));
+        verify(elasticsearchService, times(1)).loadLogVolume(any(Instant.class), any(Instant.class));
+        verify(elasticsearchService, times(2)).loadLogLevelDistribution();
+    }
+
+    @Test
+    void testGetDashboardMetrics_FailedRefreshKeepsServingOldEntry() {
+        // Given
+        when(elasticsearchService.loadDashboardMetrics())
+                .thenReturn(metrics(1))
+                .thenThrow(new ElasticsearchService.ElasticsearchIndexException("Failed to get dashboard metrics",
+                        new IOException("Connection refused")));
+        cache.getDashboardMetrics();
+        advance(Duration.ofSeconds(20));
+
+        // When - the refresh triggered by the stale read fails
+        cache.getDashboardMetrics();
+        runPendingTasks();
+
+        // Then - the last good entry is still served, not zeros
+        assertEquals(1, cache.getDashboardMetrics().getTotalLogs());
+        verify(elasticsearchService, never()).getDashboardMetrics();
+    }
+
+    @Test
+    void testGetDashboardMetrics_FailedLoadIsNotCached() {
+        // Given
+        when(elasticsearchService.loadDashboardMetrics())
+                .thenThrow(new ElasticsearchService.ElasticsearchIndexException("Failed to get dashboard metrics",
+                        new IOException("Connection refused")))
+                .thenReturn(metrics(3));
+
+        // When / Then
+        assertThrows(ElasticsearchService.ElasticsearchIndexException.class, cache::getDashboardMetrics);
+        assertEquals(3, cache.getDashboardMetrics().getTotalLogs());
+    }
+
+    @Test
+    void testDisabled_PassesThrough() {
+        // Given
+        DashboardCache disabled = new DashboardCache(elasticsearchService, meterRegistry);
+        disabled.init();
+        when(elasticsearchService.getDashboardMetrics()).thenReturn(metrics(1));
+
+        // When
+        disabled.getDashboardMetrics();
+        disabled.getDashboardMetrics();
+
+        // Then
+        assertFalse(disabled.isEnabled());
+        verify(elasticsearchService, times(2)).getDashboardMetrics();
+    }
+
+    @Test
+    void testInit_TtlMustBeBelowMaxStale() {
+        // Given
+        DashboardCache invalid = new DashboardCache(elasticsearchService, meterRegistry);
+        ReflectionTestUtils.setField(invalid, "enabled", true);
+        ReflectionTestUtils.setField(invalid, "metricsTtlSeconds", 300L);
+        ReflectionTestUtils.setField(invalid, "maxStaleSeconds", 300L);
+        ReflectionTestUtils.setField(invalid, "refreshThreads", 1);
+        invalid.refreshExecutor = pendingTasks::add;
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, invalid::init);
+    }
+
+    private void runPendingTasks() {
+        Runnable task;
+        while ((task = pendingTasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private double refreshes(String endpoint) {
+        return meterRegistry.get("dashboard.cache.refreshes").tag("endpoint", endpoint).counter().count();
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    private static DashboardMetricsDTO metrics(long totalLogs) {
+        return DashboardMetricsDTO.builder().totalLogs(totalLogs).build();
+    }
+
+    private static ServiceLogCountDTO service(String name) {
+        return ServiceLogCountDTO.builder().service(name).count(1).build();
+    }
+}
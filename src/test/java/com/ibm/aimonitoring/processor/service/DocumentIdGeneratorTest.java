@@ -0,0 +1,117 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DocumentIdGeneratorTest {
+
+    private DocumentIdGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        generator = new DocumentIdGenerator(42);
+    }
+
+    @Test
+    void testNodeId_UsesConfiguredValue() {
+        assertEquals(42, generator.getNodeId());
+    }
+
+    @Test
+    void testNodeId_DerivedWhenNotConfigured() {
+        int nodeId = new DocumentIdGenerator(-1).getNodeId();
+
+        assertTrue(nodeId >= 0 && nodeId <= 0xFFFF);
+    }
+
+    @Test
+    void testNextId_IsUniqueAndStrictlyIncreasing() {
+        Set<String> ids = new HashSet<>();
+        String previous = "";
+
+        for (int i = 0; i < 10_000; i++) {
+            String id = generator.nextId();
+            assertEquals(26, id.length());
+            assertTrue(id.compareTo(previous) > 0, "IDs must sort in generation order");
+            assertTrue(ids.add(id));
+            previous = id;
+        }
+    }
+
+    @Test
+    void testNextId_DiffersAcrossNodes() {
+        DocumentIdGenerator other = new DocumentIdGenerator(7);
+
+        assertNotEquals(generator.nextId().substring(10, 14), other.nextId().substring(10, 14));
+    }
+
+    @Test
+    void testIdFor_IsDeterministic() {
+        LogEntryDTO first = logEntry("Connection refused");
+        LogEntryDTO second = logEntry("Connection refused");
+
+        assertEquals(generator.idFor(first), new DocumentIdGenerator(7).idFor(second));
+    }
+
+    @Test
+    void testIdFor_DiffersForDifferentContent() {
+        assertNotEquals(generator.idFor(logEntry("Connection refused")), generator.idFor(logEntry("Connection reset")));
+    }
+
+    @Test
+    void testIdFor_DistinguishesMessagesOfIdenticalLines() {
+        LogEntryDTO first = logEntry("Connection refused");
+        first.setMessageId("msg-1");
+        LogEntryDTO redelivered = logEntry("Connection refused");
+        redelivered.setMessageId("msg-1");
+        LogEntryDTO second = logEntry("Connection refused");
+        second.setMessageId("msg-2");
+
+        assertEquals(generator.idFor(first), generator.idFor(redelivered));
+        assertNotEquals(generator.idFor(first), generator.idFor(second));
+    }
+
+    @Test
+    void testIdFor_RequiresMessageId() {
+        LogEntryDTO logEntry = logEntry("no message id");
+        logEntry.setMessageId(null);
+
+        assertThrows(IllegalArgumentException.class, () -> generator.idFor(logEntry));
+    }
+
+    @Test
+    void testIdFor_SortsByEventTime() {
+        LogEntryDTO earlier = logEntry("b");
+        LogEntryDTO later = logEntry("a");
+        later.setTimestamp(earlier.getTimestamp().plusMillis(1));
+
+        assertTrue(generator.idFor(earlier).compareTo(generator.idFor(later)) < 0);
+    }
+
+    @Test
+    void testIdFor_RequiresTimestamp() {
+        LogEntryDTO logEntry = logEntry("no timestamp");
+        logEntry.setTimestamp(null);
+
+        assertThrows(IllegalArgumentException.class, () -> generator.idFor(logEntry));
+    }
+
+    private static LogEntryDTO logEntry(String message) {
+        return LogEntryDTO.builder()
+                .timestamp(Instant.parse("2024-01-01T10:00:00.123456Z"))
+                .level("ERROR")
+                .message(message)
+                .service("payment-service")
+                .host("host-1")
+                .environment("prod")
+                .messageId("msg-1")
+                .build();
+    }
+}
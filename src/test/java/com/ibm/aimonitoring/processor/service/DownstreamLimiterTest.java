@@ -0,0 +1,122 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.config.VirtualThreadMode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DownstreamLimiterTest {
+
+    @Mock
+    private VirtualThreadMode virtualThreadMode;
+
+    private SimpleMeterRegistry meterRegistry;
+    private DownstreamLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new DownstreamLimiter(virtualThreadMode, meterRegistry);
+        ReflectionTestUtils.setField(limiter, "elasticsearchPermits", 2);
+        ReflectionTestUtils.setField(limiter, "mlServicePermits", 1);
+        ReflectionTestUtils.setField(limiter, "databasePermits", 1);
+    }
+
+    @Test
+    void testPlatformThreads_CallsPassThrough() throws Exception {
+        // Given
+        when(virtualThreadMode.isActive()).thenReturn(false);
+        limiter.init();
+
+        // When
+        String result = limiter.call(DownstreamLimiter.Downstream.ML_SERVICE, () -> "ok");
+
+        // Then
+        assertEquals("ok", result);
+        assertTrue(meterRegistry.find("downstream.permits.in-use").gauges().isEmpty());
+    }
+
+    @Test
+    void testVirtualThreads_CallWaitsForPermit() throws Exception {
+        // Given - the only ML service permit is held
+        when(virtualThreadMode.isActive()).thenReturn(true);
+        limiter.init();
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() ->
+                limiter.call(DownstreamLimiter.Downstream.ML_SERVICE, () -> {
+                    holding.countDown();
+                    return await(release);
+                }));
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+
+        // When
+        CompletableFuture<String> second = CompletableFuture.supplyAsync(() ->
+                limiter.call(DownstreamLimiter.Downstream.ML_SERVICE, () -> "second"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (waiting("ml-service") < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        // Then
+        assertEquals(1.0, waiting("ml-service"));
+        assertEquals(1.0, meterRegistry.get("downstream.permits.in-use").tag("downstream", "ml-service")
+                .gauge().value());
+        assertFalse(second.isDone());
+        release.countDown();
+        assertEquals("second", second.get(5, TimeUnit.SECONDS));
+        first.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testVirtualThreads_PermitReturnedOnFailure() {
+        // Given
+        when(virtualThreadMode.isActive()).thenReturn(true);
+        limiter.init();
+
+        // When
+        assertThrows(IOException.class, () -> limiter.call(DownstreamLimiter.Downstream.DATABASE, () -> {
+            throw new IOException("connection reset");
+        }));
+
+        // Then
+        assertEquals(0.0, meterRegistry.get("downstream.permits.in-use").tag("downstream", "database")
+                .gauge().value());
+    }
+
+    @Test
+    void testInit_RejectsZeroPermits() {
+        // Given
+        when(virtualThreadMode.isActive()).thenReturn(true);
+        ReflectionTestUtils.setField(limiter, "databasePermits", 0);
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, limiter::init);
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private double waiting(String downstream) {
+        return meterRegistry.get("downstream.permits.waiting").tag("downstream", downstream).gauge().value();
+    }
+}
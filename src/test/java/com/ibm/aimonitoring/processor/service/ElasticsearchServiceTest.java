@@ -1,6 +1,8 @@
 package com.ibm.aimonitoring.processor.service;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.ErrorResponse;
 import co.elastic.clients.elasticsearch._types.FieldValue;
 import co.elastic.clients.elasticsearch._types.Result;
 import co.elastic.clients.elasticsearch._types.aggregations.DateHistogramAggregate;
@@ -10,28 +12,61 @@ import co.elastic.clients.elasticsearch._types.aggregations.LongTermsBucket;
 import co.elastic.clients.elasticsearch._types.aggregations.StringTermsAggregate;
 import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
 import co.elastic.clients.elasticsearch._types.aggregations.AvgAggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.FilterAggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.FiltersAggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.FiltersBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.MinAggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.SumAggregate;
 import co.elastic.clients.elasticsearch.core.IndexResponse;
+import co.elastic.clients.elasticsearch.core.OpenPointInTimeResponse;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.elasticsearch.core.search.TotalHitsRelation;
 import co.elastic.clients.elasticsearch.indices.CreateIndexResponse;
+import co.elastic.clients.elasticsearch.indices.DeleteIndexRequest;
+import co.elastic.clients.elasticsearch.indices.DeleteIndexResponse;
 import co.elastic.clients.elasticsearch.indices.ElasticsearchIndicesClient;
 import co.elastic.clients.elasticsearch.indices.ExistsRequest;
+import co.elastic.clients.elasticsearch.indices.GetIndexResponse;
+import co.elastic.clients.elasticsearch.indices.GetMappingResponse;
+import co.elastic.clients.elasticsearch.indices.PutIndexTemplateRequest;
+import co.elastic.clients.elasticsearch.indices.PutIndexTemplateResponse;
+import co.elastic.clients.elasticsearch.indices.get_mapping.IndexMappingRecord;
+import co.elastic.clients.json.JsonData;
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
 import co.elastic.clients.transport.endpoints.BooleanResponse;
+import co.elastic.clients.util.BinaryData;
+import co.elastic.clients.util.ObjectBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibm.aimonitoring.processor.config.VirtualThreadMode;
 import com.ibm.aimonitoring.processor.dto.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.elasticsearch.client.Request;
+import org.elasticsearch.client.Response;
+import org.elasticsearch.client.RestClient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -41,6 +76,8 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class ElasticsearchServiceTest {
 
+    private static final Instant ROLLUP_START = Instant.parse("2024-01-01T00:00:00Z");
+
     @Mock
     private ElasticsearchClient elasticsearchClient;
 
@@ -56,14 +93,25 @@ class ElasticsearchServiceTest {
     @Mock
     private CreateIndexResponse createIndexResponse;
 
+    @Mock
+    private BulkIndexer bulkIndexer;
+
+    @Mock
+    private RestClient restClient;
+
+    @Mock
+    private LogSpool logSpool;
+
     private ElasticsearchService elasticsearchService;
 
     private LogEntryDTO testLogEntry;
 
     @BeforeEach
     void setUp() {
-        elasticsearchService = new ElasticsearchService(elasticsearchClient);
-        ReflectionTestUtils.setField(elasticsearchService, "indexName", "logs");
+        elasticsearchService = new ElasticsearchService(elasticsearchClient, bulkIndexer,
+                new LogIndexRouter("logs", false, 90), restClient, logSpool,
+                new DownstreamLimiter(new VirtualThreadMode(false), new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(elasticsearchService, "pitKeepAlive", "1m");
         ReflectionTestUtils.setField(elasticsearchService, "numberOfShards", 1);
         ReflectionTestUtils.setField(elasticsearchService, "numberOfReplicas", 0);
 
@@ -153,6 +201,154 @@ class ElasticsearchServiceTest {
         assertNotNull(documentId);
     }
 
+    @Test
+    void testIndexLogAsync_BulkDisabled_IndexesSynchronously() throws IOException {
+        // Given
+        doReturn(indexResponse).when(elasticsearchClient).index(any(java.util.function.Function.class));
+        when(indexResponse.result()).thenReturn(Result.Created);
+        when(indexResponse.id()).thenReturn("doc-123");
+
+        // When
+        CompletableFuture<IndexResult> result = elasticsearchService.indexLogAsync(testLogEntry);
+
+        // Then
+        assertEquals("doc-123", result.join().documentId());
+        verifyNoInteractions(bulkIndexer);
+    }
+
+    @Test
+    void testIndexLogAsync_BulkDisabled_FailureCompletesExceptionally() throws IOException {
+        // Given
+        doThrow(new IOException("Elasticsearch error")).when(elasticsearchClient).index(any(java.util.function.Function.class));
+
+        // When
+        CompletableFuture<IndexResult> result = elasticsearchService.indexLogAsync(testLogEntry);
+
+        // Then
+        assertTrue(result.isCompletedExceptionally());
+    }
+
+    @Test
+    void testIndexLogAsync_BulkEnabled_BuffersIndexOperation() throws IOException {
+        // Given
+        ReflectionTestUtils.setField(elasticsearchService, "bulkEnabled", true);
+        when(bulkIndexer.add(any(BulkOperation.class), anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(IndexResult.created("doc-bulk")));
+
+        // When
+        CompletableFuture<IndexResult> result = elasticsearchService.indexLogAsync(testLogEntry);
+
+        // Then
+        assertEquals("doc-bulk", result.join().documentId());
+        ArgumentCaptor<BulkOperation> captor = ArgumentCaptor.forClass(BulkOperation.class);
+        verify(bulkIndexer).add(captor.capture(), longThat(bytes -> bytes > testLogEntry.getMessage().length()));
+        assertTrue(captor.getValue().isIndex());
+        assertEquals("logs", captor.getValue().index().index());
+        BinaryData document = assertInstanceOf(BinaryData.class, captor.getValue().index().document());
+        assertTrue(new String(document.asByteBuffer().array(), StandardCharsets.UTF_8)
+                .contains("\"message\":\"Test log message\""));
+        verify(elasticsearchClient, never()).index(any(java.util.function.Function.class));
+    }
+
+    @Test
+    void testIndexLogAsync_BulkEnabled_WithIdBuffersCreateOperation() {
+        // Given
+        ReflectionTestUtils.setField(elasticsearchService, "bulkEnabled", true);
+        testLogEntry.setId("01HQ0000000000000000000000");
+        when(bulkIndexer.add(any(BulkOperation.class), anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(IndexResult.created(testLogEntry.getId())));
+
+        // When
+        elasticsearchService.indexLogAsync(testLogEntry).join();
+
+        // Then
+        ArgumentCaptor<BulkOperation> captor = ArgumentCaptor.forClass(BulkOperation.class);
+        verify(bulkIndexer).add(captor.capture(), anyLong());
+        assertTrue(captor.getValue().isCreate());
+        assertEquals("01HQ0000000000000000000000", captor.getValue().create().id());
+    }
+
+    @Test
+    void testIndexLogAsync_OutageSpoolsLog() {
+        // Given - Elasticsearch rejects the bulk item under load
+        ReflectionTestUtils.setField(elasticsearchService, "bulkEnabled", true);
+        testLogEntry.setId("01HQ0000000000000000000000");
+        when(bulkIndexer.add(any(BulkOperation.class), anyLong())).thenReturn(CompletableFuture.failedFuture(
+                new BulkIndexer.BulkItemFailureException(429, "es_rejected_execution_exception", "queue full")));
+        when(logSpool.isEnabled()).thenReturn(true);
+        when(logSpool.append(eq("logs"), eq("01HQ0000000000000000000000"), any(byte[].class))).thenReturn(true);
+
+        // When
+        CompletableFuture<IndexResult> result = elasticsearchService.indexLogAsync(testLogEntry);
+
+        // Then
+        assertEquals("01HQ0000000000000000000000", result.join().documentId());
+        ArgumentCaptor<byte[]> document = ArgumentCaptor.forClass(byte[].class);
+        verify(logSpool).append(eq("logs"), eq("01HQ0000000000000000000000"), document.capture());
+        assertTrue(new String(document.getValue(), StandardCharsets.UTF_8).contains("\"message\":\"Test log message\""));
+    }
+
+    @Test
+    void testIndexLogAsync_DocumentRejectionIsNotSpooled() {
+        // Given - a mapping error would fail again on replay
+        ReflectionTestUtils.setField(elasticsearchService, "bulkEnabled", true);
+        testLogEntry.setId("01HQ0000000000000000000000");
+        when(bulkIndexer.add(any(BulkOperation.class), anyLong())).thenReturn(CompletableFuture.failedFuture(
+                new BulkIndexer.BulkItemFailureException(400, "mapper_parsing_exception", "bad field")));
+        when(logSpool.isEnabled()).thenReturn(true);
+
+        // When
+        CompletableFuture<IndexResult> result = elasticsearchService.indexLogAsync(testLogEntry);
+
+        // Then
+        assertTrue(result.isCompletedExceptionally());
+        verify(logSpool, never()).append(anyString(), anyString(), any(byte[].class));
+    }
+
+    @Test
+    void testIsOutage() {
+        // When / Then
+        assertTrue(ElasticsearchService.isOutage(new ElasticsearchService.ElasticsearchIndexException(
+                "Bulk request failed", new IOException("Connection refused"))));
+        assertTrue(ElasticsearchService.isOutage(new BulkIndexer.BulkItemFailureException(503, "unavailable_shards_exception", "")));
+        assertFalse(ElasticsearchService.isOutage(new ElasticsearchService.ElasticsearchIndexException(
+                "Failed to index log", new ElasticsearchException("index", ErrorResponse.of(r -> r
+                        .status(400)
+                        .error(e -> e.type("mapper_parsing_exception").reason("bad field")))))));
+        assertFalse(ElasticsearchService.isOutage(new IllegalStateException("Bulk indexer is closed")));
+    }
+
+    @Test
+    void testIndexLog_DuplicateIdIsTreatedAsIndexed() throws IOException {
+        // Given - document with this ID was already created by an earlier delivery
+        testLogEntry.setId("01HQ0000000000000000000000");
+        ElasticsearchException conflict = new ElasticsearchException("index", ErrorResponse.of(r -> r
+                .status(409)
+                .error(e -> e.type("version_conflict_engine_exception").reason("document already exists"))));
+        doThrow(conflict).when(elasticsearchClient).index(any(java.util.function.Function.class));
+
+        // When
+        String documentId = elasticsearchService.indexLog(testLogEntry);
+
+        // Then
+        assertEquals("01HQ0000000000000000000000", documentId);
+    }
+
+    @Test
+    void testIndexLog_OtherElasticsearchErrorFails() throws IOException {
+        // Given
+        testLogEntry.setId("01HQ0000000000000000000000");
+        ElasticsearchException rejected = new ElasticsearchException("index", ErrorResponse.of(r -> r
+                .status(400)
+                .error(e -> e.type("mapper_parsing_exception").reason("failed to parse"))));
+        doThrow(rejected).when(elasticsearchClient).index(any(java.util.function.Function.class));
+
+        // When & Then
+        assertThrows(ElasticsearchService.ElasticsearchIndexException.class, () ->
+            elasticsearchService.indexLog(testLogEntry)
+        );
+    }
+
     @Test
     void testIsAvailable_Success() throws IOException {
         // Given
@@ -269,8 +465,8 @@ class ElasticsearchServiceTest {
     @Test
     void testInit_WithNullClient() {
         // Given - client is null
-        ElasticsearchService service = new ElasticsearchService(null);
-        ReflectionTestUtils.setField(service, "indexName", "logs");
+        ElasticsearchService service = new ElasticsearchService(null, null,
+                new LogIndexRouter("logs", false, 90), null, null, null);
 
         // When
         service.init();
@@ -373,6 +569,182 @@ class ElasticsearchServiceTest {
         assertEquals("test-service", logEntry.getService());
     }
 
+    @Test
+    void testSearchLogs_CursorPagination_FirstPageOpensPointInTime() throws IOException {
+        // Given
+        when(elasticsearchClient.openPointInTime(any(Function.class))).thenReturn(OpenPointInTimeResponse.of(o -> o
+                .id("pit-1")
+                .shards(sh -> sh.total(1).failed(0).successful(1))));
+        List<SearchRequest> requests = captureSearchRequests(cursorPage("pit-2", 2));
+
+        LogSearchRequest request = LogSearchRequest.builder().size(2).cursorPagination(true).build();
+
+        // When
+        LogSearchResponse response = elasticsearchService.searchLogs(request);
+
+        // Then
+        SearchRequest sent = requests.get(0);
+        assertEquals("pit-1", sent.pit().id());
+        assertTrue(sent.index().isEmpty(), "index comes from the point in time");
+        assertNull(sent.from());
+        assertEquals(List.of("timestamp", "_shard_doc"), sent.sort().stream().map(so -> so.field().field()).toList());
+        assertEquals(2, response.getLogs().size());
+
+        ElasticsearchService.SearchCursor next = ElasticsearchService.decodeSearchCursor(response.getNextCursor());
+        assertEquals("pit-2", next.pitId());
+        assertEquals(1_000L, next.sortValues().get(0).longValue());
+        assertEquals(1L, next.sortValues().get(1).longValue());
+        verify(elasticsearchClient, never()).closePointInTime(any(Function.class));
+    }
+
+    @Test
+    void testSearchLogs_CursorPagination_LastPageClosesPointInTime() throws IOException {
+        // Given
+        List<SearchRequest> requests = captureSearchRequests(cursorPage("pit-1", 1));
+        String cursor = ElasticsearchService.encodeSearchCursor(new ElasticsearchService.SearchCursor(
+                "pit-1", List.of(FieldValue.of(2_000L), FieldValue.of(7L))));
+
+        LogSearchRequest request = LogSearchRequest.builder().size(2).cursorPagination(true).cursor(cursor).build();
+
+        // When
+        LogSearchResponse response = elasticsearchService.searchLogs(request);
+
+        // Then
+        assertEquals(List.of(2_000L, 7L),
+                requests.get(0).searchAfter().stream().map(FieldValue::longValue).toList());
+        assertNull(response.getNextCursor());
+        verify(elasticsearchClient, never()).openPointInTime(any(Function.class));
+        verify(elasticsearchClient).closePointInTime(any(Function.class));
+    }
+
+    @Test
+    void testSearchLogs_CursorPagination_ExpiredCursor() throws IOException {
+        // Given
+        doThrow(new ElasticsearchException("search", ErrorResponse.of(e -> e
+                .status(404)
+                .error(c -> c.type("search_context_missing_exception").reason("No search context found")))))
+                .when(elasticsearchClient).search(any(Function.class), eq(Map.class));
+        String cursor = ElasticsearchService.encodeSearchCursor(new ElasticsearchService.SearchCursor(
+                "pit-1", List.of(FieldValue.of(2_000L))));
+
+        LogSearchRequest request = LogSearchRequest.builder().size(2).cursorPagination(true).cursor(cursor).build();
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> elasticsearchService.searchLogs(request));
+    }
+
+    @Test
+    void testStreamLogs_PagesThroughPointInTime() throws IOException {
+        // Given - a full page, then a short last page
+        ReflectionTestUtils.setField(elasticsearchService, "exportPageSize", 2);
+        when(elasticsearchClient.openPointInTime(any(Function.class))).thenReturn(OpenPointInTimeResponse.of(o -> o
+                .id("pit-1")
+                .shards(sh -> sh.total(1).failed(0).successful(1))));
+        List<SearchRequest> requests = new java.util.ArrayList<>();
+        doAnswer(inv -> {
+            @SuppressWarnings("unchecked")
+            Function<SearchRequest.Builder, ObjectBuilder<SearchRequest>> fn = inv.getArgument(0);
+            requests.add(fn.apply(new SearchRequest.Builder()).build());
+            return requests.size() == 1 ? cursorPage("pit-1", 2) : cursorPage("pit-1", 1);
+        }).when(elasticsearchClient).search(any(Function.class), eq(Map.class));
+        List<String> messages = new java.util.ArrayList<>();
+
+        // When
+        elasticsearchService.streamLogs(LogSearchRequest.builder().size(50).build(),
+                entry -> messages.add(entry.getMessage()));
+
+        // Then
+        assertEquals(List.of("m1", "m2", "m1"), messages);
+        assertEquals(2, requests.size());
+        assertEquals(2, requests.get(1).size());
+        assertEquals(List.of(1_000L, 1L), requests.get(1).searchAfter().stream().map(FieldValue::longValue).toList());
+        verify(elasticsearchClient, times(1)).openPointInTime(any(Function.class));
+        verify(elasticsearchClient).closePointInTime(any(Function.class));
+    }
+
+    @Test
+    void testStreamLogs_ConsumerFailureClosesPointInTime() throws IOException {
+        // Given
+        ReflectionTestUtils.setField(elasticsearchService, "exportPageSize", 2);
+        when(elasticsearchClient.openPointInTime(any(Function.class))).thenReturn(OpenPointInTimeResponse.of(o -> o
+                .id("pit-1")
+                .shards(sh -> sh.total(1).failed(0).successful(1))));
+        captureSearchRequests(cursorPage("pit-1", 2));
+        int[] seen = {0};
+
+        // When
+        assertThrows(IllegalStateException.class, () -> elasticsearchService.streamLogs(
+                LogSearchRequest.builder().build(),
+                entry -> {
+                    if (++seen[0] == 3) {
+                        throw new IllegalStateException("client went away");
+                    }
+                }));
+
+        // Then
+        verify(elasticsearchClient).closePointInTime(any(Function.class));
+    }
+
+    @Test
+    void testStreamLogs_DisconnectDuringFirstPageClosesPointInTime() throws IOException {
+        // Given
+        ReflectionTestUtils.setField(elasticsearchService, "exportPageSize", 2);
+        when(elasticsearchClient.openPointInTime(any(Function.class))).thenReturn(OpenPointInTimeResponse.of(o -> o
+                .id("pit-1")
+                .shards(sh -> sh.total(1).failed(0).successful(1))));
+        captureSearchRequests(cursorPage("pit-1", 2));
+
+        // When - the first log of the first page cannot be written
+        assertThrows(IllegalStateException.class, () -> elasticsearchService.streamLogs(
+                LogSearchRequest.builder().build(),
+                entry -> {
+                    throw new IllegalStateException("client went away");
+                }));
+
+        // Then
+        verify(elasticsearchClient).closePointInTime(any(Function.class));
+    }
+
+    @Test
+    void testStreamLogs_FirstSearchFailureClosesPointInTime() throws IOException {
+        // Given
+        when(elasticsearchClient.openPointInTime(any(Function.class))).thenReturn(OpenPointInTimeResponse.of(o -> o
+                .id("pit-1")
+                .shards(sh -> sh.total(1).failed(0).successful(1))));
+        doThrow(new IOException("Search failed")).when(elasticsearchClient).search(any(Function.class), eq(Map.class));
+
+        // When
+        assertThrows(ElasticsearchService.ElasticsearchIndexException.class, () -> elasticsearchService.streamLogs(
+                LogSearchRequest.builder().build(), entry -> { }));
+
+        // Then
+        verify(elasticsearchClient).closePointInTime(any(Function.class));
+    }
+
+    @Test
+    void testSearchCursor_RoundTrip() {
+        // Given
+        var cursor = new ElasticsearchService.SearchCursor("p/i+t=", List.of(
+                FieldValue.of(1L), FieldValue.of(2.5), FieldValue.of("a.b|c"), FieldValue.of(true), FieldValue.NULL));
+
+        // When
+        var decoded = ElasticsearchService.decodeSearchCursor(ElasticsearchService.encodeSearchCursor(cursor));
+
+        // Then
+        assertEquals("p/i+t=", decoded.pitId());
+        assertEquals(1L, decoded.sortValues().get(0).longValue());
+        assertEquals(2.5, decoded.sortValues().get(1).doubleValue());
+        assertEquals("a.b|c", decoded.sortValues().get(2).stringValue());
+        assertTrue(decoded.sortValues().get(3).booleanValue());
+        assertTrue(decoded.sortValues().get(4).isNull());
+    }
+
+    @Test
+    void testSearchCursor_Invalid() {
+        assertThrows(IllegalArgumentException.class, () -> ElasticsearchService.decodeSearchCursor("not a cursor"));
+        assertThrows(IllegalArgumentException.class, () -> ElasticsearchService.decodeSearchCursor("cGl0.eDE"));
+    }
+
     @Test
     void testSearchLogs_WithFilters() throws IOException {
         // Given - search with query, levels, services, time range (invoke Function to cover buildSearchRequest/filters)
@@ -413,39 +785,87 @@ class ElasticsearchServiceTest {
 
     @Test
     void testGetDashboardMetrics_Success() throws IOException {
-        // Given - 3 search calls: total, error, warning
-        var totalResponse = SearchResponse.of(s -> s
+        // Given - one search: total hits plus a filters aggregation for errors, warnings and anomalies
+        var aggMap = new HashMap<String, co.elastic.clients.elasticsearch._types.aggregations.Aggregate>();
+        aggMap.put("metrics", metricsAggregate(Map.of(
+                "errors", FiltersBucket.of(b -> b.docCount(50)),
+                "warnings", FiltersBucket.of(b -> b.docCount(100)),
+                "anomalies", FiltersBucket.of(b -> b.docCount(7)),
+                "last_hour", FiltersBucket.of(b -> b.docCount(120)))));
+        SearchResponse<Map<String, Object>> searchResponse = SearchResponse.of(s -> s
                 .took(0)
                 .timedOut(false)
                 .shards(sh -> sh.total(1).failed(0).successful(1))
                 .hits(h -> h.total(t -> t.value(1000L).relation(TotalHitsRelation.Eq)).hits(List.of()))
-        );
-        var errorResponse = SearchResponse.of(s -> s
-                .took(0)
-                .timedOut(false)
-                .shards(sh -> sh.total(1).failed(0).successful(1))
-                .hits(h -> h.total(t -> t.value(50L).relation(TotalHitsRelation.Eq)).hits(List.of()))
-        );
-        var warningResponse = SearchResponse.of(s -> s
-                .took(0)
-                .timedOut(false)
-                .shards(sh -> sh.total(1).failed(0).successful(1))
-                .hits(h -> h.total(t -> t.value(100L).relation(TotalHitsRelation.Eq)).hits(List.of()))
-        );
-
-        when(elasticsearchClient.search(any(Function.class), eq(Map.class)))
-                .thenReturn(totalResponse, errorResponse, warningResponse);
+                .aggregations(aggMap));
+        List<SearchRequest> requests = captureSearchRequests(searchResponse);
 
         // When
         DashboardMetricsDTO metrics = elasticsearchService.getDashboardMetrics();
 
         // Then
+        assertEquals(1, requests.size());
+        assertEquals(List.of("logs"), requests.get(0).index());
+        assertTrue(requests.get(0).trackTotalHits().enabled());
+        assertEquals(Set.of("errors", "warnings", "anomalies", "last_hour"),
+                requests.get(0).aggregations().get("metrics").filters().filters().keyed().keySet());
         assertNotNull(metrics);
         assertEquals(1000L, metrics.getTotalLogs());
         assertEquals(50L, metrics.getErrorCount());
         assertEquals(100L, metrics.getWarningCount());
+        assertEquals(7L, metrics.getAnomalyCount());
         assertEquals(5.0, metrics.getErrorRate()); // 50/1000 * 100
-        assertEquals(1000.0 / (24 * 60), metrics.getLogsPerMinute());
+        assertEquals(2.0, metrics.getLogsPerMinute()); // 120 in the last hour
+    }
+
+    @Test
+    void testGetDashboardSummary_OneRequestForAllPanels() throws IOException {
+        // Given
+        Instant hour = Instant.parse("2024-01-15T10:00:00Z");
+        var volume = DateHistogramAggregate.of(a -> a.buckets(b -> b.array(List.of(
+                DateHistogramBucket.of(bk -> bk.key(hour.toEpochMilli()).docCount(42))))));
+        var aggMap = new HashMap<String, co.elastic.clients.elasticsearch._types.aggregations.Aggregate>();
+        aggMap.put("metrics", metricsAggregate(Map.of(
+                "errors", FiltersBucket.of(b -> b.docCount(10)),
+                "warnings", FiltersBucket.of(b -> b.docCount(20)),
+                "anomalies", FiltersBucket.of(b -> b.docCount(3)))));
+        aggMap.put("level_distribution", StringTermsAggregate.of(a -> a.buckets(b -> b.array(List.of(
+                StringTermsBucket.of(bk -> bk.key(FieldValue.of("INFO")).docCount(70))))))._toAggregate());
+        aggMap.put("top_services", StringTermsAggregate.of(a -> a.buckets(b -> b.array(List.of(
+                StringTermsBucket.of(bk -> bk.key(FieldValue.of("checkout")).docCount(60))))))._toAggregate());
+        aggMap.put("volume_range", FilterAggregate.of(a -> a.docCount(42)
+                .aggregations("volume_over_time", volume._toAggregate()))._toAggregate());
+        SearchResponse<Map<String, Object>> searchResponse = SearchResponse.of(s -> s
+                .took(0)
+                .timedOut(false)
+                .shards(sh -> sh.total(1).failed(0).successful(1))
+                .hits(h -> h.total(t -> t.value(100L).relation(TotalHitsRelation.Eq)).hits(List.of()))
+                .aggregations(aggMap));
+        List<SearchRequest> requests = captureSearchRequests(searchResponse);
+
+        // When
+        DashboardSummaryDTO summary = elasticsearchService.getDashboardSummary(hour, hour.plusSeconds(3600), 5);
+
+        // Then
+        assertEquals(1, requests.size());
+        assertNull(requests.get(0).query(), "time range only applies to the volume panel");
+        assertEquals(5, requests.get(0).aggregations().get("top_services").terms().size());
+        assertEquals(100L, summary.getMetrics().getTotalLogs());
+        assertEquals(3L, summary.getMetrics().getAnomalyCount());
+        assertEquals(1, summary.getLogVolume().size());
+        assertEquals(42L, summary.getLogVolume().get(0).getCount());
+        assertEquals(70.0, summary.getLevelDistribution().get(0).getPercentage());
+        assertEquals("checkout", summary.getTopServices().get(0).getService());
+    }
+
+    @Test
+    void testGetDashboardSummary_IOException() throws IOException {
+        // Given
+        doThrow(new IOException("Search failed")).when(elasticsearchClient).search(any(Function.class), eq(Map.class));
+
+        // When / Then
+        assertThrows(ElasticsearchService.ElasticsearchIndexException.class,
+                () -> elasticsearchService.getDashboardSummary(Instant.EPOCH, Instant.now(), 10));
     }
 
     @Test
@@ -889,4 +1309,466 @@ class ElasticsearchServiceTest {
         assertNotNull(result);
         assertTrue(result.isEmpty());
     }
+
+    @Test
+    void testInit_RollupEnabledCreatesRollupIndex() throws IOException {
+        // Given - neither index exists
+        ReflectionTestUtils.setField(elasticsearchService, "rollupEnabled", true);
+        ReflectionTestUtils.setField(elasticsearchService, "rollupIndexName", "rollup-logs-1m");
+        when(elasticsearchClient.indices()).thenReturn(indicesClient);
+        when(indicesClient.exists(any(ExistsRequest.class))).thenReturn(booleanResponse);
+        when(booleanResponse.value()).thenReturn(false);
+        doReturn(createIndexResponse).when(indicesClient).create(any(Function.class));
+        when(createIndexResponse.acknowledged()).thenReturn(true);
+
+        // When
+        elasticsearchService.init();
+
+        // Then
+        ArgumentCaptor<ExistsRequest> captor = ArgumentCaptor.forClass(ExistsRequest.class);
+        verify(indicesClient, times(2)).exists(captor.capture());
+        assertEquals(List.of("rollup-logs-1m"), captor.getAllValues().get(1).index());
+        verify(indicesClient, times(2)).create(any(Function.class));
+    }
+
+    @Test
+    void testGetDashboardMetrics_FromRollupSumsCounts() throws IOException {
+        // Given - one search over the rollup index with summed counters
+        useRollupForDashboard();
+        var aggMap = new HashMap<String, co.elastic.clients.elasticsearch._types.aggregations.Aggregate>();
+        aggMap.put("total", SumAggregate.of(a -> a.value(1000.0))._toAggregate());
+        aggMap.put("metrics", metricsAggregate(Map.of(
+                "errors", FiltersBucket.of(b -> b.docCount(3)
+                        .aggregations("total", SumAggregate.of(su -> su.value(50.0))._toAggregate())),
+                "warnings", FiltersBucket.of(b -> b.docCount(4)
+                        .aggregations("total", SumAggregate.of(su -> su.value(100.0))._toAggregate())),
+                "last_hour", FiltersBucket.of(b -> b.docCount(60)
+                        .aggregations("total", SumAggregate.of(su -> su.value(300.0))._toAggregate())))));
+        aggMap.put("anomalies", SumAggregate.of(a -> a.value(7.0))._toAggregate());
+        List<String> searchedIndices = captureSearchedIndices(aggregationResponse(aggMap));
+
+        // When
+        DashboardMetricsDTO metrics = elasticsearchService.getDashboardMetrics();
+
+        // Then
+        assertEquals(List.of("rollup-logs-1m"), searchedIndices);
+        assertEquals(1000L, metrics.getTotalLogs());
+        assertEquals(50L, metrics.getErrorCount());
+        assertEquals(100L, metrics.getWarningCount());
+        assertEquals(7L, metrics.getAnomalyCount());
+        assertEquals(5.0, metrics.getErrorRate());
+        assertEquals(5.0, metrics.getLogsPerMinute());
+    }
+
+    @Test
+    void testGetLogVolume_FromRollupUsesSummedBucketCounts() throws IOException {
+        // Given
+        useRollupForDashboard();
+        Instant hour = Instant.parse("2024-05-01T10:00:00Z");
+        var bucket = DateHistogramBucket.of(b -> b.key(hour.toEpochMilli()).docCount(60)
+                .aggregations("total", SumAggregate.of(su -> su.value(4200.0))._toAggregate()));
+        var aggMap = new HashMap<String, co.elastic.clients.elasticsearch._types.aggregations.Aggregate>();
+        aggMap.put("volume_over_time",
+                DateHistogramAggregate.of(a -> a.buckets(b -> b.array(List.of(bucket))))._toAggregate());
+        List<String> searchedIndices = captureSearchedIndices(aggregationResponse(aggMap));
+
+        // When
+        List<LogVolumeDTO> result = elasticsearchService.getLogVolume(hour, hour.plusSeconds(3600));
+
+        // Then
+        assertEquals(List.of("rollup-logs-1m"), searchedIndices);
+        assertEquals(1, result.size());
+        assertEquals(hour, result.get(0).getTimestamp());
+        assertEquals(4200L, result.get(0).getCount());
+    }
+
+    @Test
+    void testGetTopServices_FromRollupUsesSummedBucketCounts() throws IOException {
+        // Given - a service with fewer rollup documents but more logs ranks first
+        useRollupForDashboard();
+        var bucket1 = StringTermsBucket.of(b -> b.key(FieldValue.of("api-gateway")).docCount(2)
+                .aggregations("total", SumAggregate.of(su -> su.value(900.0))._toAggregate()));
+        var bucket2 = StringTermsBucket.of(b -> b.key(FieldValue.of("auth-service")).docCount(5)
+                .aggregations("total", SumAggregate.of(su -> su.value(150.0))._toAggregate()));
+        var aggMap = new HashMap<String, co.elastic.clients.elasticsearch._types.aggregations.Aggregate>();
+        aggMap.put("top_services",
+                StringTermsAggregate.of(a -> a.buckets(b -> b.array(List.of(bucket1, bucket2))))._toAggregate());
+        captureSearchedIndices(aggregationResponse(aggMap));
+
+        // When
+        List<ServiceLogCountDTO> result = elasticsearchService.getTopServices(10);
+
+        // Then
+        assertEquals(2, result.size());
+        assertEquals("api-gateway", result.get(0).getService());
+        assertEquals(900L, result.get(0).getCount());
+        assertEquals(150L, result.get(1).getCount());
+    }
+
+    @Test
+    void testGetLogVolume_RangeBeforeRollupStartQueriesRawIndex() throws IOException {
+        // Given - the rollup only counts logs since ROLLUP_START
+        useRollupForDashboard();
+        var aggMap = new HashMap<String, co.elastic.clients.elasticsearch._types.aggregations.Aggregate>();
+        aggMap.put("volume_over_time",
+                DateHistogramAggregate.of(a -> a.buckets(b -> b.array(List.of())))._toAggregate());
+        List<String> searchedIndices = captureSearchedIndices(aggregationResponse(aggMap));
+
+        // When
+        elasticsearchService.getLogVolume(ROLLUP_START.minusSeconds(3600), ROLLUP_START.plusSeconds(3600));
+
+        // Then
+        assertFalse(searchedIndices.contains("rollup-logs-1m"));
+    }
+
+    @Test
+    void testGetDashboardMetrics_RawLogsOlderThanRollupQueryRawIndex() throws IOException {
+        // Given - the oldest raw log predates the rollup
+        useRollupForDashboard();
+        ReflectionTestUtils.setField(elasticsearchService, "rollupCoversAllLogs", false);
+        var aggMap = new HashMap<String, co.elastic.clients.elasticsearch._types.aggregations.Aggregate>();
+        aggMap.put("oldest", MinAggregate.of(a -> a.value(ROLLUP_START.minusSeconds(86400).toEpochMilli()))._toAggregate());
+        List<String> searchedIndices = captureSearchedIndices(aggregationResponse(aggMap));
+
+        // When
+        elasticsearchService.getDashboardMetrics();
+
+        // Then
+        assertEquals(List.of("logs", "logs"), searchedIndices);
+        assertFalse((Boolean) ReflectionTestUtils.getField(elasticsearchService, "rollupCoversAllLogs"));
+    }
+
+    @Test
+    void testGetDashboardMetrics_NoRawLogsOlderThanRollupSwitchesToRollup() throws IOException {
+        // Given
+        useRollupForDashboard();
+        ReflectionTestUtils.setField(elasticsearchService, "rollupCoversAllLogs", false);
+        var aggMap = new HashMap<String, co.elastic.clients.elasticsearch._types.aggregations.Aggregate>();
+        aggMap.put("oldest", MinAggregate.of(a -> a.value(ROLLUP_START.plusSeconds(60).toEpochMilli()))._toAggregate());
+        List<String> searchedIndices = captureSearchedIndices(aggregationResponse(aggMap));
+
+        // When
+        elasticsearchService.getDashboardMetrics();
+
+        // Then
+        assertEquals(List.of("logs", "rollup-logs-1m"), searchedIndices);
+    }
+
+    @Test
+    void testInit_ExistingRollupIndexReadsRecordedStart() throws IOException {
+        // Given
+        ReflectionTestUtils.setField(elasticsearchService, "rollupEnabled", true);
+        ReflectionTestUtils.setField(elasticsearchService, "rollupIndexName", "rollup-logs-1m");
+        when(elasticsearchClient.indices()).thenReturn(indicesClient);
+        when(indicesClient.exists(any(ExistsRequest.class))).thenReturn(booleanResponse);
+        when(booleanResponse.value()).thenReturn(true);
+        doReturn(GetMappingResponse.of(r -> r.result("rollup-logs-1m", IndexMappingRecord.of(i -> i
+                .mappings(m -> m.meta(ElasticsearchService.ROLLUP_META_START, JsonData.of(ROLLUP_START.toString())))))))
+                .when(indicesClient).getMapping(any(Function.class));
+
+        // When
+        elasticsearchService.init();
+
+        // Then
+        assertEquals(ROLLUP_START, ReflectionTestUtils.getField(elasticsearchService, "rollupStart"));
+        verify(indicesClient, never()).putMapping(any(Function.class));
+    }
+
+    @Test
+    void testGetLogLevelDistribution_RollupDisabledQueriesRawIndex() throws IOException {
+        // Given - use-for-dashboard without the rollup being maintained
+        ReflectionTestUtils.setField(elasticsearchService, "rollupForDashboard", true);
+        var aggMap = new HashMap<String, co.elastic.clients.elasticsearch._types.aggregations.Aggregate>();
+        aggMap.put("level_distribution",
+                StringTermsAggregate.of(a -> a.buckets(b -> b.array(List.of())))._toAggregate());
+        List<String> searchedIndices = captureSearchedIndices(aggregationResponse(aggMap));
+
+        // When
+        elasticsearchService.getLogLevelDistribution();
+
+        // Then
+        assertEquals(List.of("logs"), searchedIndices);
+    }
+
+    @Test
+    void testSearchLogsRaw_CopiesSourceIntoEnvelope() throws IOException {
+        // Given
+        when(elasticsearchClient._jsonpMapper()).thenReturn(new JacksonJsonpMapper());
+        List<Request> requests = captureRawRequests("""
+                {"hits":{"total":{"value":42},"hits":[
+                  {"_id":"doc-1","_source":{"level":"ERROR","message":"boom","metadata":{"anomalyScore":0.9}}},
+                  {"_id":"doc-2","_source":{"level":"WARN","message":"hm"}}]}}""");
+        LogSearchRequest request = LogSearchRequest.builder().page(1).size(2).sortBy("timestamp").sortOrder("desc").build();
+
+        // When
+        String json = writeRaw(elasticsearchService.searchLogsRaw(request, List.of("level", "message", "metadata")));
+
+        // Then
+        Request sent = requests.get(0);
+        assertEquals("/logs/_search", sent.getEndpoint());
+        assertEquals("true", sent.getParameters().get("ignore_unavailable"));
+        assertTrue(sent.getParameters().get("filter_path").contains("hits.hits._source"));
+        String body = EntityUtils.toString(sent.getEntity());
+        assertTrue(body.contains("\"includes\":[\"level\",\"message\",\"metadata\"]"), body);
+        assertTrue(body.contains("\"from\":2"), body);
+        assertEquals("{\"page\":1,\"size\":2,\"total\":42,\"logs\":["
+                + "{\"id\":\"doc-1\",\"level\":\"ERROR\",\"message\":\"boom\",\"metadata\":{\"anomalyScore\":0.9}},"
+                + "{\"id\":\"doc-2\",\"level\":\"WARN\",\"message\":\"hm\"}]}", json);
+    }
+
+    @Test
+    void testSearchLogsRaw_NoHits() throws IOException {
+        // Given - filter_path drops the empty hits array
+        when(elasticsearchClient._jsonpMapper()).thenReturn(new JacksonJsonpMapper());
+        captureRawRequests("{\"hits\":{\"total\":{\"value\":0}}}");
+        LogSearchRequest request = LogSearchRequest.builder().size(50).sortBy("timestamp").sortOrder("desc").build();
+
+        // When
+        String json = writeRaw(elasticsearchService.searchLogsRaw(request, null));
+
+        // Then
+        assertEquals("{\"page\":0,\"size\":50,\"total\":0,\"logs\":[]}", json);
+    }
+
+    @Test
+    void testSearchLogsRaw_CursorPaginationFullPageReturnsCursor() throws IOException {
+        // Given
+        when(elasticsearchClient._jsonpMapper()).thenReturn(new JacksonJsonpMapper());
+        when(elasticsearchClient.openPointInTime(any(Function.class))).thenReturn(OpenPointInTimeResponse.of(o -> o
+                .id("pit-1")
+                .shards(sh -> sh.total(1).failed(0).successful(1))));
+        List<Request> requests = captureRawRequests("""
+                {"pit_id":"pit-2","hits":{"total":{"value":5},"hits":[
+                  {"_id":"doc-1","_source":{"message":"a"},"sort":[2000,4]},
+                  {"_id":"doc-2","_source":{"message":"b"},"sort":[1000,3]}]}}""");
+        LogSearchRequest request = LogSearchRequest.builder()
+                .size(2).sortBy("timestamp").sortOrder("desc").cursorPagination(true).build();
+
+        // When
+        Map<String, Object> page = new ObjectMapper().readValue(
+                writeRaw(elasticsearchService.searchLogsRaw(request, null)), Map.class);
+
+        // Then
+        assertEquals("/_search", requests.get(0).getEndpoint());
+        ElasticsearchService.SearchCursor next = ElasticsearchService.decodeSearchCursor((String) page.get("nextCursor"));
+        assertEquals("pit-2", next.pitId());
+        assertEquals(List.of(1_000L, 3L), next.sortValues().stream().map(FieldValue::longValue).toList());
+        verify(elasticsearchClient, never()).closePointInTime(any(Function.class));
+    }
+
+    @Test
+    void testSearchLogsRaw_FirstPageFailureClosesPointInTime() throws IOException {
+        // Given
+        when(elasticsearchClient._jsonpMapper()).thenReturn(new JacksonJsonpMapper());
+        when(elasticsearchClient.openPointInTime(any(Function.class))).thenReturn(OpenPointInTimeResponse.of(o -> o
+                .id("pit-1")
+                .shards(sh -> sh.total(1).failed(0).successful(1))));
+        doThrow(new IOException("Search failed")).when(restClient).performRequest(any(Request.class));
+        LogSearchRequest request = LogSearchRequest.builder()
+                .size(2).sortBy("timestamp").sortOrder("desc").cursorPagination(true).build();
+
+        // When
+        assertThrows(ElasticsearchService.ElasticsearchIndexException.class,
+                () -> elasticsearchService.searchLogsRaw(request, null));
+
+        // Then
+        verify(elasticsearchClient).closePointInTime(any(Function.class));
+    }
+
+    @Test
+    void testSearchLogsRaw_UnknownField() {
+        // Given
+        LogSearchRequest request = LogSearchRequest.builder().size(2).sortBy("timestamp").sortOrder("desc").build();
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class,
+                () -> elasticsearchService.searchLogsRaw(request, List.of("message", "password")));
+        verifyNoInteractions(restClient);
+    }
+
+    @Test
+    void testIndexLogAsync_RollingWritesDailyIndexOfTimestamp() {
+        // Given
+        useRollingIndices();
+        ReflectionTestUtils.setField(elasticsearchService, "bulkEnabled", true);
+        testLogEntry.setTimestamp(Instant.parse("2026-03-01T23:59:59Z"));
+        when(bulkIndexer.add(any(BulkOperation.class), anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(IndexResult.created("doc-bulk")));
+
+        // When
+        elasticsearchService.indexLogAsync(testLogEntry);
+
+        // Then
+        ArgumentCaptor<BulkOperation> captor = ArgumentCaptor.forClass(BulkOperation.class);
+        verify(bulkIndexer).add(captor.capture(), anyLong());
+        assertEquals("logs-2026.03.01", captor.getValue().index().index());
+    }
+
+    @Test
+    void testSearchLogs_RollingSearchesOverlappingIndices() throws IOException {
+        // Given
+        useRollingIndices();
+        List<SearchRequest> requests = captureSearchRequests(cursorPage(null, 0));
+        LogSearchRequest request = LogSearchRequest.builder()
+                .size(10).sortBy("timestamp").sortOrder("desc")
+                .startTime(Instant.parse("2026-03-01T12:00:00Z"))
+                .endTime(Instant.parse("2026-03-02T06:00:00Z"))
+                .build();
+
+        // When
+        elasticsearchService.searchLogs(request);
+
+        // Then
+        assertEquals(List.of("logs", "logs-2026.03.01", "logs-2026.03.02"), requests.get(0).index());
+        assertTrue(requests.get(0).ignoreUnavailable());
+    }
+
+    @Test
+    void testGetLogLevelDistribution_RollingSearchesAllIndices() throws IOException {
+        // Given
+        useRollingIndices();
+        List<String> indices = captureSearchedIndices(cursorPage(null, 0));
+
+        // When
+        elasticsearchService.getLogLevelDistribution();
+
+        // Then
+        assertEquals(List.of("logs", "logs-*.*.*"), indices);
+    }
+
+    @Test
+    void testInit_RollingPutsIndexTemplate() throws IOException {
+        // Given
+        useRollingIndices();
+        when(elasticsearchClient.indices()).thenReturn(indicesClient);
+        List<PutIndexTemplateRequest> templates = new java.util.ArrayList<>();
+        doAnswer(inv -> {
+            @SuppressWarnings("unchecked")
+            Function<PutIndexTemplateRequest.Builder, ObjectBuilder<PutIndexTemplateRequest>> fn = inv.getArgument(0);
+            templates.add(fn.apply(new PutIndexTemplateRequest.Builder()).build());
+            return PutIndexTemplateResponse.of(r -> r.acknowledged(true));
+        }).when(indicesClient).putIndexTemplate(any(Function.class));
+
+        // When
+        elasticsearchService.init();
+
+        // Then
+        assertEquals(List.of("logs-*.*.*"), templates.get(0).indexPatterns());
+        assertTrue(templates.get(0).priority() < 100, "must not take precedence over the built-in logs-*-* template");
+        assertTrue(templates.get(0).template().mappings().properties().containsKey("timestamp"));
+        verify(indicesClient, never()).create(any(Function.class));
+    }
+
+    @Test
+    void testDeleteExpiredIndices_DeletesDaysBeyondRetention() throws IOException {
+        // Given
+        useRollingIndices();
+        ReflectionTestUtils.setField(elasticsearchService, "retentionDays", 7);
+        when(elasticsearchClient.indices()).thenReturn(indicesClient);
+        GetIndexResponse existing = GetIndexResponse.of(g -> g
+                .result("logs-2026.03.01", i -> i)
+                .result("logs-2026.03.02", i -> i)
+                .result("logs-2026.03.03", i -> i)
+                .result("logs-archive", i -> i));
+        doReturn(existing).when(indicesClient).get(any(Function.class));
+        List<DeleteIndexRequest> deletes = new java.util.ArrayList<>();
+        doAnswer(inv -> {
+            @SuppressWarnings("unchecked")
+            Function<DeleteIndexRequest.Builder, ObjectBuilder<DeleteIndexRequest>> fn = inv.getArgument(0);
+            deletes.add(fn.apply(new DeleteIndexRequest.Builder()).build());
+            return DeleteIndexResponse.of(r -> r.acknowledged(true));
+        }).when(indicesClient).delete(any(Function.class));
+
+        // When
+        elasticsearchService.deleteExpiredIndices(LocalDate.parse("2026-03-09"));
+
+        // Then - 03.02 is the oldest day kept
+        assertEquals(List.of("logs-2026.03.01"), deletes.get(0).index());
+    }
+
+    private void useRollingIndices() {
+        ReflectionTestUtils.setField(elasticsearchService, "indexRouter", new LogIndexRouter("logs", true, 90));
+    }
+
+    private List<Request> captureRawRequests(String responseJson) throws IOException {
+        List<Request> requests = new java.util.ArrayList<>();
+        Response response = mock(Response.class);
+        when(response.getEntity()).thenReturn(new StringEntity(responseJson, ContentType.APPLICATION_JSON));
+        doAnswer(inv -> {
+            requests.add(inv.getArgument(0));
+            return response;
+        }).when(restClient).performRequest(any(Request.class));
+        return requests;
+    }
+
+    private static String writeRaw(ElasticsearchService.RawLogPage page) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        page.writeTo(out);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private void useRollupForDashboard() {
+        ReflectionTestUtils.setField(elasticsearchService, "rollupEnabled", true);
+        ReflectionTestUtils.setField(elasticsearchService, "rollupForDashboard", true);
+        ReflectionTestUtils.setField(elasticsearchService, "rollupIndexName", "rollup-logs-1m");
+        ReflectionTestUtils.setField(elasticsearchService, "rollupStart", ROLLUP_START);
+        ReflectionTestUtils.setField(elasticsearchService, "rollupCoversAllLogs", true);
+    }
+
+    private static SearchResponse<Map<String, Object>> aggregationResponse(
+            Map<String, co.elastic.clients.elasticsearch._types.aggregations.Aggregate> aggregations) {
+        return SearchResponse.of(s -> s
+                .took(0)
+                .timedOut(false)
+                .shards(sh -> sh.total(1).failed(0).successful(1))
+                .hits(h -> h.total(t -> t.value(0L).relation(TotalHitsRelation.Eq)).hits(List.of()))
+                .aggregations(aggregations));
+    }
+
+    private static SearchResponse<Map<String, Object>> cursorPage(String pitId, int hitCount) {
+        List<Hit<Map<String, Object>>> hits = new java.util.ArrayList<>();
+        for (int i = 1; i <= hitCount; i++) {
+            long sortValue = i;
+            hits.add(Hit.of(h -> h
+                    .index("logs")
+                    .id("log-" + sortValue)
+                    .source(Map.<String, Object>of("message", "m" + sortValue))
+                    .sort(List.of(FieldValue.of(sortValue * 500), FieldValue.of(sortValue - 1)))));
+        }
+        return SearchResponse.of(s -> s
+                .took(0)
+                .timedOut(false)
+                .pitId(pitId)
+                .shards(sh -> sh.total(1).failed(0).successful(1))
+                .hits(h -> h.total(t -> t.value(hitCount).relation(TotalHitsRelation.Eq)).hits(hits)));
+    }
+
+    private static co.elastic.clients.elasticsearch._types.aggregations.Aggregate metricsAggregate(
+            Map<String, FiltersBucket> buckets) {
+        return FiltersAggregate.of(a -> a.buckets(b -> b.keyed(buckets)))._toAggregate();
+    }
+
+    private List<SearchRequest> captureSearchRequests(SearchResponse<Map<String, Object>> response) throws IOException {
+        List<SearchRequest> requests = new java.util.ArrayList<>();
+        doAnswer(inv -> {
+            @SuppressWarnings("unchecked")
+            Function<SearchRequest.Builder, ObjectBuilder<SearchRequest>> fn = inv.getArgument(0);
+            requests.add(fn.apply(new SearchRequest.Builder()).build());
+            return response;
+        }).when(elasticsearchClient).search(any(Function.class), eq(Map.class));
+        return requests;
+    }
+
+    private List<String> captureSearchedIndices(SearchResponse<Map<String, Object>> response) throws IOException {
+        List<String> indices = new java.util.ArrayList<>();
+        doAnswer(inv -> {
+            @SuppressWarnings("unchecked")
+            Function<SearchRequest.Builder, Object> fn = inv.getArgument(0);
+            SearchRequest.Builder builder = new SearchRequest.Builder();
+            fn.apply(builder);
+            indices.addAll(builder.build().index());
+            return response;
+        }).when(elasticsearchClient).search(any(Function.class), eq(Map.class));
+        return indices;
+    }
 }
@@ -0,0 +1,88 @@
+package com.ibm.aimonitoring.processor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeywordScannerTest {
+
+    private final KeywordScanner scanner = new KeywordScanner(List.of(
+            List.of("exception", "error"),
+            List.of("timeout", "timed out"),
+            List.of("connect"),
+            List.of("refused", "failed", "reset")));
+
+    @Test
+    void testScan_MatchesIgnoringCase() {
+        // When / Then
+        assertEquals(0b0001, scanner.scan("NullPointerEXCEPTION thrown"));
+        assertEquals(0b0001, scanner.scan("Fatal Error"));
+        assertEquals(0b0110, scanner.scan("Connection TIMED OUT"));
+    }
+
+    @Test
+    void testScan_NoMatch() {
+        // When / Then
+        assertEquals(0, scanner.scan("Request served in 12ms"));
+        assertEquals(0, scanner.scan(""));
+    }
+
+    @Test
+    void testScan_FindsKeywordAfterPartialMatch() {
+        // Given - "erro" and "time" start keywords that do not complete
+        // When / Then
+        assertEquals(0b0001, scanner.scan("errorerror"));
+        assertEquals(0b0001, scanner.scan("erroerror"));
+        assertEquals(0b0010, scanner.scan("timetimeout"));
+        assertEquals(0b0010, scanner.scan("timed timed out"));
+    }
+
+    @Test
+    void testScan_FindsKeywordEndingInsideAnother() {
+        // Given - "reset" sits at the end of a longer keyword's prefix
+        KeywordScanner overlapping = new KeywordScanner(List.of(List.of("unreset"), List.of("reset")));
+
+        // When / Then
+        assertEquals(0b10, overlapping.scan("preset"));
+        assertEquals(0b11, overlapping.scan("unreset"));
+    }
+
+    @Test
+    void testScan_NonAsciiKeywords() {
+        // Given
+        KeywordScanner scanner = new KeywordScanner(List.of(List.of("fehler"), List.of("zeitüberschreitung")));
+
+        // When / Then
+        assertEquals(0b10, scanner.scan("ZEITÜBERSCHREITUNG beim Lesen"));
+        assertEquals(0b01, scanner.scan("Schwerer Fehler – Überlauf"));
+        assertEquals(0, scanner.scan("Zeitüber"));
+    }
+
+    @Test
+    void testScan_StopsOnceAllGroupsMatched() {
+        // Given
+        KeywordScanner scanner = new KeywordScanner(List.of(List.of("error"), List.of("timeout")));
+
+        // When / Then
+        assertEquals(0b11, scanner.scan("error timeout " + "x".repeat(10_000)));
+    }
+
+    @Test
+    void testScan_IgnoresBlankKeywordsAndEmptyGroups() {
+        // Given
+        KeywordScanner scanner = new KeywordScanner(List.of(List.of(" ", ""), List.of("error")));
+
+        // When / Then
+        assertEquals(0b10, scanner.scan("error"));
+        assertEquals(0, new KeywordScanner(List.of(Collections.emptyList())).scan("anything"));
+    }
+
+    @Test
+    void testConstructor_RejectsTooManyGroups() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new KeywordScanner(Collections.nCopies(33, List.of("error"))));
+    }
+}
@@ -0,0 +1,107 @@
+package com.ibm.aimonitoring.processor.service;
+
+import co.elastic.clients.json.jackson.JacksonJsonpMapper;
+import co.elastic.clients.util.BinaryData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogDocumentSerializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void testSerialize_SameDocumentAsClientMapper() throws IOException {
+        // Given
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("anomalyScore", 0.93);
+        metadata.put("anomalyDetected", true);
+        metadata.put("retries", 3);
+        metadata.put("tags", List.of("a", "b"));
+        metadata.put("request", Map.of("path", "/orders", "status", 500));
+        metadata.put("missing", null);
+        LogEntryDTO logEntry = LogEntryDTO.builder()
+                .timestamp(Instant.parse("2026-03-01T10:15:30.123Z"))
+                .level("ERROR")
+                .message("Payment \"declined\"\nretrying")
+                .service("payments")
+                .host("host-1")
+                .environment("prod")
+                .traceId("trace-1")
+                .metadata(metadata)
+                .build();
+
+        // When
+        byte[] serialized = LogDocumentSerializer.serialize(logEntry);
+
+        // Then - what the client's mapper writes for the equivalent map
+        Map<String, Object> document = new HashMap<>();
+        document.put("timestamp", logEntry.getTimestamp().toString());
+        document.put("level", "ERROR");
+        document.put("message", logEntry.getMessage());
+        document.put("service", "payments");
+        document.put("host", "host-1");
+        document.put("environment", "prod");
+        document.put("traceId", "trace-1");
+        document.put("spanId", null);
+        document.put("metadata", metadata);
+        ByteBuffer expected = BinaryData.of(document, new JacksonJsonpMapper()).asByteBuffer();
+        byte[] expectedBytes = new byte[expected.remaining()];
+        expected.get(expectedBytes);
+
+        assertEquals(objectMapper.readTree(expectedBytes), objectMapper.readTree(serialized));
+        assertFalse(new String(serialized).contains("spanId"));
+    }
+
+    @Test
+    void testSerialize_ReusesBufferAcrossDocuments() throws IOException {
+        // Given
+        LogEntryDTO longer = LogEntryDTO.builder().message("x".repeat(5000)).build();
+        LogEntryDTO shorter = LogEntryDTO.builder().message("short").build();
+
+        // When
+        LogDocumentSerializer.serialize(longer);
+        byte[] serialized = LogDocumentSerializer.serialize(shorter);
+
+        // Then
+        assertEquals("{\"message\":\"short\"}", new String(serialized));
+    }
+
+    @Test
+    void testFormatInstant_MatchesInstantToString() {
+        // Given
+        List<Instant> instants = List.of(
+                Instant.EPOCH,
+                Instant.parse("2026-03-01T10:15:30Z"),
+                Instant.parse("2024-02-29T23:59:59.999Z"),
+                Instant.parse("2000-01-01T00:00:00.000001Z"),
+                Instant.parse("1999-12-31T23:59:59.123456789Z"),
+                Instant.parse("1969-07-20T20:17:40.5Z"),
+                Instant.parse("0001-01-01T00:00:00Z"),
+                Instant.parse("9999-12-31T23:59:59.999999999Z"));
+        char[] buffer = new char[30];
+
+        for (Instant instant : instants) {
+            // When
+            int length = LogDocumentSerializer.formatInstant(instant, buffer);
+
+            // Then
+            assertEquals(instant.toString(), new String(buffer, 0, length));
+        }
+    }
+
+    @Test
+    void testFormatInstant_YearsBeyondFourDigitsFallBack() {
+        // When / Then
+        assertEquals(0, LogDocumentSerializer.formatInstant(Instant.parse("+10000-01-01T00:00:00Z"), new char[30]));
+    }
+}
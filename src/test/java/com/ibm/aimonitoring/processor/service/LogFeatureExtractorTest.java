@@ -0,0 +1,111 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
+import com.ibm.aimonitoring.processor.dto.MLPredictionRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogFeatureExtractorTest {
+
+    private final LogFeatureExtractor extractor = LogFeatureExtractor.withDefaultKeywords();
+
+    @Test
+    void testExtract_WithExceptionKeywords() {
+        // Given
+        LogEntryDTO logEntry = LogEntryDTO.builder()
+                .message("Database connection exception error")
+                .level("error")
+                .service("db-service")
+                .build();
+
+        // When
+        LogFeatures features = extractor.extract(logEntry);
+
+        // Then
+        assertTrue(features.hasException());
+        assertTrue(features.hasConnection());
+        assertFalse(features.hasConnectionError());
+        assertEquals("ERROR", features.level());
+        assertEquals("db-service", features.service());
+        assertEquals(logEntry.getMessage().length(), features.messageLength());
+    }
+
+    @Test
+    void testExtract_WithTimeoutKeywords() {
+        // When
+        LogFeatures timedOut = extractor.extract(log("Request timed out after 30 seconds"));
+        LogFeatures timeout = extractor.extract(log("java.net.SocketTimeoutException: Read timeout"));
+
+        // Then
+        assertTrue(timedOut.hasTimeout());
+        assertFalse(timedOut.hasException());
+        assertTrue(timeout.hasTimeout());
+        assertTrue(timeout.hasException());
+    }
+
+    @Test
+    void testExtract_WithConnectionError() {
+        // When
+        LogFeatures refused = extractor.extract(log("Connection refused to database server"));
+        LogFeatures failedWithoutConnection = extractor.extract(log("Payment failed"));
+
+        // Then
+        assertTrue(refused.hasConnection());
+        assertTrue(refused.hasConnectionError());
+        assertFalse(failedWithoutConnection.hasConnectionError());
+    }
+
+    @Test
+    void testExtract_WithNullValues() {
+        // When
+        LogFeatures features = extractor.extract(LogEntryDTO.builder().build());
+
+        // Then
+        assertEquals(0, features.messageLength());
+        assertEquals("INFO", features.level());
+        assertEquals("unknown", features.service());
+        assertFalse(features.hasException());
+        assertFalse(features.hasTimeout());
+        assertFalse(features.hasConnection());
+    }
+
+    @Test
+    void testExtract_ConfiguredKeywords() {
+        // Given
+        LogFeatureExtractor custom = new LogFeatureExtractor(List.of("panic"), List.of("deadline exceeded"),
+                List.of("upstream"), List.of("unavailable"));
+
+        // When
+        LogFeatures features = custom.extract(log("PANIC: upstream unavailable, deadline exceeded"));
+
+        // Then
+        assertTrue(features.hasException());
+        assertTrue(features.hasTimeout());
+        assertTrue(features.hasConnectionError());
+        assertFalse(custom.extract(log("Unhandled exception")).hasException());
+    }
+
+    @Test
+    void testToRequestFeatures_CopiesFields() {
+        // Given
+        LogFeatures features = extractor.extract(log("Connection reset by peer"));
+
+        // When
+        MLPredictionRequest.LogFeatures request = features.toRequestFeatures();
+
+        // Then
+        assertEquals(features.messageLength(), request.getMessageLength());
+        assertEquals("WARN", request.getLevel());
+        assertEquals("api-service", request.getService());
+        assertFalse(request.getHasException());
+        assertFalse(request.getHasTimeout());
+        assertTrue(request.getHasConnectionError());
+    }
+
+    private static LogEntryDTO log(String message) {
+        return LogEntryDTO.builder().message(message).level("WARN").service("api-service").build();
+    }
+}
@@ -0,0 +1,59 @@
+package com.ibm.aimonitoring.processor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogIndexRouterTest {
+
+    private final LogIndexRouter rolling = new LogIndexRouter("logs", true, 3);
+
+    @Test
+    void testSingleIndex_AlwaysTheConfiguredIndex() {
+        // Given
+        LogIndexRouter single = new LogIndexRouter("logs", false, 3);
+
+        // When / Then
+        assertEquals("logs", single.writeIndex(Instant.parse("2026-03-01T10:00:00Z")));
+        assertEquals(List.of("logs"), single.readIndices(Instant.EPOCH, Instant.now()));
+        assertEquals(List.of("logs"), single.allIndices());
+    }
+
+    @Test
+    void testWriteIndex_DayOfTimestampInUtc() {
+        // When / Then
+        assertEquals("logs-2026.03.01", rolling.writeIndex(Instant.parse("2026-03-01T23:59:59.999Z")));
+        assertEquals("logs-2026.03.02", rolling.writeIndex(Instant.parse("2026-03-02T00:00:00Z")));
+    }
+
+    @Test
+    void testReadIndices_OverlappingDaysAndLegacyIndex() {
+        // When
+        List<String> indices = rolling.readIndices(
+                Instant.parse("2026-03-01T22:00:00Z"), Instant.parse("2026-03-03T01:00:00Z"));
+
+        // Then
+        assertEquals(List.of("logs", "logs-2026.03.01", "logs-2026.03.02", "logs-2026.03.03"), indices);
+    }
+
+    @Test
+    void testReadIndices_LongOrOpenRangeUsesPattern() {
+        // When / Then
+        assertEquals(List.of("logs", "logs-*.*.*"), rolling.readIndices(
+                Instant.parse("2026-03-01T00:00:00Z"), Instant.parse("2026-03-04T00:00:00Z")));
+        assertEquals(List.of("logs", "logs-*.*.*"), rolling.readIndices(null, Instant.parse("2026-03-04T00:00:00Z")));
+        assertEquals(List.of("logs", "logs-*.*.*"), rolling.readIndices(Instant.parse("2026-03-04T00:00:00Z"), null));
+    }
+
+    @Test
+    void testDayOf() {
+        // When / Then
+        assertEquals(LocalDate.of(2026, 3, 1), rolling.dayOf("logs-2026.03.01"));
+        assertNull(rolling.dayOf("logs-archive"));
+        assertNull(rolling.dayOf("rollup-logs-1m"));
+    }
+}
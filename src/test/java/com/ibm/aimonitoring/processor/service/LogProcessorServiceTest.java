@@ -2,20 +2,24 @@ package com.ibm.aimonitoring.processor.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibm.aimonitoring.processor.config.VirtualThreadMode;
 import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
 import com.ibm.aimonitoring.processor.dto.MLPredictionResponse;
 import com.ibm.aimonitoring.processor.model.AnomalyDetection;
 import com.ibm.aimonitoring.processor.repository.AnomalyDetectionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.Instant;
 import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -37,29 +41,54 @@ class LogProcessorServiceTest {
     @Mock
     private ObjectMapper objectMapper;
 
+    @Mock
+    private AnomalyWriteBackService anomalyWriteBackService;
+
+    @Mock
+    private AnomalyDetectionPipeline anomalyDetectionPipeline;
+
+    @Mock
+    private AnomalyDetectionWriter anomalyDetectionWriter;
+
+    @Mock
+    private LogRollupService logRollupService;
+
+    @Mock
+    private AnomalyExecutor anomalyExecutor;
+
+    private StreamingAnomalyScorer streamingAnomalyScorer;
+
+    private SlidingWindowCounters slidingWindowCounters;
+
     private LogProcessorService logProcessorService;
 
     private LogEntryDTO testLogEntry;
 
     @BeforeEach
     void setUp() {
-        // Create a new instance with mocked dependencies
-        // For self-injection, we pass the service itself (will be set after construction)
+        // Create a new instance with mocked dependencies; anomaly detection runs inline
+        streamingAnomalyScorer = new StreamingAnomalyScorer(16, 0.05, 0.1, 4.0, 5);
+        slidingWindowCounters = new SlidingWindowCounters(60, 16);
+        lenient().when(anomalyExecutor.submit(any(LogEntryDTO.class), any(Runnable.class))).thenAnswer(inv -> {
+            inv.<Runnable>getArgument(1).run();
+            return true;
+        });
         logProcessorService = new LogProcessorService(
                 elasticsearchService,
                 mlServiceClient,
                 anomalyDetectionRepository,
                 objectMapper,
-                null // Will be set to self after construction
+                new DocumentIdGenerator(1),
+                anomalyWriteBackService,
+                anomalyDetectionPipeline,
+                streamingAnomalyScorer,
+                anomalyDetectionWriter,
+                logRollupService,
+                slidingWindowCounters,
+                anomalyExecutor,
+                new DownstreamLimiter(new VirtualThreadMode(false), new SimpleMeterRegistry()),
+                LogFeatureExtractor.withDefaultKeywords()
         );
-        // Use reflection to set self reference
-        try {
-            java.lang.reflect.Field selfField = LogProcessorService.class.getDeclaredField("self");
-            selfField.setAccessible(true);
-            selfField.set(logProcessorService, logProcessorService);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to set self reference", e);
-        }
 
         testLogEntry = LogEntryDTO.builder()
                 .timestamp(Instant.now())
@@ -75,28 +104,62 @@ class LogProcessorServiceTest {
     void testProcessLog_Success() {
         // Given
         String documentId = "doc-123";
-        when(elasticsearchService.indexLog(any(LogEntryDTO.class))).thenReturn(documentId);
-        when(mlServiceClient.predictAnomaly(anyString(), any(LogEntryDTO.class))).thenReturn(null);
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class))).thenReturn(CompletableFuture.completedFuture(IndexResult.created(documentId)));
+        when(mlServiceClient.predictAnomaly(anyString(), any(LogFeatures.class))).thenReturn(null);
 
         // When
         logProcessorService.processLog(testLogEntry);
 
         // Then
-        verify(elasticsearchService).indexLog(any(LogEntryDTO.class));
+        verify(elasticsearchService).indexLogAsync(any(LogEntryDTO.class));
+        verify(logRollupService).record(any(LogEntryDTO.class));
+        assertEquals(1, slidingWindowCounters.count(60, false).count("INFO"));
         // Note: detectAnomaliesAsync is called asynchronously, so we verify ML service is called
         // In a real async scenario, we'd need to wait, but for unit tests we verify the call was made
     }
 
+    @Test
+    void testProcessLog_SaturatedExecutorSkipsDetection() {
+        // Given - the anomaly executor drops the task
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class))).thenReturn(CompletableFuture.completedFuture(IndexResult.created("doc-123")));
+        when(anomalyExecutor.submit(any(LogEntryDTO.class), any(Runnable.class))).thenReturn(false);
+
+        // When
+        logProcessorService.processLog(testLogEntry);
+
+        // Then - the log is still indexed, only its anomaly detection is skipped
+        verify(logRollupService).record(any(LogEntryDTO.class));
+        verifyNoInteractions(mlServiceClient);
+    }
+
+    @Test
+    void testDetectSpilledAnomalies_WaitsForExecutor() {
+        // Given
+        testLogEntry.setId("01HQ0000000000000000000000");
+        when(anomalyExecutor.submitBlocking(eq(testLogEntry), any(Runnable.class))).thenAnswer(inv -> {
+            inv.<Runnable>getArgument(1).run();
+            return true;
+        });
+
+        // When
+        boolean queued = logProcessorService.detectSpilledAnomalies(testLogEntry);
+
+        // Then
+        assertTrue(queued);
+        verify(mlServiceClient).predictAnomaly(eq("01HQ0000000000000000000000"), any(LogFeatures.class));
+    }
+
     @Test
     void testProcessLog_ElasticsearchFailure() {
         // Given
-        when(elasticsearchService.indexLog(any(LogEntryDTO.class)))
-                .thenThrow(new RuntimeException("Elasticsearch error"));
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Elasticsearch error")));
 
         // When/Then
         assertThrows(LogProcessorService.LogProcessingException.class, () -> {
             logProcessorService.processLog(testLogEntry);
         });
+        verify(logRollupService, never()).record(any(LogEntryDTO.class));
     }
 
     @Test
@@ -107,6 +170,8 @@ class LogProcessorServiceTest {
                 .message("test")
                 .build();
 
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class))).thenReturn(CompletableFuture.completedFuture(IndexResult.created("doc-1")));
+
         // When
         logProcessorService.processLog(logEntry);
 
@@ -126,8 +191,8 @@ class LogProcessorServiceTest {
                 .service("test")
                 .build();
 
-        when(elasticsearchService.indexLog(any(LogEntryDTO.class))).thenReturn("doc-1");
-        when(mlServiceClient.predictAnomaly(anyString(), any(LogEntryDTO.class))).thenReturn(null);
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class))).thenReturn(CompletableFuture.completedFuture(IndexResult.created("doc-1")));
+        when(mlServiceClient.predictAnomaly(anyString(), any(LogFeatures.class))).thenReturn(null);
 
         // When
         logProcessorService.processLog(logEntry);
@@ -153,8 +218,8 @@ class LogProcessorServiceTest {
                 .environment("")
                 .build();
 
-        when(elasticsearchService.indexLog(any(LogEntryDTO.class))).thenReturn("doc-1");
-        when(mlServiceClient.predictAnomaly(anyString(), any(LogEntryDTO.class))).thenReturn(null);
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class))).thenReturn(CompletableFuture.completedFuture(IndexResult.created("doc-1")));
+        when(mlServiceClient.predictAnomaly(anyString(), any(LogFeatures.class))).thenReturn(null);
 
         // When
         logProcessorService.processLog(logEntry);
@@ -172,8 +237,8 @@ class LogProcessorServiceTest {
                 .service("api-gateway")
                 .build();
 
-        when(elasticsearchService.indexLog(any(LogEntryDTO.class))).thenReturn("doc-1");
-        when(mlServiceClient.predictAnomaly(anyString(), any(LogEntryDTO.class))).thenReturn(null);
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class))).thenReturn(CompletableFuture.completedFuture(IndexResult.created("doc-1")));
+        when(mlServiceClient.predictAnomaly(anyString(), any(LogFeatures.class))).thenReturn(null);
 
         // When
         logProcessorService.processLog(logEntry);
@@ -206,16 +271,17 @@ class LogProcessorServiceTest {
                 .modelVersion("v1.0")
                 .build();
 
-        when(mlServiceClient.predictAnomaly(eq(logId), any(LogEntryDTO.class))).thenReturn(prediction);
-        when(objectMapper.writeValueAsString(any(Map.class))).thenReturn("{\"messageLength\":12}");
+        when(mlServiceClient.predictAnomaly(eq(logId), any(LogFeatures.class))).thenReturn(prediction);
+        when(objectMapper.writeValueAsString(any(LogFeatures.class))).thenReturn("{\"messageLength\":12}");
         when(anomalyDetectionRepository.save(any(AnomalyDetection.class))).thenReturn(new AnomalyDetection());
 
         // When - call protected method directly (same package)
         logProcessorService.detectAnomaliesAsync(logId, logEntry);
 
         // Then
-        verify(mlServiceClient).predictAnomaly(logId, logEntry);
+        verify(mlServiceClient).predictAnomaly(eq(logId), any(LogFeatures.class));
         verify(anomalyDetectionRepository).save(any(AnomalyDetection.class));
+        verify(anomalyWriteBackService).enqueue(logId, logEntry.getTimestamp(), prediction);
         assertEquals(true, logEntry.getMetadata().get("anomalyDetected"));
         assertEquals(0.85, logEntry.getMetadata().get("anomalyScore"));
     }
@@ -228,14 +294,15 @@ class LogProcessorServiceTest {
                 .message("Test message")
                 .build();
 
-        when(mlServiceClient.predictAnomaly(eq(logId), any(LogEntryDTO.class))).thenReturn(null);
+        when(mlServiceClient.predictAnomaly(eq(logId), any(LogFeatures.class))).thenReturn(null);
 
         // When - call protected method directly (same package)
         logProcessorService.detectAnomaliesAsync(logId, logEntry);
 
         // Then
-        verify(mlServiceClient).predictAnomaly(logId, logEntry);
+        verify(mlServiceClient).predictAnomaly(eq(logId), any(LogFeatures.class));
         verify(anomalyDetectionRepository, never()).save(any());
+        verifyNoInteractions(anomalyWriteBackService);
     }
 
     @Test
@@ -256,8 +323,8 @@ class LogProcessorServiceTest {
                 .modelVersion("v1.0")
                 .build();
 
-        when(mlServiceClient.predictAnomaly(eq(logId), any(LogEntryDTO.class))).thenReturn(prediction);
-        when(objectMapper.writeValueAsString(any(Map.class))).thenReturn("{}");
+        when(mlServiceClient.predictAnomaly(eq(logId), any(LogFeatures.class))).thenReturn(prediction);
+        when(objectMapper.writeValueAsString(any(LogFeatures.class))).thenReturn("{}");
         when(anomalyDetectionRepository.save(any(AnomalyDetection.class))).thenReturn(new AnomalyDetection());
 
         // When - call protected method directly (same package)
@@ -286,8 +353,8 @@ class LogProcessorServiceTest {
                 .modelVersion("v1.0")
                 .build();
 
-        when(mlServiceClient.predictAnomaly(eq(logId), any(LogEntryDTO.class))).thenReturn(prediction);
-        when(objectMapper.writeValueAsString(any(Map.class))).thenReturn("{}");
+        when(mlServiceClient.predictAnomaly(eq(logId), any(LogFeatures.class))).thenReturn(prediction);
+        when(objectMapper.writeValueAsString(any(LogFeatures.class))).thenReturn("{}");
         when(anomalyDetectionRepository.save(any(AnomalyDetection.class))).thenReturn(new AnomalyDetection());
 
         // When
@@ -305,7 +372,7 @@ class LogProcessorServiceTest {
         String logId = "log-123";
         LogEntryDTO logEntry = LogEntryDTO.builder().build();
 
-        when(mlServiceClient.predictAnomaly(eq(logId), any(LogEntryDTO.class)))
+        when(mlServiceClient.predictAnomaly(eq(logId), any(LogFeatures.class)))
                 .thenThrow(new RuntimeException("ML service error"));
 
         // When - call protected method directly (same package)
@@ -313,7 +380,7 @@ class LogProcessorServiceTest {
         assertDoesNotThrow(() -> logProcessorService.detectAnomaliesAsync(logId, logEntry));
 
         // Then
-        verify(mlServiceClient).predictAnomaly(logId, logEntry);
+        verify(mlServiceClient).predictAnomaly(eq(logId), any(LogFeatures.class));
     }
 
     @Test
@@ -334,8 +401,8 @@ class LogProcessorServiceTest {
                 .modelVersion("v1.0")
                 .build();
 
-        when(mlServiceClient.predictAnomaly(eq(logId), any(LogEntryDTO.class))).thenReturn(prediction);
-        when(objectMapper.writeValueAsString(any(Map.class))).thenReturn("{\"features\":\"test\"}");
+        when(mlServiceClient.predictAnomaly(eq(logId), any(LogFeatures.class))).thenReturn(prediction);
+        when(objectMapper.writeValueAsString(any(LogFeatures.class))).thenReturn("{\"features\":\"test\"}");
         when(anomalyDetectionRepository.save(any(AnomalyDetection.class))).thenReturn(new AnomalyDetection());
 
         // When - call protected method directly (same package)
@@ -371,8 +438,8 @@ class LogProcessorServiceTest {
                 .modelVersion("v1.0")
                 .build();
 
-        when(mlServiceClient.predictAnomaly(eq(logId), any(LogEntryDTO.class))).thenReturn(prediction);
-        when(objectMapper.writeValueAsString(any(Map.class)))
+        when(mlServiceClient.predictAnomaly(eq(logId), any(LogFeatures.class))).thenReturn(prediction);
+        when(objectMapper.writeValueAsString(any(LogFeatures.class)))
                 .thenThrow(new JsonProcessingException("JSON error") {});
 
         // When - call protected method directly (same package)
@@ -391,8 +458,8 @@ class LogProcessorServiceTest {
                 .service("test")
                 .build();
 
-        when(elasticsearchService.indexLog(any(LogEntryDTO.class))).thenReturn("doc-1");
-        when(mlServiceClient.predictAnomaly(anyString(), any(LogEntryDTO.class))).thenReturn(null);
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class))).thenReturn(CompletableFuture.completedFuture(IndexResult.created("doc-1")));
+        when(mlServiceClient.predictAnomaly(anyString(), any(LogFeatures.class))).thenReturn(null);
 
         // When
         logProcessorService.processLog(logEntry);
@@ -400,7 +467,7 @@ class LogProcessorServiceTest {
         // Then - level remains null if it was null (normalization only uppercases existing levels)
         assertNull(logEntry.getLevel(), "Level should remain null when not provided");
         assertNotNull(logEntry.getTimestamp(), "Timestamp should be set during normalization");
-        verify(elasticsearchService).indexLog(any(LogEntryDTO.class));
+        verify(elasticsearchService).indexLogAsync(any(LogEntryDTO.class));
     }
 
     @Test
@@ -412,8 +479,8 @@ class LogProcessorServiceTest {
                 .message(null)
                 .build();
 
-        when(elasticsearchService.indexLog(any(LogEntryDTO.class))).thenReturn("doc-1");
-        when(mlServiceClient.predictAnomaly(anyString(), any(LogEntryDTO.class))).thenReturn(null);
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class))).thenReturn(CompletableFuture.completedFuture(IndexResult.created("doc-1")));
+        when(mlServiceClient.predictAnomaly(anyString(), any(LogFeatures.class))).thenReturn(null);
 
         // When
         logProcessorService.processLog(logEntry);
@@ -432,8 +499,8 @@ class LogProcessorServiceTest {
                 .message("")
                 .build();
 
-        when(elasticsearchService.indexLog(any(LogEntryDTO.class))).thenReturn("doc-1");
-        when(mlServiceClient.predictAnomaly(anyString(), any(LogEntryDTO.class))).thenReturn(null);
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class))).thenReturn(CompletableFuture.completedFuture(IndexResult.created("doc-1")));
+        when(mlServiceClient.predictAnomaly(anyString(), any(LogFeatures.class))).thenReturn(null);
 
         // When
         logProcessorService.processLog(logEntry);
@@ -461,8 +528,8 @@ class LogProcessorServiceTest {
                 .modelVersion("v1.0")
                 .build();
 
-        when(mlServiceClient.predictAnomaly(eq(logId), any(LogEntryDTO.class))).thenReturn(prediction);
-        when(objectMapper.writeValueAsString(any(Map.class))).thenReturn("{}");
+        when(mlServiceClient.predictAnomaly(eq(logId), any(LogFeatures.class))).thenReturn(prediction);
+        when(objectMapper.writeValueAsString(any(LogFeatures.class))).thenReturn("{}");
         when(anomalyDetectionRepository.save(any(AnomalyDetection.class))).thenReturn(new AnomalyDetection());
 
         // When
@@ -491,8 +558,8 @@ class LogProcessorServiceTest {
                 .modelVersion("v1.0")
                 .build();
 
-        when(mlServiceClient.predictAnomaly(eq(logId), any(LogEntryDTO.class))).thenReturn(prediction);
-        when(objectMapper.writeValueAsString(any(Map.class))).thenReturn("{}");
+        when(mlServiceClient.predictAnomaly(eq(logId), any(LogFeatures.class))).thenReturn(prediction);
+        when(objectMapper.writeValueAsString(any(LogFeatures.class))).thenReturn("{}");
         when(anomalyDetectionRepository.save(any(AnomalyDetection.class))).thenReturn(new AnomalyDetection());
 
         // When
@@ -520,8 +587,8 @@ class LogProcessorServiceTest {
                 .modelVersion("v1.0")
                 .build();
 
-        when(mlServiceClient.predictAnomaly(eq(logId), any(LogEntryDTO.class))).thenReturn(prediction);
-        when(objectMapper.writeValueAsString(any(Map.class))).thenReturn("{}");
+        when(mlServiceClient.predictAnomaly(eq(logId), any(LogFeatures.class))).thenReturn(prediction);
+        when(objectMapper.writeValueAsString(any(LogFeatures.class))).thenReturn("{}");
         when(anomalyDetectionRepository.save(any(AnomalyDetection.class))).thenReturn(new AnomalyDetection());
 
         // When
@@ -541,8 +608,8 @@ class LogProcessorServiceTest {
                 .service("db-service")
                 .build();
 
-        when(elasticsearchService.indexLog(any(LogEntryDTO.class))).thenReturn("doc-1");
-        when(mlServiceClient.predictAnomaly(anyString(), any(LogEntryDTO.class))).thenReturn(null);
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class))).thenReturn(CompletableFuture.completedFuture(IndexResult.created("doc-1")));
+        when(mlServiceClient.predictAnomaly(anyString(), any(LogFeatures.class))).thenReturn(null);
 
         // When
         logProcessorService.processLog(logEntry);
@@ -570,8 +637,8 @@ class LogProcessorServiceTest {
                 .modelVersion("v1.0")
                 .build();
 
-        when(mlServiceClient.predictAnomaly(eq(logId), any(LogEntryDTO.class))).thenReturn(prediction);
-        when(objectMapper.writeValueAsString(any(Map.class))).thenReturn("{}");
+        when(mlServiceClient.predictAnomaly(eq(logId), any(LogFeatures.class))).thenReturn(prediction);
+        when(objectMapper.writeValueAsString(any(LogFeatures.class))).thenReturn("{}");
         when(anomalyDetectionRepository.save(any(AnomalyDetection.class)))
                 .thenThrow(new RuntimeException("Database error"));
 
@@ -581,4 +648,287 @@ class LogProcessorServiceTest {
         // Then
         verify(anomalyDetectionRepository).save(any(AnomalyDetection.class));
     }
+
+    @Test
+    void testProcessLogBatch_ReportsOnlyFailedIndexes() {
+        // Given - second entry fails to index
+        LogEntryDTO ok1 = LogEntryDTO.builder().level("INFO").message("first").service("svc").build();
+        LogEntryDTO bad = LogEntryDTO.builder().level("INFO").message("second").service("svc").build();
+        LogEntryDTO ok2 = LogEntryDTO.builder().level("INFO").message("third").service("svc").build();
+
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class))).thenAnswer(inv -> {
+            LogEntryDTO entry = inv.getArgument(0);
+            if (entry == bad) {
+                return CompletableFuture.failedFuture(
+                        new BulkIndexer.BulkItemFailureException(400, "mapper_parsing_exception", "bad"));
+            }
+            return CompletableFuture.completedFuture(IndexResult.created("doc-" + entry.getMessage()));
+        });
+        MLPredictionResponse prediction = MLPredictionResponse.builder()
+                .isAnomaly(false).anomalyScore(0.1).confidence(0.9).modelVersion("v1.0").build();
+        when(mlServiceClient.predictAnomaly(anyString(), any(LogFeatures.class))).thenReturn(prediction);
+        when(anomalyDetectionWriter.enqueue(any(AnomalyDetection.class))).thenReturn(true);
+
+        // When
+        java.util.BitSet failures = logProcessorService.processLogBatch(java.util.List.of(ok1, bad, ok2));
+
+        // Then
+        assertEquals(1, failures.cardinality());
+        assertTrue(failures.get(1));
+        verify(elasticsearchService, times(3)).indexLogAsync(any(LogEntryDTO.class));
+        // Every entry is scored while it is indexed; only the indexed ones record their prediction
+        verify(mlServiceClient, times(3)).predictAnomaly(anyString(), any(LogFeatures.class));
+        verify(anomalyWriteBackService).enqueue(eq(ok1.getId()), any(), eq(prediction));
+        verify(anomalyWriteBackService).enqueue(eq(ok2.getId()), any(), eq(prediction));
+        verifyNoMoreInteractions(anomalyWriteBackService);
+    }
+
+    @Test
+    void testProcessLog_PredictsWhileIndexing() throws JsonProcessingException {
+        // Given - indexing completes only after the prediction
+        CompletableFuture<IndexResult> indexed = new CompletableFuture<>();
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class))).thenReturn(indexed);
+        MLPredictionResponse prediction = MLPredictionResponse.builder()
+                .isAnomaly(true).anomalyScore(0.9).confidence(0.8).modelVersion("v1.0").build();
+        when(mlServiceClient.predictAnomaly(anyString(), any(LogFeatures.class))).thenReturn(prediction);
+        when(objectMapper.writeValueAsString(any(LogFeatures.class))).thenReturn("{}");
+        when(anomalyExecutor.submit(any(LogEntryDTO.class), any(Runnable.class))).thenAnswer(inv -> {
+            inv.<Runnable>getArgument(1).run();
+            // Then - predicted before the document is durable, but nothing recorded yet
+            verify(mlServiceClient).predictAnomaly(anyString(), any(LogFeatures.class));
+            verifyNoInteractions(anomalyWriteBackService, anomalyDetectionRepository);
+            indexed.complete(IndexResult.created("doc-1"));
+            return true;
+        });
+
+        // When
+        logProcessorService.processLog(testLogEntry);
+
+        // Then - recorded once the create succeeded
+        verify(anomalyWriteBackService).enqueue(testLogEntry.getId(), testLogEntry.getTimestamp(), prediction);
+        verify(anomalyDetectionRepository).save(any(AnomalyDetection.class));
+        verify(logRollupService).recordAnomaly(testLogEntry);
+    }
+
+    @Test
+    void testProcessLog_AssignsDeterministicIdForProducerTimestampAndMessageId() {
+        // Given - the same message delivered twice
+        LogEntryDTO first = LogEntryDTO.builder().timestamp(Instant.parse("2024-01-01T10:00:00Z"))
+                .level("INFO").message("redelivered").service("svc").messageId("msg-1").build();
+        LogEntryDTO second = LogEntryDTO.builder().timestamp(Instant.parse("2024-01-01T10:00:00Z"))
+                .level("INFO").message("redelivered").service("svc").messageId("msg-1").build();
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class)))
+                .thenAnswer(inv -> CompletableFuture.completedFuture(IndexResult.created(((LogEntryDTO) inv.getArgument(0)).getId())));
+        when(mlServiceClient.predictAnomaly(anyString(), any(LogFeatures.class))).thenReturn(null);
+
+        // When
+        logProcessorService.processLog(first);
+        logProcessorService.processLog(second);
+
+        // Then
+        assertNotNull(first.getId());
+        assertEquals(first.getId(), second.getId());
+        verify(mlServiceClient, times(2)).predictAnomaly(eq(first.getId()), any(LogFeatures.class));
+    }
+
+    @Test
+    void testProcessLog_WithoutMessageIdGetsUniqueIds() {
+        // Given - identical lines with the same producer timestamp but no message ID
+        LogEntryDTO first = LogEntryDTO.builder().timestamp(Instant.parse("2024-01-01T10:00:00Z"))
+                .level("INFO").message("same line").service("svc").build();
+        LogEntryDTO second = LogEntryDTO.builder().timestamp(Instant.parse("2024-01-01T10:00:00Z"))
+                .level("INFO").message("same line").service("svc").build();
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class)))
+                .thenAnswer(inv -> CompletableFuture.completedFuture(IndexResult.created(((LogEntryDTO) inv.getArgument(0)).getId())));
+        when(mlServiceClient.predictAnomaly(anyString(), any(LogFeatures.class))).thenReturn(null);
+
+        // When
+        logProcessorService.processLog(first);
+        logProcessorService.processLog(second);
+
+        // Then - neither is dropped as a duplicate of the other
+        assertNotEquals(first.getId(), second.getId());
+    }
+
+    @Test
+    void testProcessLog_DuplicateSkipsCountingAndAnomalyResults() throws JsonProcessingException {
+        // Given - a redelivered message whose document already exists
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class)))
+                .thenReturn(CompletableFuture.completedFuture(IndexResult.duplicate("doc-1")));
+        MLPredictionResponse prediction = MLPredictionResponse.builder()
+                .isAnomaly(true).anomalyScore(0.9).confidence(0.8).modelVersion("v1.0").build();
+        when(mlServiceClient.predictAnomaly(anyString(), any(LogFeatures.class))).thenReturn(prediction);
+
+        // When
+        logProcessorService.processLog(testLogEntry);
+
+        // Then - scored alongside the write, but nothing is recorded a second time
+        verifyNoInteractions(anomalyWriteBackService);
+        verifyNoInteractions(anomalyDetectionWriter);
+        verifyNoInteractions(anomalyDetectionRepository);
+        verify(logRollupService, never()).recordAnomaly(any(LogEntryDTO.class));
+        verify(logRollupService, never()).record(any(LogEntryDTO.class));
+        assertEquals(0, slidingWindowCounters.count(60, false).count("INFO"));
+    }
+
+    @Test
+    void testProcessLog_KeepsExistingId() {
+        // Given
+        testLogEntry.setId("existing-id");
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class)))
+                .thenReturn(CompletableFuture.completedFuture(IndexResult.created("existing-id")));
+        when(mlServiceClient.predictAnomaly(anyString(), any(LogFeatures.class))).thenReturn(null);
+
+        // When
+        logProcessorService.processLog(testLogEntry);
+
+        // Then
+        assertEquals("existing-id", testLogEntry.getId());
+        verify(mlServiceClient).predictAnomaly(eq("existing-id"), any(LogFeatures.class));
+    }
+
+    @Test
+    void testProcessLog_ReactiveModeSubmitsToPipeline() {
+        // Given
+        ReflectionTestUtils.setField(logProcessorService, "pipelineMode", "reactive");
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class)))
+                .thenReturn(CompletableFuture.completedFuture(IndexResult.created("doc-1")));
+        when(anomalyDetectionPipeline.submit(anyString(), any(), any())).thenReturn(true);
+
+        // When
+        logProcessorService.processLog(testLogEntry);
+
+        // Then
+        verify(anomalyDetectionPipeline).submit(eq(testLogEntry.getId()), any(), any());
+        verifyNoInteractions(mlServiceClient);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testProcessLog_ReactiveModeAppliesPrediction() throws JsonProcessingException {
+        // Given
+        ReflectionTestUtils.setField(logProcessorService, "pipelineMode", "reactive");
+        when(elasticsearchService.indexLogAsync(any(LogEntryDTO.class)))
+                .thenReturn(CompletableFuture.completedFuture(IndexResult.created("doc-1")));
+        ArgumentCaptor<Consumer<MLPredictionResponse>> handler =
+                ArgumentCaptor.forClass(Consumer.class);
+        when(anomalyDetectionPipeline.submit(anyString(), any(), handler.capture())).thenReturn(true);
+        when(objectMapper.writeValueAsString(any(LogFeatures.class))).thenReturn("{}");
+        MLPredictionResponse prediction = MLPredictionResponse.builder()
+                .isAnomaly(true).anomalyScore(0.9).confidence(0.8).modelVersion("v1.0").build();
+
+        // When
+        logProcessorService.processLog(testLogEntry);
+        handler.getValue().accept(prediction);
+
+        // Then
+        assertEquals(true, testLogEntry.getMetadata().get("anomalyDetected"));
+        verify(anomalyWriteBackService).enqueue(testLogEntry.getId(), testLogEntry.getTimestamp(), prediction);
+        verify(anomalyDetectionRepository).save(any(AnomalyDetection.class));
+    }
+
+    @Test
+    void testDetectAnomaliesAsync_EmbeddedModeSkipsMLService() throws JsonProcessingException {
+        // Given
+        ReflectionTestUtils.setField(logProcessorService, "scoringMode", "embedded");
+        String logId = "log-123";
+        LogEntryDTO logEntry = LogEntryDTO.builder()
+                .message("Test message")
+                .level("INFO")
+                .service("test-service")
+                .build();
+        when(objectMapper.writeValueAsString(any(LogFeatures.class))).thenReturn("{}");
+        ArgumentCaptor<AnomalyDetection> saved = ArgumentCaptor.forClass(AnomalyDetection.class);
+
+        // When
+        logProcessorService.detectAnomaliesAsync(logId, logEntry);
+
+        // Then
+        verifyNoInteractions(mlServiceClient);
+        verify(anomalyDetectionRepository).save(saved.capture());
+        assertEquals(StreamingAnomalyScorer.MODEL_VERSION, saved.getValue().getModelVersion());
+        assertEquals(StreamingAnomalyScorer.MODEL_VERSION, logEntry.getMetadata().get("mlModelVersion"));
+    }
+
+    @Test
+    void testDetectAnomaliesAsync_FallbackModeUsesEmbeddedWhenMLUnavailable() throws JsonProcessingException {
+        // Given
+        ReflectionTestUtils.setField(logProcessorService, "scoringMode", "fallback");
+        String logId = "log-123";
+        LogEntryDTO logEntry = LogEntryDTO.builder().message("Test message").level("INFO").service("svc").build();
+        when(mlServiceClient.predictAnomaly(eq(logId), any(LogFeatures.class))).thenReturn(null);
+        when(objectMapper.writeValueAsString(any(LogFeatures.class))).thenReturn("{}");
+
+        // When
+        logProcessorService.detectAnomaliesAsync(logId, logEntry);
+
+        // Then
+        verify(mlServiceClient).predictAnomaly(eq(logId), any(LogFeatures.class));
+        verify(anomalyWriteBackService).enqueue(eq(logId), isNull(), argThat(prediction ->
+                StreamingAnomalyScorer.MODEL_VERSION.equals(prediction.getModelVersion())));
+    }
+
+    @Test
+    void testDetectAnomaliesAsync_FallbackModePrefersMLPrediction() throws JsonProcessingException {
+        // Given
+        ReflectionTestUtils.setField(logProcessorService, "scoringMode", "fallback");
+        String logId = "log-123";
+        LogEntryDTO logEntry = LogEntryDTO.builder().message("Test message").level("INFO").service("svc").build();
+        MLPredictionResponse prediction = MLPredictionResponse.builder()
+                .isAnomaly(false).anomalyScore(0.1).confidence(0.9).modelVersion("v1.0").build();
+        when(mlServiceClient.predictAnomaly(eq(logId), any(LogFeatures.class))).thenReturn(prediction);
+        when(objectMapper.writeValueAsString(any(LogFeatures.class))).thenReturn("{}");
+
+        // When
+        logProcessorService.detectAnomaliesAsync(logId, logEntry);
+
+        // Then
+        verify(anomalyWriteBackService).enqueue(logId, logEntry.getTimestamp(), prediction);
+    }
+
+    @Test
+    void testDetectAnomaliesAsync_PrefilterModeOnlyForwardsOutliers() throws JsonProcessingException {
+        // Given - the scorer has learned that this service logs short INFO messages
+        ReflectionTestUtils.setField(logProcessorService, "scoringMode", "prefilter");
+        ReflectionTestUtils.setField(logProcessorService, "prefilterThreshold", 0.3);
+        for (int i = 0; i < 20; i++) {
+            streamingAnomalyScorer.score("warmup-" + i, LogFeatureExtractor.withDefaultKeywords().extract(
+                    LogEntryDTO.builder().message("Request served").level("INFO").service("svc").build()));
+        }
+        LogEntryDTO ordinary = LogEntryDTO.builder().message("Request served").level("INFO").service("svc").build();
+        LogEntryDTO outlier = LogEntryDTO.builder()
+                .message("Connection timeout while calling payment gateway: java.net.SocketTimeoutException")
+                .level("ERROR").service("svc").build();
+        when(mlServiceClient.predictAnomaly(eq("log-2"), any(LogFeatures.class))).thenReturn(null);
+        when(objectMapper.writeValueAsString(any(LogFeatures.class))).thenReturn("{}");
+
+        // When
+        logProcessorService.detectAnomaliesAsync("log-1", ordinary);
+        logProcessorService.detectAnomaliesAsync("log-2", outlier);
+
+        // Then
+        verify(mlServiceClient, never()).predictAnomaly(eq("log-1"), any(LogFeatures.class));
+        verify(mlServiceClient).predictAnomaly(eq("log-2"), any(LogFeatures.class));
+        assertEquals(true, outlier.getMetadata().get("anomalyDetected"));
+    }
+
+    @Test
+    void testSaveAnomalyDetection_QueuedToBatchWriter() throws JsonProcessingException {
+        // Given
+        String logId = "log-123";
+        LogEntryDTO logEntry = LogEntryDTO.builder().message("Test message").level("ERROR").service("svc").build();
+        MLPredictionResponse prediction = MLPredictionResponse.builder()
+                .isAnomaly(true).anomalyScore(0.9).confidence(0.8).modelVersion("v1.0").build();
+        when(mlServiceClient.predictAnomaly(eq(logId), any(LogFeatures.class))).thenReturn(prediction);
+        when(objectMapper.writeValueAsString(any(LogFeatures.class))).thenReturn("{}");
+        when(anomalyDetectionWriter.enqueue(any(AnomalyDetection.class))).thenReturn(true);
+
+        // When
+        logProcessorService.detectAnomaliesAsync(logId, logEntry);
+
+        // Then
+        verify(anomalyDetectionWriter).enqueue(argThat(row -> logId.equals(row.getLogId()) && row.getIsAnomaly()));
+        verify(anomalyDetectionRepository, never()).save(any());
+        verify(logRollupService).recordAnomaly(logEntry);
+    }
 }
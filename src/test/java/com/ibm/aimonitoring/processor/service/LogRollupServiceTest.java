@@ -0,0 +1,152 @@
+package com.ibm.aimonitoring.processor.service;
+
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.UpdateOperation;
+import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LogRollupServiceTest {
+
+    private static final Instant MINUTE = Instant.parse("2024-05-01T10:15:00Z");
+
+    @Mock
+    private BulkIndexer bulkIndexer;
+
+    private LogRollupService rollupService;
+
+    @BeforeEach
+    void setUp() {
+        rollupService = new LogRollupService(bulkIndexer);
+        ReflectionTestUtils.setField(rollupService, "enabled", true);
+        ReflectionTestUtils.setField(rollupService, "rollupIndexName", "rollup-logs-1m");
+    }
+
+    @Test
+    void testRecord_SameMinuteAndDimensionsShareOneBucket() {
+        // When
+        rollupService.record(log(MINUTE.plusSeconds(1), "ERROR", "boom"));
+        rollupService.record(log(MINUTE.plusSeconds(59), "ERROR", "kaboom"));
+        rollupService.record(log(MINUTE.plusSeconds(60), "ERROR", "boom"));
+        rollupService.record(log(MINUTE, "INFO", "ok"));
+
+        // Then
+        assertEquals(3, rollupService.getPendingBuckets());
+    }
+
+    @Test
+    void testFlush_UpsertsAccumulatedCounters() {
+        // Given
+        when(bulkIndexer.addNonBlocking(any(BulkOperation.class), anyLong())).thenReturn(CompletableFuture.completedFuture(IndexResult.created("id")));
+        LogEntryDTO entry = log(MINUTE.plusSeconds(5), "ERROR", "boom");
+        rollupService.record(entry);
+        rollupService.record(log(MINUTE.plusSeconds(30), "ERROR", "kaboom"));
+        rollupService.recordAnomaly(entry);
+
+        // When
+        rollupService.flush();
+
+        // Then
+        ArgumentCaptor<BulkOperation> captor = ArgumentCaptor.forClass(BulkOperation.class);
+        verify(bulkIndexer).addNonBlocking(captor.capture(), anyLong());
+        verify(bulkIndexer).flush();
+        UpdateOperation<?, ?> update = captor.getValue().update();
+        assertEquals("rollup-logs-1m", update.index());
+        assertEquals(MINUTE.toEpochMilli() / 60_000 + ":checkout:ERROR:prod", update.id());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> upsert = (Map<String, Object>) update.action().upsert();
+        assertEquals(MINUTE.toString(), upsert.get(LogRollupService.FIELD_TIMESTAMP));
+        assertEquals(2L, upsert.get(LogRollupService.FIELD_COUNT));
+        assertEquals(10L, upsert.get(LogRollupService.FIELD_MESSAGE_LENGTH_SUM));
+        assertEquals(1L, upsert.get(LogRollupService.FIELD_ANOMALY_COUNT));
+        assertEquals(2L, update.action().script().params().get(LogRollupService.FIELD_COUNT).to(Long.class));
+        assertEquals(0, rollupService.getPendingBuckets());
+    }
+
+    @Test
+    void testFlush_FailedUpsertKeepsCountersForNextFlush() {
+        // Given
+        when(bulkIndexer.addNonBlocking(any(BulkOperation.class), anyLong()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("es down")))
+                .thenReturn(CompletableFuture.completedFuture(IndexResult.created("id")));
+        rollupService.record(log(MINUTE, "WARN", "slow"));
+        rollupService.flush();
+        rollupService.record(log(MINUTE, "WARN", "slow"));
+
+        // When
+        rollupService.flush();
+
+        // Then
+        ArgumentCaptor<BulkOperation> captor = ArgumentCaptor.forClass(BulkOperation.class);
+        verify(bulkIndexer, times(2)).addNonBlocking(captor.capture(), anyLong());
+        @SuppressWarnings("unchecked")
+        Map<String, Object> upsert = (Map<String, Object>) captor.getAllValues().get(1).update().action().upsert();
+        assertEquals(2L, upsert.get(LogRollupService.FIELD_COUNT));
+        assertEquals(0, rollupService.getPendingBuckets());
+    }
+
+    @Test
+    void testRecord_MissingDimensionsAreUnknown() {
+        // Given
+        when(bulkIndexer.addNonBlocking(any(BulkOperation.class), anyLong())).thenReturn(CompletableFuture.completedFuture(IndexResult.created("id")));
+        rollupService.record(LogEntryDTO.builder().timestamp(MINUTE).build());
+
+        // When
+        rollupService.flush();
+
+        // Then
+        ArgumentCaptor<BulkOperation> captor = ArgumentCaptor.forClass(BulkOperation.class);
+        verify(bulkIndexer).addNonBlocking(captor.capture(), anyLong());
+        assertTrue(captor.getValue().update().id().endsWith(":unknown:unknown:unknown"));
+    }
+
+    @Test
+    void testFlush_NothingRecordedDoesNothing() {
+        // When
+        rollupService.flush();
+
+        // Then
+        verifyNoInteractions(bulkIndexer);
+    }
+
+    @Test
+    void testRecord_DisabledDoesNotAccumulate() {
+        // Given
+        ReflectionTestUtils.setField(rollupService, "enabled", false);
+
+        // When
+        rollupService.record(log(MINUTE, "ERROR", "boom"));
+        rollupService.recordAnomaly(log(MINUTE, "ERROR", "boom"));
+        rollupService.close();
+
+        // Then
+        assertEquals(0, rollupService.getPendingBuckets());
+        verifyNoInteractions(bulkIndexer);
+    }
+
+    private static LogEntryDTO log(Instant timestamp, String level, String message) {
+        return LogEntryDTO.builder()
+                .timestamp(timestamp)
+                .service("checkout")
+                .level(level)
+                .environment("prod")
+                .message(message)
+                .build();
+    }
+}
@@ -0,0 +1,273 @@
+package com.ibm.aimonitoring.processor.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkOperation;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import co.elastic.clients.transport.endpoints.BooleanResponse;
+import co.elastic.clients.util.BinaryData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class LogSpoolTest {
+
+    @TempDir
+    Path directory;
+
+    private ElasticsearchClient elasticsearchClient;
+    private SimpleMeterRegistry meterRegistry;
+    private final List<LogSpool> opened = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        elasticsearchClient = mock(ElasticsearchClient.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        opened.forEach(LogSpool::close);
+    }
+
+    @Test
+    void testDrain_ReplaysRecordsAsCreateOperations() throws IOException {
+        // Given
+        LogSpool spool = openSpool(4096, 8192);
+        when(elasticsearchClient.ping()).thenReturn(new BooleanResponse(true));
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenAnswer(call -> response(call.getArgument(0), 201));
+        assertTrue(spool.append("logs-2026.03.01", "id-1", document("first")));
+        assertTrue(spool.append("logs-2026.03.02", "id-2", document("second")));
+
+        // When
+        spool.drain();
+
+        // Then
+        ArgumentCaptor<BulkRequest> captor = ArgumentCaptor.forClass(BulkRequest.class);
+        verify(elasticsearchClient).bulk(captor.capture());
+        List<BulkOperation> operations = captor.getValue().operations();
+        assertEquals(2, operations.size());
+        assertTrue(operations.get(0).isCreate());
+        assertEquals("logs-2026.03.01", operations.get(0).create().index());
+        assertEquals("id-2", operations.get(1).create().id());
+        BinaryData source = assertInstanceOf(BinaryData.class, operations.get(1).create().document());
+        assertEquals("{\"message\":\"second\"}", StandardCharsets.UTF_8.decode(source.asByteBuffer()).toString());
+        assertEquals(0, spool.getPendingRecords());
+        assertEquals(2.0, meterRegistry.counter("elasticsearch.spool.drained").count());
+    }
+
+    @Test
+    void testDrain_ElasticsearchDownKeepsRecords() throws IOException {
+        // Given
+        LogSpool spool = openSpool(4096, 8192);
+        when(elasticsearchClient.ping()).thenReturn(new BooleanResponse(false));
+        spool.append("logs", "id-1", document("first"));
+
+        // When
+        spool.drain();
+
+        // Then
+        verify(elasticsearchClient, never()).bulk(any(BulkRequest.class));
+        assertEquals(1, spool.getPendingRecords());
+    }
+
+    @Test
+    void testDrainBatch_RejectedItemIsRetriedFromSamePosition() throws IOException {
+        // Given - the first replay is rejected under load, the second succeeds
+        LogSpool spool = openSpool(4096, 8192);
+        when(elasticsearchClient.bulk(any(BulkRequest.class)))
+                .thenAnswer(call -> response(call.getArgument(0), 429))
+                .thenAnswer(call -> response(call.getArgument(0), 201));
+        spool.append("logs", "id-1", document("first"));
+
+        // When
+        int rejected = spool.drainBatch();
+        int drained = spool.drainBatch();
+
+        // Then
+        assertEquals(0, rejected);
+        assertEquals(1, drained);
+        assertEquals(0, spool.getPendingRecords());
+    }
+
+    @Test
+    void testOpen_RecoversPendingRecordsAfterRestart() throws IOException {
+        // Given - three records, one drained before the restart
+        LogSpool spool = openSpool(4096, 8192);
+        ReflectionTestUtils.setField(spool, "drainBatchSize", 1);
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenAnswer(call -> response(call.getArgument(0), 201));
+        spool.append("logs", "id-1", document("first"));
+        spool.append("logs", "id-2", document("second"));
+        spool.append("logs", "id-3", document("third"));
+        spool.drainBatch();
+        spool.close();
+
+        // When
+        LogSpool recovered = openSpool(4096, 8192);
+
+        // Then
+        assertEquals(2, recovered.getPendingRecords());
+        recovered.drainBatch();
+        ArgumentCaptor<BulkRequest> captor = ArgumentCaptor.forClass(BulkRequest.class);
+        verify(elasticsearchClient, times(2)).bulk(captor.capture());
+        assertEquals(List.of("id-2", "id-3"), captor.getValue().operations().stream()
+                .map(operation -> operation.create().id()).toList());
+    }
+
+    @Test
+    void testOpen_TornRecordEndsSegment() throws IOException {
+        // Given - the second record is corrupted, as by a crash mid-write
+        LogSpool spool = openSpool(4096, 8192);
+        spool.append("logs", "id-1", document("first"));
+        spool.append("logs", "id-2", document("second"));
+        spool.close();
+        corruptLastByteOfRecord(2);
+
+        // When
+        LogSpool recovered = openSpool(4096, 8192);
+        recovered.append("logs", "id-3", document("third"));
+        recovered.close();
+        LogSpool reopened = openSpool(4096, 8192);
+
+        // Then
+        assertEquals(2, reopened.getPendingRecords());
+    }
+
+    @Test
+    void testAppend_FullSpoolRejects() throws IOException {
+        // Given - room for two segments of 128 bytes
+        LogSpool spool = openSpool(128, 256);
+        byte[] document = document("x".repeat(60));
+
+        // When
+        boolean first = spool.append("logs", "id-1", document);
+        boolean second = spool.append("logs", "id-2", document);
+        boolean third = spool.append("logs", "id-3", document);
+
+        // Then
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertEquals(256, spool.getDiskBytes());
+        assertEquals(1.0, meterRegistry.counter("elasticsearch.spool.rejected").count());
+    }
+
+    @Test
+    void testDrain_DeletesDrainedSegments() throws IOException {
+        // Given
+        LogSpool spool = openSpool(128, 512);
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenAnswer(call -> response(call.getArgument(0), 201));
+        byte[] document = document("x".repeat(60));
+        spool.append("logs", "id-1", document);
+        spool.append("logs", "id-2", document);
+        spool.append("logs", "id-3", document);
+
+        // When
+        spool.drainBatch();
+
+        // Then
+        assertEquals(128, spool.getDiskBytes());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.filter(path -> path.toString().endsWith(".spool")).count());
+        }
+    }
+
+    @Test
+    void testDrainBatch_NotifiesReplayedDocuments() throws IOException {
+        // Given
+        LogSpool spool = openSpool(4096, 8192);
+        when(elasticsearchClient.bulk(any(BulkRequest.class))).thenAnswer(call -> response(call.getArgument(0), 409));
+        List<String> replayed = new ArrayList<>();
+        spool.onReplayed(replayed::addAll);
+        spool.append("logs", "id-1", document("first"));
+        spool.append("logs", "id-2", document("second"));
+
+        // When - both were created before a crash, so the replay finds them
+        spool.drainBatch();
+
+        // Then
+        assertEquals(List.of("id-1", "id-2"), replayed);
+    }
+
+    @Test
+    void testAppend_DisabledOrWithoutId() throws IOException {
+        // Given
+        LogSpool disabled = new LogSpool(elasticsearchClient, meterRegistry);
+        LogSpool spool = openSpool(4096, 8192);
+
+        // When / Then
+        assertFalse(disabled.append("logs", "id-1", document("first")));
+        assertFalse(spool.append("logs", null, document("first")));
+        assertEquals(0, spool.getPendingRecords());
+    }
+
+    private LogSpool openSpool(int segmentBytes, long maxBytes) throws IOException {
+        LogSpool spool = new LogSpool(elasticsearchClient, meterRegistry);
+        ReflectionTestUtils.setField(spool, "enabled", true);
+        ReflectionTestUtils.setField(spool, "directory", directory.toString());
+        ReflectionTestUtils.setField(spool, "segmentBytes", segmentBytes);
+        ReflectionTestUtils.setField(spool, "maxBytes", maxBytes);
+        ReflectionTestUtils.setField(spool, "fsync", "always");
+        ReflectionTestUtils.setField(spool, "drainBatchSize", 100);
+        ReflectionTestUtils.setField(spool, "drainIntervalMs", 1000L);
+        spool.open();
+        opened.add(spool);
+        return spool;
+    }
+
+    private void corruptLastByteOfRecord(int record) throws IOException {
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.toString().endsWith(".spool")).findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+            long offset = 0;
+            for (int i = 1; i <= record; i++) {
+                header.clear();
+                channel.read(header, offset);
+                offset += LogSpool.RECORD_HEADER_BYTES + header.flip().getInt();
+            }
+            channel.write(ByteBuffer.wrap(new byte[]{'!'}), offset - 1);
+        }
+    }
+
+    private static byte[] document(String message) {
+        return ("{\"message\":\"" + message + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static BulkResponse response(BulkRequest request, int status) {
+        List<BulkResponseItem> items = request.operations().stream()
+                .map(operation -> BulkResponseItem.of(i -> {
+                    i.operationType(OperationType.Create).index(operation.create().index())
+                            .id(operation.create().id()).status(status);
+                    if (status >= 400) {
+                        i.error(e -> e.type("es_rejected_execution_exception").reason("rejected"));
+                    }
+                    return i;
+                }))
+                .toList();
+        return BulkResponse.of(r -> r.errors(status >= 400).took(1).items(items));
+    }
+}
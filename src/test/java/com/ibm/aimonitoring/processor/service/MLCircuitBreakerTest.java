@@ -0,0 +1,195 @@
+package com.ibm.aimonitoring.processor.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MLCircuitBreakerTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(3);
+
+    private SimpleMeterRegistry meterRegistry;
+    private MLCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        breaker = new MLCircuitBreaker(meterRegistry);
+        ReflectionTestUtils.setField(breaker, "enabled", true);
+        ReflectionTestUtils.setField(breaker, "windowSize", 10);
+        ReflectionTestUtils.setField(breaker, "minimumCalls", 5);
+        ReflectionTestUtils.setField(breaker, "failureRateThreshold", 50);
+        ReflectionTestUtils.setField(breaker, "slowCallMs", 2000L);
+        ReflectionTestUtils.setField(breaker, "slowCallRateThreshold", 80);
+        ReflectionTestUtils.setField(breaker, "openDurationMs", 60_000L);
+        breaker.init();
+    }
+
+    @Test
+    void testStaysClosedBelowMinimumCalls() {
+        // When
+        for (int i = 0; i < 4; i++) {
+            breaker.onError(FAST);
+        }
+
+        // Then
+        assertEquals(MLCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void testOpensOnFailureRate() {
+        // When - 3 of 6 calls failed
+        for (int i = 0; i < 3; i++) {
+            breaker.onSuccess(FAST);
+            breaker.onError(FAST);
+        }
+
+        // Then
+        assertEquals(MLCircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+        assertEquals(1.0, meterRegistry.counter("ml.circuit.short-circuited").count());
+        assertEquals(1.0, meterRegistry.counter("ml.circuit.transitions", "from", "CLOSED", "to", "OPEN").count());
+    }
+
+    @Test
+    void testOpensOnSlowCallRate() {
+        // When - calls succeed but take longer than the slow-call threshold
+        for (int i = 0; i < 5; i++) {
+            breaker.onSuccess(SLOW);
+        }
+
+        // Then
+        assertEquals(MLCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void testOldOutcomesLeaveTheWindow() {
+        // Given - 4 failures among 10 calls, then a full window of successes pushes them out
+        for (int i = 0; i < 6; i++) {
+            breaker.onSuccess(FAST);
+        }
+        for (int i = 0; i < 4; i++) {
+            breaker.onError(FAST);
+        }
+        for (int i = 0; i < 10; i++) {
+            breaker.onSuccess(FAST);
+        }
+
+        // When - 4 new failures; 8 of 10 if the old ones were still counted
+        for (int i = 0; i < 4; i++) {
+            breaker.onError(FAST);
+        }
+
+        // Then
+        assertEquals(MLCircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(40, breaker.health().getDetails().get("failureRate"));
+    }
+
+    @Test
+    void testHalfOpenProbeClosesBreakerWhenHealthy() throws InterruptedException {
+        // Given
+        AtomicInteger probes = new AtomicInteger();
+        breaker.setProbe(() -> {
+            probes.incrementAndGet();
+            return true;
+        });
+        openBreaker();
+        ReflectionTestUtils.setField(breaker, "openDurationMs", 0L);
+
+        // When - the first call after the open period starts the probe
+        assertFalse(breaker.tryAcquirePermission());
+        awaitStateNot(MLCircuitBreaker.State.HALF_OPEN);
+
+        // Then
+        assertEquals(MLCircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+        assertEquals(1, probes.get());
+        assertEquals(1.0, meterRegistry.counter("ml.circuit.transitions", "from", "HALF_OPEN", "to", "CLOSED").count());
+    }
+
+    @Test
+    void testHalfOpenProbeReopensBreakerWhenUnhealthy() throws InterruptedException {
+        // Given
+        breaker.setProbe(() -> false);
+        openBreaker();
+        ReflectionTestUtils.setField(breaker, "openDurationMs", 0L);
+
+        // When
+        assertFalse(breaker.tryAcquirePermission());
+        awaitStateNot(MLCircuitBreaker.State.HALF_OPEN);
+
+        // Then
+        assertEquals(MLCircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(1.0, meterRegistry.counter("ml.circuit.transitions", "from", "HALF_OPEN", "to", "OPEN").count());
+    }
+
+    @Test
+    void testOpenBreakerRejectsUntilOpenDurationElapsed() {
+        // Given
+        breaker.setProbe(() -> {
+            fail("probe must not run before the open duration elapsed");
+            return false;
+        });
+        openBreaker();
+
+        // When & Then
+        for (int i = 0; i < 5; i++) {
+            assertFalse(breaker.tryAcquirePermission());
+        }
+        assertEquals(MLCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void testDisabledAlwaysPermits() {
+        // Given
+        ReflectionTestUtils.setField(breaker, "enabled", false);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            breaker.onError(FAST);
+        }
+
+        // Then
+        assertTrue(breaker.tryAcquirePermission());
+        assertEquals(MLCircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testHealthReportsStateWithoutGoingDown() {
+        // Given
+        openBreaker();
+
+        // When
+        Health health = breaker.health();
+
+        // Then
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals("OPEN", health.getDetails().get("state"));
+        assertEquals(100, health.getDetails().get("failureRate"));
+        assertEquals(1.0, meterRegistry.get("ml.circuit.state").gauge().value());
+    }
+
+    private void openBreaker() {
+        for (int i = 0; i < 5; i++) {
+            breaker.onError(FAST);
+        }
+        assertEquals(MLCircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void awaitStateNot(MLCircuitBreaker.State state) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (breaker.getState() == state && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.dto.MLPredictionRequest;
+import com.ibm.aimonitoring.processor.dto.MLPredictionResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MLPredictionBatcherTest {
+
+    private final List<List<MLPredictionRequest>> sentBatches = new CopyOnWriteArrayList<>();
+    private MLPredictionBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        if (batcher != null) {
+            batcher.close();
+        }
+    }
+
+    @Test
+    void testSubmit_SendsBatchWhenFull() throws Exception {
+        // Given
+        batcher = new MLPredictionBatcher(3, Duration.ofSeconds(10), this::echo);
+
+        // When
+        CompletableFuture<MLPredictionResponse> first = batcher.submit(request("a"));
+        CompletableFuture<MLPredictionResponse> second = batcher.submit(request("b"));
+        assertTrue(sentBatches.isEmpty());
+        CompletableFuture<MLPredictionResponse> third = batcher.submit(request("c"));
+
+        // Then
+        assertEquals(1, sentBatches.size());
+        assertEquals(3, sentBatches.get(0).size());
+        assertEquals("a", first.get(1, TimeUnit.SECONDS).getLogId());
+        assertEquals("b", second.get(1, TimeUnit.SECONDS).getLogId());
+        assertEquals("c", third.get(1, TimeUnit.SECONDS).getLogId());
+    }
+
+    @Test
+    void testSubmit_SendsPartialBatchAfterMaxWait() throws Exception {
+        // Given
+        batcher = new MLPredictionBatcher(100, Duration.ofMillis(20), this::echo);
+
+        // When
+        CompletableFuture<MLPredictionResponse> result = batcher.submit(request("a"));
+
+        // Then
+        assertEquals("a", result.get(2, TimeUnit.SECONDS).getLogId());
+        assertEquals(1, sentBatches.size());
+    }
+
+    @Test
+    void testFanOut_MatchesByLogIdRegardlessOfOrder() throws Exception {
+        // Given - service answers in reverse order
+        batcher = new MLPredictionBatcher(2, Duration.ofSeconds(10), requests -> {
+            List<MLPredictionResponse> reversed = new ArrayList<>();
+            for (MLPredictionRequest r : requests) {
+                reversed.add(0, MLPredictionResponse.builder().logId(r.getLogId()).anomalyScore(score(r)).build());
+            }
+            return CompletableFuture.completedFuture(reversed);
+        });
+
+        // When
+        CompletableFuture<MLPredictionResponse> first = batcher.submit(request("a"));
+        CompletableFuture<MLPredictionResponse> second = batcher.submit(request("bb"));
+
+        // Then
+        assertEquals(1.0, first.get(1, TimeUnit.SECONDS).getAnomalyScore());
+        assertEquals(2.0, second.get(1, TimeUnit.SECONDS).getAnomalyScore());
+    }
+
+    @Test
+    void testFanOut_ByPositionWhenLogIdsMissing() throws Exception {
+        // Given
+        batcher = new MLPredictionBatcher(2, Duration.ofSeconds(10), requests -> CompletableFuture.completedFuture(
+                requests.stream().map(r -> MLPredictionResponse.builder().anomalyScore(score(r)).build()).toList()));
+
+        // When
+        CompletableFuture<MLPredictionResponse> first = batcher.submit(request("a"));
+        CompletableFuture<MLPredictionResponse> second = batcher.submit(request("bb"));
+
+        // Then
+        assertEquals(1.0, first.get(1, TimeUnit.SECONDS).getAnomalyScore());
+        assertEquals(2.0, second.get(1, TimeUnit.SECONDS).getAnomalyScore());
+    }
+
+    @Test
+    void testFanOut_MissingResponseCompletesWithNull() throws Exception {
+        // Given - service only answers for "a"
+        batcher = new MLPredictionBatcher(2, Duration.ofSeconds(10), requests -> CompletableFuture.completedFuture(
+                List.of(MLPredictionResponse.builder().logId("a").build())));
+
+        // When
+        CompletableFuture<MLPredictionResponse> first = batcher.submit(request("a"));
+        CompletableFuture<MLPredictionResponse> second = batcher.submit(request("b"));
+
+        // Then
+        assertNotNull(first.get(1, TimeUnit.SECONDS));
+        assertNull(second.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testDispatch_FailedBatchCompletesAllWithNull() throws Exception {
+        // Given
+        batcher = new MLPredictionBatcher(2, Duration.ofSeconds(10),
+                requests -> CompletableFuture.failedFuture(new IllegalStateException("ML service down")));
+
+        // When
+        CompletableFuture<MLPredictionResponse> first = batcher.submit(request("a"));
+        CompletableFuture<MLPredictionResponse> second = batcher.submit(request("b"));
+
+        // Then
+        assertNull(first.get(1, TimeUnit.SECONDS));
+        assertNull(second.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testClose_FlushesPendingRequests() throws Exception {
+        // Given
+        batcher = new MLPredictionBatcher(100, Duration.ofSeconds(10), this::echo);
+        CompletableFuture<MLPredictionResponse> pending = batcher.submit(request("a"));
+
+        // When
+        batcher.close();
+
+        // Then
+        assertEquals("a", pending.get(1, TimeUnit.SECONDS).getLogId());
+        assertNull(batcher.submit(request("b")).get(1, TimeUnit.SECONDS));
+    }
+
+    private CompletableFuture<List<MLPredictionResponse>> echo(List<MLPredictionRequest> requests) {
+        sentBatches.add(requests);
+        return CompletableFuture.completedFuture(requests.stream()
+                .map(r -> MLPredictionResponse.builder().logId(r.getLogId()).isAnomaly(false).build())
+                .toList());
+    }
+
+    private static double score(MLPredictionRequest request) {
+        return request.getLogId().length();
+    }
+
+    private static MLPredictionRequest request(String logId) {
+        return MLPredictionRequest.builder().logId(logId).build();
+    }
+}
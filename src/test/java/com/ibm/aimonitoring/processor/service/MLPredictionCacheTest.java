@@ -0,0 +1,172 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.dto.MLPredictionRequest;
+import com.ibm.aimonitoring.processor.dto.MLPredictionResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MLPredictionCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MLPredictionCache cache;
+    private final AtomicInteger loads = new AtomicInteger();
+    private volatile String modelVersion = "v1";
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new MLPredictionCache(meterRegistry);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 100L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(cache, "messageLengthBucket", 0);
+        cache.init();
+    }
+
+    @Test
+    void testGet_SameFeaturesHitCache() {
+        // When
+        MLPredictionResponse first = cache.get(request("log-1", 42), this::load).block();
+        MLPredictionResponse second = cache.get(request("log-2", 42), this::load).block();
+
+        // Then
+        assertEquals(1, loads.get());
+        assertEquals("log-1", first.getLogId());
+        assertEquals("log-2", second.getLogId());
+        assertEquals(first.getAnomalyScore(), second.getAnomalyScore());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "ml.prediction").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "ml.prediction").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    void testGet_DifferentFeaturesMiss() {
+        // When
+        cache.get(request("log-1", 42), this::load).block();
+        cache.get(request("log-2", 43), this::load).block();
+
+        // Then
+        assertEquals(2, loads.get());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testGet_MessageLengthBucketing() {
+        // Given
+        ReflectionTestUtils.setField(cache, "messageLengthBucket", 50);
+
+        // When
+        cache.get(request("log-1", 10), this::load).block();
+        cache.get(request("log-2", 49), this::load).block();
+        cache.get(request("log-3", 50), this::load).block();
+
+        // Then
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testGet_ConcurrentMissesShareOneLoad() {
+        // Given - the ML call has not answered yet
+        Sinks.One<MLPredictionResponse> pending = Sinks.one();
+        Function<MLPredictionRequest, Mono<MLPredictionResponse>> slowLoader = request -> {
+            loads.incrementAndGet();
+            return pending.asMono();
+        };
+
+        // When
+        Mono<MLPredictionResponse> first = cache.get(request("log-1", 42), slowLoader).cache();
+        Mono<MLPredictionResponse> second = cache.get(request("log-2", 42), slowLoader).cache();
+        first.subscribe();
+        second.subscribe();
+        pending.tryEmitValue(prediction("v1"));
+
+        // Then
+        assertEquals("log-1", first.block().getLogId());
+        assertEquals("log-2", second.block().getLogId());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testGet_EmptyResultIsNotCached() {
+        // When
+        assertNull(cache.get(request("log-1", 42), request -> {
+            loads.incrementAndGet();
+            return Mono.empty();
+        }).block());
+        cache.get(request("log-2", 42), this::load).block();
+
+        // Then
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testGet_ModelVersionChangeInvalidatesCache() {
+        // Given
+        cache.get(request("log-1", 42), this::load).block();
+        cache.get(request("log-2", 7), this::load).block();
+        assertEquals(2, loads.get());
+
+        // When - the model is redeployed and a new vector reveals it
+        modelVersion = "v2";
+        cache.get(request("log-3", 99), this::load).block();
+        MLPredictionResponse afterChange = cache.get(request("log-4", 42), this::load).block();
+
+        // Then
+        assertEquals(4, loads.get());
+        assertEquals("v2", afterChange.getModelVersion());
+        assertEquals(1.0, meterRegistry.counter("ml.prediction.cache.invalidations").count());
+    }
+
+    @Test
+    void testGet_DisabledAlwaysLoads() {
+        // Given
+        MLPredictionCache disabled = new MLPredictionCache(meterRegistry);
+        disabled.init();
+
+        // When
+        disabled.get(request("log-1", 42), this::load).block();
+        disabled.get(request("log-2", 42), this::load).block();
+
+        // Then
+        assertFalse(disabled.isEnabled());
+        assertEquals(2, loads.get());
+    }
+
+    private Mono<MLPredictionResponse> load(MLPredictionRequest request) {
+        loads.incrementAndGet();
+        return Mono.just(prediction(modelVersion));
+    }
+
+    private static MLPredictionResponse prediction(String modelVersion) {
+        return MLPredictionResponse.builder()
+                .isAnomaly(false)
+                .anomalyScore(0.12)
+                .confidence(0.9)
+                .modelVersion(modelVersion)
+                .build();
+    }
+
+    private static MLPredictionRequest request(String logId, int messageLength) {
+        return MLPredictionRequest.builder()
+                .logId(logId)
+                .features(MLPredictionRequest.LogFeatures.builder()
+                        .messageLength(messageLength)
+                        .level("ERROR")
+                        .service("payment-service")
+                        .hasException(true)
+                        .hasTimeout(false)
+                        .hasConnectionError(false)
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,255 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ibm.aimonitoring.processor.config.VirtualThreadMode;
+import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
+import com.ibm.aimonitoring.processor.dto.MLBatchPredictionRequest;
+import com.ibm.aimonitoring.processor.dto.MLBatchPredictionResponse;
+import com.ibm.aimonitoring.processor.dto.MLPredictionRequest;
+import com.ibm.aimonitoring.processor.dto.MLPredictionResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Exercises batch prediction against a local stub of the ML service
+ */
+@Slf4j
+class MLServiceClientBatchTest {
+
+    // Simulated model latency per HTTP request, independent of batch size
+    private static final long STUB_LATENCY_MS = 2;
+
+    private static final LogFeatureExtractor FEATURES = LogFeatureExtractor.withDefaultKeywords();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicInteger batchCalls = new AtomicInteger();
+    private final AtomicInteger singleCalls = new AtomicInteger();
+    private final List<MLServiceClient> clients = new ArrayList<>();
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private volatile boolean batchEndpointPresent = true;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        serverExecutor = Executors.newFixedThreadPool(32);
+        server.setExecutor(serverExecutor);
+        server.createContext("/api/v1/predict/batch", this::handleBatch);
+        server.createContext("/api/v1/predict", this::handleSingle);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clients.forEach(MLServiceClient::close);
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void testPredictAnomaly_UsesBatchEndpoint() throws Exception {
+        // Given
+        MLServiceClient client = client(8, 1000);
+
+        // When
+        List<CompletableFuture<MLPredictionResponse>> results = submit(client, 8);
+
+        // Then
+        for (int i = 0; i < results.size(); i++) {
+            MLPredictionResponse response = results.get(i).get(5, TimeUnit.SECONDS);
+            assertNotNull(response);
+            assertEquals("log-" + i, response.getLogId());
+        }
+        assertEquals(1, batchCalls.get());
+        assertEquals(0, singleCalls.get());
+    }
+
+    @Test
+    void testPredictAnomaly_FallsBackToSingleRequestsWithoutBatchEndpoint() throws Exception {
+        // Given
+        batchEndpointPresent = false;
+        MLServiceClient client = client(4, 1000);
+
+        // When - two full batches
+        List<CompletableFuture<MLPredictionResponse>> first = submit(client, 4);
+        for (CompletableFuture<MLPredictionResponse> result : first) {
+            assertNotNull(result.get(5, TimeUnit.SECONDS));
+        }
+        List<CompletableFuture<MLPredictionResponse>> second = submit(client, 4);
+        for (CompletableFuture<MLPredictionResponse> result : second) {
+            assertNotNull(result.get(5, TimeUnit.SECONDS));
+        }
+
+        // Then - the missing batch endpoint is only probed once
+        assertEquals(1, batchCalls.get());
+        assertEquals(8, singleCalls.get());
+    }
+
+    @Test
+    void testPredictAnomaly_SingleRequestsWhenBatchingDisabled() {
+        // Given
+        MLServiceClient client = newClient();
+
+        // When
+        MLPredictionResponse response = client.predictAnomaly("log-1", features(1));
+
+        // Then
+        assertNotNull(response);
+        assertEquals(0, batchCalls.get());
+        assertEquals(1, singleCalls.get());
+    }
+
+    @Test
+    void testThroughputAndLatencyByBatchSize() throws Exception {
+        // Kept small so the unit suite stays fast; the numbers are logged at debug for comparison
+        int predictions = 64;
+        int[] batchSizes = {1, 16, 64};
+        int[] httpCalls = new int[batchSizes.length];
+
+        for (int s = 0; s < batchSizes.length; s++) {
+            MLServiceClient client = client(batchSizes[s], 5);
+            submitAll(client, 32); // warm up connections
+            batchCalls.set(0);
+
+            long start = System.nanoTime();
+            List<CompletableFuture<MLPredictionResponse>> results = new ArrayList<>(predictions);
+            long[] latencies = new long[predictions];
+            for (int i = 0; i < predictions; i++) {
+                long submitted = System.nanoTime();
+                int index = i;
+                results.add(client.predictAnomalyAsync("log-" + i, features(i))
+                        .whenComplete((r, e) -> latencies[index] = System.nanoTime() - submitted));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+            long elapsedNanos = System.nanoTime() - start;
+
+            for (CompletableFuture<MLPredictionResponse> result : results) {
+                assertNotNull(result.join());
+            }
+            httpCalls[s] = batchCalls.get();
+
+            Arrays.sort(latencies);
+            log.debug("ML batch size {}: {} predictions/s, {} HTTP calls, latency p50={}ms p99={}ms",
+                    batchSizes[s],
+                    predictions * TimeUnit.SECONDS.toNanos(1) / elapsedNanos,
+                    httpCalls[s],
+                    latencies[predictions / 2] / 1_000_000,
+                    latencies[predictions * 99 / 100] / 1_000_000);
+        }
+
+        // Larger batches must need fewer round trips for the same predictions
+        assertEquals(predictions, httpCalls[0]);
+        assertTrue(httpCalls[1] < httpCalls[0]);
+        assertTrue(httpCalls[2] < httpCalls[1]);
+    }
+
+    private List<CompletableFuture<MLPredictionResponse>> submit(MLServiceClient client, int count) {
+        List<CompletableFuture<MLPredictionResponse>> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(client.predictAnomalyAsync("log-" + i, features(i)));
+        }
+        return results;
+    }
+
+    private void submitAll(MLServiceClient client, int count) throws Exception {
+        CompletableFuture.allOf(submit(client, count).toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+    }
+
+    private MLServiceClient client(int batchSize, long maxWaitMs) {
+        MLServiceClient client = newClient();
+        ReflectionTestUtils.setField(client, "batchEnabled", true);
+        ReflectionTestUtils.setField(client, "batchMaxSize", batchSize);
+        ReflectionTestUtils.setField(client, "batchMaxWaitMs", maxWaitMs);
+        client.init();
+        return client;
+    }
+
+    private MLServiceClient newClient() {
+        MLServiceClient client = new MLServiceClient(
+                WebClient.builder(),
+                new MLPredictionCache(new SimpleMeterRegistry()),
+                new MLCircuitBreaker(new SimpleMeterRegistry()),
+                new DownstreamLimiter(new VirtualThreadMode(false), new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(client, "mlServiceUrl", "http://127.0.0.1:" + server.getAddress().getPort());
+        ReflectionTestUtils.setField(client, "timeout", 5000);
+        ReflectionTestUtils.setField(client, "maxRetryAttempts", 0);
+        clients.add(client);
+        return client;
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        batchCalls.incrementAndGet();
+        if (!batchEndpointPresent) {
+            respond(exchange, 404, "{\"detail\":\"Not Found\"}".getBytes());
+            return;
+        }
+        MLBatchPredictionRequest request = objectMapper.readValue(exchange.getRequestBody(), MLBatchPredictionRequest.class);
+        simulateModelLatency();
+        List<MLPredictionResponse> predictions = request.getRequests().stream().map(this::predict).toList();
+        respond(exchange, 200, objectMapper.writeValueAsBytes(
+                MLBatchPredictionResponse.builder().predictions(predictions).build()));
+    }
+
+    private void handleSingle(HttpExchange exchange) throws IOException {
+        singleCalls.incrementAndGet();
+        MLPredictionRequest request = objectMapper.readValue(exchange.getRequestBody(), MLPredictionRequest.class);
+        simulateModelLatency();
+        respond(exchange, 200, objectMapper.writeValueAsBytes(predict(request)));
+    }
+
+    private MLPredictionResponse predict(MLPredictionRequest request) {
+        return MLPredictionResponse.builder()
+                .logId(request.getLogId())
+                .isAnomaly(Boolean.TRUE.equals(request.getFeatures().getHasException()))
+                .anomalyScore(0.1)
+                .confidence(0.9)
+                .modelVersion("stub")
+                .build();
+    }
+
+    private static void simulateModelLatency() {
+        try {
+            Thread.sleep(STUB_LATENCY_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static LogFeatures features(int i) {
+        return FEATURES.extract(LogEntryDTO.builder()
+                .message(i % 10 == 0 ? "NullPointerException in handler" : "Request completed")
+                .level(i % 10 == 0 ? "ERROR" : "INFO")
+                .service("api-gateway")
+                .build());
+    }
+}
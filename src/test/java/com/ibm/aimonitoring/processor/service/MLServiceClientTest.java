@@ -1,8 +1,9 @@
 package com.ibm.aimonitoring.processor.service;
 
+import com.ibm.aimonitoring.processor.config.VirtualThreadMode;
 import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
-import com.ibm.aimonitoring.processor.dto.MLPredictionRequest;
 import com.ibm.aimonitoring.processor.dto.MLPredictionResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,92 +17,24 @@ import static org.junit.jupiter.api.Assertions.*;
 class MLServiceClientTest {
 
     private MLServiceClient mlServiceClient;
-    private LogEntryDTO testLogEntry;
+    private LogFeatures testFeatures;
 
     @BeforeEach
     void setUp() {
-        mlServiceClient = new MLServiceClient(WebClient.builder());
+        mlServiceClient = new MLServiceClient(
+                WebClient.builder(),
+                new MLPredictionCache(new SimpleMeterRegistry()),
+                new MLCircuitBreaker(new SimpleMeterRegistry()),
+                new DownstreamLimiter(new VirtualThreadMode(false), new SimpleMeterRegistry()));
         ReflectionTestUtils.setField(mlServiceClient, "mlServiceUrl", "http://localhost:8000");
         ReflectionTestUtils.setField(mlServiceClient, "timeout", 5000);
         ReflectionTestUtils.setField(mlServiceClient, "maxRetryAttempts", 3);
 
-        testLogEntry = LogEntryDTO.builder()
+        testFeatures = LogFeatureExtractor.withDefaultKeywords().extract(LogEntryDTO.builder()
                 .message("Connection timeout exception occurred")
                 .level("ERROR")
                 .service("api-gateway")
-                .build();
-    }
-
-    @Test
-    void testExtractFeatures_WithExceptionKeywords() {
-        // Given
-        LogEntryDTO logEntry = LogEntryDTO.builder()
-                .message("Database connection exception error")
-                .level("error")
-                .service("db-service")
-                .build();
-
-        // When
-        MLPredictionRequest.LogFeatures features = extractFeaturesUsingReflection(logEntry);
-
-        // Then
-        assertNotNull(features);
-        assertTrue(features.getHasException());
-        assertEquals("ERROR", features.getLevel());
-        assertEquals("db-service", features.getService());
-    }
-
-    @Test
-    void testExtractFeatures_WithTimeoutKeywords() {
-        // Given
-        LogEntryDTO logEntry = LogEntryDTO.builder()
-                .message("Request timed out after 30 seconds")
-                .level("WARN")
-                .service("api-service")
-                .build();
-
-        // When
-        MLPredictionRequest.LogFeatures features = extractFeaturesUsingReflection(logEntry);
-
-        // Then
-        assertNotNull(features);
-        assertTrue(features.getHasTimeout());
-    }
-
-    @Test
-    void testExtractFeatures_WithConnectionError() {
-        // Given
-        LogEntryDTO logEntry = LogEntryDTO.builder()
-                .message("Connection refused to database server")
-                .level("ERROR")
-                .service("db-service")
-                .build();
-
-        // When
-        MLPredictionRequest.LogFeatures features = extractFeaturesUsingReflection(logEntry);
-
-        // Then
-        assertNotNull(features);
-        assertTrue(features.getHasConnectionError());
-    }
-
-    @Test
-    void testExtractFeatures_WithNullValues() {
-        // Given
-        LogEntryDTO logEntry = LogEntryDTO.builder()
-                .message(null)
-                .level(null)
-                .service(null)
-                .build();
-
-        // When
-        MLPredictionRequest.LogFeatures features = extractFeaturesUsingReflection(logEntry);
-
-        // Then
-        assertNotNull(features);
-        assertEquals(0, features.getMessageLength());
-        assertEquals("INFO", features.getLevel());
-        assertEquals("unknown", features.getService());
+                .build());
     }
 
     @Test
@@ -111,7 +44,7 @@ class MLServiceClientTest {
         // Using real WebClient which will fail to connect to non-existent service
         
         // When
-        MLPredictionResponse result = mlServiceClient.predictAnomaly(logId, testLogEntry);
+        MLPredictionResponse result = mlServiceClient.predictAnomaly(logId, testFeatures);
 
         // Then - should return null gracefully
         assertNull(result);
@@ -127,15 +60,4 @@ class MLServiceClientTest {
         // Then - should return false when service is unavailable
         assertFalse(result);
     }
-
-    // Helper method to test private extractFeatures method using reflection
-    private MLPredictionRequest.LogFeatures extractFeaturesUsingReflection(LogEntryDTO logEntry) {
-        try {
-            java.lang.reflect.Method method = MLServiceClient.class.getDeclaredMethod("extractFeatures", LogEntryDTO.class);
-            method.setAccessible(true);
-            return (MLPredictionRequest.LogFeatures) method.invoke(mlServiceClient, logEntry);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to invoke extractFeatures", e);
-        }
-    }
 }
@@ -0,0 +1,110 @@
+package com.ibm.aimonitoring.processor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowCountersTest {
+
+    private static final long START = 1_714_557_600L; // 2024-05-01T10:00:00Z
+
+    @Test
+    void testCount_SumsLevelsWithinWindow() {
+        // Given
+        SlidingWindowCounters counters = new SlidingWindowCounters(600, 16, START);
+        counters.record("checkout", "INFO", START + 10);
+        counters.record("checkout", "error", START + 80);
+        counters.record("auth", "WARNING", START + 130);
+        counters.record("auth", "CRITICAL", START + 150);
+        counters.record("auth", "NOTICE", START + 150);
+
+        // When
+        SlidingWindowCounters.WindowCounts lastMinute = counters.count(60, false, START + 150);
+        SlidingWindowCounters.WindowCounts all = counters.count(600, false, START + 150);
+
+        // Then
+        assertEquals(60, lastMinute.seconds());
+        assertEquals(3, lastMinute.total());
+        assertEquals(1, lastMinute.count("WARN"));
+        assertEquals(1, lastMinute.count("FATAL"));
+        assertEquals(1, lastMinute.count(SlidingWindowCounters.OTHER));
+        assertEquals(5, all.total());
+        assertEquals(1, all.count("ERROR"));
+        assertEquals(151, all.seconds(), "window is capped at the time since start");
+        assertTrue(all.services().isEmpty());
+    }
+
+    @Test
+    void testCount_ExpiredSecondsAreNotCounted() {
+        // Given - a 60 second ring reused after two minutes
+        SlidingWindowCounters counters = new SlidingWindowCounters(60, 4, START);
+        counters.record("checkout", "INFO", START + 5);
+        counters.record("checkout", "INFO", START + 125);
+
+        // When
+        SlidingWindowCounters.WindowCounts counts = counters.count(3600, false, START + 130);
+
+        // Then
+        assertEquals(60, counts.seconds());
+        assertEquals(1, counts.total());
+    }
+
+    @Test
+    void testCount_BreaksDownByServiceWithOverflowSlot() {
+        // Given
+        SlidingWindowCounters counters = new SlidingWindowCounters(60, 2, START);
+        counters.record("checkout", "INFO", START);
+        counters.record("checkout", "ERROR", START);
+        counters.record("auth", "INFO", START);
+        counters.record("billing", "INFO", START);
+        counters.record("search", "INFO", START);
+
+        // When
+        SlidingWindowCounters.WindowCounts counts = counters.count(60, true, START);
+
+        // Then
+        assertEquals(2L, counts.services().get("checkout"));
+        assertEquals(1L, counts.services().get("auth"));
+        assertEquals(2L, counts.services().get(SlidingWindowCounters.OTHER));
+    }
+
+    @Test
+    void testRecord_ConcurrentIncrementsAreNotLost() throws Exception {
+        // Given
+        SlidingWindowCounters counters = new SlidingWindowCounters(60, 8, START);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (int t = 0; t < 8; t++) {
+            String service = "svc-" + (t % 3);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    counters.record(service, i % 10 == 0 ? "ERROR" : "INFO", START + i % 30);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Then
+        SlidingWindowCounters.WindowCounts counts = counters.count(60, true, START + 59);
+        assertEquals(80_000, counts.total());
+        assertEquals(8_000, counts.count("ERROR"));
+        assertEquals(80_000, counts.services().values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void testConstructor_RejectsInvalidWindow() {
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowCounters(0, 8));
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowCounters(60, 0));
+    }
+}
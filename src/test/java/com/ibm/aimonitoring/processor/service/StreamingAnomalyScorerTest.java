@@ -0,0 +1,192 @@
+package com.ibm.aimonitoring.processor.service;
+
+import com.ibm.aimonitoring.processor.dto.LogEntryDTO;
+import com.ibm.aimonitoring.processor.dto.MLPredictionResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingAnomalyScorerTest {
+
+    private static final LogFeatureExtractor FEATURES = LogFeatureExtractor.withDefaultKeywords();
+
+    private StreamingAnomalyScorer scorer;
+
+    @BeforeEach
+    void setUp() {
+        scorer = new StreamingAnomalyScorer(4, 0.01, 0.1, 4.0, 10);
+    }
+
+    @Test
+    void testScore_ReturnsPredictionShape() {
+        // When
+        MLPredictionResponse prediction = scorer.score("log-1", info("svc", "Request served"));
+
+        // Then
+        assertEquals("log-1", prediction.getLogId());
+        assertEquals(StreamingAnomalyScorer.MODEL_VERSION, prediction.getModelVersion());
+        assertNotNull(prediction.getTimestamp());
+        assertNotNull(prediction.getAnomalyScore());
+        assertEquals(0.0, prediction.getConfidence());
+        assertFalse(prediction.getIsAnomaly());
+    }
+
+    @Test
+    void testScore_NeverFlagsDuringWarmup() {
+        // When
+        MLPredictionResponse prediction = null;
+        for (int i = 0; i < 10; i++) {
+            prediction = scorer.score("log-" + i, error("svc", "java.lang.IllegalStateException: boom " + "x".repeat(i * 50)));
+        }
+
+        // Then
+        assertFalse(prediction.getIsAnomaly());
+    }
+
+    @Test
+    void testScore_FlagsDeviationFromServiceBaseline() {
+        // Given
+        warmUp("svc", 50);
+
+        // When
+        MLPredictionResponse ordinary = scorer.score("log-a", info("svc", "Request served"));
+        MLPredictionResponse outlier = scorer.score("log-b",
+                error("svc", "Connection timeout calling payment gateway: java.net.SocketTimeoutException"));
+
+        // Then
+        assertFalse(ordinary.getIsAnomaly());
+        assertEquals(0.0, ordinary.getAnomalyScore());
+        assertTrue(outlier.getIsAnomaly());
+        assertTrue(outlier.getAnomalyScore() > 0.5);
+        assertTrue(outlier.getConfidence() > 0.8);
+    }
+
+    @Test
+    void testScore_SingleRareErrorIsNotAnomalous() {
+        // Given
+        warmUp("svc", 50);
+
+        // When - the first error the service ever logged
+        MLPredictionResponse prediction = scorer.score("log-1", error("svc", "Request failed"));
+
+        // Then
+        assertFalse(prediction.getIsAnomaly());
+        assertTrue(prediction.getAnomalyScore() > 0.0);
+    }
+
+    @Test
+    void testScore_OccasionalErrorsAreNormal() {
+        // Given / When - a healthy service with one error in twenty logs
+        boolean flagged = false;
+        for (int i = 0; i < 1000; i++) {
+            LogFeatures features = i % 20 == 19 ? error("svc", "Request failed") : info("svc", "Request served");
+            flagged |= scorer.score("log-" + i, features).getIsAnomaly();
+        }
+
+        // Then
+        assertFalse(flagged);
+    }
+
+    @Test
+    void testScore_FlagsBurstOfErrors() {
+        // Given
+        warmUp("svc", 50);
+
+        // When
+        MLPredictionResponse first = scorer.score("log-1", error("svc", "Request failed"));
+        scorer.score("log-2", error("svc", "Request failed"));
+        scorer.score("log-3", error("svc", "Request failed"));
+        MLPredictionResponse fourth = scorer.score("log-4", error("svc", "Request failed"));
+
+        // Then
+        assertFalse(first.getIsAnomaly());
+        assertTrue(fourth.getIsAnomaly());
+        assertTrue(fourth.getAnomalyScore() > first.getAnomalyScore());
+    }
+
+    @Test
+    void testScore_ErrorsAreNormalForNoisyService() {
+        // Given - a service that always logs connection errors
+        for (int i = 0; i < 50; i++) {
+            scorer.score("warmup-" + i, error("noisy", "Connection refused by upstream"));
+        }
+
+        // When
+        MLPredictionResponse prediction = scorer.score("log-1", error("noisy", "Connection refused by upstream"));
+
+        // Then
+        assertFalse(prediction.getIsAnomaly());
+    }
+
+    @Test
+    void testScore_KeepsStatisticsPerService() {
+        // Given
+        warmUp("quiet", 50);
+        for (int i = 0; i < 50; i++) {
+            scorer.score("warmup-" + i, error("noisy", "Connection refused by upstream"));
+        }
+
+        // When
+        MLPredictionResponse quiet = null;
+        MLPredictionResponse noisy = null;
+        for (int i = 0; i < 4; i++) {
+            quiet = scorer.score("quiet-" + i, error("quiet", "Connection refused by upstream"));
+            noisy = scorer.score("noisy-" + i, error("noisy", "Connection refused by upstream"));
+        }
+
+        // Then
+        assertTrue(quiet.getIsAnomaly());
+        assertFalse(noisy.getIsAnomaly());
+        assertEquals(2, scorer.getTrackedServices());
+    }
+
+    @Test
+    void testScore_FlagsBurstOfTimeouts() {
+        // Given
+        warmUp("svc", 50);
+
+        // When
+        MLPredictionResponse prediction = null;
+        for (int i = 0; i < 4; i++) {
+            prediction = scorer.score("log-" + i, info("svc", "Request timed out"));
+        }
+
+        // Then
+        assertTrue(prediction.getIsAnomaly());
+    }
+
+    @Test
+    void testScore_SharesOverflowSlotBeyondMaxServices() {
+        // When
+        for (int i = 0; i < 10; i++) {
+            scorer.score("log-" + i, info("svc-" + i, "Request served"));
+        }
+        MLPredictionResponse prediction = scorer.score("log-null", info(null, "Request served"));
+
+        // Then
+        assertEquals(4, scorer.getTrackedServices());
+        assertNotNull(prediction.getAnomalyScore());
+    }
+
+    @Test
+    void testConstructor_RejectsInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new StreamingAnomalyScorer(0, 0.01, 0.1, 4.0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new StreamingAnomalyScorer(4, 1.5, 0.1, 4.0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new StreamingAnomalyScorer(4, 0.1, 0.05, 4.0, 10));
+    }
+
+    private void warmUp(String service, int count) {
+        for (int i = 0; i < count; i++) {
+            scorer.score("warmup-" + i, info(service, "Request served"));
+        }
+    }
+
+    private static LogFeatures info(String service, String message) {
+        return FEATURES.extract(LogEntryDTO.builder().level("INFO").service(service).message(message).build());
+    }
+
+    private static LogFeatures error(String service, String message) {
+        return FEATURES.extract(LogEntryDTO.builder().level("ERROR").service(service).message(message).build());
+    }
+}